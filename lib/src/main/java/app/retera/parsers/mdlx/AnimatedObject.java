@@ -45,10 +45,32 @@ public abstract class AnimatedObject implements Chunk, MdlxBlock {
 		}
 	}
 
+	/**
+	 * Allocates an iterator per block, prefer {@link #readAnimatedToken}.
+	 */
+	@Deprecated
 	public Iterator<String> readAnimatedBlock(final MdlTokenInputStream stream) {
 		return new TransformedAnimatedBlockIterator(stream.readBlock().iterator());
 	}
 
+	/**
+	 * Reads the next token of a block opened with
+	 * {@link MdlTokenInputStream#readBlockStart()}, joining "static" with the
+	 * token that follows it.
+	 *
+	 * @return The token, or null at the end of the block.
+	 */
+	public String readAnimatedToken(final MdlTokenInputStream stream) {
+		final String token = stream.readBlockToken();
+		if (MdlUtils.TOKEN_STATIC.equals(token)) {
+			final String staticToken = stream.readBlockToken();
+			if (staticToken != null) {
+				return MdlUtils.TOKEN_STATIC + " " + staticToken;
+			}
+		}
+		return token;
+	}
+
 	public void readTimeline(final MdlTokenInputStream stream, final AnimationMap name) throws IOException {
 		final Timeline<?> timeline = name.getNewTimeline();
 
@@ -109,4 +131,16 @@ public abstract class AnimatedObject implements Chunk, MdlxBlock {
 	public List<Timeline<?>> getTimelines() {
 		return this.timelines;
 	}
+
+	@Override
+	public abstract AnimatedObject copy(boolean shareArrays);
+
+	/**
+	 * Adds copies of the timelines of this object to another.
+	 */
+	protected void copyTimelines(final AnimatedObject copy, final boolean shareArrays) {
+		for (final Timeline<?> timeline : this.timelines) {
+			copy.timelines.add(timeline.copy(shareArrays));
+		}
+	}
 }
@@ -15,11 +15,7 @@ public class Attachment extends GenericObject {
 		super(0x800);
 	}
 
-	/**
-	 * Restricts us to only be able to parse models on one thread at a time, in
-	 * return for high performance.
-	 */
-	private static final byte[] PATH_BYTES_HEAP = new byte[260];
+	private static final int PATH_LENGTH = 260;
 
 	@Override
 	public void readMdx(final LittleEndianDataInputStream stream) throws IOException {
@@ -27,7 +23,7 @@ public class Attachment extends GenericObject {
 
 		super.readMdx(stream);
 
-		this.path = ParseUtils.readString(stream, PATH_BYTES_HEAP);
+		this.path = ParseUtils.readString(stream, PATH_LENGTH);
 		this.attachmentId = stream.readInt();
 
 		this.readTimelines(stream, size - this.getByteLength());
@@ -51,7 +47,8 @@ public class Attachment extends GenericObject {
 
 	@Override
 	public void readMdl(final MdlTokenInputStream stream) throws IOException {
-		for (final String token : super.readMdlGeneric(stream)) {
+		super.readMdlGenericStart(stream);
+		for (String token = super.readMdlGenericToken(stream); token != null; token = super.readMdlGenericToken(stream)) {
 			if (MdlUtils.TOKEN_ATTACHMENT_ID.equals(token)) {
 				this.attachmentId = stream.readInt();
 			}
@@ -101,7 +98,20 @@ public class Attachment extends GenericObject {
 		return this.path;
 	}
 
+	public void setPath(final String path) {
+		this.path = path;
+	}
+
 	public int getAttachmentId() {
 		return this.attachmentId;
 	}
+
+	@Override
+	public Attachment copy(final boolean shareArrays) {
+		final Attachment copy = new Attachment();
+		copyGeneric(copy, shareArrays);
+		copy.path = this.path;
+		copy.attachmentId = this.attachmentId;
+		return copy;
+	}
 }
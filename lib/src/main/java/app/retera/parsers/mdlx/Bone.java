@@ -31,7 +31,8 @@ public class Bone extends GenericObject {
 
 	@Override
 	public void readMdl(final MdlTokenInputStream stream) {
-		for (String token : super.readMdlGeneric(stream)) {
+		super.readMdlGenericStart(stream);
+		for (String token = super.readMdlGenericToken(stream); token != null; token = super.readMdlGenericToken(stream)) {
 			if (MdlUtils.TOKEN_GEOSETID.equals(token)) {
 				token = stream.read();
 
@@ -86,4 +87,13 @@ public class Bone extends GenericObject {
 	public int getGeosetId() {
 		return this.geosetId;
 	}
+
+	@Override
+	public Bone copy(final boolean shareArrays) {
+		final Bone copy = new Bone();
+		copyGeneric(copy, shareArrays);
+		copy.geosetId = this.geosetId;
+		copy.geosetAnimationId = this.geosetAnimationId;
+		return copy;
+	}
 }
@@ -20,17 +20,13 @@ public class Camera extends AnimatedObject {
 		this.targetPosition = new float[3];
 	}
 
-	/**
-	 * Restricts us to only be able to parse models on one thread at a time, in
-	 * return for high performance.
-	 */
-	private static final byte[] NAME_BYTES_HEAP = new byte[80];
+	private static final int NAME_LENGTH = 80;
 
 	@Override
 	public void readMdx(final LittleEndianDataInputStream stream) throws IOException {
 		final long size = ParseUtils.readUInt32(stream);
 
-		this.name = ParseUtils.readString(stream, NAME_BYTES_HEAP);
+		this.name = ParseUtils.readString(stream, NAME_LENGTH);
 		ParseUtils.readFloatArray(stream, this.position);
 		this.fieldOfView = stream.readFloat();
 		this.farClippingPlane = stream.readFloat();
@@ -61,7 +57,8 @@ public class Camera extends AnimatedObject {
 	public void readMdl(final MdlTokenInputStream stream) throws IOException {
 		this.name = stream.read();
 
-		for (final String token : stream.readBlock()) {
+		stream.readBlockStart();
+		for (String token = stream.readBlockToken(); token != null; token = stream.readBlockToken()) {
 			switch (token) {
 				case MdlUtils.TOKEN_POSITION -> stream.readFloatArray(this.position);
 				case MdlUtils.TOKEN_TRANSLATION -> readTimeline(stream, AnimationMap.KCTR);
@@ -76,7 +73,8 @@ public class Camera extends AnimatedObject {
 	}
 
 	private void readTargetChunk(MdlTokenInputStream stream) throws IOException {
-		for (final String subToken : stream.readBlock()) {
+		stream.readBlockStart();
+		for (String subToken = stream.readBlockToken(); subToken != null; subToken = stream.readBlockToken()) {
 			switch (subToken) {
 				case MdlUtils.TOKEN_POSITION -> stream.readFloatArray(this.targetPosition);
 				case MdlUtils.TOKEN_TRANSLATION -> readTimeline(stream, AnimationMap.KTTR);
@@ -132,4 +130,17 @@ public class Camera extends AnimatedObject {
 	public float[] getTargetPosition() {
 		return this.targetPosition;
 	}
+
+	@Override
+	public Camera copy(final boolean shareArrays) {
+		final Camera copy = new Camera();
+		copyTimelines(copy, shareArrays);
+		copy.name = this.name;
+		System.arraycopy(this.position, 0, copy.position, 0, 3);
+		copy.fieldOfView = this.fieldOfView;
+		copy.farClippingPlane = this.farClippingPlane;
+		copy.nearClippingPlane = this.nearClippingPlane;
+		System.arraycopy(this.targetPosition, 0, copy.targetPosition, 0, 3);
+		return copy;
+	}
 }
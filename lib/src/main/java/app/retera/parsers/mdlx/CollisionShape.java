@@ -87,7 +87,8 @@ public class CollisionShape extends GenericObject {
 
 	@Override
 	public void readMdl(final MdlTokenInputStream stream) {
-		for (final String token : super.readMdlGeneric(stream)) {
+		super.readMdlGenericStart(stream);
+		for (String token = super.readMdlGenericToken(stream); token != null; token = super.readMdlGenericToken(stream)) {
 			switch (token) {
 				case MdlUtils.TOKEN_BOX -> this.type = CollisionShapeType.BOX;
 				case MdlUtils.TOKEN_PLANE -> this.type = CollisionShapeType.PLANE;
@@ -155,4 +156,14 @@ public class CollisionShape extends GenericObject {
 		return this.boundsRadius;
 	}
 
+	@Override
+	public CollisionShape copy(final boolean shareArrays) {
+		final CollisionShape copy = new CollisionShape();
+		copyGeneric(copy, shareArrays);
+		copy.type = this.type;
+		System.arraycopy(this.vertices[0], 0, copy.vertices[0], 0, 3);
+		System.arraycopy(this.vertices[1], 0, copy.vertices[1], 0, 3);
+		copy.boundsRadius = this.boundsRadius;
+		return copy;
+	}
 }
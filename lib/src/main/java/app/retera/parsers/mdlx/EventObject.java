@@ -43,7 +43,8 @@ public class EventObject extends GenericObject {
 
 	@Override
 	public void readMdl(final MdlTokenInputStream stream) {
-		for (final String token : super.readMdlGeneric(stream)) {
+		super.readMdlGenericStart(stream);
+		for (String token = super.readMdlGenericToken(stream); token != null; token = super.readMdlGenericToken(stream)) {
 			if (MdlUtils.TOKEN_EVENT_TRACK.equals(token)) {
 				this.keyFrames = new long[stream.readInt()];
 				stream.readIntArray(this.keyFrames);
@@ -91,4 +92,12 @@ public class EventObject extends GenericObject {
 		this.keyFrames = keyFrames;
 	}
 
+	@Override
+	public EventObject copy(final boolean shareArrays) {
+		final EventObject copy = new EventObject();
+		copyGeneric(copy, shareArrays);
+		copy.globalSequenceId = this.globalSequenceId;
+		copy.keyFrames = shareArrays ? this.keyFrames : this.keyFrames.clone();
+		return copy;
+	}
 }
@@ -52,4 +52,19 @@ public class Extent {
 	public float[] getMax() {
 		return this.max;
 	}
+
+	/**
+	 * Copies the bounds of another extent into this one.
+	 */
+	public void set(final Extent extent) {
+		this.boundsRadius = extent.boundsRadius;
+		System.arraycopy(extent.min, 0, this.min, 0, 3);
+		System.arraycopy(extent.max, 0, this.max, 0, 3);
+	}
+
+	public Extent copy() {
+		final Extent copy = new Extent();
+		copy.set(this);
+		return copy;
+	}
 }
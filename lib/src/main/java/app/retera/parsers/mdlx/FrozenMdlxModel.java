@@ -0,0 +1,226 @@
+package app.retera.parsers.mdlx;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An unchanging snapshot of a {@link MdlxModel}, made by
+ * {@link MdlxModel#freeze()}, that any number of threads can read without
+ * locking.
+ *
+ * The snapshot owns a deep copy of the model, so later changes to the model
+ * do not show through. Every chunk is held in an immutable list backed by an
+ * exactly sized array, and all fields are final, so the snapshot is safely
+ * published to other threads however the reference is handed over.
+ *
+ * The blocks and arrays reached through the lists are the usual mutable
+ * classes, and must be treated as read only. Edits go through {@link #thaw()}.
+ * The extent is handed out as a copy.
+ */
+public final class FrozenMdlxModel {
+	private final int version;
+	private final String name;
+	private final String animationFile;
+	private final Extent extent;
+	private final long blendTime;
+	private final List<Sequence> sequences;
+	private final List<Long> globalSequences;
+	private final List<Material> materials;
+	private final List<Texture> textures;
+	private final List<TextureAnimation> textureAnimations;
+	private final List<Geoset> geosets;
+	private final List<GeosetAnimation> geosetAnimations;
+	private final List<Bone> bones;
+	private final List<Light> lights;
+	private final List<Helper> helpers;
+	private final List<Attachment> attachments;
+	private final List<float[]> pivotPoints;
+	private final List<ParticleEmitter> particleEmitters;
+	private final List<ParticleEmitter2> particleEmitters2;
+	private final List<RibbonEmitter> ribbonEmitters;
+	private final List<Camera> cameras;
+	private final List<EventObject> eventObjects;
+	private final List<CollisionShape> collisionShapes;
+	private final List<UnknownChunk> unknownChunks;
+
+	/**
+	 * @param model A model no one else holds.
+	 */
+	FrozenMdlxModel(final MdlxModel model) {
+		this.version = model.getVersion();
+		this.name = model.getName();
+		this.animationFile = model.getAnimationFile();
+		this.extent = model.getExtent();
+		this.blendTime = model.getBlendTime();
+		this.sequences = List.copyOf(model.getSequences());
+		this.globalSequences = List.copyOf(model.getGlobalSequences());
+		this.materials = List.copyOf(model.getMaterials());
+		this.textures = List.copyOf(model.getTextures());
+		this.textureAnimations = List.copyOf(model.getTextureAnimations());
+		this.geosets = List.copyOf(model.getGeosets());
+		this.geosetAnimations = List.copyOf(model.getGeosetAnimations());
+		this.bones = List.copyOf(model.getBones());
+		this.lights = List.copyOf(model.getLights());
+		this.helpers = List.copyOf(model.getHelpers());
+		this.attachments = List.copyOf(model.getAttachments());
+		this.pivotPoints = List.copyOf(model.getPivotPoints());
+		this.particleEmitters = List.copyOf(model.getParticleEmitters());
+		this.particleEmitters2 = List.copyOf(model.getParticleEmitters2());
+		this.ribbonEmitters = List.copyOf(model.getRibbonEmitters());
+		this.cameras = List.copyOf(model.getCameras());
+		this.eventObjects = List.copyOf(model.getEventObjects());
+		this.collisionShapes = List.copyOf(model.getCollisionShapes());
+		this.unknownChunks = List.copyOf(model.getUnknownChunks());
+	}
+
+	/**
+	 * Makes a mutable model from this snapshot with {@link MdlxModel#copy(boolean)}.
+	 * The blocks are new and can be changed freely, but they share this
+	 * snapshot's arrays, so an array is replaced with a copy of it (or a new
+	 * one) rather than changed in place.
+	 */
+	public MdlxModel thaw() {
+		final MdlxModel model = new MdlxModel();
+		model.setVersion(this.version);
+		model.setName(this.name);
+		model.setAnimationFile(this.animationFile);
+		model.setBlendTime(this.blendTime);
+		model.getExtent().setBoundsRadius(this.extent.getBoundsRadius());
+		System.arraycopy(this.extent.getMin(), 0, model.getExtent().getMin(), 0, 3);
+		System.arraycopy(this.extent.getMax(), 0, model.getExtent().getMax(), 0, 3);
+		model.getSequences().addAll(this.sequences);
+		model.getGlobalSequences().addAll(this.globalSequences);
+		model.getMaterials().addAll(this.materials);
+		model.getTextures().addAll(this.textures);
+		model.getTextureAnimations().addAll(this.textureAnimations);
+		model.getGeosets().addAll(this.geosets);
+		model.getGeosetAnimations().addAll(this.geosetAnimations);
+		model.getBones().addAll(this.bones);
+		model.getLights().addAll(this.lights);
+		model.getHelpers().addAll(this.helpers);
+		model.getAttachments().addAll(this.attachments);
+		model.getPivotPoints().addAll(this.pivotPoints);
+		model.getParticleEmitters().addAll(this.particleEmitters);
+		model.getParticleEmitters2().addAll(this.particleEmitters2);
+		model.getRibbonEmitters().addAll(this.ribbonEmitters);
+		model.getCameras().addAll(this.cameras);
+		model.getEventObjects().addAll(this.eventObjects);
+		model.getCollisionShapes().addAll(this.collisionShapes);
+		model.getUnknownChunks().addAll(this.unknownChunks);
+		return model.copy(true);
+	}
+
+	/**
+	 * Every node, in the same order as {@link MdlxModel#getGenericObjects()}.
+	 * The list is a new copy.
+	 */
+	public List<GenericObject> getGenericObjects() {
+		final List<GenericObject> objects = new ArrayList<>();
+		objects.addAll(this.bones);
+		objects.addAll(this.lights);
+		objects.addAll(this.helpers);
+		objects.addAll(this.attachments);
+		objects.addAll(this.particleEmitters);
+		objects.addAll(this.particleEmitters2);
+		objects.addAll(this.ribbonEmitters);
+		objects.addAll(this.eventObjects);
+		objects.addAll(this.collisionShapes);
+		return objects;
+	}
+
+	public int getVersion() {
+		return this.version;
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public String getAnimationFile() {
+		return this.animationFile;
+	}
+
+	public Extent getExtent() {
+		return this.extent.copy();
+	}
+
+	public long getBlendTime() {
+		return this.blendTime;
+	}
+
+	public List<Sequence> getSequences() {
+		return this.sequences;
+	}
+
+	public List<Long> getGlobalSequences() {
+		return this.globalSequences;
+	}
+
+	public List<Material> getMaterials() {
+		return this.materials;
+	}
+
+	public List<Texture> getTextures() {
+		return this.textures;
+	}
+
+	public List<TextureAnimation> getTextureAnimations() {
+		return this.textureAnimations;
+	}
+
+	public List<Geoset> getGeosets() {
+		return this.geosets;
+	}
+
+	public List<GeosetAnimation> getGeosetAnimations() {
+		return this.geosetAnimations;
+	}
+
+	public List<Bone> getBones() {
+		return this.bones;
+	}
+
+	public List<Light> getLights() {
+		return this.lights;
+	}
+
+	public List<Helper> getHelpers() {
+		return this.helpers;
+	}
+
+	public List<Attachment> getAttachments() {
+		return this.attachments;
+	}
+
+	public List<float[]> getPivotPoints() {
+		return this.pivotPoints;
+	}
+
+	public List<ParticleEmitter> getParticleEmitters() {
+		return this.particleEmitters;
+	}
+
+	public List<ParticleEmitter2> getParticleEmitters2() {
+		return this.particleEmitters2;
+	}
+
+	public List<RibbonEmitter> getRibbonEmitters() {
+		return this.ribbonEmitters;
+	}
+
+	public List<Camera> getCameras() {
+		return this.cameras;
+	}
+
+	public List<EventObject> getEventObjects() {
+		return this.eventObjects;
+	}
+
+	public List<CollisionShape> getCollisionShapes() {
+		return this.collisionShapes;
+	}
+
+	public List<UnknownChunk> getUnknownChunks() {
+		return this.unknownChunks;
+	}
+}
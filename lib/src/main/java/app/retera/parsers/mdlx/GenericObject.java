@@ -26,11 +26,7 @@ public abstract class GenericObject extends AnimatedObject implements Chunk {
 	private int parentId;
 	protected int flags;
 
-	/**
-	 * Restricts us to only be able to parse models on one thread at a time, in
-	 * return for high performance.
-	 */
-	private static final byte[] NAME_BYTES_HEAP = new byte[80];
+	private static final int NAME_LENGTH = 80;
 
 	public GenericObject(final int flags) {
 		this.name = "";
@@ -42,7 +38,7 @@ public abstract class GenericObject extends AnimatedObject implements Chunk {
 	@Override
 	public void readMdx(final LittleEndianDataInputStream stream) throws IOException {
 		final long size = ParseUtils.readUInt32(stream);
-		this.name = ParseUtils.readString(stream, NAME_BYTES_HEAP);
+		this.name = ParseUtils.readString(stream, NAME_LENGTH);
 		this.objectId = stream.readInt();
 		this.parentId = stream.readInt();
 		this.flags = stream.readInt(); // Used to be Int32 in JS
@@ -72,15 +68,60 @@ public abstract class GenericObject extends AnimatedObject implements Chunk {
 		}
 	}
 
-	protected final Iterable<String> readMdlGeneric(final MdlTokenInputStream stream) {
+	/**
+	 * Reads the object name and opens its block. Follow with
+	 * {@link #readMdlGenericToken} until it returns null.
+	 */
+	protected final void readMdlGenericStart(final MdlTokenInputStream stream) {
 		this.name = stream.read();
-		return new Iterable<String>() {
-			@Override
-			public Iterator<String> iterator() {
-				return new WrappedMdlTokenIterator(GenericObject.this.readAnimatedBlock(stream), GenericObject.this,
-						stream);
+		stream.readBlockStart();
+	}
+
+	/**
+	 * Consumes the tokens shared by all generic objects, and returns the first
+	 * one the subclass has to handle.
+	 *
+	 * @return The token, or null at the end of the block.
+	 */
+	protected final String readMdlGenericToken(final MdlTokenInputStream stream) {
+		String token;
+		while ((token = this.readAnimatedToken(stream)) != null) {
+			switch (token) {
+				case MdlUtils.TOKEN_OBJECTID -> this.objectId = stream.readInt();
+				case MdlUtils.TOKEN_PARENT -> this.parentId = stream.readInt();
+				case MdlUtils.TOKEN_BILLBOARDED_LOCK_Z -> this.flags |= 0x40;
+				case MdlUtils.TOKEN_BILLBOARDED_LOCK_Y -> this.flags |= 0x20;
+				case MdlUtils.TOKEN_BILLBOARDED_LOCK_X -> this.flags |= 0x10;
+				case MdlUtils.TOKEN_BILLBOARDED -> this.flags |= 0x8;
+				case MdlUtils.TOKEN_CAMERA_ANCHORED -> this.flags |= 0x80;
+				case MdlUtils.TOKEN_DONT_INHERIT -> {
+					stream.readBlockStart();
+					for (String subToken = stream.readBlockToken(); subToken != null; subToken = stream.readBlockToken()) {
+						switch (subToken) {
+							case MdlUtils.TOKEN_ROTATION -> this.flags |= 0x2;
+							case MdlUtils.TOKEN_TRANSLATION -> this.flags |= 0x1;
+							case MdlUtils.TOKEN_SCALING -> this.flags |= 0x0;
+						}
+					}
+				}
+				case MdlUtils.TOKEN_TRANSLATION -> this.readGenericTimeline(stream, AnimationMap.KGTR);
+				case MdlUtils.TOKEN_ROTATION -> this.readGenericTimeline(stream, AnimationMap.KGRT);
+				case MdlUtils.TOKEN_SCALING -> this.readGenericTimeline(stream, AnimationMap.KGSC);
+				default -> {
+					return token;
+				}
 			}
-		};
+		}
+		return null;
+	}
+
+	private void readGenericTimeline(final MdlTokenInputStream stream, final AnimationMap name) {
+		try {
+			this.readTimeline(stream, name);
+		}
+		catch (final IOException e) {
+			throw new RuntimeException(e);
+		}
 	}
 
 	public void writeGenericHeader(final MdlTokenOutputStream stream) {
@@ -210,122 +251,6 @@ public abstract class GenericObject extends AnimatedObject implements Chunk {
 
 	}
 
-	private static final class WrappedMdlTokenIterator implements Iterator<String> {
-		private final Iterator<String> delegate;
-		private final GenericObject updatingObject;
-		private final MdlTokenInputStream stream;
-		private String next;
-		private boolean hasLoaded = false;
-
-		public WrappedMdlTokenIterator(final Iterator<String> delegate, final GenericObject updatingObject,
-				final MdlTokenInputStream stream) {
-			this.delegate = delegate;
-			this.updatingObject = updatingObject;
-			this.stream = stream;
-		}
-
-		@Override
-		public boolean hasNext() {
-			if (this.delegate.hasNext()) {
-				this.next = read();
-				this.hasLoaded = true;
-				return this.next != null;
-			}
-			return false;
-		}
-
-		@Override
-		public String next() {
-			if (!this.hasLoaded) {
-				this.next = read();
-			}
-			this.hasLoaded = false;
-			return this.next;
-		}
-
-		private String read() {
-			String token;
-			InteriorParsing: do {
-				token = this.delegate.next();
-				if (token == null) {
-					break;
-				}
-				switch (token) {
-					case MdlUtils.TOKEN_OBJECTID:
-						this.updatingObject.objectId = Integer.parseInt(this.delegate.next());
-						token = null;
-						break;
-					case MdlUtils.TOKEN_PARENT:
-						this.updatingObject.parentId = Integer.parseInt(this.delegate.next());
-						token = null;
-						break;
-					case MdlUtils.TOKEN_BILLBOARDED_LOCK_Z:
-						this.updatingObject.flags |= 0x40;
-						token = null;
-						break;
-					case MdlUtils.TOKEN_BILLBOARDED_LOCK_Y:
-						this.updatingObject.flags |= 0x20;
-						token = null;
-						break;
-					case MdlUtils.TOKEN_BILLBOARDED_LOCK_X:
-						this.updatingObject.flags |= 0x10;
-						token = null;
-						break;
-					case MdlUtils.TOKEN_BILLBOARDED:
-						this.updatingObject.flags |= 0x8;
-						token = null;
-						break;
-					case MdlUtils.TOKEN_CAMERA_ANCHORED:
-						this.updatingObject.flags |= 0x80;
-						token = null;
-						break;
-					case MdlUtils.TOKEN_DONT_INHERIT:
-						for (final String subToken : this.stream.readBlock()) {
-							switch (subToken) {
-								case MdlUtils.TOKEN_ROTATION -> this.updatingObject.flags |= 0x2;
-								case MdlUtils.TOKEN_TRANSLATION -> this.updatingObject.flags |= 0x1;
-								case MdlUtils.TOKEN_SCALING -> this.updatingObject.flags |= 0x0;
-							}
-						}
-						token = null;
-						break;
-					case MdlUtils.TOKEN_TRANSLATION:
-						try {
-							this.updatingObject.readTimeline(this.stream, AnimationMap.KGTR);
-						}
-						catch (final IOException e) {
-							throw new RuntimeException(e);
-						}
-						token = null;
-						break;
-					case MdlUtils.TOKEN_ROTATION:
-						try {
-							this.updatingObject.readTimeline(this.stream, AnimationMap.KGRT);
-						}
-						catch (final IOException e) {
-							throw new RuntimeException(e);
-						}
-						token = null;
-						break;
-					case MdlUtils.TOKEN_SCALING:
-						try {
-							this.updatingObject.readTimeline(this.stream, AnimationMap.KGSC);
-						}
-						catch (final IOException e) {
-							throw new RuntimeException(e);
-						}
-						token = null;
-						break;
-					default:
-						break InteriorParsing;
-				}
-			}
-			while (this.delegate.hasNext());
-			return token;
-		}
-
-	}
-
 	public String getName() {
 		return this.name;
 	}
@@ -341,4 +266,34 @@ public abstract class GenericObject extends AnimatedObject implements Chunk {
 	public int getFlags() {
 		return this.flags;
 	}
+
+	public void setName(final String name) {
+		this.name = name;
+	}
+
+	public void setObjectId(final int objectId) {
+		this.objectId = objectId;
+	}
+
+	public void setParentId(final int parentId) {
+		this.parentId = parentId;
+	}
+
+	public void setFlags(final int flags) {
+		this.flags = flags;
+	}
+
+	@Override
+	public abstract GenericObject copy(boolean shareArrays);
+
+	/**
+	 * Copies the node fields and timelines of this object to another.
+	 */
+	protected void copyGeneric(final GenericObject copy, final boolean shareArrays) {
+		copy.name = this.name;
+		copy.objectId = this.objectId;
+		copy.parentId = this.parentId;
+		copy.flags = this.flags;
+		copyTimelines(copy, shareArrays);
+	}
 }
@@ -24,12 +24,13 @@ public class Geoset implements MdlxBlock, Chunk {
 	private static final War3ID UVBS = War3ID.fromString("UVBS");
 	private float[] vertices;
 	private float[] normals;
-	private long[] faceTypeGroups; // unsigned int[]
-	private long[] faceGroups; // unsigned int[]
-	private int[] faces; // unsigned short[]
-	private short[] vertexGroups; // unsigned byte[]
-	private long[] matrixGroups; // unsigned int[]
-	private long[] matrixIndices; // unsigned int[]
+	// The unsigned arrays are stored at their on-disk width and widened on access.
+	private int[] faceTypeGroups; // unsigned int[]
+	private int[] faceGroups; // unsigned int[]
+	private char[] faces; // unsigned short[]
+	private byte[] vertexGroups; // unsigned byte[]
+	private int[] matrixGroups; // unsigned int[]
+	private int[] matrixIndices; // unsigned int[]
 	private long materialId = 0;
 	private long selectionGroup = 0;
 	private long selectionFlags = 0;
@@ -45,17 +46,23 @@ public class Geoset implements MdlxBlock, Chunk {
 		final int nrms = stream.readInt(); // skip NRMS
 		this.normals = ParseUtils.readFloatArray(stream, (int) (ParseUtils.readUInt32(stream) * 3));
 		final int ptyp = stream.readInt(); // skip PTYP
-		this.faceTypeGroups = ParseUtils.readUInt32Array(stream, (int) ParseUtils.readUInt32(stream));
+		this.faceTypeGroups = new int[(int) ParseUtils.readUInt32(stream)];
+		ParseUtils.readInt32Array(stream, this.faceTypeGroups);
 		stream.readInt(); // skip PCNT
-		this.faceGroups = ParseUtils.readUInt32Array(stream, (int) ParseUtils.readUInt32(stream));
+		this.faceGroups = new int[(int) ParseUtils.readUInt32(stream)];
+		ParseUtils.readInt32Array(stream, this.faceGroups);
 		stream.readInt(); // skip PVTX
-		this.faces = ParseUtils.readUInt16Array(stream, (int) ParseUtils.readUInt32(stream));
+		this.faces = new char[(int) ParseUtils.readUInt32(stream)];
+		ParseUtils.readUInt16Array(stream, this.faces);
 		stream.readInt(); // skip GNDX
-		this.vertexGroups = ParseUtils.readUInt8Array(stream, (int) ParseUtils.readUInt32(stream));
+		this.vertexGroups = new byte[(int) ParseUtils.readUInt32(stream)];
+		ParseUtils.readUInt8Array(stream, this.vertexGroups);
 		stream.readInt(); // skip MTGC
-		this.matrixGroups = ParseUtils.readUInt32Array(stream, (int) ParseUtils.readUInt32(stream));
+		this.matrixGroups = new int[(int) ParseUtils.readUInt32(stream)];
+		ParseUtils.readInt32Array(stream, this.matrixGroups);
 		stream.readInt(); // skip MATS
-		this.matrixIndices = ParseUtils.readUInt32Array(stream, (int) ParseUtils.readUInt32(stream));
+		this.matrixIndices = new int[(int) ParseUtils.readUInt32(stream)];
+		ParseUtils.readInt32Array(stream, this.matrixIndices);
 		this.materialId = ParseUtils.readUInt32(stream);
 		this.selectionGroup = ParseUtils.readUInt32(stream);
 		this.selectionFlags = ParseUtils.readUInt32(stream);
@@ -129,7 +136,8 @@ public class Geoset implements MdlxBlock, Chunk {
 	public void readMdl(final MdlTokenInputStream stream) {
 		this.uvSets = new float[0][];
 		final List<Extent> sequenceExtents = new ArrayList<>();
-		for (final String token : stream.readBlock()) {
+		stream.readBlockStart();
+		for (String token = stream.readBlockToken(); token != null; token = stream.readBlockToken()) {
 			switch (token) {
 				case MdlUtils.TOKEN_VERTICES -> this.vertices = stream.readVectorArray(new float[stream.readInt() * 3], 3);
 				case MdlUtils.TOKEN_NORMALS -> this.normals = stream.readVectorArray(new float[stream.readInt() * 3], 3);
@@ -140,66 +148,68 @@ public class Geoset implements MdlxBlock, Chunk {
 				case MdlUtils.TOKEN_VERTEX_GROUP -> {
 					// Vertex groups are stored in a block with no count, can't allocate the buffer
 					// yet.
-					final List<Short> vertexGroups = new ArrayList<>();
-					for (final String vertexGroup : stream.readBlock()) {
-						vertexGroups.add(Short.valueOf(vertexGroup));
+					byte[] vertexGroups = new byte[this.vertices == null ? 0 : this.vertices.length / 3];
+					int count = 0;
+					stream.readBlockStart();
+					for (String vertexGroup = stream.readBlockToken(); vertexGroup != null; vertexGroup = stream.readBlockToken()) {
+						if (count == vertexGroups.length) {
+							vertexGroups = Arrays.copyOf(vertexGroups, Math.max(16, count * 2));
+						}
+						vertexGroups[count++] = (byte) Integer.parseInt(vertexGroup);
 					}
 
-					this.vertexGroups = new short[vertexGroups.size()];
-					int i = 0;
-					for (final Short vertexGroup : vertexGroups) {
-						this.vertexGroups[i++] = vertexGroup.shortValue();
-					}
+					this.vertexGroups = count == vertexGroups.length ? vertexGroups : Arrays.copyOf(vertexGroups, count);
 				}
 				case MdlUtils.TOKEN_FACES -> {
 					// For now hardcoded for triangles, until I see a model with something
 					// different.
-					this.faceTypeGroups = new long[] {4L};
+					this.faceTypeGroups = new int[] {4};
 					stream.readInt(); // number of groups
 					final int count = stream.readInt();
 					stream.read(); // {
 					stream.read(); // Triangles
 					stream.read(); // {
-					this.faces = stream.readUInt16Array(new int[count]);
-					this.faceGroups = new long[] {count};
+					this.faces = stream.readUInt16Array(new char[count]);
+					this.faceGroups = new int[] {count};
 					stream.read(); // }
 					stream.read(); // }
 				}
 				case MdlUtils.TOKEN_GROUPS -> {
-					final List<Integer> indices = new ArrayList<>();
-					final List<Integer> groups = new ArrayList<>();
-
-					stream.readInt(); // matrices count
-					stream.readInt(); // total indices
+					// The counts are only a hint, the blocks themselves are authoritative.
+					int[] groups = new int[stream.readInt()]; // matrices count
+					int[] indices = new int[stream.readInt()]; // total indices
+					int groupCount = 0;
+					int indexCount = 0;
 
 					// eslint-disable-next-line no-unused-vars
-					for (final String matrix : stream.readBlock()) {
+					stream.readBlockStart();
+					for (String matrix = stream.readBlockToken(); matrix != null; matrix = stream.readBlockToken()) {
 						int size = 0;
 
-						for (final String index : stream.readBlock()) {
-							indices.add(Integer.valueOf(index));
+						stream.readBlockStart();
+						for (String index = stream.readBlockToken(); index != null; index = stream.readBlockToken()) {
+							if (indexCount == indices.length) {
+								indices = Arrays.copyOf(indices, Math.max(16, indexCount * 2));
+							}
+							indices[indexCount++] = (int) Long.parseLong(index);
 							size += 1;
 						}
-						groups.add(size);
+						if (groupCount == groups.length) {
+							groups = Arrays.copyOf(groups, Math.max(16, groupCount * 2));
+						}
+						groups[groupCount++] = size;
 					}
 
-					this.matrixIndices = new long[indices.size()];
-					int i = 0;
-					for (final Integer index : indices) {
-						this.matrixIndices[i++] = index.intValue();
-					}
-					this.matrixGroups = new long[groups.size()];
-					i = 0;
-					for (final Integer group : groups) {
-						this.matrixGroups[i++] = group.intValue();
-					}
+					this.matrixIndices = indexCount == indices.length ? indices : Arrays.copyOf(indices, indexCount);
+					this.matrixGroups = groupCount == groups.length ? groups : Arrays.copyOf(groups, groupCount);
 				}
 				case MdlUtils.TOKEN_MINIMUM_EXTENT -> stream.readFloatArray(this.extent.min);
 				case MdlUtils.TOKEN_MAXIMUM_EXTENT -> stream.readFloatArray(this.extent.max);
 				case MdlUtils.TOKEN_BOUNDSRADIUS -> this.extent.boundsRadius = stream.readFloat();
 				case MdlUtils.TOKEN_ANIM -> {
 					final Extent extent = new Extent();
-					for (final String subToken : stream.readBlock()) {
+					stream.readBlockStart();
+					for (String subToken = stream.readBlockToken(); subToken != null; subToken = stream.readBlockToken()) {
 						switch (subToken) {
 							case MdlUtils.TOKEN_MINIMUM_EXTENT -> stream.readFloatArray(extent.min);
 							case MdlUtils.TOKEN_MAXIMUM_EXTENT -> stream.readFloatArray(extent.max);
@@ -229,8 +239,8 @@ public class Geoset implements MdlxBlock, Chunk {
 		}
 
 		stream.startBlock(MdlUtils.TOKEN_VERTEX_GROUP);
-		for (short vertexGroup : this.vertexGroups) {
-			stream.writeLine(vertexGroup + ",");
+		for (final byte vertexGroup : this.vertexGroups) {
+			stream.writeLine(Byte.toUnsignedInt(vertexGroup) + ",");
 		}
 		stream.endBlock();
 
@@ -239,11 +249,11 @@ public class Geoset implements MdlxBlock, Chunk {
 		stream.startBlock(MdlUtils.TOKEN_FACES, 1, this.faces.length);
 		stream.startBlock(MdlUtils.TOKEN_TRIANGLES);
 		final StringBuilder facesBuffer = new StringBuilder();
-		for (final int faceValue : this.faces) {
+		for (final char faceValue : this.faces) {
 			if (facesBuffer.length() > 0) {
 				facesBuffer.append(", ");
 			}
-			facesBuffer.append(faceValue);
+			facesBuffer.append((int) faceValue);
 		}
 		stream.writeLine("{ " + facesBuffer + " },");
 		stream.endBlock();
@@ -251,9 +261,8 @@ public class Geoset implements MdlxBlock, Chunk {
 
 		stream.startBlock(MdlUtils.TOKEN_GROUPS, this.matrixGroups.length, this.matrixIndices.length);
 		int index = 0;
-		for (final long groupSize : this.matrixGroups) {
-			stream.writeLongSubArrayAttrib(MdlUtils.TOKEN_MATRICES, this.matrixIndices, index,
-					(int) (index + groupSize));
+		for (final int groupSize : this.matrixGroups) {
+			stream.writeUInt32SubArrayAttrib(MdlUtils.TOKEN_MATRICES, this.matrixIndices, index, index + groupSize);
 			index += groupSize;
 		}
 		stream.endBlock();
@@ -300,30 +309,154 @@ public class Geoset implements MdlxBlock, Chunk {
 		return this.normals;
 	}
 
+	/**
+	 * Allocates a widened copy, prefer {@link #getCompactFaceTypeGroups()}. This used to
+	 * return the backing array, but writes to the copy do not reach the
+	 * geoset, so changes must go through the setter.
+	 */
+	@Deprecated
 	public long[] getFaceTypeGroups() {
-		return this.faceTypeGroups;
+		return toUnsignedLongs(this.faceTypeGroups);
 	}
 
+	/**
+	 * Allocates a widened copy, prefer {@link #getCompactFaceGroups()}. This used to
+	 * return the backing array, but writes to the copy do not reach the
+	 * geoset, so changes must go through the setter.
+	 */
+	@Deprecated
 	public long[] getFaceGroups() {
-		return this.faceGroups;
+		return toUnsignedLongs(this.faceGroups);
 	}
 
+	/**
+	 * Allocates a widened copy, prefer {@link #getCompactFaces()}. This used to
+	 * return the backing array, but writes to the copy do not reach the
+	 * geoset, so changes must go through the setter.
+	 */
+	@Deprecated
 	public int[] getFaces() {
-		return this.faces;
+		if (this.faces == null) {
+			return null;
+		}
+		final int[] faces = new int[this.faces.length];
+		for (int i = 0; i < faces.length; i++) {
+			faces[i] = this.faces[i];
+		}
+		return faces;
 	}
 
+	/**
+	 * Allocates a widened copy, prefer {@link #getCompactVertexGroups()}. This used to
+	 * return the backing array, but writes to the copy do not reach the
+	 * geoset, so changes must go through the setter.
+	 */
+	@Deprecated
 	public short[] getVertexGroups() {
-		return this.vertexGroups;
+		if (this.vertexGroups == null) {
+			return null;
+		}
+		final short[] vertexGroups = new short[this.vertexGroups.length];
+		for (int i = 0; i < vertexGroups.length; i++) {
+			vertexGroups[i] = (short) Byte.toUnsignedInt(this.vertexGroups[i]);
+		}
+		return vertexGroups;
 	}
 
+	/**
+	 * Allocates a widened copy, prefer {@link #getCompactMatrixGroups()}. This used to
+	 * return the backing array, but writes to the copy do not reach the
+	 * geoset, so changes must go through the setter.
+	 */
+	@Deprecated
 	public long[] getMatrixGroups() {
-		return this.matrixGroups;
+		return toUnsignedLongs(this.matrixGroups);
 	}
 
+	/**
+	 * Allocates a widened copy, prefer {@link #getCompactMatrixIndices()}. This used to
+	 * return the backing array, but writes to the copy do not reach the
+	 * geoset, so changes must go through the setter.
+	 */
+	@Deprecated
 	public long[] getMatrixIndices() {
+		return toUnsignedLongs(this.matrixIndices);
+	}
+
+	/**
+	 * The backing face type groups, each element an unsigned int.
+	 */
+	public int[] getCompactFaceTypeGroups() {
+		return this.faceTypeGroups;
+	}
+
+	/**
+	 * The backing face groups, each element an unsigned int.
+	 */
+	public int[] getCompactFaceGroups() {
+		return this.faceGroups;
+	}
+
+	/**
+	 * The backing face indices, each element an unsigned short.
+	 */
+	public char[] getCompactFaces() {
+		return this.faces;
+	}
+
+	/**
+	 * The backing vertex groups, each element an unsigned byte.
+	 */
+	public byte[] getCompactVertexGroups() {
+		return this.vertexGroups;
+	}
+
+	/**
+	 * The backing matrix group sizes, each element an unsigned int.
+	 */
+	public int[] getCompactMatrixGroups() {
+		return this.matrixGroups;
+	}
+
+	/**
+	 * The backing matrix indices, each element an unsigned int.
+	 */
+	public int[] getCompactMatrixIndices() {
 		return this.matrixIndices;
 	}
 
+	public int getFaceCount() {
+		return this.faces.length;
+	}
+
+	public int getFace(final int index) {
+		return this.faces[index];
+	}
+
+	public int getVertexGroupCount() {
+		return this.vertexGroups.length;
+	}
+
+	public int getVertexGroup(final int index) {
+		return Byte.toUnsignedInt(this.vertexGroups[index]);
+	}
+
+	public int getMatrixGroupCount() {
+		return this.matrixGroups.length;
+	}
+
+	public long getMatrixGroup(final int index) {
+		return Integer.toUnsignedLong(this.matrixGroups[index]);
+	}
+
+	public int getMatrixIndexCount() {
+		return this.matrixIndices.length;
+	}
+
+	public long getMatrixIndex(final int index) {
+		return Integer.toUnsignedLong(this.matrixIndices[index]);
+	}
+
 	public long getMaterialId() {
 		return this.materialId;
 	}
@@ -357,26 +490,64 @@ public class Geoset implements MdlxBlock, Chunk {
 	}
 
 	public void setFaceTypeGroups(final long[] faceTypeGroups) {
-		this.faceTypeGroups = faceTypeGroups;
+		this.faceTypeGroups = toUnsignedInts(faceTypeGroups);
 	}
 
 	public void setFaceGroups(final long[] faceGroups) {
-		this.faceGroups = faceGroups;
+		this.faceGroups = toUnsignedInts(faceGroups);
 	}
 
 	public void setFaces(final int[] faces) {
-		this.faces = faces;
+		if (faces == null) {
+			this.faces = null;
+			return;
+		}
+		this.faces = new char[faces.length];
+		for (int i = 0; i < faces.length; i++) {
+			this.faces[i] = (char) faces[i];
+		}
 	}
 
 	public void setVertexGroups(final short[] vertexGroups) {
-		this.vertexGroups = vertexGroups;
+		if (vertexGroups == null) {
+			this.vertexGroups = null;
+			return;
+		}
+		this.vertexGroups = new byte[vertexGroups.length];
+		for (int i = 0; i < vertexGroups.length; i++) {
+			this.vertexGroups[i] = (byte) vertexGroups[i];
+		}
 	}
 
 	public void setMatrixGroups(final long[] matrixGroups) {
-		this.matrixGroups = matrixGroups;
+		this.matrixGroups = toUnsignedInts(matrixGroups);
 	}
 
 	public void setMatrixIndices(final long[] matrixIndices) {
+		this.matrixIndices = toUnsignedInts(matrixIndices);
+	}
+
+	public void setCompactFaceTypeGroups(final int[] faceTypeGroups) {
+		this.faceTypeGroups = faceTypeGroups;
+	}
+
+	public void setCompactFaceGroups(final int[] faceGroups) {
+		this.faceGroups = faceGroups;
+	}
+
+	public void setCompactFaces(final char[] faces) {
+		this.faces = faces;
+	}
+
+	public void setCompactVertexGroups(final byte[] vertexGroups) {
+		this.vertexGroups = vertexGroups;
+	}
+
+	public void setCompactMatrixGroups(final int[] matrixGroups) {
+		this.matrixGroups = matrixGroups;
+	}
+
+	public void setCompactMatrixIndices(final int[] matrixIndices) {
 		this.matrixIndices = matrixIndices;
 	}
 
@@ -400,4 +571,64 @@ public class Geoset implements MdlxBlock, Chunk {
 		this.uvSets = uvSets;
 	}
 
+	private static long[] toUnsignedLongs(final int[] values) {
+		if (values == null) {
+			return null;
+		}
+		final long[] longs = new long[values.length];
+		for (int i = 0; i < values.length; i++) {
+			longs[i] = Integer.toUnsignedLong(values[i]);
+		}
+		return longs;
+	}
+
+	private static int[] toUnsignedInts(final long[] values) {
+		if (values == null) {
+			return null;
+		}
+		final int[] ints = new int[values.length];
+		for (int i = 0; i < values.length; i++) {
+			ints[i] = (int) values[i];
+		}
+		return ints;
+	}
+
+	@Override
+	public Geoset copy(final boolean shareArrays) {
+		final Geoset copy = new Geoset();
+		copy.vertices = copy(this.vertices, shareArrays);
+		copy.normals = copy(this.normals, shareArrays);
+		copy.faceTypeGroups = copy(this.faceTypeGroups, shareArrays);
+		copy.faceGroups = copy(this.faceGroups, shareArrays);
+		copy.faces = ((this.faces == null) || shareArrays) ? this.faces : this.faces.clone();
+		copy.vertexGroups = ((this.vertexGroups == null) || shareArrays) ? this.vertexGroups : this.vertexGroups.clone();
+		copy.matrixGroups = copy(this.matrixGroups, shareArrays);
+		copy.matrixIndices = copy(this.matrixIndices, shareArrays);
+		copy.materialId = this.materialId;
+		copy.selectionGroup = this.selectionGroup;
+		copy.selectionFlags = this.selectionFlags;
+		copy.extent.set(this.extent);
+		if (this.sequenceExtents != null) {
+			copy.sequenceExtents = new Extent[this.sequenceExtents.length];
+			for (int i = 0; i < this.sequenceExtents.length; i++) {
+				copy.sequenceExtents[i] = this.sequenceExtents[i].copy();
+			}
+		}
+		if (this.uvSets != null) {
+			// Only the UV arrays themselves may be shared, not the array holding them.
+			copy.uvSets = this.uvSets.clone();
+			for (int i = 0; !shareArrays && (i < this.uvSets.length); i++) {
+				copy.uvSets[i] = this.uvSets[i].clone();
+			}
+		}
+		return copy;
+	}
+
+	private static float[] copy(final float[] array, final boolean share) {
+		return ((array == null) || share) ? array : array.clone();
+	}
+
+	private static int[] copy(final int[] array, final boolean share) {
+		return ((array == null) || share) ? array : array.clone();
+	}
 }
@@ -1,7 +1,6 @@
 package app.retera.parsers.mdlx;
 
 import java.io.IOException;
-import java.util.Iterator;
 
 import app.retera.util.MdlUtils;
 import app.retera.util.ParseUtils;
@@ -39,9 +38,8 @@ public class GeosetAnimation extends AnimatedObject {
 
 	@Override
 	public void readMdl(final MdlTokenInputStream stream) throws IOException {
-		final Iterator<String> blockIterator = readAnimatedBlock(stream);
-		while (blockIterator.hasNext()) {
-			final String token = blockIterator.next();
+		stream.readBlockStart();
+		for (String token = readAnimatedToken(stream); token != null; token = readAnimatedToken(stream)) {
 			switch (token) {
 				case MdlUtils.TOKEN_DROP_SHADOW -> this.flags |= 0x1;
 				case MdlUtils.TOKEN_STATIC_ALPHA -> this.alpha = stream.readFloat();
@@ -101,4 +99,19 @@ public class GeosetAnimation extends AnimatedObject {
 	public int getGeosetId() {
 		return this.geosetId;
 	}
+
+	public void setGeosetId(final int geosetId) {
+		this.geosetId = geosetId;
+	}
+
+	@Override
+	public GeosetAnimation copy(final boolean shareArrays) {
+		final GeosetAnimation copy = new GeosetAnimation();
+		copyTimelines(copy, shareArrays);
+		copy.alpha = this.alpha;
+		copy.flags = this.flags;
+		System.arraycopy(this.color, 0, copy.color, 0, 3);
+		copy.geosetId = this.geosetId;
+		return copy;
+	}
 }
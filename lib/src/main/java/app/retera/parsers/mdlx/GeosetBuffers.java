@@ -0,0 +1,228 @@
+package app.retera.parsers.mdlx;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.function.IntFunction;
+
+/**
+ * The geometry of a {@link Geoset} packed into a single off-heap block, for
+ * handing to native code without further copies.
+ *
+ * The block holds, in order: vertices, normals, every UV set, faces, vertex
+ * groups, matrix group sizes and matrix indices. Each section starts at a 16
+ * byte offset from the start of the block and is stored in native byte order.
+ * The block itself starts on a 16 byte address when it comes from
+ * {@link #of(Geoset)}; with another allocator that is up to the allocator. The typed getters return
+ * views over the block, so writes through them are visible to native readers
+ * and vice versa. Faces are unsigned shorts and vertex groups unsigned bytes,
+ * exactly as in the MDX file. Sections the geoset does not have are empty.
+ *
+ * The block is taken from the allocator given to {@link #of(Geoset, IntFunction)},
+ * so callers that pool or free native memory own its lifetime. Nothing here
+ * keeps the {@link Geoset} alive, and later changes to it are not reflected.
+ *
+ * This packs a geoset that is already loaded, so the geometry is on the heap
+ * once before it is copied here. To skip that copy, read the file with an
+ * {@link MdxEventReader} and copy the geoset sections handed to
+ * {@link MdxEventHandler} into native memory as they arrive.
+ */
+public final class GeosetBuffers {
+	private static final int ALIGNMENT = 16;
+
+	private final ByteBuffer buffer;
+	private final int vertexCount;
+	private final int verticesOffset;
+	private final int normalsOffset;
+	private final int normalCount;
+	private final int[] uvSetOffsets;
+	private final int[] uvSetLengths;
+	private final int facesOffset;
+	private final int faceCount;
+	private final int vertexGroupsOffset;
+	private final int vertexGroupCount;
+	private final int matrixGroupsOffset;
+	private final int matrixGroupCount;
+	private final int matrixIndicesOffset;
+	private final int matrixIndexCount;
+
+	private GeosetBuffers(final Geoset geoset, final IntFunction<ByteBuffer> allocator) {
+		final float[] vertices = (geoset.getVertices() != null) ? geoset.getVertices() : new float[0];
+		final float[] normals = (geoset.getNormals() != null) ? geoset.getNormals() : new float[0];
+		final float[][] uvSets = (geoset.getUvSets() != null) ? geoset.getUvSets() : new float[0][];
+		final char[] faces = (geoset.getCompactFaces() != null) ? geoset.getCompactFaces() : new char[0];
+		final byte[] vertexGroups = (geoset.getCompactVertexGroups() != null) ? geoset.getCompactVertexGroups()
+				: new byte[0];
+		final int[] matrixGroups = (geoset.getCompactMatrixGroups() != null) ? geoset.getCompactMatrixGroups()
+				: new int[0];
+		final int[] matrixIndices = (geoset.getCompactMatrixIndices() != null) ? geoset.getCompactMatrixIndices()
+				: new int[0];
+
+		this.vertexCount = vertices.length / 3;
+		this.normalCount = normals.length / 3;
+		this.faceCount = faces.length;
+		this.vertexGroupCount = vertexGroups.length;
+		this.matrixGroupCount = matrixGroups.length;
+		this.matrixIndexCount = matrixIndices.length;
+
+		long offset = 0;
+		this.verticesOffset = (int) offset;
+		offset = align(offset + (vertices.length * 4L));
+		this.normalsOffset = (int) offset;
+		offset = align(offset + (normals.length * 4L));
+		this.uvSetOffsets = new int[uvSets.length];
+		this.uvSetLengths = new int[uvSets.length];
+		for (int i = 0; i < uvSets.length; i++) {
+			this.uvSetOffsets[i] = (int) offset;
+			this.uvSetLengths[i] = uvSets[i].length;
+			offset = align(offset + (uvSets[i].length * 4L));
+		}
+		this.facesOffset = (int) offset;
+		offset = align(offset + (faces.length * 2L));
+		this.vertexGroupsOffset = (int) offset;
+		offset = align(offset + vertexGroups.length);
+		this.matrixGroupsOffset = (int) offset;
+		offset = align(offset + (matrixGroups.length * 4L));
+		this.matrixIndicesOffset = (int) offset;
+		offset += matrixIndices.length * 4L;
+		if (offset > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Geoset is too large for a single buffer: " + offset + " bytes");
+		}
+
+		final int size = (int) offset;
+		final ByteBuffer allocated = allocator.apply(size);
+		if (allocated.remaining() < size) {
+			throw new IllegalArgumentException(
+					"Allocator returned " + allocated.remaining() + " bytes, expected " + size);
+		}
+		this.buffer = allocated.slice().limit(size).slice().order(ByteOrder.nativeOrder());
+
+		this.floats(this.verticesOffset, vertices.length).put(vertices);
+		this.floats(this.normalsOffset, normals.length).put(normals);
+		for (int i = 0; i < uvSets.length; i++) {
+			this.floats(this.uvSetOffsets[i], uvSets[i].length).put(uvSets[i]);
+		}
+		this.section(this.facesOffset, faces.length * 2).asCharBuffer().put(faces);
+		this.section(this.vertexGroupsOffset, vertexGroups.length).put(vertexGroups);
+		this.ints(this.matrixGroupsOffset, matrixGroups.length).put(matrixGroups);
+		this.ints(this.matrixIndicesOffset, matrixIndices.length).put(matrixIndices);
+	}
+
+	/**
+	 * Copies the geometry of a geoset into a new direct buffer, whose sections
+	 * all start on 16 byte addresses.
+	 */
+	public static GeosetBuffers of(final Geoset geoset) {
+		return new GeosetBuffers(geoset,
+				size -> ByteBuffer.allocateDirect(size + ALIGNMENT - 1).alignedSlice(ALIGNMENT));
+	}
+
+	/**
+	 * Copies the geometry of a geoset into a buffer obtained from the allocator.
+	 * The allocator is called once with the required size in bytes, and must
+	 * return a buffer with at least that many bytes remaining.
+	 */
+	public static GeosetBuffers of(final Geoset geoset, final IntFunction<ByteBuffer> allocator) {
+		return new GeosetBuffers(geoset, allocator);
+	}
+
+	/**
+	 * The whole block, positioned at zero. Use the offset getters to locate the
+	 * sections within it.
+	 */
+	public ByteBuffer getBuffer() {
+		return this.buffer.duplicate().order(ByteOrder.nativeOrder());
+	}
+
+	public int getVertexCount() {
+		return this.vertexCount;
+	}
+
+	public FloatBuffer getVertices() {
+		return this.floats(this.verticesOffset, this.vertexCount * 3);
+	}
+
+	public FloatBuffer getNormals() {
+		return this.floats(this.normalsOffset, this.normalCount * 3);
+	}
+
+	public int getUvSetCount() {
+		return this.uvSetOffsets.length;
+	}
+
+	public FloatBuffer getUvSet(final int index) {
+		return this.floats(this.uvSetOffsets[index], this.uvSetLengths[index]);
+	}
+
+	public int getFaceCount() {
+		return this.faceCount;
+	}
+
+	/**
+	 * The face indices, as unsigned shorts.
+	 */
+	public ShortBuffer getFaces() {
+		return this.section(this.facesOffset, this.faceCount * 2).asShortBuffer();
+	}
+
+	/**
+	 * The vertex groups, as unsigned bytes.
+	 */
+	public ByteBuffer getVertexGroups() {
+		return this.section(this.vertexGroupsOffset, this.vertexGroupCount);
+	}
+
+	public IntBuffer getMatrixGroups() {
+		return this.ints(this.matrixGroupsOffset, this.matrixGroupCount);
+	}
+
+	public IntBuffer getMatrixIndices() {
+		return this.ints(this.matrixIndicesOffset, this.matrixIndexCount);
+	}
+
+	public int getVerticesOffset() {
+		return this.verticesOffset;
+	}
+
+	public int getNormalsOffset() {
+		return this.normalsOffset;
+	}
+
+	public int getUvSetOffset(final int index) {
+		return this.uvSetOffsets[index];
+	}
+
+	public int getFacesOffset() {
+		return this.facesOffset;
+	}
+
+	public int getVertexGroupsOffset() {
+		return this.vertexGroupsOffset;
+	}
+
+	public int getMatrixGroupsOffset() {
+		return this.matrixGroupsOffset;
+	}
+
+	public int getMatrixIndicesOffset() {
+		return this.matrixIndicesOffset;
+	}
+
+	private ByteBuffer section(final int offset, final int length) {
+		return this.buffer.slice(offset, length).order(ByteOrder.nativeOrder());
+	}
+
+	private FloatBuffer floats(final int offset, final int length) {
+		return this.section(offset, length * 4).asFloatBuffer();
+	}
+
+	private IntBuffer ints(final int offset, final int length) {
+		return this.section(offset, length * 4).asIntBuffer();
+	}
+
+	private static long align(final long offset) {
+		return (offset + ALIGNMENT - 1) & -ALIGNMENT;
+	}
+}
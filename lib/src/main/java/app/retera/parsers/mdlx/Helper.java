@@ -14,7 +14,8 @@ public class Helper extends GenericObject {
 
 	@Override
 	public void readMdl(final MdlTokenInputStream stream) {
-		for (final String token : readMdlGeneric(stream)) {
+		readMdlGenericStart(stream);
+		for (String token = readMdlGenericToken(stream); token != null; token = readMdlGenericToken(stream)) {
 			throw new IllegalStateException("Unknown token in Helper: " + token);
 		}
 	}
@@ -26,4 +27,11 @@ public class Helper extends GenericObject {
 		writeGenericTimelines(stream);
 		stream.endBlock();
 	}
+
+	@Override
+	public Helper copy(final boolean shareArrays) {
+		final Helper copy = new Helper();
+		copyGeneric(copy, shareArrays);
+		return copy;
+	}
 }
@@ -1,7 +1,6 @@
 package app.retera.parsers.mdlx;
 
 import java.io.IOException;
-import java.util.Iterator;
 
 import app.retera.util.MdlUtils;
 import app.retera.util.ParseUtils;
@@ -90,9 +89,8 @@ public class Layer extends AnimatedObject {
 
 	@Override
 	public void readMdl(final MdlTokenInputStream stream) throws IOException {
-		final Iterator<String> iterator = readAnimatedBlock(stream);
-		while (iterator.hasNext()) {
-			final String token = iterator.next();
+		stream.readBlockStart();
+		for (String token = readAnimatedToken(stream); token != null; token = readAnimatedToken(stream)) {
 			switch (token) {
 				case MdlUtils.TOKEN_FILTER_MODE -> this.filterMode = FilterMode.fromId(FilterMode.nameToId(stream.read()));
 				case MdlUtils.TOKEN_UNSHADED -> this.flags |= 0x1;
@@ -214,4 +212,16 @@ public class Layer extends AnimatedObject {
 		this.alpha = alpha;
 	}
 
+	@Override
+	public Layer copy(final boolean shareArrays) {
+		final Layer copy = new Layer();
+		copyTimelines(copy, shareArrays);
+		copy.filterMode = this.filterMode;
+		copy.flags = this.flags;
+		copy.textureId = this.textureId;
+		copy.textureAnimationId = this.textureAnimationId;
+		copy.coordId = this.coordId;
+		copy.alpha = this.alpha;
+		return copy;
+	}
 }
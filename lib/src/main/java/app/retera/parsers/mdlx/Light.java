@@ -54,7 +54,8 @@ public class Light extends GenericObject {
 
 	@Override
 	public void readMdl(final MdlTokenInputStream stream) throws IOException {
-		for (final String token : super.readMdlGeneric(stream)) {
+		super.readMdlGenericStart(stream);
+		for (String token = super.readMdlGenericToken(stream); token != null; token = super.readMdlGenericToken(stream)) {
 			switch (token) {
 				case MdlUtils.TOKEN_OMNIDIRECTIONAL -> this.type = 0;
 				case MdlUtils.TOKEN_DIRECTIONAL -> this.type = 1;
@@ -148,4 +149,16 @@ public class Light extends GenericObject {
 		return this.ambientIntensity;
 	}
 
+	@Override
+	public Light copy(final boolean shareArrays) {
+		final Light copy = new Light();
+		copyGeneric(copy, shareArrays);
+		copy.type = this.type;
+		System.arraycopy(this.attenuation, 0, copy.attenuation, 0, 2);
+		System.arraycopy(this.color, 0, copy.color, 0, 3);
+		copy.intensity = this.intensity;
+		System.arraycopy(this.ambientColor, 0, copy.ambientColor, 0, 3);
+		copy.ambientIntensity = this.ambientIntensity;
+		return copy;
+	}
 }
@@ -48,7 +48,8 @@ public class Material implements MdlxBlock, Chunk {
 
 	@Override
 	public void readMdl(final MdlTokenInputStream stream) throws IOException {
-		for (final String token : stream.readBlock()) {
+		stream.readBlockStart();
+		for (String token = stream.readBlockToken(); token != null; token = stream.readBlockToken()) {
 			switch (token) {
 				case MdlUtils.TOKEN_CONSTANT_COLOR -> this.flags |= 0x1;
 				case MdlUtils.TOKEN_SORT_PRIMS_NEAR_Z -> this.flags |= 0x8;
@@ -126,4 +127,15 @@ public class Material implements MdlxBlock, Chunk {
 	public List<Layer> getLayers() {
 		return this.layers;
 	}
+
+	@Override
+	public Material copy(final boolean shareArrays) {
+		final Material copy = new Material();
+		copy.priorityPlane = this.priorityPlane;
+		copy.flags = this.flags;
+		for (final Layer layer : this.layers) {
+			copy.layers.add(layer.copy(shareArrays));
+		}
+		return copy;
+	}
 }
@@ -0,0 +1,291 @@
+package app.retera.parsers.mdlx;
+
+import java.io.Reader;
+import java.util.Arrays;
+
+import app.retera.util.MdlUtils;
+
+/**
+ * A pull parser over MDL text that reports its structure as typed events,
+ * without building an {@link MdlxModel}.
+ *
+ * Each call to {@link #next()} reads one statement:
+ * <ul>
+ * <li>{@link Event#BLOCK_START} for <code>Name [args] {</code>, for example
+ * <code>Bone "Root" {</code> or <code>Vertices 4 {</code>. Quoted and word
+ * arguments are available from {@link #getString()}, numeric ones (counts)
+ * from {@link #getArgument(int)}.</li>
+ * <li>{@link Event#ATTRIBUTE} for everything ending in a comma or line break:
+ * flags (<code>Unshaded,</code>), scalars (<code>BlendTime 150,</code>),
+ * strings (<code>Image "Footman.blp",</code>) and vectors
+ * (<code>Interval { 0, 1000 },</code>). Keyframes are attributes named by their
+ * frame, and bare vectors such as the entries of <code>Vertices</code> have no
+ * name. Numbers in front of a vector are arguments too, so
+ * <code>EventTrack 2 { 100, 200 }</code> has the argument 2 and the values 100
+ * and 200.</li>
+ * <li>{@link Event#BLOCK_END} for the closing brace.</li>
+ * </ul>
+ *
+ * A leading "static" is reported by {@link #isStatic()} rather than as part of
+ * the name. Numbers are kept in reused arrays, so apart from the tokens
+ * themselves parsing does not allocate.
+ */
+public final class MdlPullParser {
+	public enum Event {
+		BLOCK_START,
+		ATTRIBUTE,
+		BLOCK_END
+	}
+
+	private final MdlTokenInputStream stream;
+	private String lookahead;
+	private boolean lookaheadSeparated;
+	private boolean lookaheadQuoted;
+	private boolean hasLookahead;
+	private boolean tokenSeparated;
+	private boolean tokenQuoted;
+
+	private String name;
+	private String string;
+	private boolean isStatic;
+	private double[] values = new double[16];
+	private int valueCount;
+	private double[] arguments = new double[4];
+	private int argumentCount;
+	private int depth;
+
+	public MdlPullParser(final Reader reader) {
+		this(new MdlTokenInputStream(reader));
+	}
+
+	public MdlPullParser(final MdlTokenInputStream stream) {
+		this.stream = stream;
+	}
+
+	/**
+	 * @return The next event, or null at the end of the input.
+	 */
+	public Event next() {
+		this.name = null;
+		this.string = null;
+		this.isStatic = false;
+		this.valueCount = 0;
+		this.argumentCount = 0;
+
+		String token = this.nextToken();
+		if (token == null) {
+			return null;
+		}
+		if (!this.tokenQuoted) {
+			if (token.equals("}")) {
+				this.depth--;
+				return Event.BLOCK_END;
+			}
+			if (token.equals("{")) {
+				this.readVector();
+				return Event.ATTRIBUTE;
+			}
+			if (token.equals(MdlUtils.TOKEN_STATIC)) {
+				this.isStatic = true;
+				token = this.nextToken();
+			}
+		}
+		this.name = token;
+
+		while ((token = this.nextToken()) != null) {
+			if (!this.tokenQuoted && token.equals("}")) {
+				this.pushBack(token);
+				return Event.ATTRIBUTE;
+			}
+			if (!this.tokenQuoted && token.equals("{")) {
+				this.takeArguments();
+				final String first = this.nextToken();
+				if ((first != null) && !this.tokenQuoted && isNumber(first)) {
+					this.addValue(first);
+					this.readVector();
+					return Event.ATTRIBUTE;
+				}
+				if (first != null) {
+					this.pushBack(first);
+				}
+				this.depth++;
+				return Event.BLOCK_START;
+			}
+			if (this.tokenSeparated) {
+				this.pushBack(token);
+				return Event.ATTRIBUTE;
+			}
+			if (!this.tokenQuoted && isNumber(token)) {
+				this.addValue(token);
+			}
+			else if (this.string == null) {
+				this.string = token;
+			}
+		}
+		return Event.ATTRIBUTE;
+	}
+
+	/**
+	 * The statement name, for example "Bone", "Interval" or the frame of a
+	 * keyframe. Null for bare vectors and block ends.
+	 */
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * The first non-numeric argument, for example the object name of a block or
+	 * the value of <code>FilterMode Blend,</code>. Null if there is none.
+	 */
+	public String getString() {
+		return this.string;
+	}
+
+	public boolean isStatic() {
+		return this.isStatic;
+	}
+
+	/**
+	 * The number of numeric arguments in front of the opening brace of a block
+	 * or vector, usually one count.
+	 */
+	public int getArgumentCount() {
+		return this.argumentCount;
+	}
+
+	public long getArgument(final int index) {
+		if ((index < 0) || (index >= this.argumentCount)) {
+			throw new IndexOutOfBoundsException("Argument " + index + " of " + this.argumentCount);
+		}
+		return (long) this.arguments[index];
+	}
+
+	public int getValueCount() {
+		return this.valueCount;
+	}
+
+	public double getValue(final int index) {
+		return this.values[this.checkIndex(index)];
+	}
+
+	public float getFloat(final int index) {
+		return (float) this.values[this.checkIndex(index)];
+	}
+
+	public int getInt(final int index) {
+		return (int) this.values[this.checkIndex(index)];
+	}
+
+	public long getLong(final int index) {
+		return (long) this.values[this.checkIndex(index)];
+	}
+
+	/**
+	 * Copies the values into the given array, up to its length.
+	 *
+	 * @return The number of values copied.
+	 */
+	public int getFloats(final float[] out) {
+		final int count = Math.min(out.length, this.valueCount);
+		for (int i = 0; i < count; i++) {
+			out[i] = (float) this.values[i];
+		}
+		return count;
+	}
+
+	/**
+	 * The number of blocks that are open after the current event.
+	 */
+	public int getDepth() {
+		return this.depth;
+	}
+
+	private void readVector() {
+		String token;
+		while ((token = this.nextToken()) != null) {
+			if (!this.tokenQuoted && token.equals("}")) {
+				return;
+			}
+			if (this.tokenQuoted || !isNumber(token)) {
+				throw new IllegalStateException("Expected a number in " + this.name + ", got: " + token);
+			}
+			this.addValue(token);
+		}
+	}
+
+	/**
+	 * Moves the numbers read so far, which came before a brace, to the
+	 * arguments.
+	 */
+	private void takeArguments() {
+		if (this.arguments.length < this.valueCount) {
+			this.arguments = new double[this.valueCount];
+		}
+		System.arraycopy(this.values, 0, this.arguments, 0, this.valueCount);
+		this.argumentCount = this.valueCount;
+		this.valueCount = 0;
+	}
+
+	private void addValue(final String token) {
+		if (this.valueCount == this.values.length) {
+			this.values = Arrays.copyOf(this.values, this.valueCount * 2);
+		}
+		this.values[this.valueCount++] = parseNumber(token);
+	}
+
+	private String nextToken() {
+		if (this.hasLookahead) {
+			this.hasLookahead = false;
+			this.tokenSeparated = this.lookaheadSeparated;
+			this.tokenQuoted = this.lookaheadQuoted;
+			return this.lookahead;
+		}
+		final String token = this.stream.read();
+		this.tokenSeparated = this.stream.lastTokenSeparated();
+		this.tokenQuoted = this.stream.lastTokenQuoted();
+		return token;
+	}
+
+	private void pushBack(final String token) {
+		this.lookahead = token;
+		this.lookaheadSeparated = this.tokenSeparated;
+		this.lookaheadQuoted = this.tokenQuoted;
+		this.hasLookahead = true;
+	}
+
+	private int checkIndex(final int index) {
+		if ((index < 0) || (index >= this.valueCount)) {
+			throw new IndexOutOfBoundsException("Value " + index + " of " + this.valueCount);
+		}
+		return index;
+	}
+
+	/**
+	 * Whether the token starts like a number: an optional sign, an optional
+	 * point, then a digit.
+	 */
+	private static boolean isNumber(final String token) {
+		int i = 0;
+		if ((i < token.length()) && ((token.charAt(i) == '-') || (token.charAt(i) == '+'))) {
+			i++;
+		}
+		if ((i < token.length()) && (token.charAt(i) == '.')) {
+			i++;
+		}
+		return (i < token.length()) && (token.charAt(i) >= '0') && (token.charAt(i) <= '9');
+	}
+
+	/**
+	 * Integers are parsed as longs so unsigned 32 bit values stay exact, anything
+	 * else as a float so the result matches the model readers.
+	 */
+	private static double parseNumber(final String token) {
+		for (int i = 0; i < token.length(); i++) {
+			final char c = token.charAt(i);
+			if ((c == '.') || (c == 'e') || (c == 'E') || (c == 'n') || (c == 'N')) {
+				return Float.parseFloat(token);
+			}
+		}
+		return Long.parseLong(token);
+	}
+}
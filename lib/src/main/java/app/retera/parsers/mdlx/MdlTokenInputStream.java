@@ -9,6 +9,12 @@ public class MdlTokenInputStream {
 	private int next;
 	private final int ident;
 	private final int fractionDigits;
+	private boolean separated;
+	private boolean quoted;
+	private String peeked;
+	private boolean peekedSeparated;
+	private boolean peekedQuoted;
+	private boolean hasPeeked;
 
 	public MdlTokenInputStream(final Reader reader) {
 		this.reader = reader;
@@ -26,9 +32,23 @@ public class MdlTokenInputStream {
 	}
 
 	public String read() {
+		if (this.hasPeeked) {
+			final String token = this.peeked;
+			this.hasPeeked = false;
+			this.peeked = null;
+			this.separated = this.peekedSeparated;
+			this.quoted = this.peekedQuoted;
+			return token;
+		}
+		return this.scan();
+	}
+
+	private String scan() {
 		boolean inComment = false;
 		boolean inString = false;
 		final StringBuilder token = new StringBuilder();
+		this.separated = false;
+		this.quoted = false;
 
 		while (next != -1) {
 			// Note: cast from 'byte' to 'char' will cause Java incompatibility with Chinese and Russian/Cyrillic and others
@@ -37,10 +57,12 @@ public class MdlTokenInputStream {
 			if (inComment) {
 				if (c == '\n') {
 					inComment = false;
+					this.separated = true;
 				}
 			} else if (inString) {
 				if (c == '"') {
 					next = readOneChar();
+					this.quoted = true;
 					return token.toString();
 				} else {
 					token.append(c);
@@ -49,6 +71,9 @@ public class MdlTokenInputStream {
 				if (token.length() > 0) {
 					return token.toString();
 				}
+				if ((c == ',') || (c == '\n')) {
+					this.separated = true;
+				}
 			} else if ((c == '{') || (c == '}')) {
 				if (token.length() > 0) {
 					return token.toString();
@@ -73,20 +98,58 @@ public class MdlTokenInputStream {
 			}
 			next = readOneChar();
 		}
-		return null;
+		// A token running into the end of the input is still a token.
+		return (token.length() > 0) && !inComment ? token.toString() : null;
 	}
 
+	/**
+	 * Returns the next token without consuming it. The token is buffered, so the
+	 * following {@link #read()} does not scan it again.
+	 */
 	public String peek() {
-		final int prevNext = next;
-		try {
-			reader.mark(1024);
-			final String value = this.read();
-			reader.reset();
-			next = prevNext;
-			return value;
-		} catch (IOException e) {
-			throw new RuntimeException(e);
+		if (!this.hasPeeked) {
+			final boolean separated = this.separated;
+			final boolean quoted = this.quoted;
+			this.peeked = this.scan();
+			this.peekedSeparated = this.separated;
+			this.peekedQuoted = this.quoted;
+			this.separated = separated;
+			this.quoted = quoted;
+			this.hasPeeked = true;
 		}
+		return this.peeked;
+	}
+
+	/**
+	 * Whether a comma or line break came between the last token returned by
+	 * {@link #read()} and the one before it.
+	 */
+	boolean lastTokenSeparated() {
+		return this.separated;
+	}
+
+	/**
+	 * Whether the last token returned by {@link #read()} was a quoted string.
+	 */
+	boolean lastTokenQuoted() {
+		return this.quoted;
+	}
+
+	/**
+	 * Consumes the opening brace of a block. Follow with
+	 * {@link #readBlockToken()} until it returns null.
+	 */
+	public void readBlockStart() {
+		this.read(); // {
+	}
+
+	/**
+	 * @return The next token of the current block, or null once the closing
+	 *         brace of the block has been consumed.
+	 */
+	public String readBlockToken() {
+		final String token = this.read();
+		return (token == null) || token.equals("}") ? null : token;
 	}
 
 	public long readUInt32() {
@@ -154,12 +217,13 @@ public class MdlTokenInputStream {
 		return array;
 	}
 
-	// needs crazy generator function behavior that I can call this multiple times
-	// and it allocates a new iterator that is changing the same underlying
-	// stream position, and needs nesting of blocks within blocks
-	// (see crazy transcribed generator in GenericObject, only makes good sense in JS)
+	/**
+	 * Allocates an iterator per block, prefer {@link #readBlockStart()} and
+	 * {@link #readBlockToken()}.
+	 */
+	@Deprecated
 	public Iterable<String> readBlock() {
-		this.read(); // {
+		this.readBlockStart();
 		return new Iterable<String>() {
 			@Override
 			public Iterator<String> iterator() {
@@ -178,9 +242,9 @@ public class MdlTokenInputStream {
 
 					@Override
 					public boolean hasNext() {
-						this.current = read();
+						this.current = readBlockToken();
 						this.hasLoaded = true;
-						return (this.current != null) && !this.current.equals("}");
+						return this.current != null;
 					}
 				};
 			}
@@ -199,6 +263,18 @@ public class MdlTokenInputStream {
 		return values;
 	}
 
+	public char[] readUInt16Array(final char[] values) {
+		this.read(); // {
+
+		for (int i = 0, l = values.length; i < l; i++) {
+			values[i] = (char) this.readInt();
+		}
+
+		this.read(); // }
+
+		return values;
+	}
+
 	public short[] readUInt8Array(final short[] values) {
 		this.read(); // {
 
@@ -89,6 +89,13 @@ public class MdlTokenOutputStream {
 		this.writeLine(attribName + " { " + formatLongSubArray(array, startIndexInclusive, endIndexExclusive) + " },");
 	}
 
+	public void writeUInt32SubArrayAttrib(final String attribName,
+	                                      final int[] array,
+	                                      final int startIndexInclusive,
+	                                      final int endIndexExclusive) {
+		this.writeLine(attribName + " { " + formatUInt32SubArray(array, startIndexInclusive, endIndexExclusive) + " },");
+	}
+
 	public void writeFloatArray(final float[] floatArray) {
 		this.writeLine("{ " + formatFloatArray(floatArray) + " },");
 	}
@@ -207,6 +214,19 @@ public class MdlTokenOutputStream {
 		return stringBuilder.toString();
 	}
 
+	private String formatUInt32SubArray(final int[] value,
+	                                    final int startIndexInclusive,
+	                                    final int endIndexExclusive) {
+		final StringBuilder stringBuilder = new StringBuilder();
+		for (int i = startIndexInclusive; i < endIndexExclusive; i++) {
+			if (0 < stringBuilder.length()) {
+				stringBuilder.append(", ");
+			}
+			stringBuilder.append(Integer.toUnsignedLong(value[i]));
+		}
+		return stringBuilder.toString();
+	}
+
 	private String formatLongSubArray(final long[] value,
 	                                  final int startIndexInclusive,
 	                                  final int endIndexExclusive) {
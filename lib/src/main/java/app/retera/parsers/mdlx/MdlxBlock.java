@@ -13,4 +13,14 @@ public interface MdlxBlock {
 	void readMdl(final MdlTokenInputStream stream) throws IOException;
 
 	void writeMdl(final MdlTokenOutputStream stream) throws IOException;
+
+	/**
+	 * Makes a deep copy of this block.
+	 *
+	 * @param shareArrays Whether the copy may share with this block the
+	 *                    primitive arrays that are replaced as a whole, like
+	 *                    geoset vertices and keyframes. Neither block may then
+	 *                    change those arrays in place, only replace them.
+	 */
+	MdlxBlock copy(boolean shareArrays);
 }
@@ -0,0 +1,306 @@
+package app.retera.parsers.mdlx;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import app.retera.parsers.mdlx.timeline.Timeline;
+import app.retera.util.XxHash64;
+
+/**
+ * A 64 bit content hash of a model, and of each of its chunks, that depends
+ * only on what the model holds and not on the file it came from: the MDL and
+ * MDX versions of a model have the same fingerprint.
+ *
+ * Geosets, timelines, materials and sequences are hashed field by field, with
+ * their arrays fed straight to {@link XxHash64}. The few remaining fields of
+ * other blocks, like node properties and camera positions, are hashed through
+ * their MDX bytes with their timelines left out, and the timelines on their
+ * own.
+ *
+ * The block hashes are independent of where the block sits, so they can be
+ * cached per block and combined with {@link #combine(long[])}.
+ */
+public final class MdlxFingerprint {
+	private final long hash;
+	private final Map<String, Long> chunkHashes;
+
+	private MdlxFingerprint(final long hash, final Map<String, Long> chunkHashes) {
+		this.hash = hash;
+		this.chunkHashes = chunkHashes;
+	}
+
+	public static MdlxFingerprint of(final MdlxModel model) {
+		final Map<String, Long> chunkHashes = new LinkedHashMap<>();
+		final XxHash64 header = new XxHash64();
+		header.putInt(model.getVersion());
+		header.putString(model.getName());
+		header.putString(model.getAnimationFile());
+		header.putLong(model.getBlendTime());
+		hash(header, model.getExtent());
+		chunkHashes.put("MODL", header.hash());
+		chunk(chunkHashes, "SEQS", model.getSequences());
+		if (!model.getGlobalSequences().isEmpty()) {
+			final XxHash64 hasher = new XxHash64();
+			hasher.putInt(model.getGlobalSequences().size());
+			for (final Long globalSequence : model.getGlobalSequences()) {
+				hasher.putLong(globalSequence);
+			}
+			chunkHashes.put("GLBS", hasher.hash());
+		}
+		chunk(chunkHashes, "MTLS", model.getMaterials());
+		chunk(chunkHashes, "TEXS", model.getTextures());
+		chunk(chunkHashes, "TXAN", model.getTextureAnimations());
+		chunk(chunkHashes, "GEOS", model.getGeosets());
+		chunk(chunkHashes, "GEOA", model.getGeosetAnimations());
+		chunk(chunkHashes, "BONE", model.getBones());
+		chunk(chunkHashes, "LITE", model.getLights());
+		chunk(chunkHashes, "HELP", model.getHelpers());
+		chunk(chunkHashes, "ATCH", model.getAttachments());
+		if (!model.getPivotPoints().isEmpty()) {
+			final XxHash64 hasher = new XxHash64();
+			hasher.putInt(model.getPivotPoints().size());
+			for (final float[] pivotPoint : model.getPivotPoints()) {
+				hash(hasher, pivotPoint);
+			}
+			chunkHashes.put("PIVT", hasher.hash());
+		}
+		chunk(chunkHashes, "PREM", model.getParticleEmitters());
+		chunk(chunkHashes, "PRE2", model.getParticleEmitters2());
+		chunk(chunkHashes, "RIBB", model.getRibbonEmitters());
+		chunk(chunkHashes, "CAMS", model.getCameras());
+		chunk(chunkHashes, "EVTS", model.getEventObjects());
+		chunk(chunkHashes, "CLID", model.getCollisionShapes());
+		for (final UnknownChunk chunk : model.getUnknownChunks()) {
+			chunkHashes.merge(chunk.getTag().asStringValue(), new XxHash64().putBytes(MdxBytes.of(chunk)).hash(),
+					(first, second) -> combine(new long[] { first, second }));
+		}
+
+		final XxHash64 hasher = new XxHash64();
+		for (final Map.Entry<String, Long> entry : chunkHashes.entrySet()) {
+			hasher.putString(entry.getKey());
+			hasher.putLong(entry.getValue());
+		}
+		return new MdlxFingerprint(hasher.hash(), Collections.unmodifiableMap(chunkHashes));
+	}
+
+	/**
+	 * The hash of the whole model.
+	 */
+	public long getHash() {
+		return this.hash;
+	}
+
+	/**
+	 * The hash of each chunk the model has, by tag, in file order. The model
+	 * header is under MODL.
+	 */
+	public Map<String, Long> getChunkHashes() {
+		return this.chunkHashes;
+	}
+
+	@Override
+	public boolean equals(final Object obj) {
+		return (obj instanceof MdlxFingerprint) && (((MdlxFingerprint) obj).hash == this.hash)
+				&& ((MdlxFingerprint) obj).chunkHashes.equals(this.chunkHashes);
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(this.hash);
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%016x", this.hash);
+	}
+
+	/**
+	 * Combines hashes in order, like the blocks of a chunk.
+	 */
+	public static long combine(final long[] hashes) {
+		return new XxHash64().putInt(hashes.length).putLongs(hashes).hash();
+	}
+
+	public static long hash(final MdlxBlock block) {
+		if (block instanceof Geoset) {
+			return hash((Geoset) block);
+		}
+		if (block instanceof Sequence) {
+			return hash((Sequence) block);
+		}
+		if (block instanceof Material) {
+			return hash((Material) block);
+		}
+		if (block instanceof Layer) {
+			return hash((Layer) block);
+		}
+		if (block instanceof Texture) {
+			return hash((Texture) block);
+		}
+		if (block instanceof AnimatedObject) {
+			final XxHash64 hasher = new XxHash64();
+			hasher.putBytes(MdxBytes.withoutTimelines((AnimatedObject) block));
+			timelines(hasher, ((AnimatedObject) block).getTimelines());
+			return hasher.hash();
+		}
+		return new XxHash64().putBytes(MdxBytes.of(block)).hash();
+	}
+
+	public static long hash(final Sequence sequence) {
+		final XxHash64 hasher = new XxHash64();
+		hasher.putString(sequence.getName());
+		hasher.putLongs(sequence.getInterval());
+		hasher.putFloat(sequence.getMoveSpeed());
+		hasher.putInt(sequence.getFlags());
+		hasher.putFloat(sequence.getRarity());
+		hasher.putLong(sequence.getSyncPoint());
+		hash(hasher, sequence.getExtent());
+		return hasher.hash();
+	}
+
+	public static long hash(final Material material) {
+		final XxHash64 hasher = new XxHash64();
+		hasher.putInt(material.getPriorityPlane());
+		hasher.putInt(material.getFlags());
+		hasher.putInt(material.getLayers().size());
+		for (final Layer layer : material.getLayers()) {
+			hasher.putLong(hash(layer));
+		}
+		return hasher.hash();
+	}
+
+	public static long hash(final Layer layer) {
+		final XxHash64 hasher = new XxHash64();
+		hasher.putInt((layer.getFilterMode() != null) ? layer.getFilterMode().ordinal() : -1);
+		hasher.putInt(layer.getFlags());
+		hasher.putInt(layer.getTextureId());
+		hasher.putInt(layer.getTextureAnimationId());
+		hasher.putLong(layer.getCoordId());
+		hasher.putFloat(layer.getAlpha());
+		timelines(hasher, layer.getTimelines());
+		return hasher.hash();
+	}
+
+	public static long hash(final Texture texture) {
+		final XxHash64 hasher = new XxHash64();
+		hasher.putInt(texture.getReplaceableId());
+		hasher.putString(texture.getPath());
+		hasher.putInt(texture.getFlags());
+		return hasher.hash();
+	}
+
+	public static long hash(final Geoset geoset) {
+		final XxHash64 hasher = new XxHash64();
+		hash(hasher, geoset.getVertices());
+		hash(hasher, geoset.getNormals());
+		hash(hasher, geoset.getCompactFaceTypeGroups());
+		hash(hasher, geoset.getCompactFaceGroups());
+		final char[] faces = geoset.getCompactFaces();
+		hasher.putInt((faces != null) ? faces.length : -1);
+		if (faces != null) {
+			hasher.putChars(faces);
+		}
+		final byte[] vertexGroups = geoset.getCompactVertexGroups();
+		hasher.putInt((vertexGroups != null) ? vertexGroups.length : -1);
+		if (vertexGroups != null) {
+			hasher.putBytes(vertexGroups);
+		}
+		hash(hasher, geoset.getCompactMatrixGroups());
+		hash(hasher, geoset.getCompactMatrixIndices());
+		hasher.putLong(geoset.getMaterialId());
+		hasher.putLong(geoset.getSelectionGroup());
+		hasher.putLong(geoset.getSelectionFlags());
+		hash(hasher, geoset.getExtent());
+		final Extent[] sequenceExtents = geoset.getSequenceExtents();
+		hasher.putInt((sequenceExtents != null) ? sequenceExtents.length : -1);
+		if (sequenceExtents != null) {
+			for (final Extent extent : sequenceExtents) {
+				hash(hasher, extent);
+			}
+		}
+		final float[][] uvSets = geoset.getUvSets();
+		hasher.putInt((uvSets != null) ? uvSets.length : -1);
+		if (uvSets != null) {
+			for (final float[] uvSet : uvSets) {
+				hash(hasher, uvSet);
+			}
+		}
+		return hasher.hash();
+	}
+
+	public static long hash(final Timeline<?> timeline) {
+		final XxHash64 hasher = new XxHash64();
+		hasher.putInt(timeline.getName().getValue());
+		final InterpolationType interpolationType = timeline.getInterpolationType();
+		hasher.putInt((interpolationType != null) ? interpolationType.ordinal() : -1);
+		hasher.putInt(timeline.getGlobalSequenceId());
+		final long[] frames = timeline.getFrames();
+		hasher.putInt((frames != null) ? frames.length : -1);
+		if (frames != null) {
+			hasher.putLongs(frames);
+		}
+		values(hasher, timeline.getValues());
+		values(hasher, timeline.getInTans());
+		values(hasher, timeline.getOutTans());
+		return hasher.hash();
+	}
+
+	private static void chunk(final Map<String, Long> chunkHashes, final String tag,
+			final List<? extends MdlxBlock> blocks) {
+		if (blocks.isEmpty()) {
+			return;
+		}
+		final long[] hashes = new long[blocks.size()];
+		for (int i = 0; i < hashes.length; i++) {
+			hashes[i] = hash(blocks.get(i));
+		}
+		chunkHashes.put(tag, combine(hashes));
+	}
+
+	private static void timelines(final XxHash64 hasher, final List<Timeline<?>> timelines) {
+		hasher.putInt(timelines.size());
+		for (final Timeline<?> timeline : timelines) {
+			hasher.putLong(hash(timeline));
+		}
+	}
+
+	private static void values(final XxHash64 hasher, final Object[] values) {
+		if (values == null) {
+			hasher.putInt(-1);
+			return;
+		}
+		hasher.putInt(values.length);
+		for (final Object value : values) {
+			if (value instanceof float[]) {
+				hasher.putInt(((float[]) value).length);
+				hasher.putFloats((float[]) value);
+			}
+			else {
+				hasher.putInt(((long[]) value).length);
+				hasher.putLongs((long[]) value);
+			}
+		}
+	}
+
+	private static void hash(final XxHash64 hasher, final Extent extent) {
+		hasher.putFloat(extent.getBoundsRadius());
+		hasher.putFloats(extent.getMin());
+		hasher.putFloats(extent.getMax());
+	}
+
+	private static void hash(final XxHash64 hasher, final float[] values) {
+		hasher.putInt((values != null) ? values.length : -1);
+		if (values != null) {
+			hasher.putFloats(values);
+		}
+	}
+
+	private static void hash(final XxHash64 hasher, final int[] values) {
+		hasher.putInt((values != null) ? values.length : -1);
+		if (values != null) {
+			hasher.putInts(values);
+		}
+	}
+}
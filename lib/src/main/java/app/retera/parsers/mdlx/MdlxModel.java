@@ -6,9 +6,15 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.function.Supplier;
 
+import app.retera.parsers.mdlx.jfr.MdlxIoEvent;
+import app.retera.parsers.mdlx.jfr.MdlxLoadEvent;
+import app.retera.parsers.mdlx.jfr.MdlxSaveEvent;
+import app.retera.util.InternPool;
 import app.retera.util.MdlUtils;
 import app.retera.util.ParseUtils;
 import app.retera.util.War3ID;
+import com.google.common.io.CountingInputStream;
+import com.google.common.io.CountingOutputStream;
 import com.google.common.io.LittleEndianDataInputStream;
 import com.google.common.io.LittleEndianDataOutputStream;
 
@@ -22,27 +28,27 @@ public class MdlxModel {
 	// to be legal, and it appears to only allow basic binary operators for that.
 	// I would love a clearer way to just type 'MDLX' in a character constant in
 	// Java for this
-	private static final int MDLX = ('M' << 24) | ('D' << 16) | ('L' << 8) | ('X');// War3ID.fromString("MDLX").getValue();
-	private static final int VERS = ('V' << 24) | ('E' << 16) | ('R' << 8) | ('S');// War3ID.fromString("VERS").getValue();
-	private static final int MODL = ('M' << 24) | ('O' << 16) | ('D' << 8) | ('L');// War3ID.fromString("MODL").getValue();
-	private static final int SEQS = ('S' << 24) | ('E' << 16) | ('Q' << 8) | ('S');// War3ID.fromString("SEQS").getValue();
-	private static final int GLBS = ('G' << 24) | ('L' << 16) | ('B' << 8) | ('S');// War3ID.fromString("GLBS").getValue();
-	private static final int MTLS = ('M' << 24) | ('T' << 16) | ('L' << 8) | ('S');// War3ID.fromString("MTLS").getValue();
-	private static final int TEXS = ('T' << 24) | ('E' << 16) | ('X' << 8) | ('S');// War3ID.fromString("TEXS").getValue();
-	private static final int TXAN = ('T' << 24) | ('X' << 16) | ('A' << 8) | ('N');// War3ID.fromString("TXAN").getValue();
-	private static final int GEOS = ('G' << 24) | ('E' << 16) | ('O' << 8) | ('S');// War3ID.fromString("GEOS").getValue();
-	private static final int GEOA = ('G' << 24) | ('E' << 16) | ('O' << 8) | ('A');// War3ID.fromString("GEOA").getValue();
-	private static final int BONE = ('B' << 24) | ('O' << 16) | ('N' << 8) | ('E');// War3ID.fromString("BONE").getValue();
-	private static final int LITE = ('L' << 24) | ('I' << 16) | ('T' << 8) | ('E');// War3ID.fromString("LITE").getValue();
-	private static final int HELP = ('H' << 24) | ('E' << 16) | ('L' << 8) | ('P');// War3ID.fromString("HELP").getValue();
-	private static final int ATCH = ('A' << 24) | ('T' << 16) | ('C' << 8) | ('H');// War3ID.fromString("ATCH").getValue();
-	private static final int PIVT = ('P' << 24) | ('I' << 16) | ('V' << 8) | ('T');// War3ID.fromString("PIVT").getValue();
-	private static final int PREM = ('P' << 24) | ('R' << 16) | ('E' << 8) | ('M');// War3ID.fromString("PREM").getValue();
-	private static final int PRE2 = ('P' << 24) | ('R' << 16) | ('E' << 8) | ('2');// War3ID.fromString("PRE2").getValue();
-	private static final int RIBB = ('R' << 24) | ('I' << 16) | ('B' << 8) | ('B');// War3ID.fromString("RIBB").getValue();
-	private static final int CAMS = ('C' << 24) | ('A' << 16) | ('M' << 8) | ('S');// War3ID.fromString("CAMS").getValue();
-	private static final int EVTS = ('E' << 24) | ('V' << 16) | ('T' << 8) | ('S');// War3ID.fromString("EVTS").getValue();
-	private static final int CLID = ('C' << 24) | ('L' << 16) | ('I' << 8) | ('D');// War3ID.fromString("CLID").getValue();
+	static final int MDLX = ('M' << 24) | ('D' << 16) | ('L' << 8) | ('X');// War3ID.fromString("MDLX").getValue();
+	static final int VERS = ('V' << 24) | ('E' << 16) | ('R' << 8) | ('S');// War3ID.fromString("VERS").getValue();
+	static final int MODL = ('M' << 24) | ('O' << 16) | ('D' << 8) | ('L');// War3ID.fromString("MODL").getValue();
+	static final int SEQS = ('S' << 24) | ('E' << 16) | ('Q' << 8) | ('S');// War3ID.fromString("SEQS").getValue();
+	static final int GLBS = ('G' << 24) | ('L' << 16) | ('B' << 8) | ('S');// War3ID.fromString("GLBS").getValue();
+	static final int MTLS = ('M' << 24) | ('T' << 16) | ('L' << 8) | ('S');// War3ID.fromString("MTLS").getValue();
+	static final int TEXS = ('T' << 24) | ('E' << 16) | ('X' << 8) | ('S');// War3ID.fromString("TEXS").getValue();
+	static final int TXAN = ('T' << 24) | ('X' << 16) | ('A' << 8) | ('N');// War3ID.fromString("TXAN").getValue();
+	static final int GEOS = ('G' << 24) | ('E' << 16) | ('O' << 8) | ('S');// War3ID.fromString("GEOS").getValue();
+	static final int GEOA = ('G' << 24) | ('E' << 16) | ('O' << 8) | ('A');// War3ID.fromString("GEOA").getValue();
+	static final int BONE = ('B' << 24) | ('O' << 16) | ('N' << 8) | ('E');// War3ID.fromString("BONE").getValue();
+	static final int LITE = ('L' << 24) | ('I' << 16) | ('T' << 8) | ('E');// War3ID.fromString("LITE").getValue();
+	static final int HELP = ('H' << 24) | ('E' << 16) | ('L' << 8) | ('P');// War3ID.fromString("HELP").getValue();
+	static final int ATCH = ('A' << 24) | ('T' << 16) | ('C' << 8) | ('H');// War3ID.fromString("ATCH").getValue();
+	static final int PIVT = ('P' << 24) | ('I' << 16) | ('V' << 8) | ('T');// War3ID.fromString("PIVT").getValue();
+	static final int PREM = ('P' << 24) | ('R' << 16) | ('E' << 8) | ('M');// War3ID.fromString("PREM").getValue();
+	static final int PRE2 = ('P' << 24) | ('R' << 16) | ('E' << 8) | ('2');// War3ID.fromString("PRE2").getValue();
+	static final int RIBB = ('R' << 24) | ('I' << 16) | ('B' << 8) | ('B');// War3ID.fromString("RIBB").getValue();
+	static final int CAMS = ('C' << 24) | ('A' << 16) | ('M' << 8) | ('S');// War3ID.fromString("CAMS").getValue();
+	static final int EVTS = ('E' << 24) | ('V' << 16) | ('T' << 8) | ('S');// War3ID.fromString("EVTS").getValue();
+	static final int CLID = ('C' << 24) | ('L' << 16) | ('I' << 8) | ('D');// War3ID.fromString("CLID").getValue();
 	private int version = 800;
 	private String name = "";
 	/**
@@ -87,15 +93,54 @@ public class MdlxModel {
 	public MdlxModel() {
 	}
 
+	/**
+	 * Loads the binary MDX format, then interns it into the given pool, see
+	 * {@link #intern(InternPool)}.
+	 */
+	public void loadMdx(final InputStream buffer, final InternPool pool) throws IOException {
+		loadMdx(buffer);
+		intern(pool);
+	}
+
+	/**
+	 * Loads the binary MDX format. Emits a {@link MdlxLoadEvent} when the flight
+	 * recorder is running.
+	 */
 	public void loadMdx(final InputStream buffer) throws IOException {
+		final MdlxLoadEvent event = new MdlxLoadEvent();
+		if (!event.isEnabled()) {
+			readMdxChunks(buffer);
+			return;
+		}
+
+		event.begin();
+		final CountingInputStream countingStream = new CountingInputStream(buffer);
+		int chunkCount = 0;
+		boolean failed = true;
+		try {
+			chunkCount = readMdxChunks(countingStream);
+			failed = false;
+		}
+		finally {
+			event.end();
+			if (event.shouldCommit()) {
+				event.set(this, MdlxIoEvent.FORMAT_MDX, countingStream.getCount(), chunkCount, failed);
+				event.commit();
+			}
+		}
+	}
+
+	private int readMdxChunks(final InputStream buffer) throws IOException {
 		final LittleEndianDataInputStream stream = new LittleEndianDataInputStream(buffer);
 		if (Integer.reverseBytes(stream.readInt()) != MDLX) {
 			throw new IllegalStateException("WrongMagicNumber");
 		}
 
+		int chunkCount = 0;
 		while (stream.available() > 0) {
 			final int tag = Integer.reverseBytes(stream.readInt());
 			final long size = ParseUtils.readUInt32(stream);
+			chunkCount++;
 
 			switch (tag) {
 				case VERS -> loadVersionChunk(stream);
@@ -122,22 +167,19 @@ public class MdlxModel {
 			}
 		}
 
+		return chunkCount;
 	}
 
 	private void loadVersionChunk(final LittleEndianDataInputStream stream) throws IOException {
 		this.version = (int) ParseUtils.readUInt32(stream);
 	}
 
-	/**
-	 * Restricts us to only be able to parse models on one thread at a time, in
-	 * return for high performance.
-	 */
-	private static final byte[] NAME_BYTES_HEAP = new byte[80];
-	private static final byte[] ANIMATION_FILE_BYTES_HEAP = new byte[260];
+	private static final int NAME_LENGTH = 80;
+	private static final int ANIMATION_FILE_LENGTH = 260;
 
 	private void loadModelChunk(final LittleEndianDataInputStream stream) throws IOException {
-		this.name = ParseUtils.readString(stream, NAME_BYTES_HEAP);
-		this.animationFile = ParseUtils.readString(stream, ANIMATION_FILE_BYTES_HEAP);
+		this.name = ParseUtils.readString(stream, NAME_LENGTH);
+		this.animationFile = ParseUtils.readString(stream, ANIMATION_FILE_LENGTH);
 		this.extent.readMdx(stream);
 		this.blendTime = ParseUtils.readUInt32(stream);
 	}
@@ -182,33 +224,65 @@ public class MdlxModel {
 		}
 	}
 
+	/**
+	 * Saves the binary MDX format. Emits a {@link MdlxSaveEvent} when the flight
+	 * recorder is running.
+	 */
 	public void saveMdx(final OutputStream outputStream) throws IOException {
+		final MdlxSaveEvent event = new MdlxSaveEvent();
+		if (!event.isEnabled()) {
+			writeMdxChunks(outputStream);
+			return;
+		}
+
+		event.begin();
+		final CountingOutputStream countingStream = new CountingOutputStream(outputStream);
+		int chunkCount = 0;
+		boolean failed = true;
+		try {
+			chunkCount = writeMdxChunks(countingStream);
+			failed = false;
+		}
+		finally {
+			event.end();
+			if (event.shouldCommit()) {
+				event.set(this, MdlxIoEvent.FORMAT_MDX, countingStream.getCount(), chunkCount, failed);
+				event.commit();
+			}
+		}
+	}
+
+	private int writeMdxChunks(final OutputStream outputStream) throws IOException {
 		final LittleEndianDataOutputStream stream = new LittleEndianDataOutputStream(outputStream);
 		stream.writeInt(Integer.reverseBytes(MDLX));
 		this.saveVersionChunk(stream);
 		this.saveModelChunk(stream);
-		this.saveStaticObjectChunk(stream, SEQS, this.sequences, 132);
-		this.saveGlobalSequenceChunk(stream);
-		this.saveDynamicObjectChunk(stream, MTLS, this.materials);
-		this.saveStaticObjectChunk(stream, TEXS, this.textures, 268);
-		this.saveDynamicObjectChunk(stream, TXAN, this.textureAnimations);
-		this.saveDynamicObjectChunk(stream, GEOS, this.geosets);
-		this.saveDynamicObjectChunk(stream, GEOA, this.geosetAnimations);
-		this.saveDynamicObjectChunk(stream, BONE, this.bones);
-		this.saveDynamicObjectChunk(stream, LITE, this.lights);
-		this.saveDynamicObjectChunk(stream, HELP, this.helpers);
-		this.saveDynamicObjectChunk(stream, ATCH, this.attachments);
-		this.savePivotPointChunk(stream);
-		this.saveDynamicObjectChunk(stream, PREM, this.particleEmitters);
-		this.saveDynamicObjectChunk(stream, PRE2, this.particleEmitters2);
-		this.saveDynamicObjectChunk(stream, RIBB, this.ribbonEmitters);
-		this.saveDynamicObjectChunk(stream, CAMS, this.cameras);
-		this.saveDynamicObjectChunk(stream, EVTS, this.eventObjects);
-		this.saveDynamicObjectChunk(stream, CLID, this.collisionShapes);
+		int chunkCount = 2;
+		chunkCount += this.saveStaticObjectChunk(stream, SEQS, this.sequences, 132);
+		chunkCount += this.saveGlobalSequenceChunk(stream);
+		chunkCount += this.saveDynamicObjectChunk(stream, MTLS, this.materials);
+		chunkCount += this.saveStaticObjectChunk(stream, TEXS, this.textures, 268);
+		chunkCount += this.saveDynamicObjectChunk(stream, TXAN, this.textureAnimations);
+		chunkCount += this.saveDynamicObjectChunk(stream, GEOS, this.geosets);
+		chunkCount += this.saveDynamicObjectChunk(stream, GEOA, this.geosetAnimations);
+		chunkCount += this.saveDynamicObjectChunk(stream, BONE, this.bones);
+		chunkCount += this.saveDynamicObjectChunk(stream, LITE, this.lights);
+		chunkCount += this.saveDynamicObjectChunk(stream, HELP, this.helpers);
+		chunkCount += this.saveDynamicObjectChunk(stream, ATCH, this.attachments);
+		chunkCount += this.savePivotPointChunk(stream);
+		chunkCount += this.saveDynamicObjectChunk(stream, PREM, this.particleEmitters);
+		chunkCount += this.saveDynamicObjectChunk(stream, PRE2, this.particleEmitters2);
+		chunkCount += this.saveDynamicObjectChunk(stream, RIBB, this.ribbonEmitters);
+		chunkCount += this.saveDynamicObjectChunk(stream, CAMS, this.cameras);
+		chunkCount += this.saveDynamicObjectChunk(stream, EVTS, this.eventObjects);
+		chunkCount += this.saveDynamicObjectChunk(stream, CLID, this.collisionShapes);
 
 		for (final UnknownChunk chunk : this.unknownChunks) {
 			chunk.writeMdx(stream);
+			chunkCount++;
 		}
+
+		return chunkCount;
 	}
 
 	private void saveVersionChunk(final LittleEndianDataOutputStream stream) throws IOException {
@@ -222,69 +296,120 @@ public class MdlxModel {
 		ParseUtils.writeUInt32(stream, 372);
 		final byte[] bytes = this.name.getBytes(ParseUtils.UTF8);
 		stream.write(bytes);
-		for (int i = 0; i < (NAME_BYTES_HEAP.length - bytes.length); i++) {
+		for (int i = 0; i < (NAME_LENGTH - bytes.length); i++) {
 			stream.write((byte) 0);
 		}
 		final byte[] animationFileBytes = this.animationFile.getBytes(ParseUtils.UTF8);
 		stream.write(animationFileBytes);
-		for (int i = 0; i < (ANIMATION_FILE_BYTES_HEAP.length - animationFileBytes.length); i++) {
+		for (int i = 0; i < (ANIMATION_FILE_LENGTH - animationFileBytes.length); i++) {
 			stream.write((byte) 0);
 		}
 		this.extent.writeMdx(stream);
 		ParseUtils.writeUInt32(stream, this.blendTime);
 	}
 
-	private <E extends MdlxBlock> void saveStaticObjectChunk(final LittleEndianDataOutputStream stream, final int name,
+	private <E extends MdlxBlock> int saveStaticObjectChunk(final LittleEndianDataOutputStream stream, final int name,
 			final List<E> objects, final long size) throws IOException {
-		if (!objects.isEmpty()) {
-			stream.writeInt(Integer.reverseBytes(name));
-			ParseUtils.writeUInt32(stream, objects.size() * size);
+		if (objects.isEmpty()) {
+			return 0;
+		}
 
-			for (final E object : objects) {
-				object.writeMdx(stream);
-			}
+		stream.writeInt(Integer.reverseBytes(name));
+		ParseUtils.writeUInt32(stream, objects.size() * size);
+
+		for (final E object : objects) {
+			object.writeMdx(stream);
 		}
+		return 1;
 	}
 
-	private void saveGlobalSequenceChunk(final LittleEndianDataOutputStream stream) throws IOException {
-		if (!this.globalSequences.isEmpty()) {
-			stream.writeInt(Integer.reverseBytes(GLBS));
-			ParseUtils.writeUInt32(stream, this.globalSequences.size() * 4);
+	private int saveGlobalSequenceChunk(final LittleEndianDataOutputStream stream) throws IOException {
+		if (this.globalSequences.isEmpty()) {
+			return 0;
+		}
 
-			for (final Long globalSequence : this.globalSequences) {
-				ParseUtils.writeUInt32(stream, globalSequence);
-			}
+		stream.writeInt(Integer.reverseBytes(GLBS));
+		ParseUtils.writeUInt32(stream, this.globalSequences.size() * 4);
+
+		for (final Long globalSequence : this.globalSequences) {
+			ParseUtils.writeUInt32(stream, globalSequence);
 		}
+		return 1;
 	}
 
-	private <E extends MdlxBlock & Chunk> void saveDynamicObjectChunk(final LittleEndianDataOutputStream stream,
+	private <E extends MdlxBlock & Chunk> int saveDynamicObjectChunk(final LittleEndianDataOutputStream stream,
 			final int name, final List<E> objects) throws IOException {
-		if (!objects.isEmpty()) {
-			stream.writeInt(Integer.reverseBytes(name));
-			ParseUtils.writeUInt32(stream, getObjectsByteLength(objects));
+		if (objects.isEmpty()) {
+			return 0;
+		}
 
-			for (final E object : objects) {
-				object.writeMdx(stream);
-			}
+		stream.writeInt(Integer.reverseBytes(name));
+		ParseUtils.writeUInt32(stream, getObjectsByteLength(objects));
+
+		for (final E object : objects) {
+			object.writeMdx(stream);
 		}
+		return 1;
 	}
 
-	private void savePivotPointChunk(final LittleEndianDataOutputStream stream) throws IOException {
-		if (this.pivotPoints.size() > 0) {
-			stream.writeInt(Integer.reverseBytes(PIVT));
-			ParseUtils.writeUInt32(stream, this.pivotPoints.size() * 12);
+	private int savePivotPointChunk(final LittleEndianDataOutputStream stream) throws IOException {
+		if (this.pivotPoints.isEmpty()) {
+			return 0;
+		}
 
-			for (final float[] pivotPoint : this.pivotPoints) {
-				ParseUtils.writeFloatArray(stream, pivotPoint);
-			}
+		stream.writeInt(Integer.reverseBytes(PIVT));
+		ParseUtils.writeUInt32(stream, this.pivotPoints.size() * 12);
+
+		for (final float[] pivotPoint : this.pivotPoints) {
+			ParseUtils.writeFloatArray(stream, pivotPoint);
 		}
+		return 1;
+	}
+
+	/**
+	 * Loads the text MDL format, then interns it into the given pool, see
+	 * {@link #intern(InternPool)}.
+	 */
+	public void loadMdl(final InputStream inputStream, final InternPool pool) throws IOException {
+		loadMdl(inputStream);
+		intern(pool);
 	}
 
+	/**
+	 * Loads the text MDL format. Emits a {@link MdlxLoadEvent} when the flight
+	 * recorder is running.
+	 */
 	public void loadMdl(final InputStream inputStream) throws IOException {
+		final MdlxLoadEvent event = new MdlxLoadEvent();
+		if (!event.isEnabled()) {
+			readMdlBlocks(inputStream);
+			return;
+		}
+
+		event.begin();
+		final CountingInputStream countingStream = new CountingInputStream(inputStream);
+		int blockCount = 0;
+		boolean failed = true;
+		try {
+			blockCount = readMdlBlocks(countingStream);
+			failed = false;
+		}
+		finally {
+			event.end();
+			if (event.shouldCommit()) {
+				event.set(this, MdlxIoEvent.FORMAT_MDL, countingStream.getCount(), blockCount, failed);
+				event.commit();
+			}
+		}
+	}
+
+	private int readMdlBlocks(final InputStream inputStream) throws IOException {
 		String token;
 		final MdlTokenInputStream stream = new MdlTokenInputStream(new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8)));
 
+		int blockCount = 0;
 		while ((token = stream.read()) != null) {
+			blockCount++;
 			switch (token) {
 				case MdlUtils.TOKEN_VERSION             -> this.loadVersionBlock(stream);
 				case MdlUtils.TOKEN_MODEL               -> this.loadModelBlock(stream);
@@ -309,10 +434,13 @@ public class MdlxModel {
 				default -> throw new IllegalStateException("Unsupported block: " + token);
 			}
 		}
+
+		return blockCount;
 	}
 
 	private void loadVersionBlock(final MdlTokenInputStream stream) {
-		for (final String token : stream.readBlock()) {
+		stream.readBlockStart();
+		for (String token = stream.readBlockToken(); token != null; token = stream.readBlockToken()) {
 			if (MdlUtils.TOKEN_FORMAT_VERSION.equals(token)) {
 				this.version = stream.readInt();
 			} else {
@@ -323,7 +451,8 @@ public class MdlxModel {
 
 	private void loadModelBlock(final MdlTokenInputStream stream) {
 		this.name = stream.read();
-		for (final String token : stream.readBlock()) {
+		stream.readBlockStart();
+		for (String token = stream.readBlockToken(); token != null; token = stream.readBlockToken()) {
 			if (token.startsWith("Num")) {
 				/*-
 				 * Don't care about the number of things, the arrays will grow as they wish.
@@ -359,7 +488,8 @@ public class MdlxModel {
 	                                                           final MdlTokenInputStream stream) throws IOException {
 		stream.read(); // Don't care about the number, the array will grow
 
-		for (final String token : stream.readBlock()) {
+		stream.readBlockStart();
+		for (String token = stream.readBlockToken(); token != null; token = stream.readBlockToken()) {
 			if (token.equals(name)) {
 				final E object = constructor.get();
 
@@ -376,7 +506,8 @@ public class MdlxModel {
 	private void loadGlobalSequenceBlock(final MdlTokenInputStream stream) {
 		stream.read(); // Don't care about the number, the array will grow
 
-		for (final String token : stream.readBlock()) {
+		stream.readBlockStart();
+		for (String token = stream.readBlockToken(); token != null; token = stream.readBlockToken()) {
 			if (token.equals(MdlUtils.TOKEN_DURATION)) {
 				this.globalSequences.add(stream.readUInt32());
 			}
@@ -408,29 +539,59 @@ public class MdlxModel {
 		stream.read(); // }
 	}
 
+	/**
+	 * Saves the text MDL format. Emits a {@link MdlxSaveEvent} when the flight
+	 * recorder is running.
+	 */
 	public void saveMdl(final OutputStream outputStream) throws IOException {
+		final MdlxSaveEvent event = new MdlxSaveEvent();
+		if (!event.isEnabled()) {
+			writeMdlBlocks(outputStream);
+			return;
+		}
+
+		event.begin();
+		final CountingOutputStream countingStream = new CountingOutputStream(outputStream);
+		int blockCount = 0;
+		boolean failed = true;
+		try {
+			blockCount = writeMdlBlocks(countingStream);
+			failed = false;
+		}
+		finally {
+			event.end();
+			if (event.shouldCommit()) {
+				event.set(this, MdlxIoEvent.FORMAT_MDL, countingStream.getCount(), blockCount, failed);
+				event.commit();
+			}
+		}
+	}
+
+	private int writeMdlBlocks(final OutputStream outputStream) throws IOException {
 		try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8))) {
 			final MdlTokenOutputStream stream = new MdlTokenOutputStream(writer);
 			this.saveVersionBlock(stream);
 			this.saveModelBlock(stream);
-			this.saveStaticObjectsBlock(stream, MdlUtils.TOKEN_SEQUENCES, this.sequences);
-			this.saveGlobalSequenceBlock(stream);
-			this.saveStaticObjectsBlock(stream, MdlUtils.TOKEN_TEXTURES, this.textures);
-			this.saveStaticObjectsBlock(stream, MdlUtils.TOKEN_MATERIALS, this.materials);
-			this.saveStaticObjectsBlock(stream, MdlUtils.TOKEN_TEXTURE_ANIMS, this.textureAnimations);
-			this.saveObjects(stream, this.geosets);
-			this.saveObjects(stream, this.geosetAnimations);
-			this.saveObjects(stream, this.bones);
-			this.saveObjects(stream, this.lights);
-			this.saveObjects(stream, this.helpers);
-			this.saveObjects(stream, this.attachments);
-			this.savePivotPointBlock(stream);
-			this.saveObjects(stream, this.particleEmitters);
-			this.saveObjects(stream, this.particleEmitters2);
-			this.saveObjects(stream, this.ribbonEmitters);
-			this.saveObjects(stream, this.cameras);
-			this.saveObjects(stream, this.eventObjects);
-			this.saveObjects(stream, this.collisionShapes);
+			int blockCount = 2;
+			blockCount += this.saveStaticObjectsBlock(stream, MdlUtils.TOKEN_SEQUENCES, this.sequences);
+			blockCount += this.saveGlobalSequenceBlock(stream);
+			blockCount += this.saveStaticObjectsBlock(stream, MdlUtils.TOKEN_TEXTURES, this.textures);
+			blockCount += this.saveStaticObjectsBlock(stream, MdlUtils.TOKEN_MATERIALS, this.materials);
+			blockCount += this.saveStaticObjectsBlock(stream, MdlUtils.TOKEN_TEXTURE_ANIMS, this.textureAnimations);
+			blockCount += this.saveObjects(stream, this.geosets);
+			blockCount += this.saveObjects(stream, this.geosetAnimations);
+			blockCount += this.saveObjects(stream, this.bones);
+			blockCount += this.saveObjects(stream, this.lights);
+			blockCount += this.saveObjects(stream, this.helpers);
+			blockCount += this.saveObjects(stream, this.attachments);
+			blockCount += this.savePivotPointBlock(stream);
+			blockCount += this.saveObjects(stream, this.particleEmitters);
+			blockCount += this.saveObjects(stream, this.particleEmitters2);
+			blockCount += this.saveObjects(stream, this.ribbonEmitters);
+			blockCount += this.saveObjects(stream, this.cameras);
+			blockCount += this.saveObjects(stream, this.eventObjects);
+			blockCount += this.saveObjects(stream, this.collisionShapes);
+			return blockCount;
 		}
 	}
 
@@ -447,48 +608,58 @@ public class MdlxModel {
 		stream.endBlock();
 	}
 
-	private void saveStaticObjectsBlock(final MdlTokenOutputStream stream, final String name,
+	private int saveStaticObjectsBlock(final MdlTokenOutputStream stream, final String name,
 			final List<? extends MdlxBlock> objects) throws IOException {
-		if (!objects.isEmpty()) {
-			stream.startBlock(name, objects.size());
+		if (objects.isEmpty()) {
+			return 0;
+		}
 
-			for (final MdlxBlock object : objects) {
-				object.writeMdl(stream);
-			}
+		stream.startBlock(name, objects.size());
 
-			stream.endBlock();
+		for (final MdlxBlock object : objects) {
+			object.writeMdl(stream);
 		}
+
+		stream.endBlock();
+		return 1;
 	}
 
-	private void saveGlobalSequenceBlock(final MdlTokenOutputStream stream) {
-		if (!this.globalSequences.isEmpty()) {
-			stream.startBlock(MdlUtils.TOKEN_GLOBAL_SEQUENCES, this.globalSequences.size());
+	private int saveGlobalSequenceBlock(final MdlTokenOutputStream stream) {
+		if (this.globalSequences.isEmpty()) {
+			return 0;
+		}
 
-			for (final Long globalSequence : this.globalSequences) {
-				stream.writeAttribUInt32(MdlUtils.TOKEN_DURATION, globalSequence);
-			}
+		stream.startBlock(MdlUtils.TOKEN_GLOBAL_SEQUENCES, this.globalSequences.size());
 
-			stream.endBlock();
+		for (final Long globalSequence : this.globalSequences) {
+			stream.writeAttribUInt32(MdlUtils.TOKEN_DURATION, globalSequence);
 		}
+
+		stream.endBlock();
+		return 1;
 	}
 
-	private void saveObjects(final MdlTokenOutputStream stream, final List<? extends MdlxBlock> objects)
+	private int saveObjects(final MdlTokenOutputStream stream, final List<? extends MdlxBlock> objects)
 			throws IOException {
 		for (final MdlxBlock object : objects) {
 			object.writeMdl(stream);
 		}
+		return objects.size();
 	}
 
-	private void savePivotPointBlock(final MdlTokenOutputStream stream) {
-		if (!this.pivotPoints.isEmpty()) {
-			stream.startBlock(MdlUtils.TOKEN_PIVOT_POINTS, this.pivotPoints.size());
+	private int savePivotPointBlock(final MdlTokenOutputStream stream) {
+		if (this.pivotPoints.isEmpty()) {
+			return 0;
+		}
 
-			for (final float[] pivotPoint : this.pivotPoints) {
-				stream.writeFloatArray(pivotPoint);
-			}
+		stream.startBlock(MdlUtils.TOKEN_PIVOT_POINTS, this.pivotPoints.size());
 
-			stream.endBlock();
+		for (final float[] pivotPoint : this.pivotPoints) {
+			stream.writeFloatArray(pivotPoint);
 		}
+
+		stream.endBlock();
+		return 1;
 	}
 
 	private long getByteLength() {
@@ -541,6 +712,122 @@ public class MdlxModel {
 		return 0;
 	}
 
+	/**
+	 * Estimates how much heap this model holds, in total and per chunk. This
+	 * visits every object of the model, down to each keyframe value, but reads
+	 * only the lengths of primitive arrays like vertices, so its cost grows with
+	 * the number of keyframes rather than with the geometry.
+	 */
+	public RetainedSizeEstimate getRetainedSizeEstimate() {
+		return RetainedSizeEstimator.estimate(this);
+	}
+
+	/**
+	 * Replaces the names and paths of this model with the equal strings already
+	 * in the pool, so that many models share one copy of them. When the pool is
+	 * {@link InternPool#isSharingArrays() sharing arrays}, pivot points and
+	 * keyframes are shared too, and must no longer be modified in place.
+	 *
+	 * The retained size estimate still counts shared values in full.
+	 */
+	public void intern(final InternPool pool) {
+		this.name = pool.intern(this.name);
+		this.animationFile = pool.intern(this.animationFile);
+		ModelInterner.intern(this, pool);
+	}
+
+	/**
+	 * Makes an unchanging snapshot of this model that many threads can read
+	 * at once, see {@link FrozenMdlxModel}.
+	 */
+	public FrozenMdlxModel freeze() {
+		return new FrozenMdlxModel(copy(false));
+	}
+
+	/**
+	 * Makes a deep copy of this model, block by block.
+	 *
+	 * @param shareArrays Whether the copy may share with this model the
+	 *                    primitive arrays that are replaced as a whole, like
+	 *                    geoset vertices, keyframes and pivot points, see
+	 *                    {@link MdlxBlock#copy(boolean)}. Sharing makes copies
+	 *                    of large models nearly free.
+	 */
+	public MdlxModel copy(final boolean shareArrays) {
+		final MdlxModel copy = new MdlxModel();
+		copy.version = this.version;
+		copy.name = this.name;
+		copy.animationFile = this.animationFile;
+		copy.extent.set(this.extent);
+		copy.blendTime = this.blendTime;
+		copyBlocks(this.sequences, copy.sequences, shareArrays);
+		copy.globalSequences.addAll(this.globalSequences);
+		copyBlocks(this.materials, copy.materials, shareArrays);
+		copyBlocks(this.textures, copy.textures, shareArrays);
+		copyBlocks(this.textureAnimations, copy.textureAnimations, shareArrays);
+		copyBlocks(this.geosets, copy.geosets, shareArrays);
+		copyBlocks(this.geosetAnimations, copy.geosetAnimations, shareArrays);
+		copyBlocks(this.bones, copy.bones, shareArrays);
+		copyBlocks(this.lights, copy.lights, shareArrays);
+		copyBlocks(this.helpers, copy.helpers, shareArrays);
+		copyBlocks(this.attachments, copy.attachments, shareArrays);
+		for (final float[] pivotPoint : this.pivotPoints) {
+			copy.pivotPoints.add(shareArrays ? pivotPoint : pivotPoint.clone());
+		}
+		copyBlocks(this.particleEmitters, copy.particleEmitters, shareArrays);
+		copyBlocks(this.particleEmitters2, copy.particleEmitters2, shareArrays);
+		copyBlocks(this.ribbonEmitters, copy.ribbonEmitters, shareArrays);
+		copyBlocks(this.cameras, copy.cameras, shareArrays);
+		copyBlocks(this.eventObjects, copy.eventObjects, shareArrays);
+		copyBlocks(this.collisionShapes, copy.collisionShapes, shareArrays);
+		for (final UnknownChunk chunk : this.unknownChunks) {
+			copy.unknownChunks.add(chunk.copy(shareArrays));
+		}
+		return copy;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <E extends MdlxBlock> void copyBlocks(final List<E> blocks, final List<E> copies,
+			final boolean shareArrays) {
+		for (final E block : blocks) {
+			copies.add((E) block.copy(shareArrays));
+		}
+	}
+
+	/**
+	 * Every object of this model that can own timelines: material layers, texture
+	 * and geoset animations, all node types and cameras. The list is a new copy.
+	 */
+	public List<AnimatedObject> getAnimatedObjects() {
+		final List<AnimatedObject> objects = new ArrayList<>();
+		for (final Material material : this.materials) {
+			objects.addAll(material.getLayers());
+		}
+		objects.addAll(this.textureAnimations);
+		objects.addAll(this.geosetAnimations);
+		objects.addAll(this.getGenericObjects());
+		objects.addAll(this.cameras);
+		return objects;
+	}
+
+	/**
+	 * Every node of this model, in the order their chunks are written, which is
+	 * normally also object id order. The list is a new copy.
+	 */
+	public List<GenericObject> getGenericObjects() {
+		final List<GenericObject> objects = new ArrayList<>();
+		objects.addAll(this.bones);
+		objects.addAll(this.lights);
+		objects.addAll(this.helpers);
+		objects.addAll(this.attachments);
+		objects.addAll(this.particleEmitters);
+		objects.addAll(this.particleEmitters2);
+		objects.addAll(this.ribbonEmitters);
+		objects.addAll(this.eventObjects);
+		objects.addAll(this.collisionShapes);
+		return objects;
+	}
+
 	public List<Long> getGlobalSequences() {
 		return this.globalSequences;
 	}
@@ -573,6 +860,22 @@ public class MdlxModel {
 		return this.blendTime;
 	}
 
+	public void setVersion(final int version) {
+		this.version = version;
+	}
+
+	public void setName(final String name) {
+		this.name = name;
+	}
+
+	public void setAnimationFile(final String animationFile) {
+		this.animationFile = animationFile;
+	}
+
+	public void setBlendTime(final long blendTime) {
+		this.blendTime = blendTime;
+	}
+
 	public List<Material> getMaterials() {
 		return this.materials;
 	}
@@ -0,0 +1,48 @@
+package app.retera.parsers.mdlx;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import com.google.common.io.LittleEndianDataOutputStream;
+
+/**
+ * The MDX bytes of a single block or chunk, for comparing and hashing the
+ * parts of a model that are not looked at field by field.
+ */
+public final class MdxBytes {
+	private MdxBytes() {
+	}
+
+	public static byte[] of(final MdlxBlock block) {
+		return write(block::writeMdx);
+	}
+
+	public static byte[] of(final UnknownChunk chunk) {
+		return write(chunk::writeMdx);
+	}
+
+	/**
+	 * The bytes of an object with its timelines left out, for when the
+	 * timelines are compared or hashed on their own.
+	 */
+	public static byte[] withoutTimelines(final AnimatedObject object) {
+		final AnimatedObject bare = object.copy(true);
+		bare.getTimelines().clear();
+		return of(bare);
+	}
+
+	private interface Writer {
+		void writeMdx(LittleEndianDataOutputStream stream) throws IOException;
+	}
+
+	private static byte[] write(final Writer writer) {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (LittleEndianDataOutputStream stream = new LittleEndianDataOutputStream(bytes)) {
+			writer.writeMdx(stream);
+		}
+		catch (final IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+}
@@ -0,0 +1,104 @@
+package app.retera.parsers.mdlx;
+
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+
+import app.retera.parsers.mdlx.timeline.Timeline;
+import app.retera.util.War3ID;
+
+/**
+ * Receives the contents of an MDX file from an {@link MdxEventReader}, in file
+ * order. Every method does nothing by default, so handlers only override what
+ * they need.
+ *
+ * Objects and buffers passed to a callback belong to the reader. Buffers are
+ * only valid until the callback returns, and objects are not referenced by
+ * anything else, so handlers that want to keep data must copy it or hold on to
+ * the object themselves.
+ */
+public interface MdxEventHandler {
+	/**
+	 * Called before each chunk.
+	 *
+	 * @return false to skip the chunk without decoding it.
+	 */
+	default boolean onChunkStart(final War3ID tag, final long size) {
+		return true;
+	}
+
+	default void onChunkEnd(final War3ID tag) {
+	}
+
+	default void onVersion(final int version) {
+	}
+
+	default void onModel(final String name, final String animationFile, final Extent extent, final long blendTime) {
+	}
+
+	default void onSequence(final int index, final Sequence sequence) {
+	}
+
+	default void onGlobalSequence(final int index, final long duration) {
+	}
+
+	default void onTexture(final int index, final Texture texture) {
+	}
+
+	/**
+	 * Called for each pivot point. The array is reused for the next one.
+	 */
+	default void onPivotPoint(final int index, final float[] pivot) {
+	}
+
+	/**
+	 * Called for every decoded object of the remaining chunks, for example a
+	 * {@link Material} in MTLS or a {@link Bone} in BONE.
+	 */
+	default void onObject(final War3ID tag, final int index, final MdlxBlock object) {
+	}
+
+	/**
+	 * Called for each timeline of an object, after {@link #onObject}. Material
+	 * timelines are reported per layer.
+	 */
+	default void onTimeline(final War3ID tag, final int index, final Timeline<?> timeline) {
+	}
+
+	/**
+	 * Called before each geoset.
+	 *
+	 * @return false to skip the geoset without decoding it.
+	 */
+	default boolean onGeosetStart(final int index, final long size) {
+		return true;
+	}
+
+	default void onGeosetVertices(final int index, final FloatBuffer vertices) {
+	}
+
+	default void onGeosetNormals(final int index, final FloatBuffer normals) {
+	}
+
+	/**
+	 * @param faces The face indices, as unsigned shorts.
+	 */
+	default void onGeosetFaces(final int index, final IntBuffer faceTypeGroups, final IntBuffer faceGroups,
+			final ShortBuffer faces) {
+	}
+
+	/**
+	 * @param vertexGroups The vertex groups, as unsigned bytes.
+	 */
+	default void onGeosetSkin(final int index, final ByteBuffer vertexGroups, final IntBuffer matrixGroups,
+			final IntBuffer matrixIndices) {
+	}
+
+	default void onGeosetUvSet(final int index, final int uvSet, final FloatBuffer uvs) {
+	}
+
+	default void onGeosetEnd(final int index, final long materialId, final long selectionGroup,
+			final long selectionFlags, final Extent extent, final Extent[] sequenceExtents) {
+	}
+}
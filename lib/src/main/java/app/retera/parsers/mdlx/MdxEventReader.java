@@ -0,0 +1,239 @@
+package app.retera.parsers.mdlx;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.function.Supplier;
+
+import app.retera.parsers.mdlx.timeline.Timeline;
+import app.retera.util.ParseUtils;
+import app.retera.util.War3ID;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.LittleEndianDataInputStream;
+
+/**
+ * Reads an MDX file as a stream of events, without building an
+ * {@link MdlxModel}. Objects are decoded with the same readers as
+ * {@link MdlxModel#loadMdx(InputStream)} and handed to the
+ * {@link MdxEventHandler} one at a time, so memory use is bounded by the
+ * largest single object rather than by the model.
+ *
+ * Geoset geometry is streamed through a reusable scratch buffer instead of being
+ * decoded into a {@link Geoset}.
+ *
+ * An instance holds scratch space and reads one model at a time, but separate
+ * instances may read on separate threads.
+ */
+public final class MdxEventReader {
+	private static final int SEQUENCE_SIZE = 132;
+	private static final int TEXTURE_SIZE = 268;
+	private static final int NAME_LENGTH = 80;
+	private static final int ANIMATION_FILE_LENGTH = 260;
+
+	private final MdxEventHandler handler;
+	private final float[] pivot = new float[3];
+	private byte[] scratch = new byte[4096];
+	private int scratchUsed;
+
+	public MdxEventReader(final MdxEventHandler handler) {
+		this.handler = handler;
+	}
+
+	public void read(final InputStream buffer) throws IOException {
+		final LittleEndianDataInputStream stream = new LittleEndianDataInputStream(
+				buffer instanceof BufferedInputStream ? buffer : new BufferedInputStream(buffer));
+		if (Integer.reverseBytes(stream.readInt()) != MdlxModel.MDLX) {
+			throw new IllegalStateException("WrongMagicNumber");
+		}
+
+		int first;
+		while ((first = stream.read()) != -1) {
+			final int tag = (first << 24) | (stream.readUnsignedByte() << 16) | (stream.readUnsignedByte() << 8)
+					| stream.readUnsignedByte();
+			final long size = ParseUtils.readUInt32(stream);
+			final War3ID id = new War3ID(tag);
+
+			if (!this.handler.onChunkStart(id, size)) {
+				ByteStreams.skipFully(stream, size);
+				continue;
+			}
+
+			switch (tag) {
+				case MdlxModel.VERS -> this.handler.onVersion((int) ParseUtils.readUInt32(stream));
+				case MdlxModel.MODL -> this.readModelChunk(stream);
+				case MdlxModel.SEQS -> {
+					for (int i = 0, l = (int) (size / SEQUENCE_SIZE); i < l; i++) {
+						final Sequence sequence = new Sequence();
+						sequence.readMdx(stream);
+						this.handler.onSequence(i, sequence);
+					}
+				}
+				case MdlxModel.GLBS -> {
+					for (int i = 0, l = (int) (size / 4); i < l; i++) {
+						this.handler.onGlobalSequence(i, ParseUtils.readUInt32(stream));
+					}
+				}
+				case MdlxModel.TEXS -> {
+					for (int i = 0, l = (int) (size / TEXTURE_SIZE); i < l; i++) {
+						final Texture texture = new Texture();
+						texture.readMdx(stream);
+						this.handler.onTexture(i, texture);
+					}
+				}
+				case MdlxModel.PIVT -> {
+					for (int i = 0, l = (int) (size / 12); i < l; i++) {
+						ParseUtils.readFloatArray(stream, this.pivot);
+						this.handler.onPivotPoint(i, this.pivot);
+					}
+				}
+				case MdlxModel.GEOS -> this.readGeosetChunk(stream, size);
+				case MdlxModel.MTLS -> this.readObjects(id, Material::new, stream, size);
+				case MdlxModel.TXAN -> this.readObjects(id, TextureAnimation::new, stream, size);
+				case MdlxModel.GEOA -> this.readObjects(id, GeosetAnimation::new, stream, size);
+				case MdlxModel.BONE -> this.readObjects(id, Bone::new, stream, size);
+				case MdlxModel.LITE -> this.readObjects(id, Light::new, stream, size);
+				case MdlxModel.HELP -> this.readObjects(id, Helper::new, stream, size);
+				case MdlxModel.ATCH -> this.readObjects(id, Attachment::new, stream, size);
+				case MdlxModel.PREM -> this.readObjects(id, ParticleEmitter::new, stream, size);
+				case MdlxModel.PRE2 -> this.readObjects(id, ParticleEmitter2::new, stream, size);
+				case MdlxModel.RIBB -> this.readObjects(id, RibbonEmitter::new, stream, size);
+				case MdlxModel.CAMS -> this.readObjects(id, Camera::new, stream, size);
+				case MdlxModel.EVTS -> this.readObjects(id, EventObject::new, stream, size);
+				case MdlxModel.CLID -> this.readObjects(id, CollisionShape::new, stream, size);
+				default -> ByteStreams.skipFully(stream, size);
+			}
+
+			this.handler.onChunkEnd(id);
+		}
+	}
+
+	private void readModelChunk(final LittleEndianDataInputStream stream) throws IOException {
+		final String name = ParseUtils.readString(stream, NAME_LENGTH);
+		final String animationFile = ParseUtils.readString(stream, ANIMATION_FILE_LENGTH);
+		final Extent extent = new Extent();
+		extent.readMdx(stream);
+		this.handler.onModel(name, animationFile, extent, ParseUtils.readUInt32(stream));
+	}
+
+	private <E extends MdlxBlock & Chunk> void readObjects(final War3ID tag,
+	                                                       final Supplier<E> constructor,
+	                                                       final LittleEndianDataInputStream stream,
+	                                                       final long size) throws IOException {
+		long totalSize = 0;
+		int index = 0;
+		while (totalSize < size) {
+			final E object = constructor.get();
+
+			object.readMdx(stream);
+
+			totalSize += object.getByteLength();
+
+			this.handler.onObject(tag, index, object);
+			if (object instanceof AnimatedObject) {
+				this.emitTimelines(tag, index, (AnimatedObject) object);
+			}
+			else if (object instanceof Material) {
+				for (final Layer layer : ((Material) object).getLayers()) {
+					this.emitTimelines(tag, index, layer);
+				}
+			}
+			index++;
+		}
+	}
+
+	private void emitTimelines(final War3ID tag, final int index, final AnimatedObject object) {
+		for (final Timeline<?> timeline : object.getTimelines()) {
+			this.handler.onTimeline(tag, index, timeline);
+		}
+	}
+
+	/**
+	 * Mirrors {@link Geoset#readMdx}, with the arrays read into scratch space.
+	 */
+	private void readGeosetChunk(final LittleEndianDataInputStream stream, final long size) throws IOException {
+		long totalSize = 0;
+		int index = 0;
+		while (totalSize < size) {
+			final long geosetSize = ParseUtils.readUInt32(stream);
+			totalSize += geosetSize;
+
+			if (!this.handler.onGeosetStart(index, geosetSize)) {
+				ByteStreams.skipFully(stream, geosetSize - 4);
+				index++;
+				continue;
+			}
+
+			this.scratchUsed = 0;
+			stream.readInt(); // skip VRTX
+			this.handler.onGeosetVertices(index, this.read(stream, ParseUtils.readUInt32(stream) * 12).asFloatBuffer());
+			stream.readInt(); // skip NRMS
+			this.handler.onGeosetNormals(index, this.read(stream, ParseUtils.readUInt32(stream) * 12).asFloatBuffer());
+
+			this.scratchUsed = 0;
+			stream.readInt(); // skip PTYP
+			final ByteBuffer faceTypeGroups = this.read(stream, ParseUtils.readUInt32(stream) * 4);
+			stream.readInt(); // skip PCNT
+			final ByteBuffer faceGroups = this.read(stream, ParseUtils.readUInt32(stream) * 4);
+			stream.readInt(); // skip PVTX
+			final ByteBuffer faces = this.read(stream, ParseUtils.readUInt32(stream) * 2);
+			this.handler.onGeosetFaces(index, faceTypeGroups.asIntBuffer(), faceGroups.asIntBuffer(),
+					faces.asShortBuffer());
+
+			this.scratchUsed = 0;
+			stream.readInt(); // skip GNDX
+			final ByteBuffer vertexGroups = this.read(stream, ParseUtils.readUInt32(stream));
+			stream.readInt(); // skip MTGC
+			final ByteBuffer matrixGroups = this.read(stream, ParseUtils.readUInt32(stream) * 4);
+			stream.readInt(); // skip MATS
+			final ByteBuffer matrixIndices = this.read(stream, ParseUtils.readUInt32(stream) * 4);
+			this.handler.onGeosetSkin(index, vertexGroups, matrixGroups.asIntBuffer(), matrixIndices.asIntBuffer());
+
+			final long materialId = ParseUtils.readUInt32(stream);
+			final long selectionGroup = ParseUtils.readUInt32(stream);
+			final long selectionFlags = ParseUtils.readUInt32(stream);
+			final Extent extent = new Extent();
+			extent.readMdx(stream);
+
+			final Extent[] sequenceExtents = new Extent[(int) ParseUtils.readUInt32(stream)];
+			for (int i = 0; i < sequenceExtents.length; i++) {
+				sequenceExtents[i] = new Extent();
+				sequenceExtents[i].readMdx(stream);
+			}
+
+			stream.readInt(); // skip UVAS
+			final long numUVLayers = ParseUtils.readUInt32(stream);
+			for (int i = 0; i < numUVLayers; i++) {
+				this.scratchUsed = 0;
+				stream.readInt(); // skip UVBS
+				this.handler.onGeosetUvSet(index, i, this.read(stream, ParseUtils.readUInt32(stream) * 8).asFloatBuffer());
+			}
+
+			this.handler.onGeosetEnd(index, materialId, selectionGroup, selectionFlags, extent, sequenceExtents);
+			index++;
+		}
+	}
+
+	/**
+	 * Reads bytes into the next free part of the scratch array. Growing the array
+	 * leaves buffers handed out earlier pointing at the old one, which is fine
+	 * since they are not written to again.
+	 */
+	private ByteBuffer read(final LittleEndianDataInputStream stream, final long length) throws IOException {
+		if (this.scratchUsed + length > Integer.MAX_VALUE) {
+			throw new IllegalStateException("Geoset array too large: " + length + " bytes");
+		}
+		final int end = this.scratchUsed + (int) length;
+		if (end > this.scratch.length) {
+			this.scratch = new byte[Math.max(end, this.scratch.length * 2)];
+			this.scratchUsed = 0;
+			return this.read(stream, length);
+		}
+		stream.readFully(this.scratch, this.scratchUsed, (int) length);
+		final ByteBuffer buffer = ByteBuffer.wrap(this.scratch, this.scratchUsed, (int) length).slice()
+				.order(ByteOrder.LITTLE_ENDIAN);
+		this.scratchUsed = end;
+		return buffer;
+	}
+}
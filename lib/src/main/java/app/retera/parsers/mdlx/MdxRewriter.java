@@ -0,0 +1,243 @@
+package app.retera.parsers.mdlx;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+import app.retera.util.ParseUtils;
+import com.google.common.io.LittleEndianDataInputStream;
+import com.google.common.io.LittleEndianDataOutputStream;
+
+/**
+ * Rewrites an MDX file with a few fields changed, without loading the whole
+ * model. Chunks with nothing to change are copied verbatim, using
+ * {@link FileChannel#transferTo} when reading from a file. Only the chunks
+ * that are edited are decoded and encoded again: TEXS for texture paths, SEQS
+ * for sequence names and MODL for the model extent.
+ *
+ * Those chunks hold fixed size records, so chunk sizes never change and the
+ * rest of the file is byte for byte the same as the input.
+ */
+public final class MdxRewriter {
+	private static final int SEQUENCE_SIZE = 132;
+	private static final int TEXTURE_SIZE = 268;
+	private static final int SEQUENCE_NAME_SIZE = 80;
+	private static final int TEXTURE_PATH_SIZE = 260;
+	private static final int MODEL_EXTENT_OFFSET = 80 + 260;
+	private static final int EXTENT_SIZE = 28;
+	private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+	private UnaryOperator<String> texturePathMapper;
+	private UnaryOperator<String> sequenceNameMapper;
+	private Consumer<Extent> extentEditor;
+	private ByteBuffer copyBuffer;
+
+	/**
+	 * Maps every texture path. Paths must fit in 259 bytes, leaving room for the
+	 * terminating zero of the 260 byte field.
+	 */
+	public MdxRewriter setTexturePathMapper(final UnaryOperator<String> texturePathMapper) {
+		this.texturePathMapper = texturePathMapper;
+		return this;
+	}
+
+	/**
+	 * Maps every sequence name. Names must fit in 79 bytes, leaving room for the
+	 * terminating zero of the 80 byte field.
+	 */
+	public MdxRewriter setSequenceNameMapper(final UnaryOperator<String> sequenceNameMapper) {
+		this.sequenceNameMapper = sequenceNameMapper;
+		return this;
+	}
+
+	/**
+	 * Edits the extent in the MODL chunk in place.
+	 */
+	public MdxRewriter setExtentEditor(final Consumer<Extent> extentEditor) {
+		this.extentEditor = extentEditor;
+		return this;
+	}
+
+	public void rewrite(final Path source, final Path target) throws IOException {
+		try (FileChannel in = FileChannel.open(source, StandardOpenOption.READ);
+		     FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				     StandardOpenOption.TRUNCATE_EXISTING)) {
+			this.rewrite(in, out);
+		}
+	}
+
+	public void rewrite(final ReadableByteChannel in, final WritableByteChannel out) throws IOException {
+		final ByteBuffer header = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+
+		header.limit(4);
+		if (!readFully(in, header) || (Integer.reverseBytes(header.getInt(0)) != MdlxModel.MDLX)) {
+			throw new IllegalStateException("WrongMagicNumber");
+		}
+		header.flip();
+		writeFully(out, header);
+
+		while (true) {
+			header.clear();
+			if (!readFully(in, header)) {
+				break;
+			}
+			final int tag = Integer.reverseBytes(header.getInt(0));
+			final long size = Integer.toUnsignedLong(header.getInt(4));
+			header.flip();
+			writeFully(out, header);
+
+			if ((tag == MdlxModel.TEXS) && (this.texturePathMapper != null)) {
+				writeFully(out, this.rewriteTextures(readChunk(in, size)));
+			}
+			else if ((tag == MdlxModel.SEQS) && (this.sequenceNameMapper != null)) {
+				writeFully(out, this.rewriteSequences(readChunk(in, size)));
+			}
+			else if ((tag == MdlxModel.MODL) && (this.extentEditor != null)) {
+				writeFully(out, this.rewriteModel(readChunk(in, size)));
+			}
+			else {
+				this.copy(in, out, size);
+			}
+		}
+	}
+
+	private ByteBuffer rewriteTextures(final byte[] chunk) throws IOException {
+		final LittleEndianDataInputStream stream = new LittleEndianDataInputStream(new ByteArrayInputStream(chunk));
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream(chunk.length);
+		final LittleEndianDataOutputStream output = new LittleEndianDataOutputStream(bytes);
+		final int count = chunk.length / TEXTURE_SIZE;
+		for (int i = 0; i < count; i++) {
+			final Texture texture = new Texture();
+			texture.readMdx(stream);
+			texture.setPath(checkLength(this.texturePathMapper.apply(texture.getPath()), TEXTURE_PATH_SIZE));
+			texture.writeMdx(output);
+		}
+		return finish(chunk, count * TEXTURE_SIZE, bytes);
+	}
+
+	private ByteBuffer rewriteSequences(final byte[] chunk) throws IOException {
+		final LittleEndianDataInputStream stream = new LittleEndianDataInputStream(new ByteArrayInputStream(chunk));
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream(chunk.length);
+		final LittleEndianDataOutputStream output = new LittleEndianDataOutputStream(bytes);
+		final int count = chunk.length / SEQUENCE_SIZE;
+		for (int i = 0; i < count; i++) {
+			final Sequence sequence = new Sequence();
+			sequence.readMdx(stream);
+			sequence.setName(checkLength(this.sequenceNameMapper.apply(sequence.getName()), SEQUENCE_NAME_SIZE));
+			sequence.writeMdx(output);
+		}
+		return finish(chunk, count * SEQUENCE_SIZE, bytes);
+	}
+
+	private ByteBuffer rewriteModel(final byte[] chunk) throws IOException {
+		if (chunk.length < (MODEL_EXTENT_OFFSET + EXTENT_SIZE)) {
+			throw new IllegalStateException("MODL chunk too small: " + chunk.length);
+		}
+		final Extent extent = new Extent();
+		extent.readMdx(new LittleEndianDataInputStream(
+				new ByteArrayInputStream(chunk, MODEL_EXTENT_OFFSET, EXTENT_SIZE)));
+		this.extentEditor.accept(extent);
+
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream(EXTENT_SIZE);
+		extent.writeMdx(new LittleEndianDataOutputStream(bytes));
+		System.arraycopy(bytes.toByteArray(), 0, chunk, MODEL_EXTENT_OFFSET, EXTENT_SIZE);
+		return ByteBuffer.wrap(chunk);
+	}
+
+	/**
+	 * Appends whatever followed the last whole record, which is normally nothing.
+	 */
+	private static ByteBuffer finish(final byte[] chunk, final int recordBytes, final ByteArrayOutputStream bytes) {
+		if (bytes.size() != recordBytes) {
+			throw new IllegalStateException("Re-encoded " + bytes.size() + " bytes, expected " + recordBytes);
+		}
+		bytes.write(chunk, recordBytes, chunk.length - recordBytes);
+		return ByteBuffer.wrap(bytes.toByteArray());
+	}
+
+	private static String checkLength(final String value, final int maxBytes) {
+		final int length = value.getBytes(ParseUtils.UTF8).length;
+		// Readers expect a terminating zero inside the field.
+		if (length >= maxBytes) {
+			throw new IllegalArgumentException(
+					"'" + value + "' is " + length + " bytes, the field holds at most " + (maxBytes - 1));
+		}
+		return value;
+	}
+
+	private void copy(final ReadableByteChannel in, final WritableByteChannel out, final long size)
+			throws IOException {
+		if (in instanceof FileChannel) {
+			final FileChannel file = (FileChannel) in;
+			final long start = file.position();
+			long copied = 0;
+			while (copied < size) {
+				final long transferred = file.transferTo(start + copied, size - copied, out);
+				if (transferred <= 0) {
+					throw new EOFException("Chunk ends after " + copied + " of " + size + " bytes");
+				}
+				copied += transferred;
+			}
+			file.position(start + size);
+			return;
+		}
+
+		if (this.copyBuffer == null) {
+			this.copyBuffer = ByteBuffer.allocateDirect(COPY_BUFFER_SIZE);
+		}
+		long remaining = size;
+		while (remaining > 0) {
+			this.copyBuffer.clear().limit((int) Math.min(remaining, COPY_BUFFER_SIZE));
+			if (!readFully(in, this.copyBuffer)) {
+				throw new EOFException("Chunk ends after " + (size - remaining) + " of " + size + " bytes");
+			}
+			remaining -= this.copyBuffer.position();
+			this.copyBuffer.flip();
+			writeFully(out, this.copyBuffer);
+		}
+	}
+
+	private static byte[] readChunk(final ReadableByteChannel in, final long size) throws IOException {
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalStateException("Chunk too large to edit: " + size + " bytes");
+		}
+		final ByteBuffer buffer = ByteBuffer.allocate((int) size);
+		if (!readFully(in, buffer) && (size > 0)) {
+			throw new EOFException("Chunk ends before " + size + " bytes");
+		}
+		return buffer.array();
+	}
+
+	/**
+	 * @return false if the channel was already at its end, true if the buffer was
+	 *         filled.
+	 */
+	private static boolean readFully(final ReadableByteChannel in, final ByteBuffer buffer) throws IOException {
+		final int start = buffer.position();
+		while (buffer.hasRemaining()) {
+			if (in.read(buffer) < 0) {
+				if (buffer.position() == start) {
+					return false;
+				}
+				throw new EOFException("Unexpected end of file");
+			}
+		}
+		return true;
+	}
+
+	private static void writeFully(final WritableByteChannel out, final ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining()) {
+			out.write(buffer);
+		}
+	}
+}
@@ -0,0 +1,80 @@
+package app.retera.parsers.mdlx;
+
+import java.util.List;
+
+import app.retera.parsers.mdlx.timeline.Timeline;
+import app.retera.util.InternPool;
+
+/**
+ * Walks a model and replaces its strings, and optionally its small immutable
+ * arrays, with the equal ones already held by an {@link InternPool}.
+ */
+final class ModelInterner {
+	private ModelInterner() {
+	}
+
+	static void intern(final MdlxModel model, final InternPool pool) {
+		for (final Sequence sequence : model.getSequences()) {
+			sequence.setName(pool.intern(sequence.getName()));
+		}
+		for (final Texture texture : model.getTextures()) {
+			texture.setPath(pool.intern(texture.getPath()));
+		}
+		for (final GenericObject object : model.getGenericObjects()) {
+			object.name = pool.intern(object.name);
+		}
+		for (final Attachment attachment : model.getAttachments()) {
+			attachment.setPath(pool.intern(attachment.getPath()));
+		}
+		for (final ParticleEmitter particleEmitter : model.getParticleEmitters()) {
+			particleEmitter.setPath(pool.intern(particleEmitter.getPath()));
+		}
+		for (final Camera camera : model.getCameras()) {
+			camera.name = pool.intern(camera.name);
+		}
+
+		if (!pool.isSharingArrays()) {
+			return;
+		}
+		final List<float[]> pivotPoints = model.getPivotPoints();
+		for (int i = 0; i < pivotPoints.size(); i++) {
+			pivotPoints.set(i, pool.intern(pivotPoints.get(i)));
+		}
+		for (final AnimatedObject object : model.getAnimatedObjects()) {
+			for (final Timeline<?> timeline : object.getTimelines()) {
+				intern(timeline, pool);
+			}
+		}
+		for (final EventObject eventObject : model.getEventObjects()) {
+			eventObject.setKeyFrames(pool.intern(eventObject.getKeyFrames()));
+		}
+	}
+
+	private static <TYPE> void intern(final Timeline<TYPE> timeline, final InternPool pool) {
+		if (timeline.getFrames() == null) {
+			return;
+		}
+		intern(timeline.getValues(), pool);
+		intern(timeline.getInTans(), pool);
+		intern(timeline.getOutTans(), pool);
+		timeline.setKeyframes(pool.intern(timeline.getFrames()), timeline.getValues(), timeline.getInTans(),
+				timeline.getOutTans());
+	}
+
+	/**
+	 * Interns every keyframe value in place.
+	 */
+	private static void intern(final Object[] values, final InternPool pool) {
+		if (values == null) {
+			return;
+		}
+		for (int i = 0; i < values.length; i++) {
+			if (values[i] instanceof float[]) {
+				values[i] = pool.intern((float[]) values[i]);
+			}
+			else if (values[i] instanceof long[]) {
+				values[i] = pool.intern((long[]) values[i]);
+			}
+		}
+	}
+}
@@ -1,7 +1,6 @@
 package app.retera.parsers.mdlx;
 
 import java.io.IOException;
-import java.util.Iterator;
 
 import app.retera.util.MdlUtils;
 import app.retera.util.ParseUtils;
@@ -21,11 +20,7 @@ public class ParticleEmitter extends GenericObject {
 		super(0x1000);
 	}
 
-	/**
-	 * Restricts us to only be able to parse models on one thread at a time, in
-	 * return for high performance.
-	 */
-	private static final byte[] PATH_BYTES_HEAP = new byte[260];
+	private static final int PATH_LENGTH = 260;
 
 	@Override
 	public void readMdx(final LittleEndianDataInputStream stream) throws IOException {
@@ -37,7 +32,7 @@ public class ParticleEmitter extends GenericObject {
 		this.gravity = stream.readFloat();
 		this.longitude = stream.readFloat();
 		this.latitude = stream.readFloat();
-		this.path = ParseUtils.readString(stream, PATH_BYTES_HEAP);
+		this.path = ParseUtils.readString(stream, PATH_LENGTH);
 		this.lifeSpan = stream.readFloat();
 		this.speed = stream.readFloat();
 
@@ -56,7 +51,7 @@ public class ParticleEmitter extends GenericObject {
 		stream.writeFloat(this.latitude);
 		final byte[] bytes = this.path.getBytes(ParseUtils.UTF8);
 		stream.write(bytes);
-		for (int i = 0; i < (PATH_BYTES_HEAP.length - bytes.length); i++) {
+		for (int i = 0; i < (PATH_LENGTH - bytes.length); i++) {
 			stream.write((byte) 0);
 		}
 		stream.writeFloat(this.lifeSpan);
@@ -67,7 +62,8 @@ public class ParticleEmitter extends GenericObject {
 
 	@Override
 	public void readMdl(final MdlTokenInputStream stream) throws IOException {
-		for (final String token : super.readMdlGeneric(stream)) {
+		super.readMdlGenericStart(stream);
+		for (String token = super.readMdlGenericToken(stream); token != null; token = super.readMdlGenericToken(stream)) {
 			switch (token) {
 				case MdlUtils.TOKEN_EMITTER_USES_MDL -> this.flags |= 0x8000;
 				case MdlUtils.TOKEN_EMITTER_USES_TGA -> this.flags |= 0x10000;
@@ -81,9 +77,8 @@ public class ParticleEmitter extends GenericObject {
 				case MdlUtils.TOKEN_LATITUDE -> readTimeline(stream, AnimationMap.KPLT);
 				case MdlUtils.TOKEN_VISIBILITY -> readTimeline(stream, AnimationMap.KPEV);
 				case MdlUtils.TOKEN_PARTICLE -> {
-					final Iterator<String> iterator = readAnimatedBlock(stream);
-					while (iterator.hasNext()) {
-						final String subToken = iterator.next();
+					stream.readBlockStart();
+					for (String subToken = readAnimatedToken(stream); subToken != null; subToken = readAnimatedToken(stream)) {
 						switch (subToken) {
 							case MdlUtils.TOKEN_STATIC_LIFE_SPAN -> this.lifeSpan = stream.readFloat();
 							case MdlUtils.TOKEN_LIFE_SPAN -> readTimeline(stream, AnimationMap.KPEL);
@@ -178,6 +173,10 @@ public class ParticleEmitter extends GenericObject {
 		return this.path;
 	}
 
+	public void setPath(final String path) {
+		this.path = path;
+	}
+
 	public float getLifeSpan() {
 		return this.lifeSpan;
 	}
@@ -186,4 +185,17 @@ public class ParticleEmitter extends GenericObject {
 		return this.speed;
 	}
 
+	@Override
+	public ParticleEmitter copy(final boolean shareArrays) {
+		final ParticleEmitter copy = new ParticleEmitter();
+		copyGeneric(copy, shareArrays);
+		copy.emissionRate = this.emissionRate;
+		copy.gravity = this.gravity;
+		copy.longitude = this.longitude;
+		copy.latitude = this.latitude;
+		copy.path = this.path;
+		copy.lifeSpan = this.lifeSpan;
+		copy.speed = this.speed;
+		return copy;
+	}
 }
@@ -153,7 +153,8 @@ public class ParticleEmitter2 extends GenericObject {
 
 	@Override
 	public void readMdl(final MdlTokenInputStream stream) throws IOException {
-		for (final String token : super.readMdlGeneric(stream)) {
+		super.readMdlGenericStart(stream);
+		for (String token = super.readMdlGenericToken(stream); token != null; token = super.readMdlGenericToken(stream)) {
 			switch (token) {
 				case MdlUtils.TOKEN_SORT_PRIMS_FAR_Z -> this.flags |= 0x10000;
 				case MdlUtils.TOKEN_UNSHADED -> this.flags |= 0x8000;
@@ -416,4 +417,37 @@ public class ParticleEmitter2 extends GenericObject {
 		return this.replaceableId;
 	}
 
+	@Override
+	public ParticleEmitter2 copy(final boolean shareArrays) {
+		final ParticleEmitter2 copy = new ParticleEmitter2();
+		copyGeneric(copy, shareArrays);
+		copy.speed = this.speed;
+		copy.variation = this.variation;
+		copy.latitude = this.latitude;
+		copy.gravity = this.gravity;
+		copy.lifeSpan = this.lifeSpan;
+		copy.emissionRate = this.emissionRate;
+		copy.length = this.length;
+		copy.width = this.width;
+		copy.filterMode = this.filterMode;
+		copy.rows = this.rows;
+		copy.columns = this.columns;
+		copy.headOrTail = this.headOrTail;
+		copy.tailLength = this.tailLength;
+		copy.timeMiddle = this.timeMiddle;
+		for (int i = 0; i < 3; i++) {
+			System.arraycopy(this.segmentColors[i], 0, copy.segmentColors[i], 0, 3);
+		}
+		System.arraycopy(this.segmentAlphas, 0, copy.segmentAlphas, 0, 3);
+		System.arraycopy(this.segmentScaling, 0, copy.segmentScaling, 0, 3);
+		for (int i = 0; i < 2; i++) {
+			System.arraycopy(this.headIntervals[i], 0, copy.headIntervals[i], 0, 3);
+			System.arraycopy(this.tailIntervals[i], 0, copy.tailIntervals[i], 0, 3);
+		}
+		copy.textureId = this.textureId;
+		copy.squirt = this.squirt;
+		copy.priorityPlane = this.priorityPlane;
+		copy.replaceableId = this.replaceableId;
+		return copy;
+	}
 }
@@ -0,0 +1,54 @@
+package app.retera.parsers.mdlx;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The estimated number of heap bytes held by a loaded {@link MdlxModel}, broken
+ * down by the MDX chunk the data belongs to (GEOS, BONE, ...). The model object
+ * itself and its scalar fields are counted under MODL.
+ *
+ * The estimate assumes a 64 bit JVM with compressed references: 12 byte object
+ * headers, 16 byte array headers, 4 byte references and 8 byte alignment.
+ * Objects shared between models (interned strings, shared arrays) are counted
+ * once per model.
+ */
+public final class RetainedSizeEstimate {
+	private final Map<String, Long> chunkSizes = new LinkedHashMap<>();
+	private long total;
+
+	RetainedSizeEstimate() {
+	}
+
+	void add(final String chunk, final long size) {
+		if (size != 0) {
+			this.chunkSizes.merge(chunk, size, Long::sum);
+			this.total += size;
+		}
+	}
+
+	public long getTotal() {
+		return this.total;
+	}
+
+	/**
+	 * @param chunk An MDX chunk tag, for example "GEOS".
+	 * @return The estimated bytes held by that chunk, or 0 if the model has none.
+	 */
+	public long getChunkSize(final String chunk) {
+		return this.chunkSizes.getOrDefault(chunk, 0L);
+	}
+
+	/**
+	 * The per chunk sizes, in the order the chunks appear in an MDX file.
+	 */
+	public Map<String, Long> getChunkSizes() {
+		return Collections.unmodifiableMap(this.chunkSizes);
+	}
+
+	@Override
+	public String toString() {
+		return "RetainedSizeEstimate{total=" + this.total + ", chunks=" + this.chunkSizes + "}";
+	}
+}
@@ -0,0 +1,316 @@
+package app.retera.parsers.mdlx;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import app.retera.parsers.mdlx.timeline.Timeline;
+import app.retera.util.War3ID;
+
+/**
+ * Walks a model and adds up the approximate heap footprint of everything it
+ * holds. See {@link RetainedSizeEstimate} for the assumed memory layout.
+ *
+ * Every object of the model is visited, down to each keyframe value, but the
+ * elements of primitive arrays are not: only their lengths are read. Object
+ * sizes come from the instance fields their classes declare, so they follow
+ * the classes as fields are added.
+ */
+final class RetainedSizeEstimator {
+	private static final int OBJECT_HEADER = 12;
+	private static final int ARRAY_HEADER = 16;
+	private static final int REFERENCE = 4;
+
+	private static final ClassValue<Long> SHALLOW = new ClassValue<>() {
+		@Override
+		protected Long computeValue(final Class<?> type) {
+			long fieldBytes = 0;
+			for (Class<?> declaring = type; declaring != null; declaring = declaring.getSuperclass()) {
+				for (final Field field : declaring.getDeclaredFields()) {
+					if (!Modifier.isStatic(field.getModifiers())) {
+						fieldBytes += fieldSize(field.getType());
+					}
+				}
+			}
+			return align(OBJECT_HEADER + fieldBytes);
+		}
+	};
+
+	private static final long EXTENT = shallow(Extent.class) + (floatArray(3) * 2);
+	private static final long BOXED_LONG = shallow(Long.class);
+
+	private RetainedSizeEstimator() {
+	}
+
+	static RetainedSizeEstimate estimate(final MdlxModel model) {
+		final RetainedSizeEstimate estimate = new RetainedSizeEstimate();
+
+		long modelSize = shallow(MdlxModel.class) + string(model.getName()) + string(model.getAnimationFile()) + EXTENT;
+		// The list objects, their backing arrays are counted per chunk.
+		modelSize += list(0) * fieldCount(MdlxModel.class, List.class);
+		estimate.add("MODL", modelSize);
+
+		long sequences = listSlots(model.getSequences());
+		for (final Sequence sequence : model.getSequences()) {
+			sequences += shallow(Sequence.class) + string(sequence.getName()) + longArray(2) + EXTENT;
+		}
+		estimate.add("SEQS", sequences);
+
+		estimate.add("GLBS", listSlots(model.getGlobalSequences()) + (BOXED_LONG * model.getGlobalSequences().size()));
+
+		long materials = listSlots(model.getMaterials());
+		for (final Material material : model.getMaterials()) {
+			materials += shallow(Material.class) + list(material.getLayers().size());
+			for (final Layer layer : material.getLayers()) {
+				materials += shallow(Layer.class) + timelines(layer);
+			}
+		}
+		estimate.add("MTLS", materials);
+
+		long textures = listSlots(model.getTextures());
+		for (final Texture texture : model.getTextures()) {
+			textures += shallow(Texture.class) + string(texture.getPath());
+		}
+		estimate.add("TEXS", textures);
+
+		long textureAnimations = listSlots(model.getTextureAnimations());
+		for (final TextureAnimation textureAnimation : model.getTextureAnimations()) {
+			textureAnimations += shallow(TextureAnimation.class) + timelines(textureAnimation);
+		}
+		estimate.add("TXAN", textureAnimations);
+
+		long geosets = listSlots(model.getGeosets());
+		for (final Geoset geoset : model.getGeosets()) {
+			geosets += geoset(geoset);
+		}
+		estimate.add("GEOS", geosets);
+
+		long geosetAnimations = listSlots(model.getGeosetAnimations());
+		for (final GeosetAnimation geosetAnimation : model.getGeosetAnimations()) {
+			geosetAnimations += shallow(GeosetAnimation.class) + floatArray(3) + timelines(geosetAnimation);
+		}
+		estimate.add("GEOA", geosetAnimations);
+
+		estimate.add("BONE", genericObjects(model.getBones()));
+		estimate.add("LITE", genericObjects(model.getLights()) + ((floatArray(2) + (floatArray(3) * 2)) * model.getLights().size()));
+		estimate.add("HELP", genericObjects(model.getHelpers()));
+
+		long attachments = genericObjects(model.getAttachments());
+		for (final Attachment attachment : model.getAttachments()) {
+			attachments += string(attachment.getPath());
+		}
+		estimate.add("ATCH", attachments);
+
+		estimate.add("PIVT", listSlots(model.getPivotPoints()) + (floatArray(3) * model.getPivotPoints().size()));
+
+		long particleEmitters = genericObjects(model.getParticleEmitters());
+		for (final ParticleEmitter particleEmitter : model.getParticleEmitters()) {
+			particleEmitters += string(particleEmitter.getPath());
+		}
+		estimate.add("PREM", particleEmitters);
+
+		// segment colors (float[3][3]), alphas, scaling, head and tail intervals (long[2][3])
+		final long particleEmitter2Arrays = refArray(3) + (floatArray(3) * 3) + shortArray(3) + floatArray(3) + ((refArray(2) + (longArray(3) * 2)) * 2);
+		estimate.add("PRE2", genericObjects(model.getParticleEmitters2()) + (particleEmitter2Arrays * model.getParticleEmitters2().size()));
+
+		estimate.add("RIBB", genericObjects(model.getRibbonEmitters()) + (floatArray(3) * model.getRibbonEmitters().size()));
+
+		long cameras = listSlots(model.getCameras());
+		for (final Camera camera : model.getCameras()) {
+			cameras += shallow(Camera.class) + string(camera.getName()) + (floatArray(3) * 2) + timelines(camera);
+		}
+		estimate.add("CAMS", cameras);
+
+		long eventObjects = genericObjects(model.getEventObjects());
+		for (final EventObject eventObject : model.getEventObjects()) {
+			eventObjects += longArray(eventObject.getKeyFrames().length);
+		}
+		estimate.add("EVTS", eventObjects);
+
+		estimate.add("CLID", genericObjects(model.getCollisionShapes()) + ((refArray(2) + (floatArray(3) * 2)) * model.getCollisionShapes().size()));
+
+		for (final UnknownChunk chunk : model.getUnknownChunks()) {
+			// Stored as a short[] holding one byte per element, plus the War3ID.
+			estimate.add(chunk.getTag().toString(), shallow(UnknownChunk.class) + shortArray((int) (chunk.getByteLength() - 8)) + shallow(War3ID.class));
+		}
+
+		return estimate;
+	}
+
+	private static long geoset(final Geoset geoset) {
+		long size = shallow(Geoset.class);
+		size += array(geoset.getVertices());
+		size += array(geoset.getNormals());
+		size += array(geoset.getCompactFaceTypeGroups());
+		size += array(geoset.getCompactFaceGroups());
+		size += array(geoset.getCompactFaces());
+		size += array(geoset.getCompactVertexGroups());
+		size += array(geoset.getCompactMatrixGroups());
+		size += array(geoset.getCompactMatrixIndices());
+		size += EXTENT;
+
+		final Extent[] sequenceExtents = geoset.getSequenceExtents();
+		if (sequenceExtents != null) {
+			size += refArray(sequenceExtents.length) + (EXTENT * sequenceExtents.length);
+		}
+
+		final float[][] uvSets = geoset.getUvSets();
+		if (uvSets != null) {
+			size += refArray(uvSets.length);
+			for (final float[] uvSet : uvSets) {
+				size += floatArray(uvSet.length);
+			}
+		}
+		return size;
+	}
+
+	private static long genericObjects(final List<? extends GenericObject> objects) {
+		long size = listSlots(objects);
+		for (final GenericObject object : objects) {
+			size += shallow(object.getClass()) + string(object.getName()) + timelines(object);
+		}
+		return size;
+	}
+
+	private static long timelines(final AnimatedObject object) {
+		final List<Timeline<?>> timelines = object.getTimelines();
+		long size = list(timelines.size());
+		for (final Timeline<?> timeline : timelines) {
+			size += timeline(timeline);
+		}
+		return size;
+	}
+
+	private static long timeline(final Timeline<?> timeline) {
+		long size = shallow(timeline.getClass());
+		final long[] frames = timeline.getFrames();
+		if (frames == null) {
+			return size;
+		}
+		size += longArray(frames.length);
+		size += boxedValues(timeline.getValues());
+		size += boxedValues(timeline.getInTans());
+		size += boxedValues(timeline.getOutTans());
+		return size;
+	}
+
+	/**
+	 * Every keyframe value is its own small array, referenced from an Object[].
+	 */
+	private static long boxedValues(final Object[] values) {
+		if (values == null) {
+			return 0;
+		}
+		long size = refArray(values.length);
+		for (final Object value : values) {
+			if (value instanceof float[]) {
+				size += floatArray(((float[]) value).length);
+			}
+			else if (value instanceof long[]) {
+				size += longArray(((long[]) value).length);
+			}
+		}
+		return size;
+	}
+
+	private static long array(final float[] array) {
+		return array == null ? 0 : floatArray(array.length);
+	}
+
+	private static long array(final int[] array) {
+		return array == null ? 0 : intArray(array.length);
+	}
+
+	private static long array(final char[] array) {
+		return array == null ? 0 : shortArray(array.length);
+	}
+
+	private static long array(final byte[] array) {
+		return array == null ? 0 : align(ARRAY_HEADER + array.length);
+	}
+
+	private static long array(final short[] array) {
+		return array == null ? 0 : shortArray(array.length);
+	}
+
+	private static long array(final long[] array) {
+		return array == null ? 0 : longArray(array.length);
+	}
+
+	/**
+	 * The backing array of an ArrayList. Empty lists share a sentinel array.
+	 */
+	private static long listSlots(final List<?> list) {
+		return list.isEmpty() ? 0 : refArray(list.size());
+	}
+
+	/**
+	 * An ArrayList holding the given number of elements, not counting them.
+	 */
+	private static long list(final int size) {
+		return shallow(ArrayList.class) + (size == 0 ? 0 : refArray(size));
+	}
+
+	private static long string(final String string) {
+		if (string == null) {
+			return 0;
+		}
+		// Compact strings: one byte per char for Latin-1 content.
+		return shallow(String.class) + align(ARRAY_HEADER + string.length());
+	}
+
+	private static long shallow(final Class<?> type) {
+		return SHALLOW.get(type);
+	}
+
+	private static int fieldCount(final Class<?> type, final Class<?> fieldType) {
+		int count = 0;
+		for (final Field field : type.getDeclaredFields()) {
+			if (!Modifier.isStatic(field.getModifiers()) && (field.getType() == fieldType)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	private static int fieldSize(final Class<?> type) {
+		if ((type == long.class) || (type == double.class)) {
+			return 8;
+		}
+		if ((type == int.class) || (type == float.class)) {
+			return 4;
+		}
+		if ((type == short.class) || (type == char.class)) {
+			return 2;
+		}
+		if ((type == byte.class) || (type == boolean.class)) {
+			return 1;
+		}
+		return REFERENCE;
+	}
+
+	private static long refArray(final int length) {
+		return align(ARRAY_HEADER + ((long) length * REFERENCE));
+	}
+
+	private static long floatArray(final int length) {
+		return align(ARRAY_HEADER + (length * 4L));
+	}
+
+	private static long intArray(final int length) {
+		return align(ARRAY_HEADER + (length * 4L));
+	}
+
+	private static long shortArray(final int length) {
+		return align(ARRAY_HEADER + (length * 2L));
+	}
+
+	private static long longArray(final int length) {
+		return align(ARRAY_HEADER + (length * 8L));
+	}
+
+	private static long align(final long size) {
+		return (size + 7) & ~7L;
+	}
+}
@@ -68,7 +68,8 @@ public class RibbonEmitter extends GenericObject {
 
 	@Override
 	public void readMdl(final MdlTokenInputStream stream) throws IOException {
-		for (final String token : super.readMdlGeneric(stream)) {
+		super.readMdlGenericStart(stream);
+		for (String token = super.readMdlGenericToken(stream); token != null; token = super.readMdlGenericToken(stream)) {
 			switch (token) {
 				case MdlUtils.TOKEN_STATIC_HEIGHT_ABOVE -> this.heightAbove = stream.readFloat();
 				case MdlUtils.TOKEN_HEIGHT_ABOVE -> readTimeline(stream, AnimationMap.KRHA);
@@ -183,4 +184,21 @@ public class RibbonEmitter extends GenericObject {
 		return this.gravity;
 	}
 
+	@Override
+	public RibbonEmitter copy(final boolean shareArrays) {
+		final RibbonEmitter copy = new RibbonEmitter();
+		copyGeneric(copy, shareArrays);
+		copy.heightAbove = this.heightAbove;
+		copy.heightBelow = this.heightBelow;
+		copy.alpha = this.alpha;
+		System.arraycopy(this.color, 0, copy.color, 0, 3);
+		copy.lifeSpan = this.lifeSpan;
+		copy.textureSlot = this.textureSlot;
+		copy.emissionRate = this.emissionRate;
+		copy.rows = this.rows;
+		copy.columns = this.columns;
+		copy.materialId = this.materialId;
+		copy.gravity = this.gravity;
+		return copy;
+	}
 }
@@ -17,15 +17,11 @@ public class Sequence implements MdlxBlock {
 	private long syncPoint = 0;
 	private final Extent extent = new Extent();
 
-	/**
-	 * Restricts us to only be able to parse models on one thread at a time, in
-	 * return for high performance.
-	 */
-	private static final byte[] NAME_BYTES_HEAP = new byte[80];
+	private static final int NAME_LENGTH = 80;
 
 	@Override
 	public void readMdx(final LittleEndianDataInputStream stream) throws IOException {
-		this.name = ParseUtils.readString(stream, NAME_BYTES_HEAP);
+		this.name = ParseUtils.readString(stream, NAME_LENGTH);
 		ParseUtils.readUInt32Array(stream, this.interval);
 		this.moveSpeed = stream.readFloat();
 		this.flags = (int) ParseUtils.readUInt32(stream);
@@ -38,7 +34,7 @@ public class Sequence implements MdlxBlock {
 	public void writeMdx(final LittleEndianDataOutputStream stream) throws IOException {
 		final byte[] bytes = this.name.getBytes(ParseUtils.UTF8);
 		stream.write(bytes);
-		for (int i = 0; i < (NAME_BYTES_HEAP.length - bytes.length); i++) {
+		for (int i = 0; i < (NAME_LENGTH - bytes.length); i++) {
 			stream.write((byte) 0);
 		}
 		ParseUtils.writeUInt32Array(stream, this.interval);
@@ -53,7 +49,8 @@ public class Sequence implements MdlxBlock {
 	public void readMdl(final MdlTokenInputStream stream) {
 		this.name = stream.read();
 
-		for (final String token : stream.readBlock()) {
+		stream.readBlockStart();
+		for (String token = stream.readBlockToken(); token != null; token = stream.readBlockToken()) {
 			switch (token) {
 				case MdlUtils.TOKEN_INTERVAL -> stream.readIntArray(this.interval);
 				case MdlUtils.TOKEN_NONLOOPING -> this.flags = 1;
@@ -115,4 +112,21 @@ public class Sequence implements MdlxBlock {
 	public Extent getExtent() {
 		return this.extent;
 	}
+
+	public void setName(final String name) {
+		this.name = name;
+	}
+
+	@Override
+	public Sequence copy(final boolean shareArrays) {
+		final Sequence copy = new Sequence();
+		copy.name = this.name;
+		System.arraycopy(this.interval, 0, copy.interval, 0, 2);
+		copy.moveSpeed = this.moveSpeed;
+		copy.flags = this.flags;
+		copy.rarity = this.rarity;
+		copy.syncPoint = this.syncPoint;
+		copy.extent.set(this.extent);
+		return copy;
+	}
 }
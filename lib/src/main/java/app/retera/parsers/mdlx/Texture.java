@@ -12,16 +12,12 @@ public class Texture implements MdlxBlock {
 	private String path = "";
 	private int flags = 0;
 
-	/**
-	 * Restricts us to only be able to parse models on one thread at a time, in
-	 * return for high performance.
-	 */
-	private static final byte[] PATH_BYTES_HEAP = new byte[260];
+	private static final int PATH_LENGTH = 260;
 
 	@Override
 	public void readMdx(final LittleEndianDataInputStream stream) throws IOException {
 		this.replaceableId = (int) ParseUtils.readUInt32(stream);
-		this.path = ParseUtils.readString(stream, PATH_BYTES_HEAP);
+		this.path = ParseUtils.readString(stream, PATH_LENGTH);
 		this.flags = (int) ParseUtils.readUInt32(stream);
 	}
 
@@ -30,7 +26,7 @@ public class Texture implements MdlxBlock {
 		ParseUtils.writeUInt32(stream, this.replaceableId);
 		final byte[] bytes = this.path.getBytes(ParseUtils.UTF8);
 		stream.write(bytes);
-		for (int i = 0; i < (PATH_BYTES_HEAP.length - bytes.length); i++) {
+		for (int i = 0; i < (PATH_LENGTH - bytes.length); i++) {
 			stream.write((byte) 0);
 		}
 		ParseUtils.writeUInt32(stream, this.flags);
@@ -38,7 +34,8 @@ public class Texture implements MdlxBlock {
 
 	@Override
 	public void readMdl(final MdlTokenInputStream stream) throws IOException {
-		for (final String token : stream.readBlock()) {
+		stream.readBlockStart();
+		for (String token = stream.readBlockToken(); token != null; token = stream.readBlockToken()) {
 			switch (token) {
 				case MdlUtils.TOKEN_IMAGE -> this.path = stream.read();
 				case MdlUtils.TOKEN_REPLACEABLE_ID -> this.replaceableId = stream.readInt();
@@ -93,4 +90,12 @@ public class Texture implements MdlxBlock {
 		this.flags = flags;
 	}
 
+	@Override
+	public Texture copy(final boolean shareArrays) {
+		final Texture copy = new Texture();
+		copy.replaceableId = this.replaceableId;
+		copy.path = this.path;
+		copy.flags = this.flags;
+		return copy;
+	}
 }
@@ -23,7 +23,8 @@ public class TextureAnimation extends AnimatedObject {
 
 	@Override
 	public void readMdl(final MdlTokenInputStream stream) throws IOException {
-		for (final String token : stream.readBlock()) {
+		stream.readBlockStart();
+		for (String token = stream.readBlockToken(); token != null; token = stream.readBlockToken()) {
 			switch (token) {
 				case MdlUtils.TOKEN_TRANSLATION -> this.readTimeline(stream, AnimationMap.KTAT);
 				case MdlUtils.TOKEN_ROTATION -> this.readTimeline(stream, AnimationMap.KTAR);
@@ -47,4 +48,10 @@ public class TextureAnimation extends AnimatedObject {
 		return 4 + super.getByteLength();
 	}
 
+	@Override
+	public TextureAnimation copy(final boolean shareArrays) {
+		final TextureAnimation copy = new TextureAnimation();
+		copyTimelines(copy, shareArrays);
+		return copy;
+	}
 }
@@ -19,6 +19,19 @@ public class UnknownChunk implements Chunk {
 		this.tag = tag;
 	}
 
+	private UnknownChunk(final short[] chunk, final War3ID tag) {
+		this.chunk = chunk;
+		this.tag = tag;
+	}
+
+	/**
+	 * @param shareArrays Whether the copy may share the contents, see
+	 *                    {@link MdlxBlock#copy(boolean)}.
+	 */
+	public UnknownChunk copy(final boolean shareArrays) {
+		return new UnknownChunk(shareArrays ? this.chunk : this.chunk.clone(), this.tag);
+	}
+
 	public void writeMdx(final LittleEndianDataOutputStream stream) throws IOException {
 		ParseUtils.writeWar3ID(stream, this.tag);
 		// Below: Byte.BYTES used because it's mean as a UInt8 array. This is
@@ -33,4 +46,8 @@ public class UnknownChunk implements Chunk {
 	public long getByteLength() {
 		return 8 + (this.chunk.length * Byte.BYTES);
 	}
+
+	public War3ID getTag() {
+		return this.tag;
+	}
 }
@@ -0,0 +1,163 @@
+package app.retera.parsers.mdlx.animation;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import app.retera.parsers.mdlx.AnimationMap;
+import app.retera.parsers.mdlx.GenericObject;
+import app.retera.parsers.mdlx.MdlxModel;
+import app.retera.parsers.mdlx.Sequence;
+import app.retera.parsers.mdlx.timeline.Timeline;
+import app.retera.util.War3ID;
+
+/**
+ * Resamples the node translation, rotation and scaling timelines of a model
+ * into one {@link BakedClip} per sequence. Sequences are baked in parallel.
+ *
+ * Timelines on a global sequence are sampled at the time since the start of the
+ * sequence, wrapped around the global sequence duration, which matches playback
+ * when both start together.
+ */
+public final class AnimationBaker {
+	public static final long DEFAULT_FRAME_STEP = 1000 / 30;
+
+	private static final float[] IDENTITY = { 0, 0, 0, 1 };
+	private static final float[] ONE = { 1, 1, 1 };
+
+	private final long frameStep;
+
+	public AnimationBaker() {
+		this(DEFAULT_FRAME_STEP);
+	}
+
+	/**
+	 * @param frameStep Milliseconds between baked frames. Smaller steps cost more
+	 *                  memory, see {@link BakedClip#getByteSize()}.
+	 */
+	public AnimationBaker(final long frameStep) {
+		if (frameStep <= 0) {
+			throw new IllegalArgumentException("Frame step must be positive: " + frameStep);
+		}
+		this.frameStep = frameStep;
+	}
+
+	/**
+	 * Bakes every sequence of the model, in sequence order.
+	 */
+	public List<BakedClip> bake(final MdlxModel model) {
+		final Node[] nodes = nodes(model.getGenericObjects());
+		final int[] objectIds = new int[nodes.length];
+		for (int i = 0; i < nodes.length; i++) {
+			objectIds[i] = nodes[i].objectId;
+		}
+		final List<Long> globalSequences = model.getGlobalSequences();
+
+		return model.getSequences().parallelStream()
+				.map(sequence -> this.bake(sequence, nodes, objectIds, globalSequences))
+				.collect(Collectors.toList());
+	}
+
+	/**
+	 * The total size of the tables, see {@link BakedClip#getByteSize()}.
+	 */
+	public static long getByteSize(final List<BakedClip> clips) {
+		long size = 0;
+		for (final BakedClip clip : clips) {
+			size += clip.getByteSize();
+		}
+		return size;
+	}
+
+	private BakedClip bake(final Sequence sequence, final Node[] nodes, final int[] objectIds,
+			final List<Long> globalSequences) {
+		final long start = sequence.getInterval()[0];
+		final long end = Math.max(start, sequence.getInterval()[1]);
+		final BakedClip clip = new BakedClip(sequence.getName(), start, end - start, this.frameStep, objectIds);
+		final TimelineSampler sampler = new TimelineSampler();
+		final float[] translations = clip.getTranslations();
+		final float[] rotations = clip.getRotations();
+		final float[] scales = clip.getScales();
+		final float[] value = new float[4];
+		final float[] vector = new float[3];
+
+		for (int frame = 0; frame < clip.getFrameCount(); frame++) {
+			final long time = Math.min(frame * this.frameStep, end - start);
+			for (int node = 0; node < nodes.length; node++) {
+				final int index = (frame * nodes.length) + node;
+				sample(sampler, nodes[node].translation, time, start, end, globalSequences, vector, null);
+				System.arraycopy(vector, 0, translations, index * 3, 3);
+				sample(sampler, nodes[node].rotation, time, start, end, globalSequences, value, IDENTITY);
+				System.arraycopy(value, 0, rotations, index * 4, 4);
+				sample(sampler, nodes[node].scaling, time, start, end, globalSequences, vector, ONE);
+				System.arraycopy(vector, 0, scales, index * 3, 3);
+			}
+		}
+		return clip;
+	}
+
+	/**
+	 * @param defaultValue Used when the timeline is missing or has no keys in
+	 *                     the sequence. Null for zeros.
+	 */
+	private static void sample(final TimelineSampler sampler, final Timeline<?> timeline, final long time,
+			final long start, final long end, final List<Long> globalSequences, final float[] out,
+			final float[] defaultValue) {
+		boolean sampled = false;
+		if (timeline != null) {
+			final int globalSequenceId = timeline.getGlobalSequenceId();
+			if (globalSequenceId < 0) {
+				sampled = sampler.sample(timeline, start + time, start, end, out);
+			}
+			else if (globalSequenceId < globalSequences.size()) {
+				final long duration = globalSequences.get(globalSequenceId);
+				sampled = sampler.sample(timeline, (duration > 0) ? (time % duration) : 0, 0, duration, out);
+			}
+		}
+		if (!sampled) {
+			if (defaultValue == null) {
+				Arrays.fill(out, 0);
+			}
+			else {
+				System.arraycopy(defaultValue, 0, out, 0, out.length);
+			}
+		}
+	}
+
+	private static Node[] nodes(final List<GenericObject> objects) {
+		final Node[] nodes = new Node[objects.size()];
+		for (int i = 0; i < nodes.length; i++) {
+			nodes[i] = new Node(objects.get(i));
+		}
+		return nodes;
+	}
+
+	/**
+	 * The transform timelines of one node, looked up once per model.
+	 */
+	private static final class Node {
+		private static final War3ID KGTR = AnimationMap.KGTR.getWar3id();
+		private static final War3ID KGRT = AnimationMap.KGRT.getWar3id();
+		private static final War3ID KGSC = AnimationMap.KGSC.getWar3id();
+
+		private final int objectId;
+		private Timeline<?> translation;
+		private Timeline<?> rotation;
+		private Timeline<?> scaling;
+
+		private Node(final GenericObject object) {
+			this.objectId = object.getObjectId();
+			for (final Timeline<?> timeline : object.getTimelines()) {
+				if (KGTR.equals(timeline.getName())) {
+					this.translation = timeline;
+				}
+				else if (KGRT.equals(timeline.getName())) {
+					this.rotation = timeline;
+				}
+				else if (KGSC.equals(timeline.getName())) {
+					this.scaling = timeline;
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,239 @@
+package app.retera.parsers.mdlx.animation;
+
+/**
+ * One sequence resampled at a fixed rate into flat tables of local node
+ * transforms, so playing it back is a lookup and a blend between two frames.
+ *
+ * The tables are laid out frame by frame, and within a frame node by node:
+ * translation <code>(frame * nodeCount + node) * 3</code>, rotation
+ * <code>(frame * nodeCount + node) * 4</code> as an (x, y, z, w) quaternion and
+ * scaling <code>(frame * nodeCount + node) * 3</code>. Frame i is at
+ * <code>i * frameStep</code> from the start of the sequence, except the last
+ * frame, which is always at the end.
+ */
+public final class BakedClip {
+	private final String name;
+	private final long start;
+	private final long duration;
+	private final long frameStep;
+	private final int frameCount;
+	private final int[] objectIds;
+	private final float[] translations;
+	private final float[] rotations;
+	private final float[] scales;
+
+	BakedClip(final String name, final long start, final long duration, final long frameStep, final int[] objectIds) {
+		this.name = name;
+		this.start = start;
+		this.duration = duration;
+		this.frameStep = frameStep;
+		this.frameCount = frameCount(duration, frameStep);
+		this.objectIds = objectIds;
+		final int samples = this.frameCount * objectIds.length;
+		this.translations = new float[samples * 3];
+		this.rotations = new float[samples * 4];
+		this.scales = new float[samples * 3];
+	}
+
+	static int frameCount(final long duration, final long frameStep) {
+		final long count = ((duration + frameStep - 1) / frameStep) + 1;
+		if (count > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("Too many frames: " + count);
+		}
+		return (int) count;
+	}
+
+	/**
+	 * Samples every node at a time relative to the start of the sequence, which
+	 * is clamped to its duration.
+	 *
+	 * @param translations Receives nodeCount * 3 floats.
+	 * @param rotations    Receives nodeCount * 4 floats.
+	 * @param scales       Receives nodeCount * 3 floats.
+	 */
+	public void sample(final long time, final float[] translations, final float[] rotations, final float[] scales) {
+		final int frame = this.frameAt(time);
+		final float t = this.blendAt(time, frame);
+		final int nodeCount = this.objectIds.length;
+		blend(this.translations, frame, nodeCount, 3, t, translations, 0, nodeCount * 3);
+		blendRotations(this.rotations, frame, nodeCount, t, rotations, 0, nodeCount);
+		blend(this.scales, frame, nodeCount, 3, t, scales, 0, nodeCount * 3);
+	}
+
+	/**
+	 * Samples one node at a time relative to the start of the sequence.
+	 *
+	 * @param translation Receives 3 floats.
+	 * @param rotation    Receives 4 floats.
+	 * @param scale       Receives 3 floats.
+	 */
+	public void sample(final long time, final int node, final float[] translation, final float[] rotation,
+			final float[] scale) {
+		final int frame = this.frameAt(time);
+		final float t = this.blendAt(time, frame);
+		final int nodeCount = this.objectIds.length;
+		blendNode(this.translations, frame, nodeCount, 3, node, t, translation);
+		blendRotations(this.rotations, frame, nodeCount, t, rotation, node, 1);
+		blendNode(this.scales, frame, nodeCount, 3, node, t, scale);
+	}
+
+	private int frameAt(final long time) {
+		return frameAt(time, this.duration, this.frameStep, this.frameCount);
+	}
+
+	private float blendAt(final long time, final int frame) {
+		return blendAt(time, frame, this.duration, this.frameStep, this.frameCount);
+	}
+
+	static int frameAt(final long time, final long duration, final long frameStep, final int frameCount) {
+		if (time <= 0) {
+			return 0;
+		}
+		if (time >= duration) {
+			return frameCount - 1;
+		}
+		return (int) (time / frameStep);
+	}
+
+	/**
+	 * How far past the given frame the time is, towards the next.
+	 */
+	static float blendAt(final long time, final int frame, final long duration, final long frameStep,
+			final int frameCount) {
+		if ((frame == (frameCount - 1)) || (time <= 0)) {
+			return 0;
+		}
+		final long frameTime = frame * frameStep;
+		final long nextTime = Math.min(frameTime + frameStep, duration);
+		return (float) (time - frameTime) / (nextTime - frameTime);
+	}
+
+	private static void blend(final float[] table, final int frame, final int nodeCount, final int size,
+			final float t, final float[] out, final int outOffset, final int length) {
+		final int a = frame * nodeCount * size;
+		if (t == 0) {
+			System.arraycopy(table, a, out, outOffset, length);
+			return;
+		}
+		final int b = a + (nodeCount * size);
+		for (int i = 0; i < length; i++) {
+			out[outOffset + i] = table[a + i] + ((table[b + i] - table[a + i]) * t);
+		}
+	}
+
+	private static void blendNode(final float[] table, final int frame, final int nodeCount, final int size,
+			final int node, final float t, final float[] out) {
+		final int a = ((frame * nodeCount) + node) * size;
+		if (t == 0) {
+			System.arraycopy(table, a, out, 0, size);
+			return;
+		}
+		final int b = a + (nodeCount * size);
+		for (int i = 0; i < size; i++) {
+			out[i] = table[a + i] + ((table[b + i] - table[a + i]) * t);
+		}
+	}
+
+	/**
+	 * Normalized linear blend of quaternions, which is close enough to slerp
+	 * between frames that are a few milliseconds apart.
+	 *
+	 * @param firstNode The first node to blend, written to the start of out.
+	 */
+	private static void blendRotations(final float[] table, final int frame, final int nodeCount, final float t,
+			final float[] out, final int firstNode, final int count) {
+		final int a0 = ((frame * nodeCount) + firstNode) * 4;
+		if (t == 0) {
+			System.arraycopy(table, a0, out, 0, count * 4);
+			return;
+		}
+		for (int node = 0; node < count; node++) {
+			final int a = a0 + (node * 4);
+			final int b = a + (nodeCount * 4);
+			final int o = node * 4;
+			final float dot = (table[a] * table[b]) + (table[a + 1] * table[b + 1]) + (table[a + 2] * table[b + 2])
+					+ (table[a + 3] * table[b + 3]);
+			final float tb = (dot < 0) ? -t : t;
+			final float ta = 1 - t;
+			float length = 0;
+			for (int i = 0; i < 4; i++) {
+				final float value = (table[a + i] * ta) + (table[b + i] * tb);
+				out[o + i] = value;
+				length += value * value;
+			}
+			if (length > 0) {
+				final float scale = (float) (1 / Math.sqrt(length));
+				for (int i = 0; i < 4; i++) {
+					out[o + i] *= scale;
+				}
+			}
+		}
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	/**
+	 * The first frame of the sequence in the model timeline.
+	 */
+	public long getStart() {
+		return this.start;
+	}
+
+	public long getDuration() {
+		return this.duration;
+	}
+
+	public long getFrameStep() {
+		return this.frameStep;
+	}
+
+	public int getFrameCount() {
+		return this.frameCount;
+	}
+
+	public int getNodeCount() {
+		return this.objectIds.length;
+	}
+
+	/**
+	 * The object id of each node, in table order.
+	 */
+	public int[] getObjectIds() {
+		return this.objectIds;
+	}
+
+	/**
+	 * @return The table index of the node with this object id, or -1.
+	 */
+	public int getNode(final int objectId) {
+		for (int i = 0; i < this.objectIds.length; i++) {
+			if (this.objectIds[i] == objectId) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	public float[] getTranslations() {
+		return this.translations;
+	}
+
+	public float[] getRotations() {
+		return this.rotations;
+	}
+
+	public float[] getScales() {
+		return this.scales;
+	}
+
+	/**
+	 * The heap size of the tables, for weighing the frame step against sampling
+	 * the timelines directly.
+	 */
+	public long getByteSize() {
+		return ((long) this.translations.length + this.rotations.length + this.scales.length) * 4
+				+ ((long) this.objectIds.length * 4);
+	}
+}
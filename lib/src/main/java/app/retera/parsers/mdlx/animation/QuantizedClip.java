@@ -0,0 +1,338 @@
+package app.retera.parsers.mdlx.animation;
+
+import java.util.Arrays;
+
+import app.retera.parsers.mdlx.timeline.Interpolator;
+
+/**
+ * A compact encoding of a {@link BakedClip}, 18 bytes per node and frame instead
+ * of 40:
+ * <ul>
+ * <li>translations as 16 bit fractions of the bounds of each node's
+ * translations,</li>
+ * <li>rotations as the smallest three components of the quaternion, in 48 bits
+ * (2 bits for the index of the dropped component, then 15, 15 and 16 bits),</li>
+ * <li>scalings as half precision floats.</li>
+ * </ul>
+ *
+ * The largest decoding errors over all baked frames are measured when encoding,
+ * see {@link #getMaxTranslationError()}, {@link #getMaxRotationError()} and
+ * {@link #getMaxScaleError()}. Sampling decodes the two surrounding frames and
+ * blends them like {@link BakedClip} does, without allocating, so a clip may be
+ * sampled from many threads.
+ */
+public final class QuantizedClip {
+	private static final float SQRT_HALF = (float) Math.sqrt(0.5);
+	private static final float MAX_15 = 0x7fff;
+	private static final float MAX_16 = 0xffff;
+
+	private final String name;
+	private final long start;
+	private final long duration;
+	private final long frameStep;
+	private final int frameCount;
+	private final int[] objectIds;
+	private final float[] translationMins;
+	private final float[] translationSteps;
+	private final char[] translations;
+	private final char[] rotations;
+	private final short[] scales;
+	private float maxTranslationError;
+	private float maxRotationError;
+	private float maxScaleError;
+
+	private QuantizedClip(final BakedClip clip) {
+		this.name = clip.getName();
+		this.start = clip.getStart();
+		this.duration = clip.getDuration();
+		this.frameStep = clip.getFrameStep();
+		this.frameCount = clip.getFrameCount();
+		this.objectIds = clip.getObjectIds();
+		final int nodeCount = this.objectIds.length;
+		final int samples = this.frameCount * nodeCount;
+		this.translationMins = new float[nodeCount * 3];
+		this.translationSteps = new float[nodeCount * 3];
+		this.translations = new char[samples * 3];
+		this.rotations = new char[samples * 3];
+		this.scales = new short[samples * 3];
+	}
+
+	public static QuantizedClip of(final BakedClip clip) {
+		final QuantizedClip quantized = new QuantizedClip(clip);
+		quantized.encodeTranslations(clip.getTranslations());
+		quantized.encodeRotations(clip.getRotations());
+		quantized.encodeScales(clip.getScales());
+		return quantized;
+	}
+
+	private void encodeTranslations(final float[] source) {
+		final int nodeCount = this.objectIds.length;
+		final float[] max = new float[nodeCount * 3];
+		Arrays.fill(this.translationMins, Float.POSITIVE_INFINITY);
+		Arrays.fill(max, Float.NEGATIVE_INFINITY);
+		for (int i = 0; i < source.length; i++) {
+			final int track = i % (nodeCount * 3);
+			this.translationMins[track] = Math.min(this.translationMins[track], source[i]);
+			max[track] = Math.max(max[track], source[i]);
+		}
+		for (int track = 0; track < max.length; track++) {
+			this.translationSteps[track] = (max[track] - this.translationMins[track]) / MAX_16;
+		}
+
+		for (int i = 0; i < source.length; i++) {
+			final int track = i % (nodeCount * 3);
+			final float step = this.translationSteps[track];
+			final int value = (step > 0) ? Math.round((source[i] - this.translationMins[track]) / step) : 0;
+			this.translations[i] = (char) Math.min(0xffff, Math.max(0, value));
+			final float error = Math.abs(this.translation(i) - source[i]);
+			this.maxTranslationError = Math.max(this.maxTranslationError, error);
+		}
+	}
+
+	private void encodeRotations(final float[] source) {
+		final float[] decoded = new float[4];
+		final float[] original = new float[4];
+		final int[] packed = new int[3];
+		for (int sample = 0; sample < (source.length / 4); sample++) {
+			final int offset = sample * 4;
+			float length = 0;
+			int largest = 0;
+			for (int i = 0; i < 4; i++) {
+				length += source[offset + i] * source[offset + i];
+				if (Math.abs(source[offset + i]) > Math.abs(source[offset + largest])) {
+					largest = i;
+				}
+			}
+			final float scale = (length > 0) ? (float) (1 / Math.sqrt(length)) : 0;
+			final float sign = (source[offset + largest] < 0) ? -scale : scale;
+
+			int component = 0;
+			for (int i = 0; i < 4; i++) {
+				if (i != largest) {
+					final float maximum = (component < 2) ? MAX_15 : MAX_16;
+					final float unit = ((source[offset + i] * sign * SQRT_HALF * 2) + 1) / 2;
+					packed[component++] = Math.round(Math.min(1, Math.max(0, unit)) * maximum);
+				}
+			}
+			this.rotations[sample * 3] = (char) (((largest >> 1) << 15) | packed[0]);
+			this.rotations[(sample * 3) + 1] = (char) (((largest & 1) << 15) | packed[1]);
+			this.rotations[(sample * 3) + 2] = (char) packed[2];
+
+			this.rotation(sample, decoded, 0);
+			System.arraycopy(source, offset, original, 0, 4);
+			if (length > 0) {
+				this.maxRotationError = Math.max(this.maxRotationError,
+						Interpolator.angle(original, decoded));
+			}
+		}
+	}
+
+	private void encodeScales(final float[] source) {
+		for (int i = 0; i < source.length; i++) {
+			this.scales[i] = toHalf(source[i]);
+			this.maxScaleError = Math.max(this.maxScaleError, Math.abs(fromHalf(this.scales[i]) - source[i]));
+		}
+	}
+
+	/**
+	 * Samples every node at a time relative to the start of the sequence, see
+	 * {@link BakedClip#sample(long, float[], float[], float[])}.
+	 */
+	public void sample(final long time, final float[] translations, final float[] rotations, final float[] scales) {
+		final int frame = BakedClip.frameAt(time, this.duration, this.frameStep, this.frameCount);
+		final float t = BakedClip.blendAt(time, frame, this.duration, this.frameStep, this.frameCount);
+		for (int node = 0; node < this.objectIds.length; node++) {
+			this.sample(frame, t, node, translations, node * 3, rotations, node * 4, scales, node * 3);
+		}
+	}
+
+	/**
+	 * Samples one node, see
+	 * {@link BakedClip#sample(long, int, float[], float[], float[])}.
+	 */
+	public void sample(final long time, final int node, final float[] translation, final float[] rotation,
+			final float[] scale) {
+		final int frame = BakedClip.frameAt(time, this.duration, this.frameStep, this.frameCount);
+		final float t = BakedClip.blendAt(time, frame, this.duration, this.frameStep, this.frameCount);
+		this.sample(frame, t, node, translation, 0, rotation, 0, scale, 0);
+	}
+
+	private void sample(final int frame, final float t, final int node, final float[] translation,
+			final int translationOffset, final float[] rotation, final int rotationOffset, final float[] scale,
+			final int scaleOffset) {
+		final int nodeCount = this.objectIds.length;
+		final int a = (frame * nodeCount) + node;
+		final int b = (t == 0) ? a : (a + nodeCount);
+
+		for (int i = 0; i < 3; i++) {
+			final float ta = this.translation((a * 3) + i);
+			final float tb = this.translation((b * 3) + i);
+			translation[translationOffset + i] = ta + ((tb - ta) * t);
+			final float sa = fromHalf(this.scales[(a * 3) + i]);
+			final float sb = fromHalf(this.scales[(b * 3) + i]);
+			scale[scaleOffset + i] = sa + ((sb - sa) * t);
+		}
+
+		this.rotation(a, rotation, rotationOffset);
+		if (t != 0) {
+			// Blend in the second rotation one component at a time, to avoid a scratch array.
+			final float x = rotation[rotationOffset];
+			final float y = rotation[rotationOffset + 1];
+			final float z = rotation[rotationOffset + 2];
+			final float w = rotation[rotationOffset + 3];
+			this.rotation(b, rotation, rotationOffset);
+			final float dot = (x * rotation[rotationOffset]) + (y * rotation[rotationOffset + 1])
+					+ (z * rotation[rotationOffset + 2]) + (w * rotation[rotationOffset + 3]);
+			final float tb = (dot < 0) ? -t : t;
+			final float ta = 1 - t;
+			final float rx = (x * ta) + (rotation[rotationOffset] * tb);
+			final float ry = (y * ta) + (rotation[rotationOffset + 1] * tb);
+			final float rz = (z * ta) + (rotation[rotationOffset + 2] * tb);
+			final float rw = (w * ta) + (rotation[rotationOffset + 3] * tb);
+			final float length = (rx * rx) + (ry * ry) + (rz * rz) + (rw * rw);
+			final float inverse = (length > 0) ? (float) (1 / Math.sqrt(length)) : 0;
+			rotation[rotationOffset] = rx * inverse;
+			rotation[rotationOffset + 1] = ry * inverse;
+			rotation[rotationOffset + 2] = rz * inverse;
+			rotation[rotationOffset + 3] = rw * inverse;
+		}
+	}
+
+	private float translation(final int index) {
+		final int track = index % this.translationMins.length;
+		return this.translationMins[track] + (this.translations[index] * this.translationSteps[track]);
+	}
+
+	private void rotation(final int sample, final float[] out, final int offset) {
+		final int first = this.rotations[sample * 3];
+		final int second = this.rotations[(sample * 3) + 1];
+		final int largest = ((first >> 15) << 1) | (second >> 15);
+		final float a = (((((first & 0x7fff) / MAX_15) * 2) - 1) * SQRT_HALF);
+		final float b = (((((second & 0x7fff) / MAX_15) * 2) - 1) * SQRT_HALF);
+		final float c = ((((this.rotations[(sample * 3) + 2] / MAX_16) * 2) - 1) * SQRT_HALF);
+		final float d = (float) Math.sqrt(Math.max(0, 1 - (a * a) - (b * b) - (c * c)));
+		switch (largest) {
+			case 0 -> set(out, offset, d, a, b, c);
+			case 1 -> set(out, offset, a, d, b, c);
+			case 2 -> set(out, offset, a, b, d, c);
+			default -> set(out, offset, a, b, c, d);
+		}
+	}
+
+	private static void set(final float[] out, final int offset, final float x, final float y, final float z,
+			final float w) {
+		out[offset] = x;
+		out[offset + 1] = y;
+		out[offset + 2] = z;
+		out[offset + 3] = w;
+	}
+
+	/**
+	 * Rounds to the nearest half precision float, flushing values too large to
+	 * infinity.
+	 */
+	static short toHalf(final float value) {
+		final int bits = Float.floatToRawIntBits(value);
+		final int sign = (bits >>> 16) & 0x8000;
+		final int exponent = ((bits >>> 23) & 0xff) - 127 + 15;
+		int mantissa = bits & 0x7fffff;
+
+		if (exponent == (0xff - 127 + 15)) {
+			return (short) (sign | 0x7c00 | ((mantissa != 0) ? 0x200 : 0));
+		}
+		if (exponent >= 0x1f) {
+			return (short) (sign | 0x7c00);
+		}
+		if (exponent <= 0) {
+			if (exponent < -10) {
+				return (short) sign;
+			}
+			mantissa |= 0x800000;
+			final int shift = 14 - exponent;
+			return (short) (sign | round(mantissa >> shift, mantissa & ((1 << shift) - 1), 1 << (shift - 1)));
+		}
+		// A carry out of the mantissa correctly moves on to the next exponent.
+		return (short) (sign | round((exponent << 10) | (mantissa >> 13), mantissa & 0x1fff, 0x1000));
+	}
+
+	private static int round(final int value, final int rest, final int halfway) {
+		if ((rest > halfway) || ((rest == halfway) && ((value & 1) != 0))) {
+			return value + 1;
+		}
+		return value;
+	}
+
+	static float fromHalf(final short half) {
+		final int sign = (half & 0x8000) << 16;
+		final int exponent = (half >>> 10) & 0x1f;
+		final int mantissa = half & 0x3ff;
+		if (exponent == 0) {
+			final float value = mantissa * 0x1p-24f;
+			return (sign != 0) ? -value : value;
+		}
+		if (exponent == 0x1f) {
+			return Float.intBitsToFloat(sign | 0x7f800000 | (mantissa << 13));
+		}
+		return Float.intBitsToFloat(sign | ((exponent + 112) << 23) | (mantissa << 13));
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public long getStart() {
+		return this.start;
+	}
+
+	public long getDuration() {
+		return this.duration;
+	}
+
+	public long getFrameStep() {
+		return this.frameStep;
+	}
+
+	public int getFrameCount() {
+		return this.frameCount;
+	}
+
+	public int getNodeCount() {
+		return this.objectIds.length;
+	}
+
+	public int[] getObjectIds() {
+		return this.objectIds;
+	}
+
+	/**
+	 * The largest difference in any translation component, over all baked frames.
+	 * At most half of the bounds of a track divided by 65535.
+	 */
+	public float getMaxTranslationError() {
+		return this.maxTranslationError;
+	}
+
+	/**
+	 * The largest rotation error over all baked frames, in radians.
+	 */
+	public float getMaxRotationError() {
+		return this.maxRotationError;
+	}
+
+	/**
+	 * The largest difference in any scaling component, over all baked frames.
+	 */
+	public float getMaxScaleError() {
+		return this.maxScaleError;
+	}
+
+	/**
+	 * The heap size of the tables and track bounds, comparable to
+	 * {@link BakedClip#getByteSize()}.
+	 */
+	public long getByteSize() {
+		return (((long) this.translations.length + this.rotations.length + this.scales.length) * 2)
+				+ (((long) this.translationMins.length + this.translationSteps.length) * 4)
+				+ ((long) this.objectIds.length * 4);
+	}
+}
@@ -0,0 +1,181 @@
+package app.retera.parsers.mdlx.animation;
+
+import java.util.List;
+
+import app.retera.parsers.mdlx.GenericObject;
+import app.retera.parsers.mdlx.MdlxModel;
+
+/**
+ * The node hierarchy of a model, for turning local node transforms into world
+ * matrices.
+ *
+ * Nodes are numbered like the nodes of the clips made by
+ * {@link AnimationBaker}, in the order of
+ * {@link MdlxModel#getGenericObjects()}, so the output of
+ * {@link BakedClip#sample(long, float[], float[], float[])} can be passed in
+ * directly. A node transforms as translation, then rotation and scaling about
+ * its pivot point, and then by the world matrix of its parent. Billboarding
+ * and the DontInherit flags are ignored.
+ *
+ * Nodes whose parent is missing, or who are their own ancestor, are treated
+ * as roots.
+ */
+public final class Skeleton {
+	private final int[] objectIds;
+	private final int[] parents;
+	private final float[] pivots;
+	/**
+	 * Every node after its parent.
+	 */
+	private final int[] order;
+
+	public Skeleton(final MdlxModel model) {
+		final List<GenericObject> objects = model.getGenericObjects();
+		final List<float[]> pivotPoints = model.getPivotPoints();
+		final int nodeCount = objects.size();
+		this.objectIds = new int[nodeCount];
+		this.parents = new int[nodeCount];
+		this.pivots = new float[nodeCount * 3];
+		for (int node = 0; node < nodeCount; node++) {
+			final int objectId = objects.get(node).getObjectId();
+			this.objectIds[node] = objectId;
+			if ((objectId >= 0) && (objectId < pivotPoints.size())) {
+				System.arraycopy(pivotPoints.get(objectId), 0, this.pivots, node * 3, 3);
+			}
+		}
+		for (int node = 0; node < nodeCount; node++) {
+			this.parents[node] = this.getNode(objects.get(node).getParentId());
+		}
+
+		// Break cycles, then order by depth.
+		final byte[] state = new byte[nodeCount];
+		for (int node = 0; node < nodeCount; node++) {
+			int current = node;
+			while ((current >= 0) && (state[current] == 0)) {
+				state[current] = 1;
+				current = this.parents[current];
+			}
+			if ((current >= 0) && (state[current] == 1)) {
+				this.parents[current] = -1;
+			}
+			for (current = node; (current >= 0) && (state[current] == 1); current = this.parents[current]) {
+				state[current] = 2;
+			}
+		}
+		final int[] depths = new int[nodeCount];
+		int maxDepth = 0;
+		for (int node = 0; node < nodeCount; node++) {
+			for (int parent = this.parents[node]; parent >= 0; parent = this.parents[parent]) {
+				depths[node]++;
+			}
+			maxDepth = Math.max(maxDepth, depths[node]);
+		}
+		this.order = new int[nodeCount];
+		int next = 0;
+		for (int depth = 0; depth <= maxDepth; depth++) {
+			for (int node = 0; node < nodeCount; node++) {
+				if (depths[node] == depth) {
+					this.order[next++] = node;
+				}
+			}
+		}
+	}
+
+	public int getNodeCount() {
+		return this.objectIds.length;
+	}
+
+	public int[] getObjectIds() {
+		return this.objectIds;
+	}
+
+	/**
+	 * @return The node of the object, or -1.
+	 */
+	public int getNode(final int objectId) {
+		for (int node = 0; node < this.objectIds.length; node++) {
+			if (this.objectIds[node] == objectId) {
+				return node;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @return The parent node, or -1 for roots.
+	 */
+	public int getParent(final int node) {
+		return this.parents[node];
+	}
+
+	/**
+	 * Computes the world matrix of every node from local transforms.
+	 *
+	 * @param translations nodeCount * 3 floats.
+	 * @param rotations    nodeCount * 4 floats, (x, y, z, w) quaternions.
+	 * @param scales       nodeCount * 3 floats.
+	 * @param out          Receives one column major 4x4 matrix (16 floats) per
+	 *                     node.
+	 */
+	public void worldMatrices(final float[] translations, final float[] rotations, final float[] scales,
+			final float[] out) {
+		for (final int node : this.order) {
+			final int m = node * 16;
+			local(node, translations, rotations, scales, out, m);
+			final int parent = this.parents[node];
+			if (parent >= 0) {
+				multiplyAffine(out, parent * 16, out, m);
+			}
+		}
+	}
+
+	/**
+	 * Writes T(pivot + translation) * R * S * T(-pivot).
+	 */
+	private void local(final int node, final float[] translations, final float[] rotations, final float[] scales,
+			final float[] out, final int m) {
+		final float x = rotations[node * 4];
+		final float y = rotations[(node * 4) + 1];
+		final float z = rotations[(node * 4) + 2];
+		final float w = rotations[(node * 4) + 3];
+		final float sx = scales[node * 3];
+		final float sy = scales[(node * 3) + 1];
+		final float sz = scales[(node * 3) + 2];
+		out[m] = (1 - (2 * ((y * y) + (z * z)))) * sx;
+		out[m + 1] = (2 * ((x * y) + (z * w))) * sx;
+		out[m + 2] = (2 * ((x * z) - (y * w))) * sx;
+		out[m + 3] = 0;
+		out[m + 4] = (2 * ((x * y) - (z * w))) * sy;
+		out[m + 5] = (1 - (2 * ((x * x) + (z * z)))) * sy;
+		out[m + 6] = (2 * ((y * z) + (x * w))) * sy;
+		out[m + 7] = 0;
+		out[m + 8] = (2 * ((x * z) + (y * w))) * sz;
+		out[m + 9] = (2 * ((y * z) - (x * w))) * sz;
+		out[m + 10] = (1 - (2 * ((x * x) + (y * y)))) * sz;
+		out[m + 11] = 0;
+		final float px = this.pivots[node * 3];
+		final float py = this.pivots[(node * 3) + 1];
+		final float pz = this.pivots[(node * 3) + 2];
+		for (int row = 0; row < 3; row++) {
+			out[m + 12 + row] = this.pivots[(node * 3) + row] + translations[(node * 3) + row]
+					- ((out[m + row] * px) + (out[m + 4 + row] * py) + (out[m + 8 + row] * pz));
+		}
+		out[m + 15] = 1;
+	}
+
+	/**
+	 * Replaces b with a * b, both affine column major matrices.
+	 */
+	static void multiplyAffine(final float[] a, final int ao, final float[] b, final int bo) {
+		for (int column = 0; column < 4; column++) {
+			final float x = b[bo + (column * 4)];
+			final float y = b[bo + (column * 4) + 1];
+			final float z = b[bo + (column * 4) + 2];
+			final float w = (column == 3) ? 1 : 0;
+			for (int row = 0; row < 3; row++) {
+				b[bo + (column * 4) + row] = (a[ao + row] * x) + (a[ao + 4 + row] * y) + (a[ao + 8 + row] * z)
+						+ (a[ao + 12 + row] * w);
+			}
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package app.retera.parsers.mdlx.animation;
+
+import app.retera.parsers.mdlx.InterpolationType;
+import app.retera.parsers.mdlx.timeline.Interpolator;
+import app.retera.parsers.mdlx.timeline.Timeline;
+
+/**
+ * Evaluates float timelines at a frame of a sequence.
+ *
+ * Only the keys inside the sequence interval are used. Before the first of them
+ * the value of the first is held, and after the last the value of the last.
+ *
+ * Holds scratch space, so an instance may only be used by one thread at a time.
+ */
+public final class TimelineSampler {
+	private final float[] scratch = new float[4];
+
+	/**
+	 * @param out Receives the value, and must have as many components as the
+	 *            timeline values.
+	 * @return false, leaving out untouched, if the timeline has no keys in the
+	 *         interval.
+	 */
+	public boolean sample(final Timeline<?> timeline, final long frame, final long start, final long end,
+			final float[] out) {
+		final long[] frames = timeline.getFrames();
+		if ((frames == null) || (frames.length == 0) || !(timeline.getValues()[0] instanceof float[])) {
+			return false;
+		}
+
+		final int first = lowerBound(frames, start);
+		final int last = lowerBound(frames, end + 1) - 1;
+		if (first > last) {
+			return false;
+		}
+
+		final Object[] values = timeline.getValues();
+		if (frame <= frames[first]) {
+			System.arraycopy((float[]) values[first], 0, out, 0, out.length);
+			return true;
+		}
+		if (frame >= frames[last]) {
+			System.arraycopy((float[]) values[last], 0, out, 0, out.length);
+			return true;
+		}
+
+		final int b = lowerBound(frames, frame + 1);
+		final int a = b - 1;
+		final float t = (float) (frame - frames[a]) / (frames[b] - frames[a]);
+		final InterpolationType type = timeline.getInterpolationType();
+		final boolean tangential = type.tangential();
+		Interpolator.interpolate(out, this.scratch, (float[]) values[a],
+				tangential ? (float[]) timeline.getOutTans()[a] : null,
+				tangential ? (float[]) timeline.getInTans()[b] : null, (float[]) values[b], t, type,
+				Interpolator.isQuaternion(timeline.getName()));
+		return true;
+	}
+
+	/**
+	 * @return The index of the first frame that is at least the given frame.
+	 */
+	static int lowerBound(final long[] frames, final long frame) {
+		int low = 0;
+		int high = frames.length;
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			if (frames[middle] < frame) {
+				low = middle + 1;
+			}
+			else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+}
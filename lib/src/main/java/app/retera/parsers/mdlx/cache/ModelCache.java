@@ -0,0 +1,217 @@
+package app.retera.parsers.mdlx.cache;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.ToLongFunction;
+
+import app.retera.parsers.mdlx.MdlxModel;
+import app.retera.util.InternPool;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalNotification;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.ExecutionError;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+/**
+ * A cache of parsed models, keyed by the hash of the file contents so that the
+ * same model referenced from different paths (or archives) is only parsed and
+ * held once.
+ *
+ * The cache is bounded by the estimated retained size of the models it holds
+ * (see {@link MdlxModel#getRetainedSizeEstimate()}), and evicts the least
+ * recently used models first. When several threads ask for the same content at
+ * once, only one of them parses it and the others wait for that result.
+ *
+ * The models handed out are shared between all callers and must be treated as
+ * read only.
+ */
+public class ModelCache {
+	private static final HashFunction CONTENT_HASH = Hashing.murmur3_128();
+
+	private final Cache<HashCode, MdlxModel> cache;
+	private final ToLongFunction<MdlxModel> retainedSizeEstimator;
+	private final ConcurrentMap<Path, FileStamp> fileStamps = new ConcurrentHashMap<>();
+	private final InternPool internPool;
+
+	public ModelCache(final long maximumRetainedBytes) {
+		this(maximumRetainedBytes, model -> model.getRetainedSizeEstimate().getTotal());
+	}
+
+	public ModelCache(final long maximumRetainedBytes, final ToLongFunction<MdlxModel> retainedSizeEstimator) {
+		this(maximumRetainedBytes, retainedSizeEstimator, null);
+	}
+
+	/**
+	 * @param internPool Interns every parsed model, see
+	 *                   {@link MdlxModel#intern(InternPool)}, or null.
+	 */
+	public ModelCache(final long maximumRetainedBytes, final ToLongFunction<MdlxModel> retainedSizeEstimator,
+			final InternPool internPool) {
+		this.retainedSizeEstimator = retainedSizeEstimator;
+		this.internPool = internPool;
+		this.cache = CacheBuilder.newBuilder()
+				.maximumWeight(maximumRetainedBytes)
+				.<HashCode, MdlxModel>weigher((key, model) -> (int) Math.min(Integer.MAX_VALUE, retainedSizeEstimator.applyAsLong(model)))
+				.removalListener(this::onRemoval)
+				.recordStats()
+				.build();
+	}
+
+	/**
+	 * Gets the model stored in the given file. The file is only re-read and
+	 * re-hashed when its modification time or size changed since the last call.
+	 * The file is forgotten again once its model leaves the cache.
+	 */
+	public MdlxModel get(final Path path) throws IOException {
+		final BasicFileAttributes attributes = Files.readAttributes(path, BasicFileAttributes.class);
+		final long lastModified = attributes.lastModifiedTime().toMillis();
+		final long size = attributes.size();
+
+		final FileStamp stamp = this.fileStamps.get(path);
+		if ((stamp != null) && (stamp.lastModified == lastModified) && (stamp.size == size)) {
+			return get(stamp.contentHash, () -> Files.readAllBytes(path));
+		}
+
+		final byte[] data = Files.readAllBytes(path);
+		final HashCode contentHash = CONTENT_HASH.hashBytes(data);
+		final MdlxModel model = get(contentHash, () -> data);
+		final FileStamp newStamp = new FileStamp(lastModified, size, contentHash);
+		this.fileStamps.put(path, newStamp);
+		if (!this.cache.asMap().containsKey(contentHash)) {
+			// Evicted before the stamp went in, so the removal listener missed it.
+			this.fileStamps.remove(path, newStamp);
+		}
+		return model;
+	}
+
+	/**
+	 * Gets the model stored in the given MDX or MDL file contents.
+	 */
+	public MdlxModel get(final byte[] data) throws IOException {
+		return get(CONTENT_HASH.hashBytes(data), () -> data);
+	}
+
+	private MdlxModel get(final HashCode contentHash, final ContentSupplier contentSupplier) throws IOException {
+		try {
+			return this.cache.get(contentHash, () -> parse(contentSupplier.get()));
+		}
+		catch (final ExecutionException e) {
+			if (e.getCause() instanceof IOException) {
+				throw (IOException) e.getCause();
+			}
+			throw new IOException(e.getCause());
+		}
+		catch (final UncheckedExecutionException | ExecutionError e) {
+			// Malformed models throw IllegalStateException and friends from the parsers
+			throw new IOException("Unable to parse model", e.getCause());
+		}
+	}
+
+	private void onRemoval(final RemovalNotification<HashCode, MdlxModel> notification) {
+		if (notification.getCause() != RemovalCause.REPLACED) {
+			this.fileStamps.values().removeIf(stamp -> stamp.contentHash.equals(notification.getKey()));
+		}
+	}
+
+	private MdlxModel parse(final byte[] data) throws IOException {
+		final MdlxModel model = new MdlxModel();
+		if (isMdx(data)) {
+			model.loadMdx(new ByteArrayInputStream(data));
+		}
+		else {
+			model.loadMdl(new ByteArrayInputStream(data));
+		}
+		if (this.internPool != null) {
+			model.intern(this.internPool);
+		}
+		return model;
+	}
+
+	private static boolean isMdx(final byte[] data) {
+		return (data.length >= 4) && (data[0] == 'M') && (data[1] == 'D') && (data[2] == 'L') && (data[3] == 'X');
+	}
+
+	public void invalidateAll() {
+		this.cache.invalidateAll();
+		this.fileStamps.clear();
+	}
+
+	public long size() {
+		return this.cache.size();
+	}
+
+	/**
+	 * The number of files whose content hash is remembered.
+	 */
+	int getFileStampCount() {
+		return this.fileStamps.size();
+	}
+
+	public long getRetainedBytes() {
+		long total = 0;
+		for (final MdlxModel model : this.cache.asMap().values()) {
+			total += this.retainedSizeEstimator.applyAsLong(model);
+		}
+		return total;
+	}
+
+	public long getHitCount() {
+		return this.cache.stats().hitCount();
+	}
+
+	/**
+	 * Lookups that did not find a finished model, including the ones that waited
+	 * for another thread that was already parsing the same content.
+	 */
+	public long getMissCount() {
+		return this.cache.stats().missCount();
+	}
+
+	/**
+	 * The number of times a model was actually parsed.
+	 */
+	public long getLoadCount() {
+		return this.cache.stats().loadCount();
+	}
+
+	public long getEvictionCount() {
+		return this.cache.stats().evictionCount();
+	}
+
+	public double getHitRate() {
+		return this.cache.stats().hitRate();
+	}
+
+	/**
+	 * Total nanoseconds spent parsing models that were not in the cache.
+	 */
+	public long getTotalLoadTime() {
+		return this.cache.stats().totalLoadTime();
+	}
+
+	private interface ContentSupplier {
+		byte[] get() throws IOException;
+	}
+
+	private static final class FileStamp {
+		private final long lastModified;
+		private final long size;
+		private final HashCode contentHash;
+
+		private FileStamp(final long lastModified, final long size, final HashCode contentHash) {
+			this.lastModified = lastModified;
+			this.size = size;
+			this.contentHash = contentHash;
+		}
+	}
+}
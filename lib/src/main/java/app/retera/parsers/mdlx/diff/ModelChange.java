@@ -0,0 +1,60 @@
+package app.retera.parsers.mdlx.diff;
+
+/**
+ * One line of a {@link ModelDiff}: something added, removed or changed at a
+ * path like {@code GEOS[0].vertices} or {@code BONE[3].KGTR}.
+ */
+public final class ModelChange {
+	public enum Type {
+		ADDED('+'),
+		REMOVED('-'),
+		CHANGED('~');
+
+		private final char symbol;
+
+		Type(final char symbol) {
+			this.symbol = symbol;
+		}
+
+		public char getSymbol() {
+			return this.symbol;
+		}
+	}
+
+	private final Type type;
+	private final String path;
+	private final String detail;
+
+	ModelChange(final Type type, final String path, final String detail) {
+		this.type = type;
+		this.path = path;
+		this.detail = detail;
+	}
+
+	public Type getType() {
+		return this.type;
+	}
+
+	/**
+	 * Where the change is, chunk tags and indices joined by dots. Sequences are
+	 * indexed by name and nodes by object ID.
+	 */
+	public String getPath() {
+		return this.path;
+	}
+
+	/**
+	 * A short human readable description, or an empty string.
+	 */
+	public String getDetail() {
+		return this.detail;
+	}
+
+	@Override
+	public String toString() {
+		if (this.detail.isEmpty()) {
+			return this.type.symbol + " " + this.path;
+		}
+		return this.type.symbol + " " + this.path + " " + this.detail;
+	}
+}
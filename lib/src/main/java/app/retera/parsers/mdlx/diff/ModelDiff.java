@@ -0,0 +1,465 @@
+package app.retera.parsers.mdlx.diff;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+import app.retera.parsers.mdlx.AnimatedObject;
+import app.retera.parsers.mdlx.Attachment;
+import app.retera.parsers.mdlx.Bone;
+import app.retera.parsers.mdlx.CollisionShape;
+import app.retera.parsers.mdlx.EventObject;
+import app.retera.parsers.mdlx.Extent;
+import app.retera.parsers.mdlx.GenericObject;
+import app.retera.parsers.mdlx.Geoset;
+import app.retera.parsers.mdlx.Helper;
+import app.retera.parsers.mdlx.Light;
+import app.retera.parsers.mdlx.Material;
+import app.retera.parsers.mdlx.MdlxModel;
+import app.retera.parsers.mdlx.MdxBytes;
+import app.retera.parsers.mdlx.ParticleEmitter;
+import app.retera.parsers.mdlx.ParticleEmitter2;
+import app.retera.parsers.mdlx.RibbonEmitter;
+import app.retera.parsers.mdlx.Sequence;
+import app.retera.parsers.mdlx.Texture;
+import app.retera.parsers.mdlx.UnknownChunk;
+import app.retera.parsers.mdlx.timeline.Timeline;
+
+/**
+ * The structural differences between two models, as a list of
+ * {@link ModelChange}s that reads like a patch.
+ *
+ * Sequences are matched by name, nodes by object ID, timelines by tag, and
+ * everything else by index. Arrays are compared with
+ * {@link Arrays#mismatch}, which stops at the first difference, and arrays
+ * shared between the models (like those of {@link MdlxModel#copy(boolean)})
+ * are skipped without being read, so diffing an edited copy of a large model
+ * costs little more than reading its geometry once.
+ */
+public final class ModelDiff {
+	private final List<ModelChange> changes = new ArrayList<>();
+
+	private ModelDiff() {
+	}
+
+	public static ModelDiff of(final MdlxModel before, final MdlxModel after) {
+		final ModelDiff diff = new ModelDiff();
+		diff.model(before, after);
+		return diff;
+	}
+
+	public List<ModelChange> getChanges() {
+		return Collections.unmodifiableList(this.changes);
+	}
+
+	public boolean isEmpty() {
+		return this.changes.isEmpty();
+	}
+
+	/**
+	 * The changes, one per line.
+	 */
+	@Override
+	public String toString() {
+		final StringBuilder builder = new StringBuilder();
+		for (final ModelChange change : this.changes) {
+			builder.append(change).append('\n');
+		}
+		return builder.toString();
+	}
+
+	private void model(final MdlxModel before, final MdlxModel after) {
+		value("MODL.version", before.getVersion(), after.getVersion());
+		value("MODL.name", before.getName(), after.getName());
+		value("MODL.animationFile", before.getAnimationFile(), after.getAnimationFile());
+		value("MODL.blendTime", before.getBlendTime(), after.getBlendTime());
+		extent("MODL.extent", before.getExtent(), after.getExtent());
+		sequences(before.getSequences(), after.getSequences());
+		indexed("GLBS", before.getGlobalSequences(), after.getGlobalSequences(), this::value);
+		indexed("TEXS", before.getTextures(), after.getTextures(), this::texture);
+		indexed("MTLS", before.getMaterials(), after.getMaterials(), this::material);
+		indexed("TXAN", before.getTextureAnimations(), after.getTextureAnimations(), this::animated);
+		indexed("GEOS", before.getGeosets(), after.getGeosets(), this::geoset);
+		indexed("GEOA", before.getGeosetAnimations(), after.getGeosetAnimations(), this::animated);
+		nodes(before.getGenericObjects(), after.getGenericObjects());
+		indexed("PIVT", before.getPivotPoints(), after.getPivotPoints(), this::array);
+		indexed("CAMS", before.getCameras(), after.getCameras(), this::animated);
+		unknownChunks(before.getUnknownChunks(), after.getUnknownChunks());
+	}
+
+	private void sequences(final List<Sequence> before, final List<Sequence> after) {
+		final Map<String, ArrayDeque<Integer>> afterIndices = new HashMap<>();
+		for (int i = 0; i < after.size(); i++) {
+			afterIndices.computeIfAbsent(after.get(i).getName(), (name) -> new ArrayDeque<>()).add(i);
+		}
+		final boolean[] matched = new boolean[after.size()];
+		for (int i = 0; i < before.size(); i++) {
+			final Sequence sequence = before.get(i);
+			final String path = "SEQS[" + sequence.getName() + "]";
+			final ArrayDeque<Integer> indices = afterIndices.get(sequence.getName());
+			if ((indices == null) || indices.isEmpty()) {
+				add(ModelChange.Type.REMOVED, path, "");
+				continue;
+			}
+			final int index = indices.poll();
+			matched[index] = true;
+			final Sequence other = after.get(index);
+			value(path + ".index", i, index);
+			array(path + ".interval", sequence.getInterval(), other.getInterval());
+			value(path + ".flags", sequence.getFlags(), other.getFlags());
+			value(path + ".rarity", sequence.getRarity(), other.getRarity());
+			value(path + ".moveSpeed", sequence.getMoveSpeed(), other.getMoveSpeed());
+			value(path + ".syncPoint", sequence.getSyncPoint(), other.getSyncPoint());
+			extent(path + ".extent", sequence.getExtent(), other.getExtent());
+		}
+		for (int i = 0; i < after.size(); i++) {
+			if (!matched[i]) {
+				add(ModelChange.Type.ADDED, "SEQS[" + after.get(i).getName() + "]", "");
+			}
+		}
+	}
+
+	private void texture(final String path, final Texture before, final Texture after) {
+		value(path + ".path", before.getPath(), after.getPath());
+		value(path + ".replaceableId", before.getReplaceableId(), after.getReplaceableId());
+		value(path + ".flags", before.getFlags(), after.getFlags());
+	}
+
+	private void material(final String path, final Material before, final Material after) {
+		value(path + ".priorityPlane", before.getPriorityPlane(), after.getPriorityPlane());
+		value(path + ".flags", before.getFlags(), after.getFlags());
+		indexed(path + ".LAYS", before.getLayers(), after.getLayers(), this::animated);
+	}
+
+	private void geoset(final String path, final Geoset before, final Geoset after) {
+		array(path + ".vertices", before.getVertices(), after.getVertices());
+		array(path + ".normals", before.getNormals(), after.getNormals());
+		array(path + ".faceTypeGroups", before.getCompactFaceTypeGroups(), after.getCompactFaceTypeGroups());
+		array(path + ".faceGroups", before.getCompactFaceGroups(), after.getCompactFaceGroups());
+		array(path + ".faces", before.getCompactFaces(), after.getCompactFaces());
+		array(path + ".vertexGroups", before.getCompactVertexGroups(), after.getCompactVertexGroups());
+		array(path + ".matrixGroups", before.getCompactMatrixGroups(), after.getCompactMatrixGroups());
+		array(path + ".matrixIndices", before.getCompactMatrixIndices(), after.getCompactMatrixIndices());
+		value(path + ".materialId", before.getMaterialId(), after.getMaterialId());
+		value(path + ".selectionGroup", before.getSelectionGroup(), after.getSelectionGroup());
+		value(path + ".selectionFlags", before.getSelectionFlags(), after.getSelectionFlags());
+		extent(path + ".extent", before.getExtent(), after.getExtent());
+		indexed(path + ".sequenceExtents", list(before.getSequenceExtents()), list(after.getSequenceExtents()),
+				this::extent);
+		indexed(path + ".uvSets", list(before.getUvSets()), list(after.getUvSets()), this::array);
+	}
+
+	private void nodes(final List<GenericObject> before, final List<GenericObject> after) {
+		final Map<Integer, GenericObject> afterById = new LinkedHashMap<>();
+		for (final GenericObject object : after) {
+			afterById.putIfAbsent(object.getObjectId(), object);
+		}
+		for (final GenericObject object : before) {
+			final GenericObject other = afterById.remove(object.getObjectId());
+			if ((other != null) && (other.getClass() == object.getClass())) {
+				node(path(object), object, other);
+			}
+			else {
+				add(ModelChange.Type.REMOVED, path(object), object.getName());
+				if (other != null) {
+					add(ModelChange.Type.ADDED, path(other), other.getName());
+				}
+			}
+		}
+		for (final GenericObject object : afterById.values()) {
+			add(ModelChange.Type.ADDED, path(object), object.getName());
+		}
+	}
+
+	private void node(final String path, final GenericObject before, final GenericObject after) {
+		value(path + ".name", before.getName(), after.getName());
+		value(path + ".parentId", before.getParentId(), after.getParentId());
+		value(path + ".flags", before.getFlags(), after.getFlags());
+		animated(path, before, after);
+	}
+
+	/**
+	 * Compares the timelines of two blocks, then everything else they save,
+	 * which is reported as a single change to their properties.
+	 */
+	private void animated(final String path, final AnimatedObject before, final AnimatedObject after) {
+		final Map<Integer, Timeline<?>> afterByTag = new LinkedHashMap<>();
+		for (final Timeline<?> timeline : after.getTimelines()) {
+			afterByTag.putIfAbsent(timeline.getName().getValue(), timeline);
+		}
+		for (final Timeline<?> timeline : before.getTimelines()) {
+			final Timeline<?> other = afterByTag.remove(timeline.getName().getValue());
+			final String timelinePath = path + "." + timeline.getName();
+			if (other == null) {
+				add(ModelChange.Type.REMOVED, timelinePath, keys(timeline.getFrames()));
+			}
+			else {
+				timeline(timelinePath, timeline, other);
+			}
+		}
+		for (final Timeline<?> timeline : afterByTag.values()) {
+			add(ModelChange.Type.ADDED, path + "." + timeline.getName(), keys(timeline.getFrames()));
+		}
+		if (!Arrays.equals(propertyBytes(before), propertyBytes(after))) {
+			add(ModelChange.Type.CHANGED, path, "properties");
+		}
+	}
+
+	private void timeline(final String path, final Timeline<?> before, final Timeline<?> after) {
+		value(path + ".interpolationType", before.getInterpolationType(), after.getInterpolationType());
+		value(path + ".globalSequenceId", before.getGlobalSequenceId(), after.getGlobalSequenceId());
+		final long[] beforeFrames = before.getFrames();
+		final long[] afterFrames = after.getFrames();
+		final int length = (beforeFrames != null) ? beforeFrames.length : 0;
+		if (length != ((afterFrames != null) ? afterFrames.length : 0)) {
+			add(ModelChange.Type.CHANGED, path, keys(beforeFrames) + " -> " + keys(afterFrames));
+			return;
+		}
+		int differing = 0;
+		int first = -1;
+		for (int i = 0; i < length; i++) {
+			if ((beforeFrames[i] != afterFrames[i]) || !sameKey(before.getValues(), after.getValues(), i)
+					|| !sameKey(before.getInTans(), after.getInTans(), i)
+					|| !sameKey(before.getOutTans(), after.getOutTans(), i)) {
+				differing++;
+				if (first < 0) {
+					first = i;
+				}
+			}
+		}
+		if (differing != 0) {
+			add(ModelChange.Type.CHANGED, path,
+					differing + " of " + length + " keys differ, first at frame " + afterFrames[first]);
+		}
+	}
+
+	private static boolean sameKey(final Object[] before, final Object[] after, final int index) {
+		if ((before == null) || (after == null)) {
+			return before == after;
+		}
+		final Object beforeValue = before[index];
+		final Object afterValue = after[index];
+		if (beforeValue instanceof float[] && afterValue instanceof float[]) {
+			return Arrays.equals((float[]) beforeValue, (float[]) afterValue);
+		}
+		if (beforeValue instanceof long[] && afterValue instanceof long[]) {
+			return Arrays.equals((long[]) beforeValue, (long[]) afterValue);
+		}
+		return Objects.equals(beforeValue, afterValue);
+	}
+
+	private static String keys(final long[] frames) {
+		return ((frames != null) ? frames.length : 0) + " keys";
+	}
+
+	private void unknownChunks(final List<UnknownChunk> before, final List<UnknownChunk> after) {
+		indexed("UNKN", before, after, (path, chunk, other) -> {
+			value(path + ".tag", chunk.getTag(), other.getTag());
+			if (!Arrays.equals(MdxBytes.of(chunk), MdxBytes.of(other))) {
+				add(ModelChange.Type.CHANGED, path, "contents");
+			}
+		});
+	}
+
+	private void extent(final String path, final Extent before, final Extent after) {
+		value(path + ".boundsRadius", before.getBoundsRadius(), after.getBoundsRadius());
+		array(path + ".min", before.getMin(), after.getMin());
+		array(path + ".max", before.getMax(), after.getMax());
+	}
+
+	private interface Comparison<T> {
+		void compare(String path, T before, T after);
+	}
+
+	/**
+	 * Compares two lists element by element, with the elements past the end
+	 * of the shorter one added or removed.
+	 */
+	private <T> void indexed(final String chunk, final List<T> before, final List<T> after,
+			final Comparison<T> comparison) {
+		final int common = Math.min(before.size(), after.size());
+		for (int i = 0; i < common; i++) {
+			comparison.compare(chunk + "[" + i + "]", before.get(i), after.get(i));
+		}
+		for (int i = common; i < before.size(); i++) {
+			add(ModelChange.Type.REMOVED, chunk + "[" + i + "]", "");
+		}
+		for (int i = common; i < after.size(); i++) {
+			add(ModelChange.Type.ADDED, chunk + "[" + i + "]", "");
+		}
+	}
+
+	private void value(final String path, final Object before, final Object after) {
+		if (!Objects.equals(before, after)) {
+			add(ModelChange.Type.CHANGED, path, before + " -> " + after);
+		}
+	}
+
+	private void array(final String path, final float[] before, final float[] after) {
+		if ((before == after) || nullArray(path, before, after)) {
+			return;
+		}
+		final int first = Arrays.mismatch(before, after);
+		if (first >= 0) {
+			int differing = 0;
+			for (int i = first; i < Math.min(before.length, after.length); i++) {
+				if (Float.floatToIntBits(before[i]) != Float.floatToIntBits(after[i])) {
+					differing++;
+				}
+			}
+			array(path, before.length, after.length, first, differing);
+		}
+	}
+
+	private void array(final String path, final long[] before, final long[] after) {
+		if ((before == after) || nullArray(path, before, after)) {
+			return;
+		}
+		final int first = Arrays.mismatch(before, after);
+		if (first >= 0) {
+			int differing = 0;
+			for (int i = first; i < Math.min(before.length, after.length); i++) {
+				if (before[i] != after[i]) {
+					differing++;
+				}
+			}
+			array(path, before.length, after.length, first, differing);
+		}
+	}
+
+	private void array(final String path, final int[] before, final int[] after) {
+		if ((before == after) || nullArray(path, before, after)) {
+			return;
+		}
+		final int first = Arrays.mismatch(before, after);
+		if (first >= 0) {
+			int differing = 0;
+			for (int i = first; i < Math.min(before.length, after.length); i++) {
+				if (before[i] != after[i]) {
+					differing++;
+				}
+			}
+			array(path, before.length, after.length, first, differing);
+		}
+	}
+
+	private void array(final String path, final char[] before, final char[] after) {
+		if ((before == after) || nullArray(path, before, after)) {
+			return;
+		}
+		final int first = Arrays.mismatch(before, after);
+		if (first >= 0) {
+			int differing = 0;
+			for (int i = first; i < Math.min(before.length, after.length); i++) {
+				if (before[i] != after[i]) {
+					differing++;
+				}
+			}
+			array(path, before.length, after.length, first, differing);
+		}
+	}
+
+	private void array(final String path, final byte[] before, final byte[] after) {
+		if ((before == after) || nullArray(path, before, after)) {
+			return;
+		}
+		final int first = Arrays.mismatch(before, after);
+		if (first >= 0) {
+			int differing = 0;
+			for (int i = first; i < Math.min(before.length, after.length); i++) {
+				if (before[i] != after[i]) {
+					differing++;
+				}
+			}
+			array(path, before.length, after.length, first, differing);
+		}
+	}
+
+	private boolean nullArray(final String path, final Object before, final Object after) {
+		if ((before == null) || (after == null)) {
+			add(ModelChange.Type.CHANGED, path, ((before == null) ? "none" : "set") + " -> "
+					+ ((after == null) ? "none" : "set"));
+			return true;
+		}
+		return false;
+	}
+
+	private void array(final String path, final int beforeLength, final int afterLength, final int first,
+			final int differing) {
+		if (beforeLength != afterLength) {
+			add(ModelChange.Type.CHANGED, path, beforeLength + " -> " + afterLength + " values, first difference at "
+					+ first);
+		}
+		else {
+			add(ModelChange.Type.CHANGED, path,
+					differing + " of " + afterLength + " values differ, first at " + first);
+		}
+	}
+
+	private void add(final ModelChange.Type type, final String path, final String detail) {
+		this.changes.add(new ModelChange(type, path, detail));
+	}
+
+	private static String path(final GenericObject object) {
+		return tag(object) + "[" + object.getObjectId() + "]";
+	}
+
+	private static String tag(final GenericObject object) {
+		if (object instanceof Bone) {
+			return "BONE";
+		}
+		if (object instanceof Light) {
+			return "LITE";
+		}
+		if (object instanceof Helper) {
+			return "HELP";
+		}
+		if (object instanceof Attachment) {
+			return "ATCH";
+		}
+		if (object instanceof ParticleEmitter) {
+			return "PREM";
+		}
+		if (object instanceof ParticleEmitter2) {
+			return "PRE2";
+		}
+		if (object instanceof RibbonEmitter) {
+			return "RIBB";
+		}
+		if (object instanceof EventObject) {
+			return "EVTS";
+		}
+		if (object instanceof CollisionShape) {
+			return "CLID";
+		}
+		return object.getClass().getSimpleName();
+	}
+
+	/**
+	 * What a block saves apart from what is compared on its own: timelines,
+	 * layers, and the name, parent and flags of nodes.
+	 */
+	private static byte[] propertyBytes(final AnimatedObject object) {
+		if (!(object instanceof GenericObject)) {
+			return MdxBytes.withoutTimelines(object);
+		}
+		final GenericObject node = ((GenericObject) object).copy(true);
+		node.setName("");
+		node.setParentId(-1);
+		node.setFlags(0);
+		return MdxBytes.withoutTimelines(node);
+	}
+
+	/**
+	 * Missing arrays, like the UV sets of a new geoset, compare as empty.
+	 */
+	private static <T> List<T> list(final T[] array) {
+		return (array != null) ? Arrays.asList(array) : Collections.emptyList();
+	}
+}
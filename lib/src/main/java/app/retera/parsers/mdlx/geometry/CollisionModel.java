@@ -0,0 +1,77 @@
+package app.retera.parsers.mdlx.geometry;
+
+import java.util.List;
+
+import app.retera.parsers.mdlx.CollisionShape;
+import app.retera.parsers.mdlx.CollisionShape.CollisionShapeType;
+import app.retera.parsers.mdlx.MdlxModel;
+import app.retera.parsers.mdlx.animation.Skeleton;
+
+/**
+ * The collision shapes of a model in flat arrays, with the skeleton node each
+ * one moves with, shared by every instance of the model in a
+ * {@link CollisionQueryEngine}.
+ *
+ * Shapes are numbered like {@link MdlxModel#getCollisionShapes()}. Shapes
+ * without a type are kept but never hit.
+ */
+public final class CollisionModel {
+	private final CollisionShapeType[] types;
+	private final int[] nodes;
+	private final float[] vertices;
+	private final float[] radii;
+
+	private CollisionModel(final int shapeCount) {
+		this.types = new CollisionShapeType[shapeCount];
+		this.nodes = new int[shapeCount];
+		this.vertices = new float[shapeCount * 6];
+		this.radii = new float[shapeCount];
+	}
+
+	/**
+	 * @param skeleton The skeleton of the model, whose world matrices will be
+	 *                 given to {@link CollisionQueryEngine#setPose}.
+	 */
+	public static CollisionModel of(final MdlxModel model, final Skeleton skeleton) {
+		final List<CollisionShape> shapes = model.getCollisionShapes();
+		final CollisionModel collisionModel = new CollisionModel(shapes.size());
+		for (int i = 0; i < shapes.size(); i++) {
+			final CollisionShape shape = shapes.get(i);
+			collisionModel.types[i] = shape.getType();
+			collisionModel.nodes[i] = skeleton.getNode(shape.getObjectId());
+			System.arraycopy(shape.getVertices()[0], 0, collisionModel.vertices, i * 6, 3);
+			System.arraycopy(shape.getVertices()[1], 0, collisionModel.vertices, (i * 6) + 3, 3);
+			collisionModel.radii[i] = shape.getBoundsRadius();
+		}
+		return collisionModel;
+	}
+
+	public int getShapeCount() {
+		return this.types.length;
+	}
+
+	/**
+	 * @return The type, or null.
+	 */
+	public CollisionShapeType getType(final int shape) {
+		return this.types[shape];
+	}
+
+	/**
+	 * @return The skeleton node the shape moves with, or -1.
+	 */
+	public int getNode(final int shape) {
+		return this.nodes[shape];
+	}
+
+	/**
+	 * Both vertices of every shape, 6 floats per shape.
+	 */
+	float[] getVertices() {
+		return this.vertices;
+	}
+
+	float getRadius(final int shape) {
+		return this.radii[shape];
+	}
+}
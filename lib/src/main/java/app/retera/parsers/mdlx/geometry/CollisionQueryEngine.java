@@ -0,0 +1,926 @@
+package app.retera.parsers.mdlx.geometry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import app.retera.parsers.mdlx.CollisionShape.CollisionShapeType;
+
+/**
+ * Ray, point and sphere queries against the collision shapes of many posed
+ * model instances.
+ *
+ * Every instance adds the shapes of its {@link CollisionModel}, which
+ * {@link #setPose(int, float[], float[])} moves into world space by the
+ * world matrices of their nodes and the matrix of the instance. Shapes are
+ * kept as structures of arrays: spheres as center and radius, cylinders as
+ * base, axis and radius, and boxes and planes as center, the three scaled axes
+ * and their inverse, so a point moves into box space with one 3x3 multiply.
+ * Planes are boxes with a thickness of {@link #MIN_HALF_EXTENT} on each side.
+ *
+ * The broad phase is a uniform grid over x and y, with the occupied cells in
+ * an open addressing table. Shapes covering more than
+ * {@link #MAX_CELLS_PER_SHAPE} cells are tested by every query instead. Rays
+ * walk the grid cell by cell, starting and ending at the occupied cells, and
+ * stop at the first cell beyond their closest hit. The grid is rebuilt by the first query after a pose changes.
+ *
+ * Not thread safe.
+ */
+public final class CollisionQueryEngine {
+	public static final float DEFAULT_CELL_SIZE = 128;
+	public static final float MIN_HALF_EXTENT = 0.001f;
+	public static final int MAX_CELLS_PER_SHAPE = 256;
+
+	private static final byte NONE = 0;
+	private static final byte SPHERE = 1;
+	private static final byte BOX = 2;
+	private static final byte CYLINDER = 3;
+
+	/**
+	 * Receives the shapes a batch query found.
+	 */
+	public interface HitConsumer {
+		/**
+		 * @param query The index of the query in the batch.
+		 * @param shape The engine wide shape number, see
+		 *              {@link CollisionQueryEngine#getInstance(int)}.
+		 */
+		void accept(int query, int shape);
+	}
+
+	private final float cellSize;
+	private final List<CollisionModel> models = new ArrayList<>();
+	private int[] firstShapes = new int[16];
+	private int shapeCount;
+
+	private byte[] kinds = new byte[0];
+	private int[] instances = new int[0];
+	private float[] centerX = new float[0];
+	private float[] centerY = new float[0];
+	private float[] centerZ = new float[0];
+	private float[] radius = new float[0];
+	private float[] axisX = new float[0];
+	private float[] axisY = new float[0];
+	private float[] axisZ = new float[0];
+	private float[] basis = new float[0];
+	private float[] inverse = new float[0];
+	private float[] minX = new float[0];
+	private float[] minY = new float[0];
+	private float[] minZ = new float[0];
+	private float[] maxX = new float[0];
+	private float[] maxY = new float[0];
+	private float[] maxZ = new float[0];
+
+	private boolean dirty = true;
+	private final float[] gridBounds = new float[6];
+	private final int[] gridCells = new int[4];
+	private long[] cellKeys = new long[0];
+	private boolean[] cellUsed = new boolean[0];
+	private int[] cellStarts = new int[0];
+	private int[] cellCounts = new int[0];
+	private int[] cellItems = new int[0];
+	private int cellMask;
+	private int[] oversized = new int[0];
+	private int oversizedCount;
+	private final float[] matrix = new float[16];
+
+	public CollisionQueryEngine() {
+		this(DEFAULT_CELL_SIZE);
+	}
+
+	/**
+	 * @param cellSize The width of the grid cells, about the size of the
+	 *                 larger shapes.
+	 */
+	public CollisionQueryEngine(final float cellSize) {
+		if (!(cellSize > 0)) {
+			throw new IllegalArgumentException("Cell size must be positive: " + cellSize);
+		}
+		this.cellSize = cellSize;
+	}
+
+	/**
+	 * Adds an instance, whose shapes are not hit until it is posed.
+	 *
+	 * @return The instance number.
+	 */
+	public int addInstance(final CollisionModel model) {
+		final int instance = this.models.size();
+		this.models.add(model);
+		if (instance == this.firstShapes.length) {
+			this.firstShapes = Arrays.copyOf(this.firstShapes, instance * 2);
+		}
+		this.firstShapes[instance] = this.shapeCount;
+		this.grow(this.shapeCount + model.getShapeCount());
+		for (int shape = this.shapeCount; shape < (this.shapeCount + model.getShapeCount()); shape++) {
+			this.instances[shape] = instance;
+			this.kinds[shape] = NONE;
+		}
+		this.shapeCount += model.getShapeCount();
+		this.dirty = true;
+		return instance;
+	}
+
+	/**
+	 * Removes all instances.
+	 */
+	public void clear() {
+		this.models.clear();
+		this.shapeCount = 0;
+		this.dirty = true;
+	}
+
+	/**
+	 * Moves the shapes of an instance into world space.
+	 *
+	 * @param instanceMatrix A column major 4x4 matrix placing the instance in
+	 *                       the world, or null for none.
+	 * @param worldMatrices  The node matrices from
+	 *                       {@link app.retera.parsers.mdlx.animation.Skeleton#worldMatrices},
+	 *                       or null for the bind pose.
+	 */
+	public void setPose(final int instance, final float[] instanceMatrix, final float[] worldMatrices) {
+		final CollisionModel model = this.models.get(instance);
+		final float[] vertices = model.getVertices();
+		final float[] m = this.matrix;
+		for (int local = 0; local < model.getShapeCount(); local++) {
+			final int shape = this.firstShapes[instance] + local;
+			final int node = model.getNode(local);
+			if ((worldMatrices != null) && (node >= 0)) {
+				System.arraycopy(worldMatrices, node * 16, m, 0, 16);
+			}
+			else {
+				Arrays.fill(m, 0);
+				m[0] = 1;
+				m[5] = 1;
+				m[10] = 1;
+				m[15] = 1;
+			}
+			if (instanceMatrix != null) {
+				multiplyAffine(instanceMatrix, m);
+			}
+			this.place(shape, model.getType(local), vertices, local * 6, model.getRadius(local), m);
+		}
+		this.dirty = true;
+	}
+
+	public int getInstanceCount() {
+		return this.models.size();
+	}
+
+	public int getShapeCount() {
+		return this.shapeCount;
+	}
+
+	/**
+	 * @return The instance an engine wide shape number belongs to.
+	 */
+	public int getInstance(final int shape) {
+		return this.instances[shape];
+	}
+
+	/**
+	 * @return The shape number within the collision model of its instance.
+	 */
+	public int getModelShape(final int shape) {
+		return shape - this.firstShapes[this.instances[shape]];
+	}
+
+	/**
+	 * Finds the closest shape hit by each ray. A ray starting inside a shape
+	 * hits it at distance 0.
+	 *
+	 * @param origins      count * 3 floats.
+	 * @param directions   count * 3 floats, need not be unit length.
+	 * @param maxDistance  The farthest hit to accept, in lengths of the
+	 *                     direction.
+	 * @param hitShapes    Receives the shape hit by each ray, or -1.
+	 * @param hitDistances Receives the distance of each hit, or infinity.
+	 */
+	public void raycast(final float[] origins, final float[] directions, final int count, final float maxDistance,
+			final int[] hitShapes, final float[] hitDistances) {
+		this.index();
+		final int[] stamps = new int[this.shapeCount];
+		final float[] clip = new float[2];
+		for (int query = 0; query < count; query++) {
+			final float ox = origins[query * 3];
+			final float oy = origins[(query * 3) + 1];
+			final float oz = origins[(query * 3) + 2];
+			final float dx = directions[query * 3];
+			final float dy = directions[(query * 3) + 1];
+			final float dz = directions[(query * 3) + 2];
+			float closest = maxDistance;
+			int closestShape = -1;
+
+			for (int i = 0; i < this.oversizedCount; i++) {
+				final int shape = this.oversized[i];
+				final float t = this.intersectRay(shape, ox, oy, oz, dx, dy, dz, closest);
+				if ((t >= 0) && ((closestShape < 0) || (t < closest))) {
+					closest = t;
+					closestShape = shape;
+				}
+			}
+
+			if (this.clipToGrid(ox, oy, oz, dx, dy, dz, closest, clip)) {
+				// Walk the cells along the ray.
+				final float enter = clip[0];
+				final float exit = clip[1];
+				int cellX = this.cell(ox + (dx * enter));
+				int cellY = this.cell(oy + (dy * enter));
+				final int stepX = (dx > 0) ? 1 : ((dx < 0) ? -1 : 0);
+				final int stepY = (dy > 0) ? 1 : ((dy < 0) ? -1 : 0);
+				final float deltaX = (dx != 0) ? (this.cellSize / Math.abs(dx)) : Float.POSITIVE_INFINITY;
+				final float deltaY = (dy != 0) ? (this.cellSize / Math.abs(dy)) : Float.POSITIVE_INFINITY;
+				float nextX = this.boundary(cellX, stepX, ox, dx);
+				float nextY = this.boundary(cellY, stepY, oy, dy);
+				while (true) {
+					if (pastGrid(cellX, stepX, this.gridCells[0], this.gridCells[2])
+							|| pastGrid(cellY, stepY, this.gridCells[1], this.gridCells[3])) {
+						break;
+					}
+					final int slot = this.find(cellX, cellY);
+					if (slot >= 0) {
+						for (int i = this.cellStarts[slot]; i < (this.cellStarts[slot] + this.cellCounts[slot]); i++) {
+							final int shape = this.cellItems[i];
+							if (stamps[shape] == (query + 1)) {
+								continue;
+							}
+							stamps[shape] = query + 1;
+							final float t = this.intersectRay(shape, ox, oy, oz, dx, dy, dz, closest);
+							if ((t >= 0) && ((closestShape < 0) || (t < closest))) {
+								closest = t;
+								closestShape = shape;
+							}
+						}
+					}
+					final float next = Math.min(nextX, nextY);
+					if ((next > exit) || ((closestShape >= 0) && (next > closest))) {
+						break;
+					}
+					if (nextX < nextY) {
+						cellX += stepX;
+						nextX += deltaX;
+					}
+					else {
+						cellY += stepY;
+						nextY += deltaY;
+					}
+				}
+			}
+
+			hitShapes[query] = closestShape;
+			hitDistances[query] = (closestShape >= 0) ? closest : Float.POSITIVE_INFINITY;
+		}
+	}
+
+	/**
+	 * Reports every shape containing each point.
+	 *
+	 * @param points count * 3 floats.
+	 */
+	public void queryPoints(final float[] points, final int count, final HitConsumer consumer) {
+		this.index();
+		for (int query = 0; query < count; query++) {
+			final float x = points[query * 3];
+			final float y = points[(query * 3) + 1];
+			final float z = points[(query * 3) + 2];
+			for (int i = 0; i < this.oversizedCount; i++) {
+				if (this.containsPoint(this.oversized[i], x, y, z)) {
+					consumer.accept(query, this.oversized[i]);
+				}
+			}
+			final int slot = this.find(this.cell(x), this.cell(y));
+			if (slot >= 0) {
+				for (int i = this.cellStarts[slot]; i < (this.cellStarts[slot] + this.cellCounts[slot]); i++) {
+					if (this.containsPoint(this.cellItems[i], x, y, z)) {
+						consumer.accept(query, this.cellItems[i]);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Reports every shape touching each sphere.
+	 *
+	 * @param centers count * 3 floats.
+	 * @param radii   count floats.
+	 */
+	public void querySpheres(final float[] centers, final float[] radii, final int count,
+			final HitConsumer consumer) {
+		this.index();
+		final int[] stamps = new int[this.shapeCount];
+		for (int query = 0; query < count; query++) {
+			final float x = centers[query * 3];
+			final float y = centers[(query * 3) + 1];
+			final float z = centers[(query * 3) + 2];
+			final float r = radii[query];
+			for (int i = 0; i < this.oversizedCount; i++) {
+				if (this.intersectsSphere(this.oversized[i], x, y, z, r)) {
+					consumer.accept(query, this.oversized[i]);
+				}
+			}
+			final int lastX = this.cell(x + r);
+			final int lastY = this.cell(y + r);
+			for (int cellX = this.cell(x - r); cellX <= lastX; cellX++) {
+				for (int cellY = this.cell(y - r); cellY <= lastY; cellY++) {
+					final int slot = this.find(cellX, cellY);
+					if (slot < 0) {
+						continue;
+					}
+					for (int i = this.cellStarts[slot]; i < (this.cellStarts[slot] + this.cellCounts[slot]); i++) {
+						final int shape = this.cellItems[i];
+						if (stamps[shape] != (query + 1)) {
+							stamps[shape] = query + 1;
+							if (this.intersectsSphere(shape, x, y, z, r)) {
+								consumer.accept(query, shape);
+							}
+						}
+					}
+				}
+			}
+		}
+	}
+
+	private void place(final int shape, final CollisionShapeType type, final float[] vertices, final int v,
+			final float shapeRadius, final float[] m) {
+		this.kinds[shape] = NONE;
+		if (type == null) {
+			return;
+		}
+		switch (type) {
+			case SPHERE -> {
+				this.setCenter(shape, m, vertices[v], vertices[v + 1], vertices[v + 2]);
+				final float r = shapeRadius * maxScale(m);
+				this.radius[shape] = r;
+				this.setBounds(shape, this.centerX[shape] - r, this.centerY[shape] - r, this.centerZ[shape] - r,
+						this.centerX[shape] + r, this.centerY[shape] + r, this.centerZ[shape] + r);
+				this.kinds[shape] = SPHERE;
+			}
+			case CYLINDER -> {
+				this.setCenter(shape, m, vertices[v], vertices[v + 1], vertices[v + 2]);
+				final float topX = transform(m, 0, vertices[v + 3], vertices[v + 4], vertices[v + 5]);
+				final float topY = transform(m, 1, vertices[v + 3], vertices[v + 4], vertices[v + 5]);
+				final float topZ = transform(m, 2, vertices[v + 3], vertices[v + 4], vertices[v + 5]);
+				this.axisX[shape] = topX - this.centerX[shape];
+				this.axisY[shape] = topY - this.centerY[shape];
+				this.axisZ[shape] = topZ - this.centerZ[shape];
+				final float r = shapeRadius * maxScale(m);
+				this.radius[shape] = r;
+				this.setBounds(shape, Math.min(this.centerX[shape], topX) - r, Math.min(this.centerY[shape], topY) - r,
+						Math.min(this.centerZ[shape], topZ) - r, Math.max(this.centerX[shape], topX) + r,
+						Math.max(this.centerY[shape], topY) + r, Math.max(this.centerZ[shape], topZ) + r);
+				this.kinds[shape] = CYLINDER;
+			}
+			case BOX, PLANE -> {
+				this.setCenter(shape, m, (vertices[v] + vertices[v + 3]) / 2, (vertices[v + 1] + vertices[v + 4]) / 2,
+						(vertices[v + 2] + vertices[v + 5]) / 2);
+				final int b = shape * 9;
+				for (int axis = 0; axis < 3; axis++) {
+					final float half = Math.max(Math.abs(vertices[v + 3 + axis] - vertices[v + axis]) / 2,
+							MIN_HALF_EXTENT);
+					for (int row = 0; row < 3; row++) {
+						this.basis[b + (axis * 3) + row] = m[(axis * 4) + row] * half;
+					}
+				}
+				if (!invert(this.basis, b, this.inverse, b)) {
+					return;
+				}
+				final float ex = Math.abs(this.basis[b]) + Math.abs(this.basis[b + 3]) + Math.abs(this.basis[b + 6]);
+				final float ey = Math.abs(this.basis[b + 1]) + Math.abs(this.basis[b + 4]) + Math.abs(this.basis[b + 7]);
+				final float ez = Math.abs(this.basis[b + 2]) + Math.abs(this.basis[b + 5]) + Math.abs(this.basis[b + 8]);
+				this.setBounds(shape, this.centerX[shape] - ex, this.centerY[shape] - ey, this.centerZ[shape] - ez,
+						this.centerX[shape] + ex, this.centerY[shape] + ey, this.centerZ[shape] + ez);
+				this.kinds[shape] = BOX;
+			}
+		}
+	}
+
+	/**
+	 * @return The distance along the ray, or -1 if it misses within the
+	 *         maximum.
+	 */
+	private float intersectRay(final int shape, final float ox, final float oy, final float oz, final float dx,
+			final float dy, final float dz, final float maxT) {
+		switch (this.kinds[shape]) {
+			case SPHERE -> {
+				final float mx = ox - this.centerX[shape];
+				final float my = oy - this.centerY[shape];
+				final float mz = oz - this.centerZ[shape];
+				final float r = this.radius[shape];
+				final float c = ((mx * mx) + (my * my) + (mz * mz)) - (r * r);
+				if (c <= 0) {
+					return 0;
+				}
+				final float b = (mx * dx) + (my * dy) + (mz * dz);
+				if (b > 0) {
+					return -1;
+				}
+				final float a = (dx * dx) + (dy * dy) + (dz * dz);
+				final float discriminant = (b * b) - (a * c);
+				if ((a == 0) || (discriminant < 0)) {
+					return -1;
+				}
+				final float t = (-b - (float) Math.sqrt(discriminant)) / a;
+				return (t <= maxT) ? t : -1;
+			}
+			case BOX -> {
+				final int i = shape * 9;
+				final float px = ox - this.centerX[shape];
+				final float py = oy - this.centerY[shape];
+				final float pz = oz - this.centerZ[shape];
+				float near = 0;
+				float far = maxT;
+				for (int row = 0; row < 3; row++) {
+					final float origin = (this.inverse[i + row] * px) + (this.inverse[i + 3 + row] * py)
+							+ (this.inverse[i + 6 + row] * pz);
+					final float direction = (this.inverse[i + row] * dx) + (this.inverse[i + 3 + row] * dy)
+							+ (this.inverse[i + 6 + row] * dz);
+					if (direction == 0) {
+						if (Math.abs(origin) > 1) {
+							return -1;
+						}
+						continue;
+					}
+					final float t1 = (-1 - origin) / direction;
+					final float t2 = (1 - origin) / direction;
+					near = Math.max(near, Math.min(t1, t2));
+					far = Math.min(far, Math.max(t1, t2));
+					if (near > far) {
+						return -1;
+					}
+				}
+				return near;
+			}
+			case CYLINDER -> {
+				if (this.containsPoint(shape, ox, oy, oz)) {
+					return 0;
+				}
+				// The segment test needs an end, so the ray is cut where it leaves the
+				// sphere around the cylinder, which also keeps infinite rays finite.
+				final float ax = this.axisX[shape];
+				final float ay = this.axisY[shape];
+				final float az = this.axisZ[shape];
+				final float r = this.radius[shape];
+				final float mx = (this.centerX[shape] + (ax * 0.5f)) - ox;
+				final float my = (this.centerY[shape] + (ay * 0.5f)) - oy;
+				final float mz = (this.centerZ[shape] + (az * 0.5f)) - oz;
+				final float length = (float) Math.sqrt((dx * dx) + (dy * dy) + (dz * dz));
+				if (length == 0) {
+					return -1;
+				}
+				final float bound = (float) (Math.sqrt((mx * mx) + (my * my) + (mz * mz))
+						+ Math.sqrt((((ax * ax) + (ay * ay) + (az * az)) * 0.25f) + (r * r)));
+				final float end = Math.min(maxT, bound / length);
+				final float t = this.intersectCylinder(shape, ox, oy, oz, dx * end, dy * end, dz * end);
+				return (t >= 0) ? (t * end) : -1;
+			}
+			default -> {
+				return -1;
+			}
+		}
+	}
+
+	/**
+	 * The segment against capped cylinder test from Ericson's Real-Time
+	 * Collision Detection, for a segment starting outside.
+	 *
+	 * @return The fraction of the segment, or a negative number.
+	 */
+	private float intersectCylinder(final int shape, final float sx, final float sy, final float sz, final float nx,
+			final float ny, final float nz) {
+		final float dx = this.axisX[shape];
+		final float dy = this.axisY[shape];
+		final float dz = this.axisZ[shape];
+		final float mx = sx - this.centerX[shape];
+		final float my = sy - this.centerY[shape];
+		final float mz = sz - this.centerZ[shape];
+		final float r = this.radius[shape];
+		final float md = (mx * dx) + (my * dy) + (mz * dz);
+		final float nd = (nx * dx) + (ny * dy) + (nz * dz);
+		final float dd = (dx * dx) + (dy * dy) + (dz * dz);
+		if (((md < 0) && ((md + nd) < 0)) || ((md > dd) && ((md + nd) > dd))) {
+			return -1;
+		}
+		final float nn = (nx * nx) + (ny * ny) + (nz * nz);
+		final float mn = (mx * nx) + (my * ny) + (mz * nz);
+		final float a = (dd * nn) - (nd * nd);
+		final float k = ((mx * mx) + (my * my) + (mz * mz)) - (r * r);
+		final float c = (dd * k) - (md * md);
+		if (Math.abs(a) < (1e-6f * dd * nn)) {
+			// Parallel to the axis, and starting outside, so only the caps can be hit.
+			if ((c > 0) || (nn == 0)) {
+				return -1;
+			}
+			if (md < 0) {
+				return -mn / nn;
+			}
+			return (nd - mn) / nn;
+		}
+		final float b = (dd * mn) - (nd * md);
+		final float discriminant = (b * b) - (a * c);
+		if (discriminant < 0) {
+			return -1;
+		}
+		// The near root, in the form that does not cancel out on long segments.
+		final float root = (float) Math.sqrt(discriminant);
+		float t = (b < 0) ? (c / (root - b)) : ((-b - root) / a);
+		if ((md + (t * nd)) < 0) {
+			if (nd <= 0) {
+				return -1;
+			}
+			t = -md / nd;
+			return ((k + (2 * t * (mn + (t * nn)))) <= 0) ? t : -1;
+		}
+		if ((md + (t * nd)) > dd) {
+			if (nd >= 0) {
+				return -1;
+			}
+			t = (dd - md) / nd;
+			return ((k + dd) - (2 * md) + (t * ((2 * (mn - nd)) + (t * nn))) <= 0) ? t : -1;
+		}
+		return ((t >= 0) && (t <= 1)) ? t : -1;
+	}
+
+	private boolean containsPoint(final int shape, final float x, final float y, final float z) {
+		final float px = x - this.centerX[shape];
+		final float py = y - this.centerY[shape];
+		final float pz = z - this.centerZ[shape];
+		switch (this.kinds[shape]) {
+			case SPHERE -> {
+				return ((px * px) + (py * py) + (pz * pz)) <= (this.radius[shape] * this.radius[shape]);
+			}
+			case BOX -> {
+				final int i = shape * 9;
+				for (int row = 0; row < 3; row++) {
+					final float local = (this.inverse[i + row] * px) + (this.inverse[i + 3 + row] * py)
+							+ (this.inverse[i + 6 + row] * pz);
+					if (Math.abs(local) > 1) {
+						return false;
+					}
+				}
+				return true;
+			}
+			case CYLINDER -> {
+				final float dx = this.axisX[shape];
+				final float dy = this.axisY[shape];
+				final float dz = this.axisZ[shape];
+				final float dd = (dx * dx) + (dy * dy) + (dz * dz);
+				final float along = (dd > 0) ? (((px * dx) + (py * dy) + (pz * dz)) / dd) : 0;
+				if ((along < 0) || (along > 1)) {
+					return false;
+				}
+				final float rx = px - (along * dx);
+				final float ry = py - (along * dy);
+				final float rz = pz - (along * dz);
+				return ((rx * rx) + (ry * ry) + (rz * rz)) <= (this.radius[shape] * this.radius[shape]);
+			}
+			default -> {
+				return false;
+			}
+		}
+	}
+
+	private boolean intersectsSphere(final int shape, final float x, final float y, final float z, final float r) {
+		final float px = x - this.centerX[shape];
+		final float py = y - this.centerY[shape];
+		final float pz = z - this.centerZ[shape];
+		float distance;
+		switch (this.kinds[shape]) {
+			case SPHERE -> {
+				final float reach = this.radius[shape] + r;
+				return ((px * px) + (py * py) + (pz * pz)) <= (reach * reach);
+			}
+			case BOX -> {
+				// Clamp in box space and measure in world space, exact for boxes that are not sheared.
+				final int i = shape * 9;
+				float cx = 0;
+				float cy = 0;
+				float cz = 0;
+				for (int row = 0; row < 3; row++) {
+					final float local = Math.max(-1, Math.min(1, (this.inverse[i + row] * px)
+							+ (this.inverse[i + 3 + row] * py) + (this.inverse[i + 6 + row] * pz)));
+					cx += this.basis[i + (row * 3)] * local;
+					cy += this.basis[i + (row * 3) + 1] * local;
+					cz += this.basis[i + (row * 3) + 2] * local;
+				}
+				distance = ((px - cx) * (px - cx)) + ((py - cy) * (py - cy)) + ((pz - cz) * (pz - cz));
+			}
+			case CYLINDER -> {
+				final float dx = this.axisX[shape];
+				final float dy = this.axisY[shape];
+				final float dz = this.axisZ[shape];
+				final float length = (float) Math.sqrt((dx * dx) + (dy * dy) + (dz * dz));
+				final float along = (length > 0) ? (((px * dx) + (py * dy) + (pz * dz)) / length) : 0;
+				final float ux = (length > 0) ? (dx / length) : 0;
+				final float uy = (length > 0) ? (dy / length) : 0;
+				final float uz = (length > 0) ? (dz / length) : 0;
+				final float rx = px - (along * ux);
+				final float ry = py - (along * uy);
+				final float rz = pz - (along * uz);
+				final float radial = (float) Math.sqrt((rx * rx) + (ry * ry) + (rz * rz));
+				final float axialOutside = Math.max(0, Math.max(-along, along - length));
+				final float radialOutside = Math.max(0, radial - this.radius[shape]);
+				distance = (axialOutside * axialOutside) + (radialOutside * radialOutside);
+			}
+			default -> {
+				return false;
+			}
+		}
+		return distance <= (r * r);
+	}
+
+	/**
+	 * Rebuilds the grid if any pose changed.
+	 */
+	private void index() {
+		if (!this.dirty) {
+			return;
+		}
+		this.dirty = false;
+		Arrays.fill(this.gridBounds, 0, 3, Float.POSITIVE_INFINITY);
+		Arrays.fill(this.gridBounds, 3, 6, Float.NEGATIVE_INFINITY);
+		this.oversizedCount = 0;
+		long entries = 0;
+		for (int shape = 0; shape < this.shapeCount; shape++) {
+			if (this.kinds[shape] == NONE) {
+				continue;
+			}
+			final long cells = this.cellCount(shape);
+			if (cells > MAX_CELLS_PER_SHAPE) {
+				if (this.oversizedCount == this.oversized.length) {
+					this.oversized = Arrays.copyOf(this.oversized, Math.max(16, this.oversizedCount * 2));
+				}
+				this.oversized[this.oversizedCount++] = shape;
+			}
+			else {
+				entries += cells;
+				this.gridBounds[0] = Math.min(this.gridBounds[0], this.minX[shape]);
+				this.gridBounds[1] = Math.min(this.gridBounds[1], this.minY[shape]);
+				this.gridBounds[2] = Math.min(this.gridBounds[2], this.minZ[shape]);
+				this.gridBounds[3] = Math.max(this.gridBounds[3], this.maxX[shape]);
+				this.gridBounds[4] = Math.max(this.gridBounds[4], this.maxY[shape]);
+				this.gridBounds[5] = Math.max(this.gridBounds[5], this.maxZ[shape]);
+			}
+		}
+		if (entries > 0) {
+			this.gridCells[0] = this.cell(this.gridBounds[0]);
+			this.gridCells[1] = this.cell(this.gridBounds[1]);
+			this.gridCells[2] = this.cell(this.gridBounds[3]);
+			this.gridCells[3] = this.cell(this.gridBounds[4]);
+		}
+
+		final int capacity = Integer.highestOneBit((int) Math.max(16, entries * 2) - 1) << 1;
+		if (this.cellKeys.length < capacity) {
+			this.cellKeys = new long[capacity];
+			this.cellUsed = new boolean[capacity];
+			this.cellStarts = new int[capacity];
+			this.cellCounts = new int[capacity];
+		}
+		this.cellMask = capacity - 1;
+		Arrays.fill(this.cellUsed, false);
+		Arrays.fill(this.cellCounts, 0);
+		if (this.cellItems.length < entries) {
+			this.cellItems = new int[(int) entries];
+		}
+
+		// Count, then fill.
+		for (int pass = 0; pass < 2; pass++) {
+			if (pass == 1) {
+				int start = 0;
+				for (int slot = 0; slot < capacity; slot++) {
+					this.cellStarts[slot] = start;
+					start += this.cellCounts[slot];
+					this.cellCounts[slot] = 0;
+				}
+			}
+			for (int shape = 0; shape < this.shapeCount; shape++) {
+				if ((this.kinds[shape] == NONE) || (this.cellCount(shape) > MAX_CELLS_PER_SHAPE)) {
+					continue;
+				}
+				final int lastX = this.cell(this.maxX[shape]);
+				final int lastY = this.cell(this.maxY[shape]);
+				for (int cellX = this.cell(this.minX[shape]); cellX <= lastX; cellX++) {
+					for (int cellY = this.cell(this.minY[shape]); cellY <= lastY; cellY++) {
+						final int slot = this.insert(cellX, cellY);
+						if (pass == 1) {
+							this.cellItems[this.cellStarts[slot] + this.cellCounts[slot]] = shape;
+						}
+						this.cellCounts[slot]++;
+					}
+				}
+			}
+		}
+	}
+
+	private long cellCount(final int shape) {
+		final long width = ((long) this.cell(this.maxX[shape]) - this.cell(this.minX[shape])) + 1;
+		final long height = ((long) this.cell(this.maxY[shape]) - this.cell(this.minY[shape])) + 1;
+		// Huge shapes would overflow the product.
+		if ((width > MAX_CELLS_PER_SHAPE) || (height > MAX_CELLS_PER_SHAPE)) {
+			return Long.MAX_VALUE;
+		}
+		return width * height;
+	}
+
+	private int cell(final float value) {
+		return (int) Math.floor(value / this.cellSize);
+	}
+
+	/**
+	 * The ray distance at which the ray leaves its current cell on one axis.
+	 */
+	private float boundary(final int cell, final int step, final float origin, final float direction) {
+		if (step == 0) {
+			return Float.POSITIVE_INFINITY;
+		}
+		final float edge = ((step > 0) ? (cell + 1) : cell) * this.cellSize;
+		return (edge - origin) / direction;
+	}
+
+	/**
+	 * Whether a ray in the given cell, stepping this way along one axis, can no
+	 * longer reach the occupied cells between min and max.
+	 */
+	private static boolean pastGrid(final int cell, final int step, final int min, final int max) {
+		if (step > 0) {
+			return cell > max;
+		}
+		if (step < 0) {
+			return cell < min;
+		}
+		return (cell < min) || (cell > max);
+	}
+
+	/**
+	 * Clips the ray to the bounds of the shapes in the grid.
+	 *
+	 * @return False if it misses them, or the grid is empty.
+	 */
+	private boolean clipToGrid(final float ox, final float oy, final float oz, final float dx, final float dy,
+			final float dz, final float maxT, final float[] out) {
+		if (!(this.gridBounds[0] <= this.gridBounds[3])) {
+			return false;
+		}
+		float near = 0;
+		float far = maxT;
+		final float[] origin = { ox, oy, oz };
+		final float[] direction = { dx, dy, dz };
+		for (int axis = 0; axis < 3; axis++) {
+			if (direction[axis] == 0) {
+				if ((origin[axis] < this.gridBounds[axis]) || (origin[axis] > this.gridBounds[axis + 3])) {
+					return false;
+				}
+				continue;
+			}
+			final float t1 = (this.gridBounds[axis] - origin[axis]) / direction[axis];
+			final float t2 = (this.gridBounds[axis + 3] - origin[axis]) / direction[axis];
+			near = Math.max(near, Math.min(t1, t2));
+			far = Math.min(far, Math.max(t1, t2));
+		}
+		out[0] = near;
+		out[1] = far;
+		return near <= far;
+	}
+
+	private int insert(final int x, final int y) {
+		final long key = ((long) x << 32) | (y & 0xFFFFFFFFL);
+		int slot = hash(key) & this.cellMask;
+		while (this.cellUsed[slot]) {
+			if (this.cellKeys[slot] == key) {
+				return slot;
+			}
+			slot = (slot + 1) & this.cellMask;
+		}
+		this.cellUsed[slot] = true;
+		this.cellKeys[slot] = key;
+		return slot;
+	}
+
+	/**
+	 * @return The slot of the cell, or -1 if it is empty.
+	 */
+	private int find(final int x, final int y) {
+		final long key = ((long) x << 32) | (y & 0xFFFFFFFFL);
+		for (int slot = hash(key) & this.cellMask; this.cellUsed[slot]; slot = (slot + 1) & this.cellMask) {
+			if (this.cellKeys[slot] == key) {
+				return slot;
+			}
+		}
+		return -1;
+	}
+
+	private static int hash(final long key) {
+		final long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	private void setCenter(final int shape, final float[] m, final float x, final float y, final float z) {
+		this.centerX[shape] = transform(m, 0, x, y, z);
+		this.centerY[shape] = transform(m, 1, x, y, z);
+		this.centerZ[shape] = transform(m, 2, x, y, z);
+	}
+
+	private void setBounds(final int shape, final float minX, final float minY, final float minZ, final float maxX,
+			final float maxY, final float maxZ) {
+		this.minX[shape] = minX;
+		this.minY[shape] = minY;
+		this.minZ[shape] = minZ;
+		this.maxX[shape] = maxX;
+		this.maxY[shape] = maxY;
+		this.maxZ[shape] = maxZ;
+	}
+
+	private void grow(final int capacity) {
+		if (capacity <= this.kinds.length) {
+			return;
+		}
+		final int size = Math.max(capacity, this.kinds.length * 2);
+		this.kinds = Arrays.copyOf(this.kinds, size);
+		this.instances = Arrays.copyOf(this.instances, size);
+		this.centerX = Arrays.copyOf(this.centerX, size);
+		this.centerY = Arrays.copyOf(this.centerY, size);
+		this.centerZ = Arrays.copyOf(this.centerZ, size);
+		this.radius = Arrays.copyOf(this.radius, size);
+		this.axisX = Arrays.copyOf(this.axisX, size);
+		this.axisY = Arrays.copyOf(this.axisY, size);
+		this.axisZ = Arrays.copyOf(this.axisZ, size);
+		this.basis = Arrays.copyOf(this.basis, size * 9);
+		this.inverse = Arrays.copyOf(this.inverse, size * 9);
+		this.minX = Arrays.copyOf(this.minX, size);
+		this.minY = Arrays.copyOf(this.minY, size);
+		this.minZ = Arrays.copyOf(this.minZ, size);
+		this.maxX = Arrays.copyOf(this.maxX, size);
+		this.maxY = Arrays.copyOf(this.maxY, size);
+		this.maxZ = Arrays.copyOf(this.maxZ, size);
+	}
+
+	private static float transform(final float[] m, final int row, final float x, final float y, final float z) {
+		return (m[row] * x) + (m[4 + row] * y) + (m[8 + row] * z) + m[12 + row];
+	}
+
+	/**
+	 * The length of the longest column of the upper 3x3.
+	 */
+	private static float maxScale(final float[] m) {
+		float max = 0;
+		for (int column = 0; column < 3; column++) {
+			final float x = m[column * 4];
+			final float y = m[(column * 4) + 1];
+			final float z = m[(column * 4) + 2];
+			max = Math.max(max, (x * x) + (y * y) + (z * z));
+		}
+		return (float) Math.sqrt(max);
+	}
+
+	/**
+	 * Replaces b with a * b, both affine column major matrices.
+	 */
+	private static void multiplyAffine(final float[] a, final float[] b) {
+		for (int column = 0; column < 4; column++) {
+			final float x = b[column * 4];
+			final float y = b[(column * 4) + 1];
+			final float z = b[(column * 4) + 2];
+			final float w = (column == 3) ? 1 : 0;
+			for (int row = 0; row < 3; row++) {
+				b[(column * 4) + row] = (a[row] * x) + (a[4 + row] * y) + (a[8 + row] * z) + (a[12 + row] * w);
+			}
+		}
+	}
+
+	/**
+	 * Inverts a column major 3x3 matrix.
+	 *
+	 * @return False if it is singular.
+	 */
+	private static boolean invert(final float[] m, final int mo, final float[] out, final int oo) {
+		final float a = m[mo];
+		final float b = m[mo + 3];
+		final float c = m[mo + 6];
+		final float d = m[mo + 1];
+		final float e = m[mo + 4];
+		final float f = m[mo + 7];
+		final float g = m[mo + 2];
+		final float h = m[mo + 5];
+		final float i = m[mo + 8];
+		final float co00 = (e * i) - (f * h);
+		final float co01 = (f * g) - (d * i);
+		final float co02 = (d * h) - (e * g);
+		final float determinant = (a * co00) + (b * co01) + (c * co02);
+		if ((determinant == 0) || !Float.isFinite(determinant)) {
+			return false;
+		}
+		final float inverse = 1 / determinant;
+		// Row r, column c of the inverse goes to out[oo + c * 3 + r].
+		out[oo] = co00 * inverse;
+		out[oo + 1] = co01 * inverse;
+		out[oo + 2] = co02 * inverse;
+		out[oo + 3] = ((c * h) - (b * i)) * inverse;
+		out[oo + 4] = ((a * i) - (c * g)) * inverse;
+		out[oo + 5] = ((b * g) - (a * h)) * inverse;
+		out[oo + 6] = ((b * f) - (c * e)) * inverse;
+		out[oo + 7] = ((c * d) - (a * f)) * inverse;
+		out[oo + 8] = ((a * e) - (b * d)) * inverse;
+		return true;
+	}
+}
@@ -0,0 +1,669 @@
+package app.retera.parsers.mdlx.geometry;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+import app.retera.parsers.mdlx.Geoset;
+
+/**
+ * A bounding volume hierarchy over the triangles of a geoset, for ray picking
+ * and sphere queries.
+ *
+ * It is built top down with the surface area heuristic over binned triangle
+ * centroids, and flattened depth first into primitive arrays: 6 floats of
+ * bounds and 2 ints per node, the left child right after its parent. The
+ * triangle corners are copied in tree order, so leaves read them
+ * sequentially.
+ *
+ * When the vertices move, like after skinning them for a new pose with
+ * {@link GeosetKernels#skin(float[], byte[], float[], float[], int)},
+ * {@link #refit(float[])} recomputes the bounds in one linear pass and keeps
+ * the tree. The tree gets looser as the pose moves further from the one it was
+ * built for, but stays correct.
+ *
+ * Triangles are numbered like the faces of the geoset: triangle t has the
+ * corners faces[t * 3] to faces[t * 3 + 2]. Only face groups of triangles are
+ * included. Queries may run from any number of threads, but not during a refit.
+ */
+public final class GeosetBvh {
+	public static final int TRIANGLES = 4;
+
+	/**
+	 * The most bins used to split a node, small nodes use one per triangle.
+	 */
+	private static final int BINS = 16;
+	private static final int MAX_LEAF_SIZE = 8;
+	/**
+	 * The cost of visiting a node, relative to testing one triangle.
+	 */
+	private static final float TRAVERSAL_COST = 1.0f;
+
+	private final int triangleCount;
+	private final int[] triangles;
+	private final int[] corners;
+	private float[] bounds;
+	private int[] nodes;
+	private int nodeCount;
+	private float[] vertices;
+
+	/**
+	 * The closest hit of a ray.
+	 */
+	public static final class Hit {
+		private int triangle = -1;
+		private float distance;
+		private float u;
+		private float v;
+
+		/**
+		 * The triangle hit, numbered like the faces of the geoset.
+		 */
+		public int getTriangle() {
+			return this.triangle;
+		}
+
+		/**
+		 * The distance along the ray, in lengths of its direction.
+		 */
+		public float getDistance() {
+			return this.distance;
+		}
+
+		/**
+		 * The barycentric weight of the second corner at the hit.
+		 */
+		public float getU() {
+			return this.u;
+		}
+
+		/**
+		 * The barycentric weight of the third corner at the hit.
+		 */
+		public float getV() {
+			return this.v;
+		}
+	}
+
+	private GeosetBvh(final float[] vertices, final int[] triangles, final int[] corners) {
+		this.vertices = vertices;
+		this.triangleCount = triangles.length;
+		this.triangles = triangles;
+		this.corners = corners;
+	}
+
+	/**
+	 * Builds the tree for the current vertices of the geoset.
+	 */
+	public static GeosetBvh build(final Geoset geoset) {
+		final float[] vertices = (geoset.getVertices() == null) ? new float[0] : geoset.getVertices();
+		final char[] faces = geoset.getCompactFaces();
+		final int vertexCount = vertices.length / 3;
+
+		// The triangles of the triangle face groups, skipping broken ones.
+		int[] triangles = new int[0];
+		int count = 0;
+		final int[] types = geoset.getCompactFaceTypeGroups();
+		final int[] groups = geoset.getCompactFaceGroups();
+		if ((faces != null) && (types != null) && (groups != null)) {
+			triangles = new int[faces.length / 3];
+			int start = 0;
+			for (int i = 0; (i < groups.length) && (start < faces.length); i++) {
+				final int end = (int) Math.min(faces.length, start + Integer.toUnsignedLong(groups[i]));
+				if ((i < types.length) && (types[i] == TRIANGLES)) {
+					for (int offset = start; (offset + 3) <= end; offset += 3) {
+						if ((faces[offset] < vertexCount) && (faces[offset + 1] < vertexCount)
+								&& (faces[offset + 2] < vertexCount)) {
+							triangles[count++] = offset / 3;
+						}
+					}
+				}
+				start = end;
+			}
+		}
+		triangles = Arrays.copyOf(triangles, count);
+
+		final int[] corners = new int[count * 3];
+		final float[] centroids = new float[count * 3];
+		for (int i = 0; i < count; i++) {
+			for (int corner = 0; corner < 3; corner++) {
+				final int vertex = faces[(triangles[i] * 3) + corner];
+				corners[(i * 3) + corner] = vertex;
+				for (int axis = 0; axis < 3; axis++) {
+					centroids[(i * 3) + axis] += vertices[(vertex * 3) + axis] / 3;
+				}
+			}
+		}
+
+		final GeosetBvh bvh = new GeosetBvh(vertices, triangles, corners);
+		final int maxNodes = Math.max(1, (count * 2) - 1);
+		bvh.bounds = new float[maxNodes * 6];
+		bvh.nodes = new int[maxNodes * 2];
+		final int[] order = new int[count];
+		for (int i = 0; i < count; i++) {
+			order[i] = i;
+		}
+		if (count == 0) {
+			bvh.nodeCount = 1;
+		}
+		else {
+			new Builder(bvh, centroids, order).build(0, count);
+			// Put the triangles in tree order.
+			final int[] sortedTriangles = new int[count];
+			final int[] sortedCorners = new int[count * 3];
+			for (int i = 0; i < count; i++) {
+				sortedTriangles[i] = triangles[order[i]];
+				System.arraycopy(corners, order[i] * 3, sortedCorners, i * 3, 3);
+			}
+			System.arraycopy(sortedTriangles, 0, triangles, 0, count);
+			System.arraycopy(sortedCorners, 0, corners, 0, count * 3);
+		}
+		bvh.bounds = Arrays.copyOf(bvh.bounds, bvh.nodeCount * 6);
+		bvh.nodes = Arrays.copyOf(bvh.nodes, bvh.nodeCount * 2);
+		return bvh;
+	}
+
+	/**
+	 * Recomputes all bounds for moved vertices, keeping the tree. The array is
+	 * used from now on and must have the same vertex count.
+	 */
+	public void refit(final float[] vertices) {
+		if (vertices.length != this.vertices.length) {
+			throw new IllegalArgumentException(
+					"Expected " + this.vertices.length + " vertex components, got " + vertices.length);
+		}
+		this.vertices = vertices;
+		// Children always come after their parent.
+		for (int node = this.nodeCount - 1; node >= 0; node--) {
+			final int count = this.nodes[(node * 2) + 1];
+			if (count > 0) {
+				this.leafBounds(node, this.nodes[node * 2], count);
+			}
+			else if (this.triangleCount > 0) {
+				final int left = (node + 1) * 6;
+				final int right = this.nodes[node * 2] * 6;
+				final int offset = node * 6;
+				for (int axis = 0; axis < 3; axis++) {
+					this.bounds[offset + axis] = Math.min(this.bounds[left + axis], this.bounds[right + axis]);
+					this.bounds[offset + axis + 3] = Math.max(this.bounds[left + axis + 3],
+							this.bounds[right + axis + 3]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Finds the closest triangle hit by the ray, either side facing.
+	 *
+	 * @param direction   Need not be unit length.
+	 * @param maxDistance The farthest hit to accept, in lengths of the
+	 *                    direction.
+	 * @return False if nothing was hit, in which case the hit is unchanged.
+	 */
+	public boolean raycast(final float[] origin, final float[] direction, final float maxDistance, final Hit hit) {
+		final float ox = origin[0];
+		final float oy = origin[1];
+		final float oz = origin[2];
+		final float dx = direction[0];
+		final float dy = direction[1];
+		final float dz = direction[2];
+		final float inverseX = 1 / dx;
+		final float inverseY = 1 / dy;
+		final float inverseZ = 1 / dz;
+		float closest = maxDistance;
+		int closestTriangle = -1;
+		float closestU = 0;
+		float closestV = 0;
+
+		int[] stack = new int[64];
+		int size = 0;
+		if (this.triangleCount > 0) {
+			stack[size++] = 0;
+		}
+		while (size > 0) {
+			final int node = stack[--size];
+			if (!this.rayHitsBox(node, ox, oy, oz, inverseX, inverseY, inverseZ, closest)) {
+				continue;
+			}
+			final int count = this.nodes[(node * 2) + 1];
+			if (count == 0) {
+				if ((size + 2) > stack.length) {
+					stack = Arrays.copyOf(stack, stack.length * 2);
+				}
+				// Visit the nearer child first, it tightens the distance for the other.
+				// The stack pops the last push, so the nearer child goes on top.
+				final int left = node + 1;
+				final int right = this.nodes[node * 2];
+				final float axisDirection = this.childOrder(left, right, dx, dy, dz);
+				if (axisDirection < 0) {
+					stack[size++] = right;
+					stack[size++] = left;
+				}
+				else {
+					stack[size++] = left;
+					stack[size++] = right;
+				}
+				continue;
+			}
+			final int first = this.nodes[node * 2];
+			for (int i = first; i < (first + count); i++) {
+				final int a = this.corners[i * 3] * 3;
+				final int b = this.corners[(i * 3) + 1] * 3;
+				final int c = this.corners[(i * 3) + 2] * 3;
+				final float[] v = this.vertices;
+				final float e1x = v[b] - v[a];
+				final float e1y = v[b + 1] - v[a + 1];
+				final float e1z = v[b + 2] - v[a + 2];
+				final float e2x = v[c] - v[a];
+				final float e2y = v[c + 1] - v[a + 1];
+				final float e2z = v[c + 2] - v[a + 2];
+				final float px = (dy * e2z) - (dz * e2y);
+				final float py = (dz * e2x) - (dx * e2z);
+				final float pz = (dx * e2y) - (dy * e2x);
+				final float determinant = (e1x * px) + (e1y * py) + (e1z * pz);
+				if (determinant == 0) {
+					continue;
+				}
+				final float inverse = 1 / determinant;
+				final float tx = ox - v[a];
+				final float ty = oy - v[a + 1];
+				final float tz = oz - v[a + 2];
+				final float u = ((tx * px) + (ty * py) + (tz * pz)) * inverse;
+				if ((u < 0) || (u > 1)) {
+					continue;
+				}
+				final float qx = (ty * e1z) - (tz * e1y);
+				final float qy = (tz * e1x) - (tx * e1z);
+				final float qz = (tx * e1y) - (ty * e1x);
+				final float w = ((dx * qx) + (dy * qy) + (dz * qz)) * inverse;
+				if ((w < 0) || ((u + w) > 1)) {
+					continue;
+				}
+				final float t = ((e2x * qx) + (e2y * qy) + (e2z * qz)) * inverse;
+				if ((t >= 0) && (t <= closest)) {
+					closest = t;
+					closestTriangle = i;
+					closestU = u;
+					closestV = w;
+				}
+			}
+		}
+
+		if (closestTriangle < 0) {
+			return false;
+		}
+		hit.triangle = this.triangles[closestTriangle];
+		hit.distance = closest;
+		hit.u = closestU;
+		hit.v = closestV;
+		return true;
+	}
+
+	/**
+	 * Calls back with every triangle that touches the sphere, in no particular
+	 * order.
+	 */
+	public void querySphere(final float[] center, final float radius, final IntConsumer consumer) {
+		final float cx = center[0];
+		final float cy = center[1];
+		final float cz = center[2];
+		final float radiusSquared = radius * radius;
+		final float[] closest = new float[3];
+		int[] stack = new int[64];
+		int size = 0;
+		if (this.triangleCount > 0) {
+			stack[size++] = 0;
+		}
+		while (size > 0) {
+			final int node = stack[--size];
+			final int offset = node * 6;
+			float distance = 0;
+			for (int axis = 0; axis < 3; axis++) {
+				final float value = center[axis];
+				final float outside = Math.max(this.bounds[offset + axis] - value,
+						value - this.bounds[offset + axis + 3]);
+				if (outside > 0) {
+					distance += outside * outside;
+				}
+			}
+			if (distance > radiusSquared) {
+				continue;
+			}
+			final int count = this.nodes[(node * 2) + 1];
+			if (count == 0) {
+				if ((size + 2) > stack.length) {
+					stack = Arrays.copyOf(stack, stack.length * 2);
+				}
+				stack[size++] = this.nodes[node * 2];
+				stack[size++] = node + 1;
+				continue;
+			}
+			final int first = this.nodes[node * 2];
+			for (int i = first; i < (first + count); i++) {
+				closestPoint(this.vertices, this.corners[i * 3] * 3, this.corners[(i * 3) + 1] * 3,
+						this.corners[(i * 3) + 2] * 3, cx, cy, cz, closest);
+				final float x = closest[0] - cx;
+				final float y = closest[1] - cy;
+				final float z = closest[2] - cz;
+				if (((x * x) + (y * y) + (z * z)) <= radiusSquared) {
+					consumer.accept(this.triangles[i]);
+				}
+			}
+		}
+	}
+
+	public int getTriangleCount() {
+		return this.triangleCount;
+	}
+
+	public int getNodeCount() {
+		return this.nodeCount;
+	}
+
+	/**
+	 * The vertices the tree was last built or refit for.
+	 */
+	public float[] getVertices() {
+		return this.vertices;
+	}
+
+	/**
+	 * The bounds of all triangles, as min x, y, z and max x, y, z.
+	 */
+	public void getBounds(final float[] out) {
+		System.arraycopy(this.bounds, 0, out, 0, 6);
+	}
+
+	private boolean rayHitsBox(final int node, final float ox, final float oy, final float oz, final float inverseX,
+			final float inverseY, final float inverseZ, final float maxDistance) {
+		final int offset = node * 6;
+		float near = 0;
+		float far = maxDistance;
+		float t1 = (this.bounds[offset] - ox) * inverseX;
+		float t2 = (this.bounds[offset + 3] - ox) * inverseX;
+		// NaN from 0 * infinity means the ray runs in the slab's plane, which does not limit it.
+		near = Math.max(near, Float.isNaN(t1) || Float.isNaN(t2) ? near : Math.min(t1, t2));
+		far = Math.min(far, Float.isNaN(t1) || Float.isNaN(t2) ? far : Math.max(t1, t2));
+		t1 = (this.bounds[offset + 1] - oy) * inverseY;
+		t2 = (this.bounds[offset + 4] - oy) * inverseY;
+		near = Math.max(near, Float.isNaN(t1) || Float.isNaN(t2) ? near : Math.min(t1, t2));
+		far = Math.min(far, Float.isNaN(t1) || Float.isNaN(t2) ? far : Math.max(t1, t2));
+		t1 = (this.bounds[offset + 2] - oz) * inverseZ;
+		t2 = (this.bounds[offset + 5] - oz) * inverseZ;
+		near = Math.max(near, Float.isNaN(t1) || Float.isNaN(t2) ? near : Math.min(t1, t2));
+		far = Math.min(far, Float.isNaN(t1) || Float.isNaN(t2) ? far : Math.max(t1, t2));
+		return near <= far;
+	}
+
+	/**
+	 * Negative if the left child lies first along the direction.
+	 */
+	private float childOrder(final int left, final int right, final float dx, final float dy, final float dz) {
+		final int l = left * 6;
+		final int r = right * 6;
+		return (((this.bounds[l] + this.bounds[l + 3]) - (this.bounds[r] + this.bounds[r + 3])) * dx)
+				+ (((this.bounds[l + 1] + this.bounds[l + 4]) - (this.bounds[r + 1] + this.bounds[r + 4])) * dy)
+				+ (((this.bounds[l + 2] + this.bounds[l + 5]) - (this.bounds[r + 2] + this.bounds[r + 5])) * dz);
+	}
+
+	private void leafBounds(final int node, final int first, final int count) {
+		final int offset = node * 6;
+		for (int axis = 0; axis < 3; axis++) {
+			this.bounds[offset + axis] = Float.POSITIVE_INFINITY;
+			this.bounds[offset + axis + 3] = Float.NEGATIVE_INFINITY;
+		}
+		for (int i = first * 3; i < ((first + count) * 3); i++) {
+			final int vertex = this.corners[i] * 3;
+			for (int axis = 0; axis < 3; axis++) {
+				final float value = this.vertices[vertex + axis];
+				this.bounds[offset + axis] = Math.min(this.bounds[offset + axis], value);
+				this.bounds[offset + axis + 3] = Math.max(this.bounds[offset + axis + 3], value);
+			}
+		}
+	}
+
+	/**
+	 * The point of the triangle closest to p, from Ericson's Real-Time
+	 * Collision Detection.
+	 */
+	static void closestPoint(final float[] v, final int a, final int b, final int c, final float px,
+			final float py, final float pz, final float[] out) {
+		final float abx = v[b] - v[a];
+		final float aby = v[b + 1] - v[a + 1];
+		final float abz = v[b + 2] - v[a + 2];
+		final float acx = v[c] - v[a];
+		final float acy = v[c + 1] - v[a + 1];
+		final float acz = v[c + 2] - v[a + 2];
+		final float apx = px - v[a];
+		final float apy = py - v[a + 1];
+		final float apz = pz - v[a + 2];
+		final float d1 = (abx * apx) + (aby * apy) + (abz * apz);
+		final float d2 = (acx * apx) + (acy * apy) + (acz * apz);
+		if ((d1 <= 0) && (d2 <= 0)) {
+			set(out, v[a], v[a + 1], v[a + 2]);
+			return;
+		}
+		final float bpx = px - v[b];
+		final float bpy = py - v[b + 1];
+		final float bpz = pz - v[b + 2];
+		final float d3 = (abx * bpx) + (aby * bpy) + (abz * bpz);
+		final float d4 = (acx * bpx) + (acy * bpy) + (acz * bpz);
+		if ((d3 >= 0) && (d4 <= d3)) {
+			set(out, v[b], v[b + 1], v[b + 2]);
+			return;
+		}
+		final float vc = (d1 * d4) - (d3 * d2);
+		if ((vc <= 0) && (d1 >= 0) && (d3 <= 0)) {
+			final float t = d1 / (d1 - d3);
+			set(out, v[a] + (t * abx), v[a + 1] + (t * aby), v[a + 2] + (t * abz));
+			return;
+		}
+		final float cpx = px - v[c];
+		final float cpy = py - v[c + 1];
+		final float cpz = pz - v[c + 2];
+		final float d5 = (abx * cpx) + (aby * cpy) + (abz * cpz);
+		final float d6 = (acx * cpx) + (acy * cpy) + (acz * cpz);
+		if ((d6 >= 0) && (d5 <= d6)) {
+			set(out, v[c], v[c + 1], v[c + 2]);
+			return;
+		}
+		final float vb = (d5 * d2) - (d1 * d6);
+		if ((vb <= 0) && (d2 >= 0) && (d6 <= 0)) {
+			final float t = d2 / (d2 - d6);
+			set(out, v[a] + (t * acx), v[a + 1] + (t * acy), v[a + 2] + (t * acz));
+			return;
+		}
+		final float va = (d3 * d6) - (d5 * d4);
+		if ((va <= 0) && ((d4 - d3) >= 0) && ((d5 - d6) >= 0)) {
+			final float t = (d4 - d3) / ((d4 - d3) + (d5 - d6));
+			set(out, v[b] + (t * (v[c] - v[b])), v[b + 1] + (t * (v[c + 1] - v[b + 1])),
+					v[b + 2] + (t * (v[c + 2] - v[b + 2])));
+			return;
+		}
+		final float denominator = 1 / (va + vb + vc);
+		final float s = vb * denominator;
+		final float t = vc * denominator;
+		set(out, v[a] + (abx * s) + (acx * t), v[a + 1] + (aby * s) + (acy * t), v[a + 2] + (abz * s) + (acz * t));
+	}
+
+	private static void set(final float[] out, final float x, final float y, final float z) {
+		out[0] = x;
+		out[1] = y;
+		out[2] = z;
+	}
+
+	/**
+	 * The top down SAH build, over ranges of an order array into the triangles.
+	 */
+	private static final class Builder {
+		private final GeosetBvh bvh;
+		private final float[] centroids;
+		private final int[] order;
+		private final float[] triangleBounds;
+		private final int[] binCounts = new int[BINS];
+		private final float[] binBounds = new float[BINS * 6];
+		private final float[] rightAreas = new float[BINS];
+
+		private Builder(final GeosetBvh bvh, final float[] centroids, final int[] order) {
+			this.bvh = bvh;
+			this.centroids = centroids;
+			this.order = order;
+			this.triangleBounds = new float[order.length * 6];
+			for (int triangle = 0; triangle < order.length; triangle++) {
+				empty(this.triangleBounds, triangle * 6);
+				for (int corner = 0; corner < 3; corner++) {
+					final int vertex = bvh.corners[(triangle * 3) + corner] * 3;
+					for (int axis = 0; axis < 3; axis++) {
+						final float value = bvh.vertices[vertex + axis];
+						final int offset = triangle * 6;
+						this.triangleBounds[offset + axis] = Math.min(this.triangleBounds[offset + axis], value);
+						this.triangleBounds[offset + axis + 3] = Math.max(this.triangleBounds[offset + axis + 3],
+								value);
+					}
+				}
+			}
+		}
+
+		private void build(final int start, final int end) {
+			final GeosetBvh bvh = this.bvh;
+			final int node = bvh.nodeCount++;
+			final int count = end - start;
+
+			// Leaf bounds are computed in tree order, so lay the range out as a leaf first.
+			this.leaf(node, start, count);
+			if (count <= 1) {
+				return;
+			}
+
+			final float[] centroidMin = { Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY, Float.POSITIVE_INFINITY };
+			final float[] centroidMax = { Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY, Float.NEGATIVE_INFINITY };
+			for (int i = start; i < end; i++) {
+				for (int axis = 0; axis < 3; axis++) {
+					final float value = this.centroids[(this.order[i] * 3) + axis];
+					centroidMin[axis] = Math.min(centroidMin[axis], value);
+					centroidMax[axis] = Math.max(centroidMax[axis], value);
+				}
+			}
+
+			final int bins = Math.min(BINS, count);
+			float bestCost = Float.POSITIVE_INFINITY;
+			int bestAxis = -1;
+			int bestBin = 0;
+			for (int axis = 0; axis < 3; axis++) {
+				final float extent = centroidMax[axis] - centroidMin[axis];
+				if (!(extent > 0)) {
+					continue;
+				}
+				Arrays.fill(this.binCounts, 0);
+				for (int bin = 0; bin < bins; bin++) {
+					empty(this.binBounds, bin * 6);
+				}
+				for (int i = start; i < end; i++) {
+					final int bin = this.bin(this.order[i], axis, centroidMin[axis], extent, bins);
+					this.binCounts[bin]++;
+					this.grow(this.binBounds, bin * 6, this.order[i]);
+				}
+
+				// Sweep from the right for the areas, then from the left for the costs.
+				final float[] box = new float[6];
+				empty(box, 0);
+				for (int bin = bins - 1; bin > 0; bin--) {
+					union(box, this.binBounds, bin * 6);
+					this.rightAreas[bin] = area(box, 0);
+				}
+				empty(box, 0);
+				int leftCount = 0;
+				for (int bin = 0; bin < (bins - 1); bin++) {
+					union(box, this.binBounds, bin * 6);
+					leftCount += this.binCounts[bin];
+					final int rightCount = count - leftCount;
+					if ((leftCount == 0) || (rightCount == 0)) {
+						continue;
+					}
+					final float cost = (leftCount * area(box, 0)) + (rightCount * this.rightAreas[bin + 1]);
+					if (cost < bestCost) {
+						bestCost = cost;
+						bestAxis = axis;
+						bestBin = bin;
+					}
+				}
+			}
+
+			if (bestAxis < 0) {
+				// Every centroid in the same place, nothing to split on.
+				return;
+			}
+			final float nodeArea = area(bvh.bounds, node * 6);
+			final float leafCost = count;
+			final float splitCost = TRAVERSAL_COST + ((nodeArea > 0) ? (bestCost / nodeArea) : count);
+			if ((splitCost >= leafCost) && (count <= MAX_LEAF_SIZE)) {
+				return;
+			}
+
+			// Partition the range by bin.
+			final float extent = centroidMax[bestAxis] - centroidMin[bestAxis];
+			int middle = start;
+			for (int i = start; i < end; i++) {
+				if (this.bin(this.order[i], bestAxis, centroidMin[bestAxis], extent, bins) <= bestBin) {
+					final int swap = this.order[i];
+					this.order[i] = this.order[middle];
+					this.order[middle++] = swap;
+				}
+			}
+
+			bvh.nodes[(node * 2) + 1] = 0;
+			this.build(start, middle);
+			bvh.nodes[node * 2] = bvh.nodeCount;
+			this.build(middle, end);
+		}
+
+		private void leaf(final int node, final int start, final int count) {
+			final GeosetBvh bvh = this.bvh;
+			bvh.nodes[node * 2] = start;
+			bvh.nodes[(node * 2) + 1] = count;
+			empty(bvh.bounds, node * 6);
+			for (int i = start; i < (start + count); i++) {
+				this.grow(bvh.bounds, node * 6, this.order[i]);
+			}
+		}
+
+		private int bin(final int triangle, final int axis, final float min, final float extent, final int bins) {
+			final int bin = (int) (((this.centroids[(triangle * 3) + axis] - min) / extent) * bins);
+			return Math.min(bins - 1, Math.max(0, bin));
+		}
+
+		private void grow(final float[] box, final int offset, final int triangle) {
+			final int bounds = triangle * 6;
+			for (int axis = 0; axis < 3; axis++) {
+				box[offset + axis] = Math.min(box[offset + axis], this.triangleBounds[bounds + axis]);
+				box[offset + axis + 3] = Math.max(box[offset + axis + 3], this.triangleBounds[bounds + axis + 3]);
+			}
+		}
+
+		private static void empty(final float[] box, final int offset) {
+			for (int axis = 0; axis < 3; axis++) {
+				box[offset + axis] = Float.POSITIVE_INFINITY;
+				box[offset + axis + 3] = Float.NEGATIVE_INFINITY;
+			}
+		}
+
+		private static void union(final float[] box, final float[] other, final int offset) {
+			for (int axis = 0; axis < 3; axis++) {
+				box[axis] = Math.min(box[axis], other[offset + axis]);
+				box[axis + 3] = Math.max(box[axis + 3], other[offset + axis + 3]);
+			}
+		}
+
+		/**
+		 * Half the surface area of the box.
+		 */
+		private static float area(final float[] box, final int offset) {
+			final float x = box[offset + 3] - box[offset];
+			final float y = box[offset + 4] - box[offset + 1];
+			final float z = box[offset + 5] - box[offset + 2];
+			if (!(x >= 0)) {
+				return 0;
+			}
+			return (x * y) + (y * z) + (z * x);
+		}
+	}
+}
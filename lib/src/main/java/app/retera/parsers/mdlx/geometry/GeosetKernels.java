@@ -0,0 +1,97 @@
+package app.retera.parsers.mdlx.geometry;
+
+/**
+ * Bulk operations over geoset vertex data: tightly packed (x, y, z) floats, as
+ * held by {@link app.retera.parsers.mdlx.Geoset#getVertices()} and
+ * {@link app.retera.parsers.mdlx.Geoset#getNormals()}.
+ *
+ * {@link #get()} returns a plain loop implementation. The implementation on
+ * the incubating Vector API is opt in, as it has not been measured to be
+ * faster: it is only built with <code>-Pvector</code>, and only used when the
+ * JVM is started with <code>--add-modules jdk.incubator.vector</code> and the
+ * system property <code>jmdlx.vector</code> is true. Both give the same
+ * results up to float rounding in sums.
+ *
+ * Implementations hold no state and may be used from any thread.
+ */
+public abstract class GeosetKernels {
+	private static final String VECTOR_KERNELS = "app.retera.parsers.mdlx.geometry.VectorGeosetKernels";
+	private static final GeosetKernels INSTANCE = select();
+
+	GeosetKernels() {
+	}
+
+	public static GeosetKernels get() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Whether this implementation uses the Vector API.
+	 */
+	public abstract boolean isVectorized();
+
+	/**
+	 * Computes the per component minimum and maximum of the first count
+	 * vertices. Both are zero if there are no vertices.
+	 *
+	 * @param min Receives 3 floats.
+	 * @param max Receives 3 floats.
+	 */
+	public abstract void extent(float[] vertices, int count, float[] min, float[] max);
+
+	/**
+	 * @return The largest distance from the center to one of the first count
+	 *         vertices.
+	 */
+	public abstract float boundsRadius(float[] vertices, int count, float[] center);
+
+	/**
+	 * Scales the first count normals to unit length, in place. Zero length
+	 * normals are left alone.
+	 */
+	public abstract void normalize(float[] normals, int count);
+
+	/**
+	 * Transforms the first count positions by the matrix of their vertex group.
+	 *
+	 * @param vertexGroups  One unsigned byte per vertex.
+	 * @param groupMatrices One column major 4x4 matrix (16 floats) per vertex
+	 *                      group.
+	 * @param out           Receives count * 3 floats, may be the input.
+	 */
+	public abstract void skin(float[] vertices, byte[] vertexGroups, float[] groupMatrices, float[] out, int count);
+
+	/**
+	 * Like {@link #skin(float[], byte[], float[], float[], int)}, but ignores
+	 * the translation of the matrices, for normals. The results are not
+	 * normalized.
+	 */
+	public abstract void skinNormals(float[] normals, byte[] vertexGroups, float[] groupMatrices, float[] out,
+			int count);
+
+	private static GeosetKernels select() {
+		if (Boolean.parseBoolean(System.getProperty("jmdlx.vector", "false"))) {
+			final GeosetKernels vector = vector();
+			if (vector != null) {
+				return vector;
+			}
+		}
+		return new ScalarGeosetKernels();
+	}
+
+	/**
+	 * @return The Vector API implementation, or null if it was not built or
+	 *         the module is not available.
+	 */
+	static GeosetKernels vector() {
+		if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+			return null;
+		}
+		try {
+			return (GeosetKernels) Class.forName(VECTOR_KERNELS).getDeclaredConstructor().newInstance();
+		}
+		catch (final ReflectiveOperationException | LinkageError e) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,563 @@
+package app.retera.parsers.mdlx.geometry;
+
+import java.util.Arrays;
+
+import app.retera.parsers.mdlx.Geoset;
+import app.retera.parsers.mdlx.MdlxModel;
+
+/**
+ * Reduces the triangle count of geosets with quadric error metric edge
+ * collapses, for lower detail copies of models.
+ *
+ * Collapses are half edge collapses: a position is removed and its triangles
+ * are moved to a neighbouring position, so every remaining vertex keeps its
+ * exact position, normal, UVs and vertex group, and the matrix groups and
+ * material stay valid. The vertices sharing a position, which is how UV seams
+ * and hard edges are stored, are collapsed together, each onto a vertex at the
+ * new position that it shares a triangle with, so seams keep their UVs on both
+ * sides. The error of a collapse is the sum of squared distances from the kept
+ * position to the planes of the triangles merged into it, plus planes standing
+ * on open borders so they keep their outline.
+ *
+ * Some positions are never removed:
+ * <ul>
+ * <li>Those of triangles spanning more than one vertex group, so skinning
+ * boundaries stay where they are.</li>
+ * <li>Those on edges with more than two triangles.</li>
+ * <li>Those with a vertex that shares no triangle with any vertex at the
+ * position it would collapse to, like a seam vertex collapsing across the
+ * seam.</li>
+ * </ul>
+ * Positions on open borders only collapse along the border. Collapses that
+ * would flip a triangle are skipped.
+ *
+ * The target ratio is therefore a floor rather than a promise: a geoset keeps
+ * more triangles when the collapses run out first, which the face count of the
+ * result tells.
+ *
+ * Collapses are done in passes: every pass picks the cheapest collapse of
+ * every position, sorts them by error, and applies those that touch no
+ * triangle changed earlier in the pass. Geosets with face groups other than
+ * triangles are left as they are.
+ */
+public final class GeosetSimplifier {
+	public static final int TRIANGLES = 4;
+
+	private static final byte FREE = 0;
+	private static final byte BORDER = 1;
+	private static final byte LOCKED = 2;
+	private static final double BORDER_WEIGHT = 10;
+	private static final int QUADRIC = 10;
+
+	private final float targetRatio;
+	private final float maxError;
+
+	/**
+	 * Simplifies down to the ratio, whatever the error.
+	 */
+	public GeosetSimplifier(final float targetRatio) {
+		this(targetRatio, Float.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * @param targetRatio The fraction of triangles to keep, from 0 to 1.
+	 * @param maxError    The largest error allowed for a collapse, as a
+	 *                    distance. Simplification stops early when no collapse
+	 *                    is within it.
+	 */
+	public GeosetSimplifier(final float targetRatio, final float maxError) {
+		if (!(targetRatio >= 0) || (targetRatio > 1)) {
+			throw new IllegalArgumentException("Target ratio must be between 0 and 1: " + targetRatio);
+		}
+		if (!(maxError >= 0)) {
+			throw new IllegalArgumentException("Maximum error must not be negative: " + maxError);
+		}
+		this.targetRatio = targetRatio;
+		this.maxError = maxError;
+	}
+
+	/**
+	 * Makes a simplified copy of the model, simplifying its geosets in
+	 * parallel. The model itself is not changed.
+	 *
+	 * @return The copy, where each geoset has {@link Geoset#getFaceCount()} / 3
+	 *         triangles, which may be above the target.
+	 */
+	public MdlxModel simplify(final MdlxModel model) {
+		final MdlxModel copy = model.copy(false);
+		copy.getGeosets().parallelStream().forEach(this::reduce);
+		return copy;
+	}
+
+	/**
+	 * Makes a simplified copy of the geoset. The geoset itself is not changed.
+	 *
+	 * @return The copy, with {@link Geoset#getFaceCount()} / 3 triangles, which
+	 *         may be above the target.
+	 */
+	public Geoset simplify(final Geoset geoset) {
+		final Geoset copy = geoset.copy(false);
+		this.reduce(copy);
+		return copy;
+	}
+
+	private void reduce(final Geoset geoset) {
+		final float[] vertices = geoset.getVertices();
+		final char[] faces = geoset.getCompactFaces();
+		final int[] types = geoset.getCompactFaceTypeGroups();
+		final int[] groups = geoset.getCompactFaceGroups();
+		if ((vertices == null) || (faces == null) || (types == null) || (groups == null)) {
+			return;
+		}
+		long grouped = 0;
+		for (int i = 0; i < groups.length; i++) {
+			if ((i >= types.length) || (types[i] != TRIANGLES)) {
+				return;
+			}
+			grouped += Integer.toUnsignedLong(groups[i]);
+		}
+		final int vertexCount = vertices.length / 3;
+		if ((grouped != faces.length) || ((faces.length % 3) != 0)) {
+			return;
+		}
+		for (final char index : faces) {
+			if (index >= vertexCount) {
+				return;
+			}
+		}
+		final int triangleCount = faces.length / 3;
+		final int target = (int) (triangleCount * (double) this.targetRatio);
+		if (target >= triangleCount) {
+			return;
+		}
+
+		final int[] indices = new int[faces.length];
+		for (int i = 0; i < faces.length; i++) {
+			indices[i] = faces[i];
+		}
+		final boolean[] dead = new boolean[triangleCount];
+		// Positions are named by their first vertex, and kinds and quadrics are per position.
+		final int[] positions = PositionClasses.of(vertices, vertexCount);
+		final int[] firstMember = new int[vertexCount + 1];
+		final int[] members = new int[vertexCount];
+		members(positions, firstMember, members);
+		final byte[] kinds = new byte[vertexCount];
+		final double[] quadrics = new double[vertexCount * QUADRIC];
+		classify(vertices, indices, geoset.getCompactVertexGroups(), positions, kinds, quadrics);
+
+		final double maxCost = (double) this.maxError * this.maxError;
+		final int[] firstTriangle = new int[vertexCount + 1];
+		final int[] triangles = new int[triangleCount * 3];
+		final int[] collapsePositions = new int[vertexCount];
+		final int[] collapseTargets = new int[vertexCount];
+		final long[] candidates = new long[vertexCount];
+		final boolean[] touched = new boolean[vertexCount];
+		final double[] merged = new double[QUADRIC];
+		int alive = triangleCount;
+
+		while (alive > target) {
+			adjacency(indices, dead, vertexCount, firstTriangle, triangles);
+
+			int candidateCount = 0;
+			for (int p = 0; p < vertexCount; p++) {
+				if ((positions[p] != p) || (kinds[p] == LOCKED)) {
+					continue;
+				}
+				double bestCost = Double.POSITIVE_INFINITY;
+				int best = -1;
+				for (int m = firstMember[p]; m < firstMember[p + 1]; m++) {
+					final int u = members[m];
+					for (int t = firstTriangle[u]; t < firstTriangle[u + 1]; t++) {
+						final int triangle = triangles[t];
+						for (int corner = 0; corner < 3; corner++) {
+							final int q = positions[indices[(triangle * 3) + corner]];
+							if ((q == p) || ((kinds[p] == BORDER) && !isBorderEdge(p, q, indices, positions,
+									firstMember, members, firstTriangle, triangles))) {
+								continue;
+							}
+							add(quadrics, p, q, merged);
+							final double cost = evaluate(merged, vertices, q);
+							if ((cost < bestCost) && targets(p, q, indices, positions, firstMember, members,
+									firstTriangle, triangles, collapseTargets)) {
+								bestCost = cost;
+								best = q;
+							}
+						}
+					}
+				}
+				if ((best >= 0) && (bestCost <= maxCost)) {
+					collapsePositions[p] = best;
+					// Non-negative floats sort like their bits.
+					final long costBits = Float.floatToIntBits((float) Math.max(0, bestCost));
+					candidates[candidateCount++] = (costBits << 32) | p;
+				}
+			}
+			Arrays.sort(candidates, 0, candidateCount);
+
+			Arrays.fill(touched, false);
+			int collapses = 0;
+			for (int i = 0; (i < candidateCount) && (alive > target); i++) {
+				final int p = (int) candidates[i];
+				final int q = collapsePositions[p];
+				if (touched[p] || touched[q]) {
+					continue;
+				}
+				// Nothing around p changed yet this pass, so the targets found above still hold.
+				targets(p, q, indices, positions, firstMember, members, firstTriangle, triangles, collapseTargets);
+				int removed = 0;
+				boolean flips = false;
+				for (int m = firstMember[p]; (m < firstMember[p + 1]) && !flips; m++) {
+					final int u = members[m];
+					for (int t = firstTriangle[u]; t < firstTriangle[u + 1]; t++) {
+						final int triangle = triangles[t];
+						if (containsPosition(indices, positions, triangle, q)) {
+							removed++;
+						}
+						else if (flips(vertices, indices, triangle, u, collapseTargets[u])) {
+							flips = true;
+							break;
+						}
+					}
+				}
+				if (flips || ((alive - removed) < target)) {
+					continue;
+				}
+
+				for (int m = firstMember[p]; m < firstMember[p + 1]; m++) {
+					final int u = members[m];
+					for (int t = firstTriangle[u]; t < firstTriangle[u + 1]; t++) {
+						final int triangle = triangles[t];
+						if (dead[triangle]) {
+							continue;
+						}
+						for (int corner = 0; corner < 3; corner++) {
+							touched[positions[indices[(triangle * 3) + corner]]] = true;
+						}
+						if (containsPosition(indices, positions, triangle, q)) {
+							dead[triangle] = true;
+							alive--;
+						}
+						else {
+							for (int corner = 0; corner < 3; corner++) {
+								if (indices[(triangle * 3) + corner] == u) {
+									indices[(triangle * 3) + corner] = collapseTargets[u];
+								}
+							}
+						}
+					}
+				}
+				for (int k = 0; k < QUADRIC; k++) {
+					quadrics[(q * QUADRIC) + k] += quadrics[(p * QUADRIC) + k];
+				}
+				kinds[p] = LOCKED;
+				collapses++;
+			}
+			if (collapses == 0) {
+				break;
+			}
+		}
+
+		final char[] reduced = new char[alive * 3];
+		int output = 0;
+		for (int triangle = 0; triangle < triangleCount; triangle++) {
+			if (!dead[triangle]) {
+				for (int corner = 0; corner < 3; corner++) {
+					reduced[output++] = (char) indices[(triangle * 3) + corner];
+				}
+			}
+		}
+		geoset.setCompactFaceTypeGroups(new int[] { TRIANGLES });
+		geoset.setCompactFaceGroups(new int[] { reduced.length });
+		removeUnusedVertices(geoset, reduced, vertexCount);
+	}
+
+	/**
+	 * Lists the vertices of every position, in compressed rows.
+	 */
+	private static void members(final int[] positions, final int[] firstMember, final int[] members) {
+		for (final int position : positions) {
+			firstMember[position + 1]++;
+		}
+		for (int position = 0; position < positions.length; position++) {
+			firstMember[position + 1] += firstMember[position];
+		}
+		final int[] fill = Arrays.copyOf(firstMember, positions.length);
+		for (int vertex = 0; vertex < positions.length; vertex++) {
+			members[fill[positions[vertex]]++] = vertex;
+		}
+	}
+
+	/**
+	 * Finds the positions that must stay or stay on a border, and sums the
+	 * face and border plane quadrics of every position.
+	 */
+	private static void classify(final float[] vertices, final int[] indices, final byte[] vertexGroups,
+			final int[] positions, final byte[] kinds, final double[] quadrics) {
+		final int vertexCount = kinds.length;
+		final boolean hasGroups = (vertexGroups != null) && (vertexGroups.length == vertexCount);
+		final int triangleCount = indices.length / 3;
+		final float[] normal = new float[3];
+		final long[] edges = new long[indices.length];
+		for (int triangle = 0; triangle < triangleCount; triangle++) {
+			final int a = indices[triangle * 3];
+			final int b = indices[(triangle * 3) + 1];
+			final int c = indices[(triangle * 3) + 2];
+			if (hasGroups && ((vertexGroups[a] != vertexGroups[b]) || (vertexGroups[a] != vertexGroups[c]))) {
+				kinds[positions[a]] = LOCKED;
+				kinds[positions[b]] = LOCKED;
+				kinds[positions[c]] = LOCKED;
+			}
+			if (faceNormal(vertices, a, b, c, normal)) {
+				final double d = -dot(normal, vertices, a);
+				addPlane(quadrics, positions[a], normal[0], normal[1], normal[2], d, 1);
+				addPlane(quadrics, positions[b], normal[0], normal[1], normal[2], d, 1);
+				addPlane(quadrics, positions[c], normal[0], normal[1], normal[2], d, 1);
+			}
+			for (int corner = 0; corner < 3; corner++) {
+				edges[(triangle * 3) + corner] = edgeKey(positions[indices[(triangle * 3) + corner]],
+						positions[indices[(triangle * 3) + ((corner + 1) % 3)]]);
+			}
+		}
+
+		final long[] sorted = edges.clone();
+		Arrays.sort(sorted);
+		for (int triangle = 0; triangle < triangleCount; triangle++) {
+			for (int corner = 0; corner < 3; corner++) {
+				final long key = edges[(triangle * 3) + corner];
+				final int first = Arrays.binarySearch(sorted, key);
+				int start = first;
+				while ((start > 0) && (sorted[start - 1] == key)) {
+					start--;
+				}
+				int end = first + 1;
+				while ((end < sorted.length) && (sorted[end] == key)) {
+					end++;
+				}
+				final int a = positions[indices[(triangle * 3) + corner]];
+				final int b = positions[indices[(triangle * 3) + ((corner + 1) % 3)]];
+				if ((end - start) > 2) {
+					kinds[a] = LOCKED;
+					kinds[b] = LOCKED;
+				}
+				else if ((end - start) == 1) {
+					if (kinds[a] == FREE) {
+						kinds[a] = BORDER;
+					}
+					if (kinds[b] == FREE) {
+						kinds[b] = BORDER;
+					}
+					addBorderPlane(vertices, indices, triangle, a, b, quadrics, normal);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the plane through the edge a b that stands perpendicular on the
+	 * triangle to both positions.
+	 */
+	private static void addBorderPlane(final float[] vertices, final int[] indices, final int triangle,
+			final int a, final int b, final double[] quadrics, final float[] normal) {
+		if (!faceNormal(vertices, indices[triangle * 3], indices[(triangle * 3) + 1], indices[(triangle * 3) + 2],
+				normal)) {
+			return;
+		}
+		final float ex = vertices[b * 3] - vertices[a * 3];
+		final float ey = vertices[(b * 3) + 1] - vertices[(a * 3) + 1];
+		final float ez = vertices[(b * 3) + 2] - vertices[(a * 3) + 2];
+		double nx = (ey * normal[2]) - (ez * normal[1]);
+		double ny = (ez * normal[0]) - (ex * normal[2]);
+		double nz = (ex * normal[1]) - (ey * normal[0]);
+		final double length = Math.sqrt((nx * nx) + (ny * ny) + (nz * nz));
+		if (length == 0) {
+			return;
+		}
+		nx /= length;
+		ny /= length;
+		nz /= length;
+		final double d = -((nx * vertices[a * 3]) + (ny * vertices[(a * 3) + 1]) + (nz * vertices[(a * 3) + 2]));
+		addPlane(quadrics, a, nx, ny, nz, d, BORDER_WEIGHT);
+		addPlane(quadrics, b, nx, ny, nz, d, BORDER_WEIGHT);
+	}
+
+	/**
+	 * Whether only one live triangle at position p has a corner at position q.
+	 */
+	private static boolean isBorderEdge(final int p, final int q, final int[] indices, final int[] positions,
+			final int[] firstMember, final int[] members, final int[] firstTriangle, final int[] triangles) {
+		int count = 0;
+		for (int m = firstMember[p]; m < firstMember[p + 1]; m++) {
+			final int u = members[m];
+			for (int t = firstTriangle[u]; t < firstTriangle[u + 1]; t++) {
+				if (containsPosition(indices, positions, triangles[t], q)) {
+					count++;
+				}
+			}
+		}
+		return count == 1;
+	}
+
+	/**
+	 * Finds for every vertex at position p that is still in use a vertex at
+	 * position q it shares a triangle with, to move its triangles to.
+	 *
+	 * @return False if some vertex has none.
+	 */
+	private static boolean targets(final int p, final int q, final int[] indices, final int[] positions,
+			final int[] firstMember, final int[] members, final int[] firstTriangle, final int[] triangles,
+			final int[] collapseTargets) {
+		for (int m = firstMember[p]; m < firstMember[p + 1]; m++) {
+			final int u = members[m];
+			int target = -1;
+			for (int t = firstTriangle[u]; (t < firstTriangle[u + 1]) && (target < 0); t++) {
+				final int triangle = triangles[t];
+				for (int corner = 0; corner < 3; corner++) {
+					final int v = indices[(triangle * 3) + corner];
+					if (positions[v] == q) {
+						target = v;
+						break;
+					}
+				}
+			}
+			if ((target < 0) && (firstTriangle[u] < firstTriangle[u + 1])) {
+				return false;
+			}
+			collapseTargets[u] = target;
+		}
+		return true;
+	}
+
+	/**
+	 * Builds the live triangles of every vertex, in compressed rows.
+	 */
+	private static void adjacency(final int[] indices, final boolean[] dead, final int vertexCount,
+			final int[] firstTriangle, final int[] triangles) {
+		Arrays.fill(firstTriangle, 0);
+		for (int triangle = 0; triangle < dead.length; triangle++) {
+			if (!dead[triangle]) {
+				for (int corner = 0; corner < 3; corner++) {
+					firstTriangle[indices[(triangle * 3) + corner] + 1]++;
+				}
+			}
+		}
+		for (int vertex = 0; vertex < vertexCount; vertex++) {
+			firstTriangle[vertex + 1] += firstTriangle[vertex];
+		}
+		final int[] fill = Arrays.copyOf(firstTriangle, vertexCount);
+		for (int triangle = 0; triangle < dead.length; triangle++) {
+			if (!dead[triangle]) {
+				for (int corner = 0; corner < 3; corner++) {
+					triangles[fill[indices[(triangle * 3) + corner]]++] = triangle;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Whether moving corner u of the triangle to the position of v turns it
+	 * around or makes it degenerate.
+	 */
+	private static boolean flips(final float[] vertices, final int[] indices, final int triangle, final int u,
+			final int v) {
+		final int a = indices[triangle * 3];
+		final int b = indices[(triangle * 3) + 1];
+		final int c = indices[(triangle * 3) + 2];
+		final double[] before = cross(vertices, a, b, c);
+		final double[] after = cross(vertices, (a == u) ? v : a, (b == u) ? v : b, (c == u) ? v : c);
+		return ((before[0] * after[0]) + (before[1] * after[1]) + (before[2] * after[2])) <= 0;
+	}
+
+	private static double[] cross(final float[] vertices, final int a, final int b, final int c) {
+		final double abx = vertices[b * 3] - vertices[a * 3];
+		final double aby = vertices[(b * 3) + 1] - vertices[(a * 3) + 1];
+		final double abz = vertices[(b * 3) + 2] - vertices[(a * 3) + 2];
+		final double acx = vertices[c * 3] - vertices[a * 3];
+		final double acy = vertices[(c * 3) + 1] - vertices[(a * 3) + 1];
+		final double acz = vertices[(c * 3) + 2] - vertices[(a * 3) + 2];
+		return new double[] { (aby * acz) - (abz * acy), (abz * acx) - (abx * acz), (abx * acy) - (aby * acx) };
+	}
+
+	/**
+	 * @return False if the triangle is degenerate.
+	 */
+	private static boolean faceNormal(final float[] vertices, final int a, final int b, final int c,
+			final float[] normal) {
+		final double[] cross = cross(vertices, a, b, c);
+		final double length = Math.sqrt((cross[0] * cross[0]) + (cross[1] * cross[1]) + (cross[2] * cross[2]));
+		if (length == 0) {
+			return false;
+		}
+		normal[0] = (float) (cross[0] / length);
+		normal[1] = (float) (cross[1] / length);
+		normal[2] = (float) (cross[2] / length);
+		return true;
+	}
+
+	private static boolean containsPosition(final int[] indices, final int[] positions, final int triangle,
+			final int position) {
+		return (positions[indices[triangle * 3]] == position) || (positions[indices[(triangle * 3) + 1]] == position)
+				|| (positions[indices[(triangle * 3) + 2]] == position);
+	}
+
+	private static double dot(final float[] normal, final float[] vertices, final int vertex) {
+		return (normal[0] * vertices[vertex * 3]) + (normal[1] * vertices[(vertex * 3) + 1])
+				+ (normal[2] * vertices[(vertex * 3) + 2]);
+	}
+
+	private static long edgeKey(final int a, final int b) {
+		return ((long) Math.min(a, b) << 32) | Math.max(a, b);
+	}
+
+	/**
+	 * Adds the quadric of the plane ax + by + cz + d = 0 to the vertex. A
+	 * quadric is the upper triangle of its symmetric 4x4 matrix, row by row.
+	 */
+	private static void addPlane(final double[] quadrics, final int vertex, final double a, final double b,
+			final double c, final double d, final double weight) {
+		final int q = vertex * QUADRIC;
+		quadrics[q] += weight * a * a;
+		quadrics[q + 1] += weight * a * b;
+		quadrics[q + 2] += weight * a * c;
+		quadrics[q + 3] += weight * a * d;
+		quadrics[q + 4] += weight * b * b;
+		quadrics[q + 5] += weight * b * c;
+		quadrics[q + 6] += weight * b * d;
+		quadrics[q + 7] += weight * c * c;
+		quadrics[q + 8] += weight * c * d;
+		quadrics[q + 9] += weight * d * d;
+	}
+
+	private static void add(final double[] quadrics, final int a, final int b, final double[] out) {
+		for (int k = 0; k < QUADRIC; k++) {
+			out[k] = quadrics[(a * QUADRIC) + k] + quadrics[(b * QUADRIC) + k];
+		}
+	}
+
+	private static double evaluate(final double[] q, final float[] vertices, final int vertex) {
+		final double x = vertices[vertex * 3];
+		final double y = vertices[(vertex * 3) + 1];
+		final double z = vertices[(vertex * 3) + 2];
+		return (q[0] * x * x) + (2 * q[1] * x * y) + (2 * q[2] * x * z) + (2 * q[3] * x) + (q[4] * y * y)
+				+ (2 * q[5] * y * z) + (2 * q[6] * y) + (q[7] * z * z) + (2 * q[8] * z) + q[9];
+	}
+
+	/**
+	 * Drops the vertices no face uses, keeping the order of the rest.
+	 */
+	private static void removeUnusedVertices(final Geoset geoset, final char[] faces, final int vertexCount) {
+		final boolean[] used = new boolean[vertexCount];
+		for (final char vertex : faces) {
+			used[vertex] = true;
+		}
+		final int[] newIndex = new int[vertexCount];
+		final int[] sources = new int[vertexCount];
+		int kept = 0;
+		for (int vertex = 0; vertex < vertexCount; vertex++) {
+			if (used[vertex]) {
+				sources[kept] = vertex;
+				newIndex[vertex] = kept++;
+			}
+		}
+		VertexRemapper.apply(geoset, Arrays.copyOf(sources, kept), newIndex, faces);
+	}
+}
@@ -0,0 +1,346 @@
+package app.retera.parsers.mdlx.geometry;
+
+import java.util.Arrays;
+import java.util.stream.IntStream;
+
+import app.retera.parsers.mdlx.Geoset;
+import app.retera.parsers.mdlx.MdlxModel;
+
+/**
+ * Recomputes the normals of geosets from their triangles.
+ *
+ * Every vertex gets the weighted sum of the normals of the triangles around
+ * its position, so the copies of a vertex made for UV seams share a normal.
+ * Triangles are weighted by their area, or by their angle at the vertex, which
+ * does not depend on how the surface is cut into triangles.
+ *
+ * With a crease angle, each corner only sums the triangles whose normal is
+ * within that angle of its own triangle, and vertices whose corners end up
+ * with different normals are split, for hard edges.
+ *
+ * Both passes gather instead of scatter: face normals are computed per
+ * triangle, and then each vertex reads the faces around it from compressed
+ * adjacency rows, so both run in parallel without shared writes.
+ *
+ * Geosets with face groups other than triangles are left as they are, as are
+ * geosets that a split would take past 65536 vertices.
+ */
+public final class NormalGenerator {
+	public static final int TRIANGLES = 4;
+
+	public enum Weighting {
+		AREA, ANGLE
+	}
+
+	private static final int CHUNK = 4096;
+	private static final int MAX_VERTICES = 0x10000;
+	/**
+	 * Corner normals this close are given the same vertex.
+	 */
+	private static final float SAME_NORMAL = 0.9999f;
+
+	private final Weighting weighting;
+	private final float creaseCosine;
+	private final boolean smooth;
+
+	/**
+	 * Angle weighted and smooth everywhere.
+	 */
+	public NormalGenerator() {
+		this(Weighting.ANGLE, (float) Math.PI);
+	}
+
+	/**
+	 * @param creaseAngle In radians. Pi or more smooths everything.
+	 */
+	public NormalGenerator(final Weighting weighting, final float creaseAngle) {
+		if (!(creaseAngle >= 0)) {
+			throw new IllegalArgumentException("Crease angle must not be negative: " + creaseAngle);
+		}
+		this.weighting = weighting;
+		this.smooth = creaseAngle >= Math.PI;
+		this.creaseCosine = (float) Math.cos(creaseAngle);
+	}
+
+	/**
+	 * Regenerates the normals of every geoset of the model, one after the other,
+	 * each in parallel.
+	 *
+	 * @return The number of vertices added by splits.
+	 */
+	public long generate(final MdlxModel model) {
+		long added = 0;
+		for (final Geoset geoset : model.getGeosets()) {
+			added += this.generate(geoset);
+		}
+		return added;
+	}
+
+	/**
+	 * @return The number of vertices added by splits.
+	 */
+	public int generate(final Geoset geoset) {
+		final float[] vertices = geoset.getVertices();
+		final char[] faces = geoset.getCompactFaces();
+		if ((vertices == null) || (faces == null) || !onlyTriangles(geoset, faces.length)) {
+			return 0;
+		}
+		final int vertexCount = vertices.length / 3;
+		for (final char index : faces) {
+			if (index >= vertexCount) {
+				return 0;
+			}
+		}
+		final int cornerCount = faces.length;
+		final int triangleCount = cornerCount / 3;
+
+		// First pass: unit face normals and the weight of every corner.
+		final float[] faceNormals = new float[triangleCount * 3];
+		final float[] cornerWeights = new float[cornerCount];
+		forEachChunk(triangleCount, (start, end) -> {
+			for (int triangle = start; triangle < end; triangle++) {
+				this.faceNormal(vertices, faces, triangle, faceNormals, cornerWeights);
+			}
+		});
+
+		// The corners at every position, in compressed rows.
+		final int[] positions = PositionClasses.of(vertices, vertexCount);
+		final int[] firstCorner = new int[vertexCount + 1];
+		for (final char vertex : faces) {
+			firstCorner[positions[vertex] + 1]++;
+		}
+		for (int vertex = 0; vertex < vertexCount; vertex++) {
+			firstCorner[vertex + 1] += firstCorner[vertex];
+		}
+		final int[] corners = new int[cornerCount];
+		final int[] fill = Arrays.copyOf(firstCorner, vertexCount);
+		for (int corner = 0; corner < cornerCount; corner++) {
+			corners[fill[positions[faces[corner]]]++] = corner;
+		}
+
+		// Second pass: gather.
+		if (this.smooth) {
+			final float[] normals = new float[vertexCount * 3];
+			forEachChunk(vertexCount, (start, end) -> {
+				for (int vertex = start; vertex < end; vertex++) {
+					final int position = positions[vertex];
+					sum(faceNormals, cornerWeights, corners, firstCorner[position], firstCorner[position + 1], null,
+							0, normals, vertex * 3);
+				}
+			});
+			geoset.setNormals(normals);
+			return 0;
+		}
+
+		final float[] cornerNormals = new float[cornerCount * 3];
+		forEachChunk(cornerCount, (start, end) -> {
+			for (int corner = start; corner < end; corner++) {
+				final int position = positions[faces[corner]];
+				sum(faceNormals, cornerWeights, corners, firstCorner[position], firstCorner[position + 1],
+						faceNormals, (corner / 3) * 3, cornerNormals, corner * 3);
+			}
+		});
+		return this.split(geoset, faces, vertexCount, cornerNormals);
+	}
+
+	/**
+	 * Gives every distinct normal among the corners of a vertex its own vertex,
+	 * the first one keeping the original.
+	 */
+	private int split(final Geoset geoset, final char[] faces, final int vertexCount, final float[] cornerNormals) {
+		final int cornerCount = faces.length;
+		// The corners of every vertex, in compressed rows.
+		final int[] firstCorner = new int[vertexCount + 1];
+		for (final char vertex : faces) {
+			firstCorner[vertex + 1]++;
+		}
+		for (int vertex = 0; vertex < vertexCount; vertex++) {
+			firstCorner[vertex + 1] += firstCorner[vertex];
+		}
+		final int[] corners = new int[cornerCount];
+		final int[] fill = Arrays.copyOf(firstCorner, vertexCount);
+		for (int corner = 0; corner < cornerCount; corner++) {
+			corners[fill[faces[corner]]++] = corner;
+		}
+
+		final int[] sources = new int[vertexCount + cornerCount];
+		final float[] normals = new float[(vertexCount + cornerCount) * 3];
+		final char[] newFaces = new char[cornerCount];
+		int count = vertexCount;
+		for (int vertex = 0; vertex < vertexCount; vertex++) {
+			sources[vertex] = vertex;
+			normals[(vertex * 3) + 2] = 1;
+			final int first = firstCorner[vertex];
+			final int firstAdded = count;
+			for (int i = first; i < firstCorner[vertex + 1]; i++) {
+				final int corner = corners[i];
+				int target = -1;
+				if ((i != first) && (dot(cornerNormals, corner * 3, normals, vertex * 3) >= SAME_NORMAL)) {
+					target = vertex;
+				}
+				for (int added = firstAdded; (added < count) && (target < 0); added++) {
+					if (dot(cornerNormals, corner * 3, normals, added * 3) >= SAME_NORMAL) {
+						target = added;
+					}
+				}
+				if (target < 0) {
+					if (i == first) {
+						target = vertex;
+					}
+					else {
+						if (count == MAX_VERTICES) {
+							return 0;
+						}
+						target = count++;
+						sources[target] = vertex;
+					}
+					System.arraycopy(cornerNormals, corner * 3, normals, target * 3, 3);
+				}
+				newFaces[corner] = (char) target;
+			}
+		}
+
+		VertexRemapper.gather(geoset, Arrays.copyOf(sources, count), vertexCount);
+		geoset.setNormals(Arrays.copyOf(normals, count * 3));
+		geoset.setCompactFaces(newFaces);
+		return count - vertexCount;
+	}
+
+	/**
+	 * Writes the unit normal of the triangle and the weights of its corners.
+	 */
+	private void faceNormal(final float[] vertices, final char[] faces, final int triangle,
+			final float[] faceNormals, final float[] cornerWeights) {
+		final int offset = triangle * 3;
+		final int a = faces[offset] * 3;
+		final int b = faces[offset + 1] * 3;
+		final int c = faces[offset + 2] * 3;
+		final float abx = vertices[b] - vertices[a];
+		final float aby = vertices[b + 1] - vertices[a + 1];
+		final float abz = vertices[b + 2] - vertices[a + 2];
+		final float acx = vertices[c] - vertices[a];
+		final float acy = vertices[c + 1] - vertices[a + 1];
+		final float acz = vertices[c + 2] - vertices[a + 2];
+		final float nx = (aby * acz) - (abz * acy);
+		final float ny = (abz * acx) - (abx * acz);
+		final float nz = (abx * acy) - (aby * acx);
+		final float length = (float) Math.sqrt((nx * nx) + (ny * ny) + (nz * nz));
+		if (length == 0) {
+			return;
+		}
+		faceNormals[offset] = nx / length;
+		faceNormals[offset + 1] = ny / length;
+		faceNormals[offset + 2] = nz / length;
+		if (this.weighting == Weighting.AREA) {
+			cornerWeights[offset] = length;
+			cornerWeights[offset + 1] = length;
+			cornerWeights[offset + 2] = length;
+		}
+		else {
+			final float bcx = vertices[c] - vertices[b];
+			final float bcy = vertices[c + 1] - vertices[b + 1];
+			final float bcz = vertices[c + 2] - vertices[b + 2];
+			// Every corner angle has the doubled area as the length of its cross product.
+			cornerWeights[offset] = angle(length, (abx * acx) + (aby * acy) + (abz * acz));
+			cornerWeights[offset + 1] = angle(length, -((abx * bcx) + (aby * bcy) + (abz * bcz)));
+			cornerWeights[offset + 2] = angle(length, (acx * bcx) + (acy * bcy) + (acz * bcz));
+		}
+	}
+
+	/**
+	 * atan2 with a polynomial for the arctangent, within 1e-5 radians. Plenty
+	 * for weights, and several times faster than Math.atan2, which otherwise
+	 * takes most of the first pass.
+	 */
+	static float angle(final float crossLength, final float dot) {
+		final float absDot = Math.abs(dot);
+		if ((crossLength == 0) && (absDot == 0)) {
+			return 0;
+		}
+		final boolean steep = crossLength > absDot;
+		final float x = steep ? (absDot / crossLength) : (crossLength / absDot);
+		final float x2 = x * x;
+		float angle = x * (0.99997726f + (x2 * (-0.33262347f
+				+ (x2 * (0.19354346f + (x2 * (-0.11643287f + (x2 * (0.05265332f + (x2 * -0.01172120f))))))))));
+		if (steep) {
+			angle = (float) (Math.PI / 2) - angle;
+		}
+		if (dot < 0) {
+			angle = (float) Math.PI - angle;
+		}
+		return angle;
+	}
+
+	/**
+	 * Sums the weighted normals of the faces of corners[start, end) into out,
+	 * normalized, or (0, 0, 1) if they cancel out. With a reference normal,
+	 * only faces within the crease angle of it count.
+	 */
+	private void sum(final float[] faceNormals, final float[] cornerWeights, final int[] corners, final int start,
+			final int end, final float[] reference, final int referenceOffset, final float[] out,
+			final int outOffset) {
+		float x = 0;
+		float y = 0;
+		float z = 0;
+		for (int i = start; i < end; i++) {
+			final int corner = corners[i];
+			final int face = (corner / 3) * 3;
+			if ((reference != null)
+					&& (dot(reference, referenceOffset, faceNormals, face) < this.creaseCosine)) {
+				continue;
+			}
+			final float weight = cornerWeights[corner];
+			x += faceNormals[face] * weight;
+			y += faceNormals[face + 1] * weight;
+			z += faceNormals[face + 2] * weight;
+		}
+		final float length = (float) Math.sqrt((x * x) + (y * y) + (z * z));
+		if (length > 0) {
+			out[outOffset] = x / length;
+			out[outOffset + 1] = y / length;
+			out[outOffset + 2] = z / length;
+		}
+		else {
+			out[outOffset] = 0;
+			out[outOffset + 1] = 0;
+			out[outOffset + 2] = 1;
+		}
+	}
+
+	private static float dot(final float[] a, final int aOffset, final float[] b, final int bOffset) {
+		return (a[aOffset] * b[bOffset]) + (a[aOffset + 1] * b[bOffset + 1]) + (a[aOffset + 2] * b[bOffset + 2]);
+	}
+
+	private static boolean onlyTriangles(final Geoset geoset, final int faceCount) {
+		final int[] types = geoset.getCompactFaceTypeGroups();
+		final int[] groups = geoset.getCompactFaceGroups();
+		if ((types == null) || (groups == null)) {
+			return false;
+		}
+		long grouped = 0;
+		for (int i = 0; i < groups.length; i++) {
+			if ((i >= types.length) || (types[i] != TRIANGLES)) {
+				return false;
+			}
+			grouped += Integer.toUnsignedLong(groups[i]);
+		}
+		return (grouped == faceCount) && ((faceCount % 3) == 0);
+	}
+
+	private interface RangeConsumer {
+		void accept(int start, int end);
+	}
+
+	/**
+	 * Runs the consumer over [0, count) in parallel, in chunks.
+	 */
+	private static void forEachChunk(final int count, final RangeConsumer consumer) {
+		final int chunks = (count + CHUNK - 1) / CHUNK;
+		if (chunks <= 1) {
+			consumer.accept(0, count);
+			return;
+		}
+		IntStream.range(0, chunks).parallel()
+				.forEach(chunk -> consumer.accept(chunk * CHUNK, Math.min(count, (chunk + 1) * CHUNK)));
+	}
+}
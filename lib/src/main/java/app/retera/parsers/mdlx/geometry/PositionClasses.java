@@ -0,0 +1,58 @@
+package app.retera.parsers.mdlx.geometry;
+
+import java.util.Arrays;
+
+/**
+ * Groups the vertices of a geoset that sit at exactly the same position, like
+ * the copies made for UV seams and hard edges. 0 and -0 are the same.
+ */
+final class PositionClasses {
+	private PositionClasses() {
+	}
+
+	/**
+	 * For every vertex, the first vertex with exactly the same position.
+	 */
+	static int[] of(final float[] vertices, final int vertexCount) {
+		final long[] keys = new long[vertexCount];
+		for (int vertex = 0; vertex < vertexCount; vertex++) {
+			int hash = 1;
+			for (int axis = 0; axis < 3; axis++) {
+				hash = (hash * 31) + Float.floatToIntBits(vertices[(vertex * 3) + axis] + 0.0f);
+			}
+			keys[vertex] = ((long) hash << 32) | vertex;
+		}
+		Arrays.sort(keys);
+
+		final int[] positions = new int[vertexCount];
+		Arrays.fill(positions, -1);
+		for (int start = 0; start < vertexCount;) {
+			int end = start + 1;
+			while ((end < vertexCount) && ((keys[end] >>> 32) == (keys[start] >>> 32))) {
+				end++;
+			}
+			// Vertices are sorted by index within a run, so the first of a position is seen first.
+			for (int i = start; i < end; i++) {
+				final int vertex = (int) keys[i];
+				if (positions[vertex] >= 0) {
+					continue;
+				}
+				positions[vertex] = vertex;
+				for (int j = i + 1; j < end; j++) {
+					final int other = (int) keys[j];
+					if ((positions[other] < 0) && samePosition(vertices, vertex, other)) {
+						positions[other] = vertex;
+					}
+				}
+			}
+			start = end;
+		}
+		return positions;
+	}
+
+	private static boolean samePosition(final float[] vertices, final int a, final int b) {
+		return ((vertices[a * 3] + 0.0f) == (vertices[b * 3] + 0.0f))
+				&& ((vertices[(a * 3) + 1] + 0.0f) == (vertices[(b * 3) + 1] + 0.0f))
+				&& ((vertices[(a * 3) + 2] + 0.0f) == (vertices[(b * 3) + 2] + 0.0f));
+	}
+}
@@ -0,0 +1,103 @@
+package app.retera.parsers.mdlx.geometry;
+
+/**
+ * Plain loops, written so that C2 can unroll them and keep the running values
+ * in registers.
+ */
+final class ScalarGeosetKernels extends GeosetKernels {
+	@Override
+	public boolean isVectorized() {
+		return false;
+	}
+
+	@Override
+	public void extent(final float[] vertices, final int count, final float[] min, final float[] max) {
+		if (count == 0) {
+			for (int i = 0; i < 3; i++) {
+				min[i] = 0;
+				max[i] = 0;
+			}
+			return;
+		}
+		float minX = Float.POSITIVE_INFINITY;
+		float minY = Float.POSITIVE_INFINITY;
+		float minZ = Float.POSITIVE_INFINITY;
+		float maxX = Float.NEGATIVE_INFINITY;
+		float maxY = Float.NEGATIVE_INFINITY;
+		float maxZ = Float.NEGATIVE_INFINITY;
+		for (int i = 0, end = count * 3; i < end; i += 3) {
+			minX = Math.min(minX, vertices[i]);
+			minY = Math.min(minY, vertices[i + 1]);
+			minZ = Math.min(minZ, vertices[i + 2]);
+			maxX = Math.max(maxX, vertices[i]);
+			maxY = Math.max(maxY, vertices[i + 1]);
+			maxZ = Math.max(maxZ, vertices[i + 2]);
+		}
+		min[0] = minX;
+		min[1] = minY;
+		min[2] = minZ;
+		max[0] = maxX;
+		max[1] = maxY;
+		max[2] = maxZ;
+	}
+
+	@Override
+	public float boundsRadius(final float[] vertices, final int count, final float[] center) {
+		final float cx = center[0];
+		final float cy = center[1];
+		final float cz = center[2];
+		float max = 0;
+		for (int i = 0, end = count * 3; i < end; i += 3) {
+			final float dx = vertices[i] - cx;
+			final float dy = vertices[i + 1] - cy;
+			final float dz = vertices[i + 2] - cz;
+			max = Math.max(max, (dx * dx) + (dy * dy) + (dz * dz));
+		}
+		return (float) Math.sqrt(max);
+	}
+
+	@Override
+	public void normalize(final float[] normals, final int count) {
+		for (int i = 0, end = count * 3; i < end; i += 3) {
+			final float x = normals[i];
+			final float y = normals[i + 1];
+			final float z = normals[i + 2];
+			final float length = (x * x) + (y * y) + (z * z);
+			if (length > 0) {
+				final float inverse = (float) (1 / Math.sqrt(length));
+				normals[i] = x * inverse;
+				normals[i + 1] = y * inverse;
+				normals[i + 2] = z * inverse;
+			}
+		}
+	}
+
+	@Override
+	public void skin(final float[] vertices, final byte[] vertexGroups, final float[] groupMatrices,
+			final float[] out, final int count) {
+		transform(vertices, vertexGroups, groupMatrices, out, count, 1);
+	}
+
+	@Override
+	public void skinNormals(final float[] normals, final byte[] vertexGroups, final float[] groupMatrices,
+			final float[] out, final int count) {
+		transform(normals, vertexGroups, groupMatrices, out, count, 0);
+	}
+
+	private static void transform(final float[] in, final byte[] vertexGroups, final float[] groupMatrices,
+			final float[] out, final int count, final float w) {
+		for (int vertex = 0; vertex < count; vertex++) {
+			final int i = vertex * 3;
+			final int m = (vertexGroups[vertex] & 0xFF) * 16;
+			final float x = in[i];
+			final float y = in[i + 1];
+			final float z = in[i + 2];
+			out[i] = (groupMatrices[m] * x) + (groupMatrices[m + 4] * y) + (groupMatrices[m + 8] * z)
+					+ (groupMatrices[m + 12] * w);
+			out[i + 1] = (groupMatrices[m + 1] * x) + (groupMatrices[m + 5] * y) + (groupMatrices[m + 9] * z)
+					+ (groupMatrices[m + 13] * w);
+			out[i + 2] = (groupMatrices[m + 2] * x) + (groupMatrices[m + 6] * y) + (groupMatrices[m + 10] * z)
+					+ (groupMatrices[m + 14] * w);
+		}
+	}
+}
@@ -0,0 +1,365 @@
+package app.retera.parsers.mdlx.geometry;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import app.retera.parsers.mdlx.Geoset;
+import app.retera.parsers.mdlx.MdlxModel;
+
+/**
+ * Reorders the triangles of geosets for the post transform vertex cache, with
+ * Tom Forsyth's linear speed algorithm, and then the vertices in the order the
+ * triangles first use them, so vertex fetches walk memory forwards.
+ *
+ * Only face groups of triangles (face type 4) are reordered, each within its
+ * own range. Vertices, normals, UV sets and vertex groups are remapped
+ * together, and vertices that no face uses keep their relative order after the
+ * used ones.
+ *
+ * The average cache miss ratio (ACMR, vertex transforms per triangle) is
+ * measured before and after with a FIFO cache, see
+ * {@link #acmr(char[], int, int, int)}.
+ */
+public final class VertexCacheOptimizer {
+	public static final int TRIANGLES = 4;
+	public static final int DEFAULT_CACHE_SIZE = 32;
+	/**
+	 * The cache size ACMR is measured with, typical of GPUs.
+	 */
+	public static final int MEASURED_CACHE_SIZE = 16;
+
+	private static final float CACHE_DECAY_POWER = 1.5f;
+	private static final float LAST_TRIANGLE_SCORE = 0.75f;
+	private static final float VALENCE_BOOST_SCALE = 2.0f;
+	private static final float VALENCE_BOOST_POWER = 0.5f;
+
+	private final int cacheSize;
+	private final float[] cachePositionScores;
+
+	public VertexCacheOptimizer() {
+		this(DEFAULT_CACHE_SIZE);
+	}
+
+	/**
+	 * @param cacheSize The size of the LRU cache the scoring models, at least 4.
+	 */
+	public VertexCacheOptimizer(final int cacheSize) {
+		if (cacheSize < 4) {
+			throw new IllegalArgumentException("Cache size must be at least 4: " + cacheSize);
+		}
+		this.cacheSize = cacheSize;
+		this.cachePositionScores = new float[cacheSize];
+		for (int i = 0; i < cacheSize; i++) {
+			if (i < 3) {
+				this.cachePositionScores[i] = LAST_TRIANGLE_SCORE;
+			}
+			else {
+				final float scale = 1.0f / (cacheSize - 3);
+				this.cachePositionScores[i] = (float) Math.pow(1.0f - ((i - 3) * scale), CACHE_DECAY_POWER);
+			}
+		}
+	}
+
+	/**
+	 * The ACMR of one geoset before and after optimizing it.
+	 */
+	public static final class Result {
+		private final int triangleCount;
+		private final float acmrBefore;
+		private final float acmrAfter;
+
+		Result(final int triangleCount, final float acmrBefore, final float acmrAfter) {
+			this.triangleCount = triangleCount;
+			this.acmrBefore = acmrBefore;
+			this.acmrAfter = acmrAfter;
+		}
+
+		public int getTriangleCount() {
+			return this.triangleCount;
+		}
+
+		public float getAcmrBefore() {
+			return this.acmrBefore;
+		}
+
+		public float getAcmrAfter() {
+			return this.acmrAfter;
+		}
+
+		@Override
+		public String toString() {
+			return this.triangleCount + " triangles, ACMR " + this.acmrBefore + " -> " + this.acmrAfter;
+		}
+	}
+
+	/**
+	 * Optimizes every geoset of the model, in parallel.
+	 *
+	 * @return One result per geoset, in geoset order.
+	 */
+	public List<Result> optimize(final MdlxModel model) {
+		return model.getGeosets().parallelStream().map(this::optimize).collect(Collectors.toList());
+	}
+
+	public Result optimize(final Geoset geoset) {
+		final char[] faces = geoset.getCompactFaces();
+		final float[] vertices = geoset.getVertices();
+		if ((faces == null) || (vertices == null)) {
+			return new Result(0, 0, 0);
+		}
+		final int vertexCount = vertices.length / 3;
+		for (final char index : faces) {
+			if (index >= vertexCount) {
+				// Broken geoset, leave it as it is.
+				final int triangles = triangleCount(geoset);
+				final float acmr = acmr(geoset);
+				return new Result(triangles, acmr, acmr);
+			}
+		}
+
+		final float before = acmr(geoset);
+		final char[] reordered = faces.clone();
+		forEachTriangleGroup(geoset,
+				(start, end) -> this.reorderTriangles(faces, reordered, start, end, vertexCount));
+		remapVertices(geoset, reordered, vertexCount);
+		return new Result(triangleCount(geoset), before, acmr(geoset));
+	}
+
+	/**
+	 * Writes the triangles of faces[start, end) to the same range of out, in
+	 * cache friendly order.
+	 */
+	private void reorderTriangles(final char[] faces, final char[] out, final int start, final int end,
+			final int vertexCount) {
+		final int triangleCount = (end - start) / 3;
+		if (triangleCount < 2) {
+			return;
+		}
+
+		// Triangles of every vertex, in compressed rows.
+		final int[] remaining = new int[vertexCount];
+		for (int i = start; i < (start + (triangleCount * 3)); i++) {
+			remaining[faces[i]]++;
+		}
+		final int[] firstTriangle = new int[vertexCount + 1];
+		for (int vertex = 0; vertex < vertexCount; vertex++) {
+			firstTriangle[vertex + 1] = firstTriangle[vertex] + remaining[vertex];
+		}
+		final int[] triangles = new int[triangleCount * 3];
+		final int[] fill = Arrays.copyOf(firstTriangle, vertexCount);
+		for (int triangle = 0; triangle < triangleCount; triangle++) {
+			for (int corner = 0; corner < 3; corner++) {
+				final int vertex = faces[start + (triangle * 3) + corner];
+				triangles[fill[vertex]++] = triangle;
+			}
+		}
+
+		final float[] vertexScores = new float[vertexCount];
+		for (int vertex = 0; vertex < vertexCount; vertex++) {
+			vertexScores[vertex] = this.vertexScore(-1, remaining[vertex]);
+		}
+		final float[] triangleScores = new float[triangleCount];
+		final boolean[] added = new boolean[triangleCount];
+		for (int triangle = 0; triangle < triangleCount; triangle++) {
+			triangleScores[triangle] = triangleScore(faces, start, triangle, vertexScores);
+		}
+
+		// One extra slot for the vertices pushed out by each new triangle.
+		final int[] cache = new int[this.cacheSize + 3];
+		final int[] newCache = new int[this.cacheSize + 3];
+		int cacheCount = 0;
+		int output = start;
+		int scanCursor = 0;
+		int best = bestTriangle(triangleScores);
+
+		for (int emitted = 0; emitted < triangleCount; emitted++) {
+			if (best < 0) {
+				// Nothing in the cache has triangles left, start over at the next unused one.
+				while (added[scanCursor]) {
+					scanCursor++;
+				}
+				best = scanCursor;
+			}
+			added[best] = true;
+
+			// Emit it, put its vertices at the front of the cache and drop it from their lists.
+			int newCount = 0;
+			for (int corner = 0; corner < 3; corner++) {
+				final int vertex = faces[start + (best * 3) + corner];
+				out[output++] = (char) vertex;
+				newCache[newCount++] = vertex;
+				remaining[vertex]--;
+				for (int i = firstTriangle[vertex]; i < (firstTriangle[vertex] + remaining[vertex] + 1); i++) {
+					if (triangles[i] == best) {
+						triangles[i] = triangles[firstTriangle[vertex] + remaining[vertex]];
+						break;
+					}
+				}
+			}
+			for (int i = 0; i < cacheCount; i++) {
+				final int vertex = cache[i];
+				if ((vertex != newCache[0]) && (vertex != newCache[1]) && (vertex != newCache[2])) {
+					newCache[newCount++] = vertex;
+				}
+			}
+			System.arraycopy(newCache, 0, cache, 0, newCount);
+			cacheCount = newCount;
+
+			// Rescore the vertices that moved in or out of the cache, and their triangles.
+			for (int i = 0; i < cacheCount; i++) {
+				final int vertex = cache[i];
+				final int position = (i < this.cacheSize) ? i : -1;
+				final float score = this.vertexScore(position, remaining[vertex]);
+				final float change = score - vertexScores[vertex];
+				vertexScores[vertex] = score;
+				for (int t = firstTriangle[vertex]; t < (firstTriangle[vertex] + remaining[vertex]); t++) {
+					triangleScores[triangles[t]] += change;
+				}
+			}
+			// A triangle may share several of those vertices, so only pick the next
+			// one once all of their changes are in.
+			best = -1;
+			float bestScore = -1;
+			for (int i = 0; i < cacheCount; i++) {
+				final int vertex = cache[i];
+				for (int t = firstTriangle[vertex]; t < (firstTriangle[vertex] + remaining[vertex]); t++) {
+					final int triangle = triangles[t];
+					if (triangleScores[triangle] > bestScore) {
+						bestScore = triangleScores[triangle];
+						best = triangle;
+					}
+				}
+			}
+			cacheCount = Math.min(cacheCount, this.cacheSize);
+		}
+	}
+
+	private float vertexScore(final int cachePosition, final int remainingTriangles) {
+		if (remainingTriangles == 0) {
+			return -1;
+		}
+		float score = (cachePosition < 0) ? 0 : this.cachePositionScores[cachePosition];
+		score += VALENCE_BOOST_SCALE * (float) Math.pow(remainingTriangles, -VALENCE_BOOST_POWER);
+		return score;
+	}
+
+	private static float triangleScore(final char[] faces, final int start, final int triangle,
+			final float[] vertexScores) {
+		final int offset = start + (triangle * 3);
+		return vertexScores[faces[offset]] + vertexScores[faces[offset + 1]] + vertexScores[faces[offset + 2]];
+	}
+
+	private static int bestTriangle(final float[] triangleScores) {
+		int best = 0;
+		for (int triangle = 1; triangle < triangleScores.length; triangle++) {
+			if (triangleScores[triangle] > triangleScores[best]) {
+				best = triangle;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Renumbers vertices in order of first use and reorders all per vertex
+	 * arrays to match.
+	 */
+	private static void remapVertices(final Geoset geoset, final char[] faces, final int vertexCount) {
+		final int[] newIndex = new int[vertexCount];
+		final int[] sources = new int[vertexCount];
+		Arrays.fill(newIndex, -1);
+		int next = 0;
+		for (final char vertex : faces) {
+			if (newIndex[vertex] < 0) {
+				sources[next] = vertex;
+				newIndex[vertex] = next++;
+			}
+		}
+		for (int vertex = 0; vertex < vertexCount; vertex++) {
+			if (newIndex[vertex] < 0) {
+				sources[next] = vertex;
+				newIndex[vertex] = next++;
+			}
+		}
+		VertexRemapper.apply(geoset, sources, newIndex, faces);
+	}
+
+	/**
+	 * The average cache miss ratio of all triangle face groups of the geoset,
+	 * with a FIFO cache of {@link #MEASURED_CACHE_SIZE} entries.
+	 */
+	public static float acmr(final Geoset geoset) {
+		final char[] faces = geoset.getCompactFaces();
+		if (faces == null) {
+			return 0;
+		}
+		final int[] totals = new int[2];
+		forEachTriangleGroup(geoset, (start, end) -> {
+			totals[0] += misses(faces, start, end, MEASURED_CACHE_SIZE);
+			totals[1] += (end - start) / 3;
+		});
+		return (totals[1] == 0) ? 0 : (float) totals[0] / totals[1];
+	}
+
+	/**
+	 * The average cache miss ratio of the triangles in faces[start, end), with a
+	 * FIFO cache.
+	 */
+	public static float acmr(final char[] faces, final int start, final int end, final int cacheSize) {
+		final int triangles = (end - start) / 3;
+		return (triangles == 0) ? 0 : (float) misses(faces, start, end, cacheSize) / triangles;
+	}
+
+	private static int misses(final char[] faces, final int start, final int end, final int cacheSize) {
+		final int[] cache = new int[cacheSize];
+		Arrays.fill(cache, -1);
+		int head = 0;
+		int misses = 0;
+		for (int i = start; i < end; i++) {
+			final int vertex = faces[i];
+			boolean hit = false;
+			for (final int cached : cache) {
+				if (cached == vertex) {
+					hit = true;
+					break;
+				}
+			}
+			if (!hit) {
+				cache[head] = vertex;
+				head = (head + 1) % cacheSize;
+				misses++;
+			}
+		}
+		return misses;
+	}
+
+	private static int triangleCount(final Geoset geoset) {
+		final int[] count = new int[1];
+		forEachTriangleGroup(geoset, (start, end) -> count[0] += (end - start) / 3);
+		return count[0];
+	}
+
+	private interface GroupConsumer {
+		void accept(int start, int end);
+	}
+
+	/**
+	 * Calls back with the face index range of every triangle face group.
+	 */
+	private static void forEachTriangleGroup(final Geoset geoset, final GroupConsumer consumer) {
+		final int[] types = geoset.getCompactFaceTypeGroups();
+		final int[] groups = geoset.getCompactFaceGroups();
+		final char[] faces = geoset.getCompactFaces();
+		if ((types == null) || (groups == null) || (faces == null)) {
+			return;
+		}
+		int start = 0;
+		for (int i = 0; (i < groups.length) && (start < faces.length); i++) {
+			final int end = (int) Math.min(faces.length, start + Integer.toUnsignedLong(groups[i]));
+			if ((i < types.length) && (types[i] == TRIANGLES)) {
+				consumer.accept(start, start + (((end - start) / 3) * 3));
+			}
+			start = end;
+		}
+	}
+}
@@ -0,0 +1,72 @@
+package app.retera.parsers.mdlx.geometry;
+
+import app.retera.parsers.mdlx.Geoset;
+
+/**
+ * Moves the per vertex arrays of a geoset to new vertex numbers, for passes
+ * that reorder, merge or split vertices.
+ */
+final class VertexRemapper {
+	private VertexRemapper() {
+	}
+
+	/**
+	 * Rebuilds vertices, normals, UV sets and vertex groups from the given
+	 * source vertices, and renumbers the faces. Arrays that do not hold exactly
+	 * one entry per vertex are left alone.
+	 *
+	 * @param sources  For every new vertex, the old vertex its data is taken
+	 *                 from.
+	 * @param newIndex For every old vertex, the new vertex faces should use
+	 *                 instead.
+	 * @param faces    The faces to renumber, which become the faces of the
+	 *                 geoset.
+	 */
+	static void apply(final Geoset geoset, final int[] sources, final int[] newIndex, final char[] faces) {
+		for (int i = 0; i < faces.length; i++) {
+			faces[i] = (char) newIndex[faces[i]];
+		}
+		geoset.setCompactFaces(faces);
+		gather(geoset, sources, newIndex.length);
+	}
+
+	/**
+	 * Rebuilds vertices, normals, UV sets and vertex groups from the given
+	 * source vertices, without touching the faces.
+	 *
+	 * @param sources     For every new vertex, the old vertex its data is taken
+	 *                    from.
+	 * @param vertexCount The number of vertices before.
+	 */
+	static void gather(final Geoset geoset, final int[] sources, final int vertexCount) {
+		geoset.setVertices(gather(geoset.getVertices(), 3, sources, vertexCount));
+		geoset.setNormals(gather(geoset.getNormals(), 3, sources, vertexCount));
+		final float[][] uvSets = geoset.getUvSets();
+		if (uvSets != null) {
+			final float[][] gathered = new float[uvSets.length][];
+			for (int i = 0; i < uvSets.length; i++) {
+				gathered[i] = gather(uvSets[i], 2, sources, vertexCount);
+			}
+			geoset.setUvSets(gathered);
+		}
+		final byte[] vertexGroups = geoset.getCompactVertexGroups();
+		if ((vertexGroups != null) && (vertexGroups.length == vertexCount)) {
+			final byte[] gathered = new byte[sources.length];
+			for (int vertex = 0; vertex < sources.length; vertex++) {
+				gathered[vertex] = vertexGroups[sources[vertex]];
+			}
+			geoset.setCompactVertexGroups(gathered);
+		}
+	}
+
+	private static float[] gather(final float[] values, final int size, final int[] sources, final int vertexCount) {
+		if ((values == null) || (values.length != (vertexCount * size))) {
+			return values;
+		}
+		final float[] gathered = new float[sources.length * size];
+		for (int vertex = 0; vertex < sources.length; vertex++) {
+			System.arraycopy(values, sources[vertex] * size, gathered, vertex * size, size);
+		}
+		return gathered;
+	}
+}
@@ -0,0 +1,238 @@
+package app.retera.parsers.mdlx.geometry;
+
+import java.util.Arrays;
+
+import app.retera.parsers.mdlx.Geoset;
+import app.retera.parsers.mdlx.MdlxModel;
+
+/**
+ * Merges vertices of a geoset that have the same position, normal, UVs and
+ * vertex group, within tolerances, and points the faces at the survivors.
+ *
+ * Every vertex is compared against the vertices kept so far in the grid cells
+ * around its position, so a merged vertex is always within the tolerances of
+ * the one it was merged into, and the first of a run of duplicates is the one
+ * kept. Cells are twice the position tolerance wide, so at most 8 cells need to
+ * be checked. They live in an open addressing table of primitive arrays, with
+ * the vertices of a cell chained through an int array.
+ *
+ * With a position tolerance of zero only bit identical positions merge (with
+ * 0 and -0 the same).
+ */
+public final class VertexWelder {
+	public static final float DEFAULT_POSITION_EPSILON = 0.0001f;
+	public static final float DEFAULT_NORMAL_EPSILON = 0.001f;
+	public static final float DEFAULT_UV_EPSILON = 0.0001f;
+
+	private final float positionEpsilon;
+	private final float normalEpsilon;
+	private final float uvEpsilon;
+
+	public VertexWelder() {
+		this(DEFAULT_POSITION_EPSILON, DEFAULT_NORMAL_EPSILON, DEFAULT_UV_EPSILON);
+	}
+
+	/**
+	 * All tolerances are the largest difference allowed in any one component.
+	 */
+	public VertexWelder(final float positionEpsilon, final float normalEpsilon, final float uvEpsilon) {
+		if (!(positionEpsilon >= 0) || !(normalEpsilon >= 0) || !(uvEpsilon >= 0)) {
+			throw new IllegalArgumentException("Tolerances must not be negative");
+		}
+		this.positionEpsilon = positionEpsilon;
+		this.normalEpsilon = normalEpsilon;
+		this.uvEpsilon = uvEpsilon;
+	}
+
+	/**
+	 * Welds every geoset of the model, in parallel.
+	 *
+	 * @return The number of vertices removed.
+	 */
+	public long weld(final MdlxModel model) {
+		return model.getGeosets().parallelStream().mapToLong(this::weld).sum();
+	}
+
+	/**
+	 * @return The number of vertices removed.
+	 */
+	public int weld(final Geoset geoset) {
+		final float[] vertices = geoset.getVertices();
+		final char[] faces = geoset.getCompactFaces();
+		if ((vertices == null) || (faces == null)) {
+			return 0;
+		}
+		final int vertexCount = vertices.length / 3;
+		for (final char index : faces) {
+			if (index >= vertexCount) {
+				// Broken geoset, leave it as it is.
+				return 0;
+			}
+		}
+		final float[] normals = matching(geoset.getNormals(), vertexCount * 3);
+		final float[][] uvSets = geoset.getUvSets();
+		final byte[] groups = geoset.getCompactVertexGroups();
+		final boolean hasGroups = (groups != null) && (groups.length == vertexCount);
+
+		final CellTable cells = new CellTable(vertexCount);
+		final int[] next = new int[vertexCount];
+		final int[] newIndex = new int[vertexCount];
+		final int[] sources = new int[vertexCount];
+		final int[] cell = new int[3];
+		final boolean[] high = new boolean[3];
+		final float cellSize = this.positionEpsilon * 2;
+		int kept = 0;
+
+		for (int vertex = 0; vertex < vertexCount; vertex++) {
+			for (int axis = 0; axis < 3; axis++) {
+				final float value = vertices[(vertex * 3) + axis];
+				if (cellSize > 0) {
+					final double scaled = value / (double) cellSize;
+					final double floor = Math.floor(scaled);
+					cell[axis] = (int) floor;
+					high[axis] = (scaled - floor) >= 0.5;
+				}
+				else {
+					cell[axis] = Float.floatToIntBits(value + 0.0f);
+				}
+			}
+
+			int match = -1;
+			final int neighbours = (cellSize > 0) ? 8 : 1;
+			for (int n = 0; (n < neighbours) && (match < 0); n++) {
+				final int x = cell[0] + offset(n, 0, high);
+				final int y = cell[1] + offset(n, 1, high);
+				final int z = cell[2] + offset(n, 2, high);
+				for (int other = cells.get(x, y, z); other >= 0; other = next[other]) {
+					if (this.matches(vertex, other, vertices, normals, uvSets, hasGroups ? groups : null)) {
+						match = other;
+						break;
+					}
+				}
+			}
+
+			if (match >= 0) {
+				newIndex[vertex] = newIndex[match];
+			}
+			else {
+				next[vertex] = cells.put(cell[0], cell[1], cell[2], vertex);
+				sources[kept] = vertex;
+				newIndex[vertex] = kept++;
+			}
+		}
+
+		if (kept == vertexCount) {
+			return 0;
+		}
+		VertexRemapper.apply(geoset, Arrays.copyOf(sources, kept), newIndex, faces.clone());
+		return vertexCount - kept;
+	}
+
+	/**
+	 * The neighbour cell offset on one axis: bit n of the neighbour number picks
+	 * the cell itself or the one on the nearer side.
+	 */
+	private static int offset(final int neighbour, final int axis, final boolean[] high) {
+		if ((neighbour & (1 << axis)) == 0) {
+			return 0;
+		}
+		return high[axis] ? 1 : -1;
+	}
+
+	private boolean matches(final int a, final int b, final float[] vertices, final float[] normals,
+			final float[][] uvSets, final byte[] groups) {
+		if ((groups != null) && (groups[a] != groups[b])) {
+			return false;
+		}
+		if (!close(vertices, a, b, 3, this.positionEpsilon)) {
+			return false;
+		}
+		if ((normals != null) && !close(normals, a, b, 3, this.normalEpsilon)) {
+			return false;
+		}
+		if (uvSets != null) {
+			for (final float[] uvs : uvSets) {
+				if ((uvs != null) && (uvs.length == ((vertices.length / 3) * 2)) && !close(uvs, a, b, 2,
+						this.uvEpsilon)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static boolean close(final float[] values, final int a, final int b, final int size,
+			final float epsilon) {
+		for (int i = 0; i < size; i++) {
+			if (!(Math.abs(values[(a * size) + i] - values[(b * size) + i]) <= epsilon)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static float[] matching(final float[] values, final int length) {
+		return ((values != null) && (values.length == length)) ? values : null;
+	}
+
+	/**
+	 * Maps grid cells to the last vertex kept in them, with linear probing.
+	 */
+	private static final class CellTable {
+		private final int[] xs;
+		private final int[] ys;
+		private final int[] zs;
+		private final int[] heads;
+		private final int mask;
+
+		private CellTable(final int vertexCount) {
+			final int capacity = Integer.highestOneBit(Math.max(16, vertexCount * 2) - 1) << 1;
+			this.xs = new int[capacity];
+			this.ys = new int[capacity];
+			this.zs = new int[capacity];
+			this.heads = new int[capacity];
+			Arrays.fill(this.heads, -1);
+			this.mask = capacity - 1;
+		}
+
+		/**
+		 * @return The last vertex kept in the cell, or -1.
+		 */
+		private int get(final int x, final int y, final int z) {
+			for (int slot = hash(x, y, z) & this.mask; this.heads[slot] >= 0; slot = (slot + 1) & this.mask) {
+				if ((this.xs[slot] == x) && (this.ys[slot] == y) && (this.zs[slot] == z)) {
+					return this.heads[slot];
+				}
+			}
+			return -1;
+		}
+
+		/**
+		 * Makes the vertex the head of the cell.
+		 *
+		 * @return The previous head, or -1.
+		 */
+		private int put(final int x, final int y, final int z, final int vertex) {
+			int slot = hash(x, y, z) & this.mask;
+			while (this.heads[slot] >= 0) {
+				if ((this.xs[slot] == x) && (this.ys[slot] == y) && (this.zs[slot] == z)) {
+					final int previous = this.heads[slot];
+					this.heads[slot] = vertex;
+					return previous;
+				}
+				slot = (slot + 1) & this.mask;
+			}
+			this.xs[slot] = x;
+			this.ys[slot] = y;
+			this.zs[slot] = z;
+			this.heads[slot] = vertex;
+			return -1;
+		}
+
+		private static int hash(final int x, final int y, final int z) {
+			int hash = (x * 0x9E3779B1) ^ (y * 0x85EBCA77) ^ (z * 0xC2B2AE3D);
+			hash *= 0x2C1B3C6D;
+			return hash ^ (hash >>> 16);
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package app.retera.parsers.mdlx.jfr;
+
+import app.retera.parsers.mdlx.Geoset;
+import app.retera.parsers.mdlx.MdlxModel;
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Common fields of the flight recorder events emitted when an {@link MdlxModel}
+ * is loaded or saved. The duration of the event is the time spent inside the
+ * load or save call.
+ */
+@Category({ "MDLX", "Model I/O" })
+@StackTrace(false)
+public abstract class MdlxIoEvent extends Event {
+	public static final String FORMAT_MDX = "MDX";
+	public static final String FORMAT_MDL = "MDL";
+
+	// Protected rather than private: the flight recorder ignores private fields
+	// declared in a superclass of the committed event.
+	@Label("Model Name")
+	protected String modelName;
+
+	@Label("Format Version")
+	protected int version;
+
+	@Label("Format")
+	@Description("MDX for the binary format, MDL for the text format")
+	protected String format;
+
+	@Label("Byte Size")
+	@DataAmount
+	protected long byteSize;
+
+	@Label("Chunk Count")
+	@Description("Top level chunks for MDX, top level blocks for MDL, 0 when the call failed")
+	protected int chunkCount;
+
+	@Label("Failed")
+	@Description("Whether the load or save threw")
+	protected boolean failed;
+
+	@Label("Geoset Vertices")
+	@Description("Total vertex count over all geosets")
+	protected long geosetVertexCount;
+
+	/**
+	 * Fills in the event fields. Only call this after {@link #shouldCommit()}
+	 * returned true, since it walks the geosets of the model. A failed call
+	 * fills in whatever the model held when it threw.
+	 */
+	public void set(final MdlxModel model, final String format, final long byteSize, final int chunkCount,
+			final boolean failed) {
+		this.modelName = model.getName();
+		this.version = model.getVersion();
+		this.format = format;
+		this.byteSize = byteSize;
+		this.chunkCount = chunkCount;
+		this.failed = failed;
+
+		long vertexCount = 0;
+		for (final Geoset geoset : model.getGeosets()) {
+			if (geoset.getVertices() != null) {
+				vertexCount += geoset.getVertices().length / 3;
+			}
+		}
+		this.geosetVertexCount = vertexCount;
+	}
+}
@@ -0,0 +1,9 @@
+package app.retera.parsers.mdlx.jfr;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("app.retera.parsers.mdlx.ModelLoad")
+@Label("MDLX Model Load")
+public class MdlxLoadEvent extends MdlxIoEvent {
+}
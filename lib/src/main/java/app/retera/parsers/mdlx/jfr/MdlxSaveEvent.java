@@ -0,0 +1,9 @@
+package app.retera.parsers.mdlx.jfr;
+
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("app.retera.parsers.mdlx.ModelSave")
+@Label("MDLX Model Save")
+public class MdlxSaveEvent extends MdlxIoEvent {
+}
@@ -20,6 +20,16 @@ public final class FloatArrayTimeline extends Timeline<float[]> {
 		this.arraySize = arraySize;
 	}
 
+	@Override
+	protected Timeline<float[]> newEmpty() {
+		return new FloatArrayTimeline(this.arraySize, getName());
+	}
+
+	@Override
+	protected float[] copyValue(final float[] value) {
+		return value.clone();
+	}
+
 	@Override
 	protected int size() {
 		return this.arraySize;
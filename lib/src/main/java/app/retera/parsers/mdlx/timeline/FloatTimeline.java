@@ -16,6 +16,16 @@ public final class FloatTimeline extends Timeline<float[]> {
 	public FloatTimeline() {
 	}
 
+	@Override
+	protected Timeline<float[]> newEmpty() {
+		return new FloatTimeline(getName());
+	}
+
+	@Override
+	protected float[] copyValue(final float[] value) {
+		return value.clone();
+	}
+
 	@Override
 	protected int size() {
 		return 1;
@@ -0,0 +1,152 @@
+package app.retera.parsers.mdlx.timeline;
+
+import app.retera.parsers.mdlx.AnimationMap;
+import app.retera.parsers.mdlx.InterpolationType;
+import app.retera.util.War3ID;
+
+/**
+ * Evaluates one keyframe segment of a float timeline the way the game does:
+ * step, linear, hermite or bezier, with rotations (KGRT, KTAR) using slerp and
+ * squad instead of component wise interpolation.
+ *
+ * Based on the works of Chananya Freiman.
+ */
+public final class Interpolator {
+	private Interpolator() {
+	}
+
+	/**
+	 * Whether the values of a timeline with this name are quaternions.
+	 */
+	public static boolean isQuaternion(final War3ID name) {
+		return AnimationMap.KGRT.getWar3id().equals(name) || AnimationMap.KTAR.getWar3id().equals(name);
+	}
+
+	/**
+	 * Interpolates from key a to key b.
+	 *
+	 * @param out        Receives the result, may not alias any input.
+	 * @param scratch    At least as long as out, only used for quaternion
+	 *                   hermite and bezier.
+	 * @param outTan     The out tangent of a, ignored unless the type is
+	 *                   tangential.
+	 * @param inTan      The in tangent of b, ignored unless the type is
+	 *                   tangential.
+	 * @param t          The position between a and b, from 0 to 1.
+	 */
+	public static void interpolate(final float[] out, final float[] scratch, final float[] a, final float[] outTan,
+			final float[] inTan, final float[] b, final float t, final InterpolationType type,
+			final boolean quaternion) {
+		switch (type) {
+			case DONT_INTERP -> System.arraycopy(t < 1 ? a : b, 0, out, 0, out.length);
+			case LINEAR -> {
+				if (quaternion) {
+					slerp(out, a, b, t);
+				}
+				else {
+					lerp(out, a, b, t);
+				}
+			}
+			case HERMITE, BEZIER -> {
+				if (quaternion) {
+					// squad
+					slerp(out, a, b, t);
+					slerp(scratch, outTan, inTan, t);
+					final float[] start = out.clone();
+					slerp(out, start, scratch, 2 * t * (1 - t));
+				}
+				else if (type == InterpolationType.HERMITE) {
+					hermite(out, a, outTan, inTan, b, t);
+				}
+				else {
+					bezier(out, a, outTan, inTan, b, t);
+				}
+			}
+		}
+	}
+
+	public static void lerp(final float[] out, final float[] a, final float[] b, final float t) {
+		for (int i = 0; i < out.length; i++) {
+			out[i] = a[i] + ((b[i] - a[i]) * t);
+		}
+	}
+
+	public static void hermite(final float[] out, final float[] a, final float[] outTan, final float[] inTan,
+			final float[] b, final float t) {
+		final float factorTimes2 = t * t;
+		final float factor1 = (factorTimes2 * ((2 * t) - 3)) + 1;
+		final float factor2 = (factorTimes2 * (t - 2)) + t;
+		final float factor3 = factorTimes2 * (t - 1);
+		final float factor4 = factorTimes2 * (3 - (2 * t));
+		for (int i = 0; i < out.length; i++) {
+			out[i] = (a[i] * factor1) + (outTan[i] * factor2) + (inTan[i] * factor3) + (b[i] * factor4);
+		}
+	}
+
+	public static void bezier(final float[] out, final float[] a, final float[] outTan, final float[] inTan,
+			final float[] b, final float t) {
+		final float invt = 1 - t;
+		final float factor1 = invt * invt * invt;
+		final float factor2 = 3 * t * invt * invt;
+		final float factor3 = 3 * t * t * invt;
+		final float factor4 = t * t * t;
+		for (int i = 0; i < out.length; i++) {
+			out[i] = (a[i] * factor1) + (outTan[i] * factor2) + (inTan[i] * factor3) + (b[i] * factor4);
+		}
+	}
+
+	/**
+	 * Spherical interpolation of two (x, y, z, w) quaternions, taking the short
+	 * way around.
+	 */
+	public static void slerp(final float[] out, final float[] a, final float[] b, final float t) {
+		float cosom = (a[0] * b[0]) + (a[1] * b[1]) + (a[2] * b[2]) + (a[3] * b[3]);
+		float sign = 1;
+		if (cosom < 0) {
+			cosom = -cosom;
+			sign = -1;
+		}
+
+		float scale0;
+		float scale1;
+		if ((1 - cosom) > 0.000001f) {
+			final double omega = Math.acos(cosom);
+			final double sinom = Math.sin(omega);
+			scale0 = (float) (Math.sin((1 - t) * omega) / sinom);
+			scale1 = (float) (Math.sin(t * omega) / sinom);
+		}
+		else {
+			scale0 = 1 - t;
+			scale1 = t;
+		}
+		scale1 *= sign;
+
+		for (int i = 0; i < 4; i++) {
+			out[i] = (scale0 * a[i]) + (scale1 * b[i]);
+		}
+	}
+
+	/**
+	 * The angle in radians between two (x, y, z, w) quaternions, which need not be
+	 * normalized. Uses the half angle of the difference rather than acos of the
+	 * dot product, so small angles do not drown in rounding.
+	 */
+	public static float angle(final float[] a, final float[] b) {
+		final double lengthA = Math.sqrt((a[0] * a[0]) + (a[1] * a[1]) + (a[2] * a[2]) + (a[3] * a[3]));
+		final double lengthB = Math.sqrt((b[0] * b[0]) + (b[1] * b[1]) + (b[2] * b[2]) + (b[3] * b[3]));
+		if ((lengthA == 0) || (lengthB == 0)) {
+			return 0;
+		}
+		final double dot = (a[0] * b[0]) + (a[1] * b[1]) + (a[2] * b[2]) + (a[3] * b[3]);
+		final double signA = ((dot < 0) ? -1 : 1) / lengthA;
+		double difference = 0;
+		double sum = 0;
+		for (int i = 0; i < 4; i++) {
+			final double x = a[i] * signA;
+			final double y = b[i] / lengthB;
+			difference += (x - y) * (x - y);
+			sum += (x + y) * (x + y);
+		}
+		return (float) (4 * Math.atan2(Math.sqrt(difference), Math.sqrt(sum)));
+	}
+}
@@ -0,0 +1,340 @@
+package app.retera.parsers.mdlx.timeline;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import app.retera.parsers.mdlx.AnimatedObject;
+import app.retera.parsers.mdlx.InterpolationType;
+import app.retera.parsers.mdlx.MdlxModel;
+import app.retera.parsers.mdlx.Sequence;
+
+/**
+ * Removes keyframes that the remaining keys reproduce within a tolerance, under
+ * the interpolation type of their timeline.
+ *
+ * Keys are only merged within a sequence (or the global sequence of the
+ * timeline), and the first and last key of every sequence are always kept, so
+ * sequence boundaries look exactly as before. Keys that fall outside of every
+ * sequence are left alone.
+ *
+ * A candidate run of keys is replaced by one segment if that segment stays
+ * within the tolerance at every original key, and for hermite and bezier also
+ * in between keys. The error is the largest component difference for
+ * translations, scalings, colors and other floats, and the rotation angle for
+ * quaternions. Integer timelines (texture ids and the like) only lose keys that
+ * repeat the previous value, and only when they do not interpolate.
+ */
+public final class KeyframeReducer {
+	public static final float DEFAULT_POSITION_EPSILON = 0.001f;
+	public static final float DEFAULT_ANGLE_EPSILON = (float) Math.toRadians(0.1);
+
+	/**
+	 * Where a tangential segment is checked, besides the keys themselves.
+	 */
+	private static final float[] CURVE_SAMPLES = { 0.25f, 0.5f, 0.75f };
+
+	private final float positionEpsilon;
+	private final float angleEpsilon;
+
+	public KeyframeReducer() {
+		this(DEFAULT_POSITION_EPSILON, DEFAULT_ANGLE_EPSILON);
+	}
+
+	/**
+	 * @param positionEpsilon The largest difference allowed in any component of
+	 *                        non rotation values.
+	 * @param angleEpsilon    The largest rotation error allowed, in radians.
+	 */
+	public KeyframeReducer(final float positionEpsilon, final float angleEpsilon) {
+		if (!(positionEpsilon >= 0) || !(angleEpsilon >= 0)) {
+			throw new IllegalArgumentException("Tolerances must not be negative");
+		}
+		this.positionEpsilon = positionEpsilon;
+		this.angleEpsilon = angleEpsilon;
+	}
+
+	/**
+	 * Reduces every timeline of the model, in parallel.
+	 *
+	 * @return The number of bytes saved in the MDX file.
+	 */
+	public long reduce(final MdlxModel model) {
+		final long[] sequenceIntervals = sequenceIntervals(model.getSequences());
+		final List<Long> globalSequences = model.getGlobalSequences();
+		final List<Timeline<?>> timelines = new ArrayList<>();
+		for (final AnimatedObject object : model.getAnimatedObjects()) {
+			timelines.addAll(object.getTimelines());
+		}
+
+		return timelines.parallelStream().mapToLong(timeline -> {
+			final int globalSequenceId = timeline.getGlobalSequenceId();
+			if (globalSequenceId < 0) {
+				return this.reduce(timeline, sequenceIntervals);
+			}
+			if (globalSequenceId < globalSequences.size()) {
+				return this.reduce(timeline, new long[] { 0, globalSequences.get(globalSequenceId) });
+			}
+			return 0;
+		}).sum();
+	}
+
+	/**
+	 * Reduces one timeline.
+	 *
+	 * @param intervals Start and end frame pairs of the sequences the timeline
+	 *                  plays in.
+	 * @return The number of bytes saved in the MDX file.
+	 */
+	public long reduce(final Timeline<?> timeline, final long[] intervals) {
+		final long[] frames = timeline.getFrames();
+		if ((frames == null) || (frames.length < 3) || !isSorted(frames)) {
+			return 0;
+		}
+
+		final Object[] values = timeline.getValues();
+		final boolean[] keep;
+		if (values[0] instanceof float[]) {
+			keep = this.selectFloatKeys(timeline, intervals);
+		}
+		else if (timeline.getInterpolationType() == InterpolationType.DONT_INTERP) {
+			keep = selectChangedKeys(timeline, intervals);
+		}
+		else {
+			return 0;
+		}
+
+		final long before = timeline.getByteLength();
+		compact(timeline, keep);
+		return before - timeline.getByteLength();
+	}
+
+	private boolean[] selectFloatKeys(final Timeline<?> timeline, final long[] intervals) {
+		final Run run = new Run(timeline);
+		final boolean[] keep = new boolean[run.frames.length];
+		final boolean[] covered = new boolean[run.frames.length];
+
+		for (int i = 0; i < intervals.length; i += 2) {
+			final int first = lowerBound(run.frames, intervals[i]);
+			final int last = lowerBound(run.frames, intervals[i + 1] + 1) - 1;
+			if (first > last) {
+				continue;
+			}
+			Arrays.fill(covered, first, last + 1, true);
+			keep[first] = true;
+			keep[last] = true;
+
+			int anchor = first;
+			for (int end = first + 2; end <= last; end++) {
+				if (!this.fits(run, anchor, end)) {
+					keep[end - 1] = true;
+					anchor = end - 1;
+				}
+			}
+		}
+
+		for (int i = 0; i < keep.length; i++) {
+			keep[i] |= !covered[i];
+		}
+		return keep;
+	}
+
+	/**
+	 * Whether one segment from the anchor to the end key reproduces all the keys
+	 * in between.
+	 */
+	private boolean fits(final Run run, final int anchor, final int end) {
+		final long[] frames = run.frames;
+		final float span = frames[end] - frames[anchor];
+		final boolean curved = run.type.tangential();
+
+		for (int key = anchor; key < end; key++) {
+			if (key > anchor) {
+				final float t = (frames[key] - frames[anchor]) / span;
+				run.merged(anchor, end, t);
+				if (!this.close(run, run.values[key], run.merged)) {
+					return false;
+				}
+			}
+			if (curved) {
+				for (final float u : CURVE_SAMPLES) {
+					run.original(key, u);
+					final float frame = frames[key] + ((frames[key + 1] - frames[key]) * u);
+					run.merged(anchor, end, (frame - frames[anchor]) / span);
+					if (!this.close(run, run.sample, run.merged)) {
+						return false;
+					}
+				}
+			}
+		}
+		return true;
+	}
+
+	private boolean close(final Run run, final float[] a, final float[] b) {
+		if (run.quaternion) {
+			return Interpolator.angle(a, b) <= this.angleEpsilon;
+		}
+		for (int i = 0; i < a.length; i++) {
+			if (!(Math.abs(a[i] - b[i]) <= this.positionEpsilon)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean[] selectChangedKeys(final Timeline<?> timeline, final long[] intervals) {
+		final long[] frames = timeline.getFrames();
+		final Object[] values = timeline.getValues();
+		final boolean[] keep = new boolean[frames.length];
+		final boolean[] covered = new boolean[frames.length];
+
+		for (int i = 0; i < intervals.length; i += 2) {
+			final int first = lowerBound(frames, intervals[i]);
+			final int last = lowerBound(frames, intervals[i + 1] + 1) - 1;
+			if (first > last) {
+				continue;
+			}
+			Arrays.fill(covered, first, last + 1, true);
+			keep[first] = true;
+			keep[last] = true;
+
+			int previous = first;
+			for (int key = first + 1; key < last; key++) {
+				if (!Arrays.equals((long[]) values[key], (long[]) values[previous])) {
+					keep[key] = true;
+					previous = key;
+				}
+			}
+		}
+
+		for (int i = 0; i < keep.length; i++) {
+			keep[i] |= !covered[i];
+		}
+		return keep;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <TYPE> void compact(final Timeline<TYPE> timeline, final boolean[] keep) {
+		int count = 0;
+		for (final boolean kept : keep) {
+			if (kept) {
+				count++;
+			}
+		}
+		if (count == keep.length) {
+			return;
+		}
+
+		final boolean tangential = timeline.getInterpolationType().tangential();
+		final long[] frames = new long[count];
+		final TYPE[] values = (TYPE[]) new Object[count];
+		final TYPE[] inTans = tangential ? (TYPE[]) new Object[count] : null;
+		final TYPE[] outTans = tangential ? (TYPE[]) new Object[count] : null;
+		int index = 0;
+		for (int i = 0; i < keep.length; i++) {
+			if (keep[i]) {
+				frames[index] = timeline.getFrames()[i];
+				values[index] = timeline.getValues()[i];
+				if (tangential) {
+					inTans[index] = timeline.getInTans()[i];
+					outTans[index] = timeline.getOutTans()[i];
+				}
+				index++;
+			}
+		}
+		timeline.setKeyframes(frames, values, inTans, outTans);
+	}
+
+	private static long[] sequenceIntervals(final List<Sequence> sequences) {
+		final long[] intervals = new long[sequences.size() * 2];
+		for (int i = 0; i < sequences.size(); i++) {
+			final long[] interval = sequences.get(i).getInterval();
+			intervals[i * 2] = interval[0];
+			intervals[(i * 2) + 1] = interval[1];
+		}
+		return intervals;
+	}
+
+	private static boolean isSorted(final long[] frames) {
+		for (int i = 1; i < frames.length; i++) {
+			if (frames[i] < frames[i - 1]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return The index of the first frame that is at least the given frame.
+	 */
+	private static int lowerBound(final long[] frames, final long frame) {
+		int low = 0;
+		int high = frames.length;
+		while (low < high) {
+			final int middle = (low + high) >>> 1;
+			if (frames[middle] < frame) {
+				low = middle + 1;
+			}
+			else {
+				high = middle;
+			}
+		}
+		return low;
+	}
+
+	/**
+	 * The keys of one float timeline, with scratch space for evaluating it.
+	 */
+	private static final class Run {
+		private final long[] frames;
+		private final float[][] values;
+		private final float[][] inTans;
+		private final float[][] outTans;
+		private final InterpolationType type;
+		private final boolean quaternion;
+		private final float[] merged;
+		private final float[] sample;
+		private final float[] scratch;
+
+		private Run(final Timeline<?> timeline) {
+			this.frames = timeline.getFrames();
+			this.values = floats(timeline.getValues());
+			this.type = timeline.getInterpolationType();
+			this.inTans = this.type.tangential() ? floats(timeline.getInTans()) : null;
+			this.outTans = this.type.tangential() ? floats(timeline.getOutTans()) : null;
+			this.quaternion = Interpolator.isQuaternion(timeline.getName());
+			final int size = this.values[0].length;
+			this.merged = new float[size];
+			this.sample = new float[size];
+			this.scratch = new float[size];
+		}
+
+		/**
+		 * Evaluates the segment from a to b into {@link #merged}.
+		 */
+		private void merged(final int a, final int b, final float t) {
+			this.interpolate(this.merged, a, b, t);
+		}
+
+		/**
+		 * Evaluates the original segment starting at the key into {@link #sample}.
+		 */
+		private void original(final int key, final float t) {
+			this.interpolate(this.sample, key, key + 1, t);
+		}
+
+		private void interpolate(final float[] out, final int a, final int b, final float t) {
+			final boolean tangential = this.type.tangential();
+			Interpolator.interpolate(out, this.scratch, this.values[a], tangential ? this.outTans[a] : null,
+					tangential ? this.inTans[b] : null, this.values[b], t, this.type, this.quaternion);
+		}
+
+		private static float[][] floats(final Object[] values) {
+			final float[][] floats = new float[values.length][];
+			for (int i = 0; i < values.length; i++) {
+				floats[i] = (float[]) values[i];
+			}
+			return floats;
+		}
+	}
+}
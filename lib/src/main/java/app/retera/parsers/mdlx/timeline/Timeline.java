@@ -23,17 +23,12 @@ public abstract class Timeline<TYPE> implements Chunk {
 	private TYPE[] inTans;
 	private TYPE[] outTans;
 
-	/**
-	 * Restricts us to only be able to parse models on one thread at a time, in
-	 * return for high performance.
-	 */
-	private static StringBuffer STRING_BUFFER_HEAP = new StringBuffer();
-
 	public War3ID getName() {
 		return this.name;
 	}
 
 	public Timeline(War3ID name) {
+		this.name = name;
 	}
 	public Timeline() {
 	}
@@ -99,7 +94,7 @@ public abstract class Timeline<TYPE> implements Chunk {
 
 		this.interpolationType = interpolationType;
 
-		if (stream.peek().equals(MdlUtils.TOKEN_GLOBAL_SEQ_ID)) {
+		if (MdlUtils.TOKEN_GLOBAL_SEQ_ID.equals(stream.peek())) {
 			stream.read();
 			this.globalSequenceId = stream.readInt();
 		}
@@ -146,10 +141,7 @@ public abstract class Timeline<TYPE> implements Chunk {
 		}
 
 		for (int i = 0; i < tracksCount; i++) {
-			STRING_BUFFER_HEAP.setLength(0);
-			STRING_BUFFER_HEAP.append(this.frames[i]);
-			STRING_BUFFER_HEAP.append(':');
-			this.writeMdlValue(stream, STRING_BUFFER_HEAP.toString(), this.values[i]);
+			this.writeMdlValue(stream, this.frames[i] + ":", this.values[i]);
 			if (this.interpolationType.tangential()) {
 				stream.indent();
 				this.writeMdlValue(stream, "InTan", this.inTans[i]);
@@ -180,6 +172,16 @@ public abstract class Timeline<TYPE> implements Chunk {
 
 	protected abstract int size();
 
+	/**
+	 * @return An empty timeline of the same class and name.
+	 */
+	protected abstract Timeline<TYPE> newEmpty();
+
+	/**
+	 * @return A copy of a keyframe value that shares nothing with it.
+	 */
+	protected abstract TYPE copyValue(TYPE value);
+
 	protected abstract TYPE readMdxValue(LittleEndianDataInputStream stream) throws IOException;
 
 	protected abstract TYPE readMdlValue(MdlTokenInputStream stream);
@@ -211,4 +213,56 @@ public abstract class Timeline<TYPE> implements Chunk {
 	public TYPE[] getOutTans() {
 		return this.outTans;
 	}
+
+	public void setInterpolationType(final InterpolationType interpolationType) {
+		this.interpolationType = interpolationType;
+	}
+
+	public void setGlobalSequenceId(final int globalSequenceId) {
+		this.globalSequenceId = globalSequenceId;
+	}
+
+	/**
+	 * Makes a deep copy of this timeline.
+	 *
+	 * @param shareArrays Whether the copy may share the keyframe arrays with
+	 *                    this timeline, see
+	 *                    {@link app.retera.parsers.mdlx.MdlxBlock#copy(boolean)}.
+	 */
+	public Timeline<TYPE> copy(final boolean shareArrays) {
+		final Timeline<TYPE> copy = newEmpty();
+		copy.interpolationType = this.interpolationType;
+		copy.globalSequenceId = this.globalSequenceId;
+		if (shareArrays || (this.frames == null)) {
+			copy.setKeyframes(this.frames, this.values, this.inTans, this.outTans);
+		}
+		else {
+			copy.setKeyframes(this.frames.clone(), copyValues(this.values), copyValues(this.inTans),
+					copyValues(this.outTans));
+		}
+		return copy;
+	}
+
+	private TYPE[] copyValues(final TYPE[] values) {
+		if (values == null) {
+			return null;
+		}
+		final TYPE[] copy = values.clone();
+		for (int i = 0; i < copy.length; i++) {
+			copy[i] = copyValue(copy[i]);
+		}
+		return copy;
+	}
+
+	/**
+	 * Replaces the keyframes. All arrays must have the same length, and the
+	 * tangents are only used (and may otherwise be null) when the interpolation
+	 * type is tangential.
+	 */
+	public void setKeyframes(final long[] frames, final TYPE[] values, final TYPE[] inTans, final TYPE[] outTans) {
+		this.frames = frames;
+		this.values = values;
+		this.inTans = inTans;
+		this.outTans = outTans;
+	}
 }
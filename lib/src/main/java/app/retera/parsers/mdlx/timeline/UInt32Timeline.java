@@ -17,6 +17,16 @@ public final class UInt32Timeline extends Timeline<long[]> {
 	public UInt32Timeline(){
 	}
 
+	@Override
+	protected Timeline<long[]> newEmpty() {
+		return new UInt32Timeline(getName());
+	}
+
+	@Override
+	protected long[] copyValue(final long[] value) {
+		return value.clone();
+	}
+
 	@Override
 	protected int size() {
 		return 1;
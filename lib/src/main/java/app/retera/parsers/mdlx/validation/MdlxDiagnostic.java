@@ -0,0 +1,46 @@
+package app.retera.parsers.mdlx.validation;
+
+/**
+ * A problem found by {@link MdlxValidator}, at a path like
+ * {@code MTLS[0].LAYS[1].textureId}. Nodes are indexed by object ID.
+ */
+public final class MdlxDiagnostic {
+	public enum Severity {
+		/**
+		 * The model refers to something that does not exist, and will likely
+		 * crash or misrender whatever loads it.
+		 */
+		ERROR,
+		/**
+		 * The model is unusual but still loads.
+		 */
+		WARNING
+	}
+
+	private final Severity severity;
+	private final String path;
+	private final String message;
+
+	MdlxDiagnostic(final Severity severity, final String path, final String message) {
+		this.severity = severity;
+		this.path = path;
+		this.message = message;
+	}
+
+	public Severity getSeverity() {
+		return this.severity;
+	}
+
+	public String getPath() {
+		return this.path;
+	}
+
+	public String getMessage() {
+		return this.message;
+	}
+
+	@Override
+	public String toString() {
+		return this.severity + " " + this.path + ": " + this.message;
+	}
+}
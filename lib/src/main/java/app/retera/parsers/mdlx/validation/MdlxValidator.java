@@ -0,0 +1,450 @@
+package app.retera.parsers.mdlx.validation;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import app.retera.parsers.mdlx.AnimatedObject;
+import app.retera.parsers.mdlx.AnimationMap;
+import app.retera.parsers.mdlx.Bone;
+import app.retera.parsers.mdlx.Camera;
+import app.retera.parsers.mdlx.Extent;
+import app.retera.parsers.mdlx.GenericObject;
+import app.retera.parsers.mdlx.Geoset;
+import app.retera.parsers.mdlx.GeosetAnimation;
+import app.retera.parsers.mdlx.Layer;
+import app.retera.parsers.mdlx.Material;
+import app.retera.parsers.mdlx.MdlxModel;
+import app.retera.parsers.mdlx.Sequence;
+import app.retera.parsers.mdlx.TextureAnimation;
+import app.retera.parsers.mdlx.timeline.Timeline;
+import app.retera.parsers.mdlx.validation.MdlxDiagnostic.Severity;
+
+/**
+ * Checks the references between the chunks of a model: texture, material,
+ * geoset and node IDs, the node hierarchy, the bone indices of geosets, and the
+ * global sequences and frame order of every timeline.
+ *
+ * The counts and object IDs everything refers to are gathered once into
+ * primitive arrays, then each chunk is checked in a single pass, in parallel
+ * with the others when the model is large enough to be worth it.
+ */
+public final class MdlxValidator {
+	/**
+	 * The number of geometry elements below which the checks run on the
+	 * calling thread, since starting the parallel tasks would take longer
+	 * than the checks themselves.
+	 */
+	private static final long PARALLEL_THRESHOLD = 1 << 16;
+
+	private final boolean failFast;
+
+	public MdlxValidator() {
+		this(false);
+	}
+
+	/**
+	 * @param failFast Whether to stop at the first error. The diagnostics are
+	 *                 then those found by the time every chunk noticed, so at
+	 *                 least one error but not necessarily the same ones on
+	 *                 each run.
+	 */
+	public MdlxValidator(final boolean failFast) {
+		this.failFast = failFast;
+	}
+
+	/**
+	 * @return The diagnostics in chunk order, empty for a valid model.
+	 */
+	public List<MdlxDiagnostic> validate(final MdlxModel model) {
+		final Pass pass = new Pass(model, this.failFast);
+		final List<Runnable> checks = new ArrayList<>();
+		checks.add(pass.check(pass::sequences));
+		checks.add(pass.check(pass::materials));
+		checks.add(pass.check(pass::textureAnimations));
+		checks.add(pass.check(pass::geosets));
+		checks.add(pass.check(pass::geosetAnimations));
+		for (final Map.Entry<String, List<? extends GenericObject>> chunk : nodeChunks(model).entrySet()) {
+			checks.add(pass.nodes(chunk.getKey(), chunk.getValue()));
+		}
+		checks.add(pass.check(pass::hierarchy));
+		checks.add(pass.check(pass::cameras));
+		if (geometrySize(model) < PARALLEL_THRESHOLD) {
+			checks.forEach(Runnable::run);
+		}
+		else {
+			checks.parallelStream().forEach(Runnable::run);
+		}
+		return pass.reports.stream().flatMap(List::stream).collect(Collectors.toList());
+	}
+
+	private static long geometrySize(final MdlxModel model) {
+		long size = 0;
+		for (final Geoset geoset : model.getGeosets()) {
+			size += (geoset.getVertices() != null) ? geoset.getVertices().length : 0;
+			size += (geoset.getCompactFaces() != null) ? geoset.getCompactFaces().length : 0;
+		}
+		return size;
+	}
+
+	/**
+	 * The node chunks by tag, in the order of
+	 * {@link MdlxModel#getGenericObjects()}.
+	 */
+	private static Map<String, List<? extends GenericObject>> nodeChunks(final MdlxModel model) {
+		final Map<String, List<? extends GenericObject>> chunks = new LinkedHashMap<>();
+		chunks.put("BONE", model.getBones());
+		chunks.put("LITE", model.getLights());
+		chunks.put("HELP", model.getHelpers());
+		chunks.put("ATCH", model.getAttachments());
+		chunks.put("PREM", model.getParticleEmitters());
+		chunks.put("PRE2", model.getParticleEmitters2());
+		chunks.put("RIBB", model.getRibbonEmitters());
+		chunks.put("EVTS", model.getEventObjects());
+		chunks.put("CLID", model.getCollisionShapes());
+		return chunks;
+	}
+
+	/**
+	 * The shared, read only facts of one model, and a report per check.
+	 */
+	private static final class Pass {
+		private final MdlxModel model;
+		private final boolean failFast;
+		private final AtomicBoolean failed = new AtomicBoolean();
+		private final List<List<MdlxDiagnostic>> reports = new ArrayList<>();
+		private final int textureCount;
+		private final int textureAnimationCount;
+		private final int materialCount;
+		private final int geosetCount;
+		private final int geosetAnimationCount;
+		private final int globalSequenceCount;
+		private final int nodeCount;
+		/**
+		 * For each object ID below the node count, how many nodes have it.
+		 */
+		private final int[] objectIdUses;
+		/**
+		 * The parent of each object ID, or -1.
+		 */
+		private final int[] parents;
+		/**
+		 * The chunk tag of each object ID.
+		 */
+		private final String[] tags;
+
+		private Pass(final MdlxModel model, final boolean failFast) {
+			this.model = model;
+			this.failFast = failFast;
+			this.textureCount = model.getTextures().size();
+			this.textureAnimationCount = model.getTextureAnimations().size();
+			this.materialCount = model.getMaterials().size();
+			this.geosetCount = model.getGeosets().size();
+			this.geosetAnimationCount = model.getGeosetAnimations().size();
+			this.globalSequenceCount = model.getGlobalSequences().size();
+			final Map<String, List<? extends GenericObject>> nodeChunks = nodeChunks(model);
+			int nodeCount = 0;
+			for (final List<? extends GenericObject> nodes : nodeChunks.values()) {
+				nodeCount += nodes.size();
+			}
+			this.nodeCount = nodeCount;
+			this.objectIdUses = new int[nodeCount];
+			this.parents = new int[nodeCount];
+			this.tags = new String[nodeCount];
+			for (final Map.Entry<String, List<? extends GenericObject>> chunk : nodeChunks.entrySet()) {
+				for (final GenericObject node : chunk.getValue()) {
+					final int objectId = node.getObjectId();
+					if ((objectId >= 0) && (objectId < nodeCount) && (this.objectIdUses[objectId]++ == 0)) {
+						this.parents[objectId] = node.getParentId();
+						this.tags[objectId] = chunk.getKey();
+					}
+				}
+			}
+		}
+
+		/**
+		 * Makes a check that reports into its own list, in the order checks are
+		 * made.
+		 */
+		private Runnable check(final Consumer<List<MdlxDiagnostic>> check) {
+			final List<MdlxDiagnostic> report = new ArrayList<>();
+			this.reports.add(report);
+			return () -> check.accept(report);
+		}
+
+		private Runnable nodes(final String tag, final List<? extends GenericObject> nodes) {
+			return check((report) -> {
+				for (final GenericObject node : nodes) {
+					if (stopped()) {
+						return;
+					}
+					node(report, tag + "[" + node.getObjectId() + "]", node);
+				}
+			});
+		}
+
+		private boolean stopped() {
+			return this.failed.get();
+		}
+
+		private void error(final List<MdlxDiagnostic> report, final String path, final String message) {
+			report.add(new MdlxDiagnostic(Severity.ERROR, path, message));
+			if (this.failFast) {
+				this.failed.set(true);
+			}
+		}
+
+		private void warning(final List<MdlxDiagnostic> report, final String path, final String message) {
+			report.add(new MdlxDiagnostic(Severity.WARNING, path, message));
+		}
+
+		private void reference(final List<MdlxDiagnostic> report, final String path, final String what,
+				final long id, final int count, final boolean optional) {
+			if (((id < 0) && !(optional && (id == -1))) || (id >= count)) {
+				error(report, path, "refers to " + what + " " + id + " of " + count);
+			}
+		}
+
+		private void sequences(final List<MdlxDiagnostic> report) {
+			final List<Sequence> sequences = this.model.getSequences();
+			for (int i = 0; (i < sequences.size()) && !stopped(); i++) {
+				final long[] interval = sequences.get(i).getInterval();
+				if (interval[0] > interval[1]) {
+					error(report, "SEQS[" + sequences.get(i).getName() + "].interval",
+							"ends at " + interval[1] + " before it starts at " + interval[0]);
+				}
+			}
+		}
+
+		private void materials(final List<MdlxDiagnostic> report) {
+			final List<Material> materials = this.model.getMaterials();
+			for (int i = 0; (i < materials.size()) && !stopped(); i++) {
+				final List<Layer> layers = materials.get(i).getLayers();
+				for (int j = 0; j < layers.size(); j++) {
+					final Layer layer = layers.get(j);
+					final String path = "MTLS[" + i + "].LAYS[" + j + "]";
+					boolean animatedTexture = false;
+					for (final Timeline<?> timeline : layer.getTimelines()) {
+						if (timeline.getName().equals(AnimationMap.KMTF.getWar3id())
+								&& (timeline.getValues() != null)) {
+							animatedTexture = true;
+							textureIds(report, path + ".KMTF", timeline.getValues());
+						}
+					}
+					// A layer whose texture is animated may leave the static one unset.
+					reference(report, path + ".textureId", "texture", layer.getTextureId(), this.textureCount,
+							animatedTexture);
+					reference(report, path + ".textureAnimationId", "texture animation",
+							layer.getTextureAnimationId(), this.textureAnimationCount, true);
+					timelines(report, path, layer);
+				}
+			}
+		}
+
+		private void textureIds(final List<MdlxDiagnostic> report, final String path, final Object[] values) {
+			for (int i = 0; i < values.length; i++) {
+				final long textureId = ((long[]) values[i])[0];
+				if ((textureId < 0) || (textureId >= this.textureCount)) {
+					error(report, path, "key " + i + " refers to texture " + textureId + " of " + this.textureCount);
+					return;
+				}
+			}
+		}
+
+		private void textureAnimations(final List<MdlxDiagnostic> report) {
+			final List<TextureAnimation> textureAnimations = this.model.getTextureAnimations();
+			for (int i = 0; (i < textureAnimations.size()) && !stopped(); i++) {
+				timelines(report, "TXAN[" + i + "]", textureAnimations.get(i));
+			}
+		}
+
+		private void geosets(final List<MdlxDiagnostic> report) {
+			final List<Geoset> geosets = this.model.getGeosets();
+			for (int i = 0; (i < geosets.size()) && !stopped(); i++) {
+				geoset(report, "GEOS[" + i + "]", geosets.get(i));
+			}
+		}
+
+		private void geoset(final List<MdlxDiagnostic> report, final String path, final Geoset geoset) {
+			reference(report, path + ".materialId", "material", geoset.getMaterialId(), this.materialCount, false);
+			final float[] vertices = geoset.getVertices();
+			if ((vertices == null) || ((vertices.length % 3) != 0)) {
+				error(report, path + ".vertices", "are not a whole number of positions");
+				return;
+			}
+			final int vertexCount = vertices.length / 3;
+			final float[] normals = geoset.getNormals();
+			if ((normals != null) && (normals.length != vertices.length)) {
+				error(report, path + ".normals", (normals.length / 3) + " normals for " + vertexCount + " vertices");
+			}
+			final float[][] uvSets = geoset.getUvSets();
+			for (int i = 0; (uvSets != null) && (i < uvSets.length); i++) {
+				if (uvSets[i].length != (vertexCount * 2)) {
+					error(report, path + ".uvSets[" + i + "]",
+							(uvSets[i].length / 2) + " coordinates for " + vertexCount + " vertices");
+				}
+			}
+
+			final char[] faces = geoset.getCompactFaces();
+			if (faces != null) {
+				for (int i = 0; i < faces.length; i++) {
+					if (faces[i] >= vertexCount) {
+						error(report, path + ".faces",
+								"index " + i + " refers to vertex " + (int) faces[i] + " of " + vertexCount);
+						break;
+					}
+				}
+			}
+
+			final int[] matrixGroups = geoset.getCompactMatrixGroups();
+			final int matrixGroupCount = (matrixGroups != null) ? matrixGroups.length : 0;
+			final byte[] vertexGroups = geoset.getCompactVertexGroups();
+			if (vertexGroups != null) {
+				if (vertexGroups.length != vertexCount) {
+					error(report, path + ".vertexGroups",
+							vertexGroups.length + " groups for " + vertexCount + " vertices");
+				}
+				for (int i = 0; i < vertexGroups.length; i++) {
+					if (Byte.toUnsignedInt(vertexGroups[i]) >= matrixGroupCount) {
+						error(report, path + ".vertexGroups", "vertex " + i + " refers to matrix group "
+								+ Byte.toUnsignedInt(vertexGroups[i]) + " of " + matrixGroupCount);
+						break;
+					}
+				}
+			}
+
+			final int[] matrixIndices = geoset.getCompactMatrixIndices();
+			final int matrixIndexCount = (matrixIndices != null) ? matrixIndices.length : 0;
+			long matrixGroupSum = 0;
+			for (int i = 0; i < matrixGroupCount; i++) {
+				matrixGroupSum += Integer.toUnsignedLong(matrixGroups[i]);
+			}
+			if (matrixGroupSum != matrixIndexCount) {
+				error(report, path + ".matrixGroups",
+						"hold " + matrixGroupSum + " indices but there are " + matrixIndexCount);
+			}
+			for (int i = 0; i < matrixIndexCount; i++) {
+				final long objectId = Integer.toUnsignedLong(matrixIndices[i]);
+				if ((objectId >= this.nodeCount) || (this.objectIdUses[(int) objectId] == 0)) {
+					error(report, path + ".matrixIndices",
+							"index " + i + " refers to node " + objectId + " of " + this.nodeCount);
+					break;
+				}
+			}
+
+			final Extent[] sequenceExtents = geoset.getSequenceExtents();
+			final int sequenceExtentCount = (sequenceExtents != null) ? sequenceExtents.length : 0;
+			if (sequenceExtentCount != this.model.getSequences().size()) {
+				warning(report, path + ".sequenceExtents",
+						sequenceExtentCount + " extents for " + this.model.getSequences().size() + " sequences");
+			}
+		}
+
+		private void geosetAnimations(final List<MdlxDiagnostic> report) {
+			final List<GeosetAnimation> geosetAnimations = this.model.getGeosetAnimations();
+			for (int i = 0; (i < geosetAnimations.size()) && !stopped(); i++) {
+				final String path = "GEOA[" + i + "]";
+				reference(report, path + ".geosetId", "geoset", geosetAnimations.get(i).getGeosetId(),
+						this.geosetCount, false);
+				timelines(report, path, geosetAnimations.get(i));
+			}
+		}
+
+		private void node(final List<MdlxDiagnostic> report, final String path, final GenericObject node) {
+			final int objectId = node.getObjectId();
+			if ((objectId < 0) || (objectId >= this.nodeCount)) {
+				error(report, path + ".objectId", "is outside the " + this.nodeCount + " nodes");
+			}
+			else if (this.objectIdUses[objectId] > 1) {
+				error(report, path + ".objectId", "is shared by " + this.objectIdUses[objectId] + " nodes");
+			}
+			final int parentId = node.getParentId();
+			if ((parentId != -1) && ((parentId < 0) || (parentId >= this.nodeCount)
+					|| (this.objectIdUses[parentId] == 0))) {
+				error(report, path + ".parentId", "refers to node " + parentId + " of " + this.nodeCount);
+			}
+			if (node instanceof Bone) {
+				final Bone bone = (Bone) node;
+				reference(report, path + ".geosetId", "geoset", bone.getGeosetId(), this.geosetCount, true);
+				reference(report, path + ".geosetAnimationId", "geoset animation", bone.getGeosetAnimationId(),
+						this.geosetAnimationCount, true);
+			}
+			timelines(report, path, node);
+		}
+
+		/**
+		 * Finds parent cycles by following each node up until it reaches a
+		 * root, a node already known to reach one, or a node on its own path.
+		 */
+		private void hierarchy(final List<MdlxDiagnostic> report) {
+			if (this.model.getPivotPoints().size() < this.nodeCount) {
+				// Loaders put the nodes past the last pivot point at the origin.
+				warning(report, "PIVT",
+						this.model.getPivotPoints().size() + " pivot points for " + this.nodeCount + " nodes");
+			}
+			final byte[] states = new byte[this.nodeCount];
+			final int[] path = new int[this.nodeCount];
+			for (int objectId = 0; (objectId < this.nodeCount) && !stopped(); objectId++) {
+				int length = 0;
+				int current = objectId;
+				while ((current >= 0) && (current < this.nodeCount) && (this.objectIdUses[current] != 0)
+						&& (states[current] == 0)) {
+					states[current] = 1;
+					path[length++] = current;
+					current = this.parents[current];
+				}
+				if ((current >= 0) && (current < this.nodeCount) && (states[current] == 1)) {
+					error(report, this.tags[current] + "[" + current + "].parentId", "is part of a parent cycle");
+				}
+				for (int i = 0; i < length; i++) {
+					states[path[i]] = 2;
+				}
+			}
+		}
+
+		private void cameras(final List<MdlxDiagnostic> report) {
+			final List<Camera> cameras = this.model.getCameras();
+			for (int i = 0; (i < cameras.size()) && !stopped(); i++) {
+				timelines(report, "CAMS[" + i + "]", cameras.get(i));
+			}
+		}
+
+		private void timelines(final List<MdlxDiagnostic> report, final String path, final AnimatedObject object) {
+			for (final Timeline<?> timeline : object.getTimelines()) {
+				if (stopped()) {
+					return;
+				}
+				final int globalSequenceId = timeline.getGlobalSequenceId();
+				if (globalSequenceId >= this.globalSequenceCount) {
+					error(report, path + "." + timeline.getName() + ".globalSequenceId",
+							"refers to global sequence " + globalSequenceId + " of " + this.globalSequenceCount);
+				}
+				final long[] frames = timeline.getFrames();
+				if (frames == null) {
+					continue;
+				}
+				final Object[] values = timeline.getValues();
+				if ((values == null) || (values.length != frames.length)) {
+					error(report, path + "." + timeline.getName(), ((values != null) ? values.length : 0)
+							+ " values for " + frames.length + " keys");
+				}
+				for (int i = 1; i < frames.length; i++) {
+					if (frames[i] < frames[i - 1]) {
+						error(report, path + "." + timeline.getName(),
+								"key " + i + " at frame " + frames[i] + " comes after frame " + frames[i - 1]);
+						break;
+					}
+					if (frames[i] == frames[i - 1]) {
+						warning(report, path + "." + timeline.getName(),
+								"keys " + (i - 1) + " and " + i + " are both at frame " + frames[i]);
+						break;
+					}
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,171 @@
+package app.retera.util;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * A bounded pool of canonical strings and small primitive arrays, shared by
+ * any number of threads, for deduplicating the values that repeat across many
+ * loaded models: texture paths, node names, sequence names like "Stand", and
+ * keyframe values.
+ *
+ * Once full, the least recently used values are dropped, which only means
+ * that later copies of them are not shared with earlier ones. Arrays are
+ * compared by content, floats by their bits.
+ *
+ * Interned arrays end up shared between models and must not be modified.
+ */
+public final class InternPool {
+	public static final long DEFAULT_MAXIMUM_SIZE = 1 << 16;
+	/**
+	 * Longer arrays are rarely repeated, and are returned as is.
+	 */
+	public static final int MAX_ARRAY_LENGTH = 256;
+
+	private final Cache<Object, Object> values;
+	private final boolean sharingArrays;
+	private final LongAdder lookups = new LongAdder();
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder bytesSaved = new LongAdder();
+
+	public InternPool() {
+		this(DEFAULT_MAXIMUM_SIZE, false);
+	}
+
+	/**
+	 * @param maximumSize   The most values held at once.
+	 * @param sharingArrays Whether models interned with this pool also share
+	 *                      their arrays, see {@link #isSharingArrays()}.
+	 */
+	public InternPool(final long maximumSize, final boolean sharingArrays) {
+		this.values = CacheBuilder.newBuilder().maximumSize(maximumSize).build();
+		this.sharingArrays = sharingArrays;
+	}
+
+	/**
+	 * Whether models should intern their immutable arrays, like pivot points
+	 * and keyframes, and not only their strings. Those arrays must then be
+	 * treated as read only.
+	 */
+	public boolean isSharingArrays() {
+		return this.sharingArrays;
+	}
+
+	/**
+	 * @return The pooled string equal to the given one, or the given one if it
+	 *         is the first. Null stays null.
+	 */
+	public String intern(final String value) {
+		if (value == null) {
+			return null;
+		}
+		return (String) this.canonical(value, value, 24 + align(16 + value.length()));
+	}
+
+	public float[] intern(final float[] value) {
+		if ((value == null) || (value.length > MAX_ARRAY_LENGTH)) {
+			return value;
+		}
+		return (float[]) this.canonical(new FloatArrayKey(value), value, align(16 + (value.length * 4L)));
+	}
+
+	public long[] intern(final long[] value) {
+		if ((value == null) || (value.length > MAX_ARRAY_LENGTH)) {
+			return value;
+		}
+		return (long[]) this.canonical(new LongArrayKey(value), value, align(16 + (value.length * 8L)));
+	}
+
+	private Object canonical(final Object key, final Object value, final long size) {
+		this.lookups.increment();
+		final Object existing = this.values.asMap().putIfAbsent(key, value);
+		if (existing == null) {
+			return value;
+		}
+		if (existing != value) {
+			this.hits.increment();
+			this.bytesSaved.add(size);
+		}
+		return existing;
+	}
+
+	/**
+	 * The number of values pooled right now.
+	 */
+	public long size() {
+		return this.values.size();
+	}
+
+	public long getLookupCount() {
+		return this.lookups.sum();
+	}
+
+	/**
+	 * The number of values that were replaced by an equal pooled one.
+	 */
+	public long getHitCount() {
+		return this.hits.sum();
+	}
+
+	/**
+	 * The approximate heap held by the replaced values, which becomes garbage
+	 * once nothing else refers to them. Assumes compressed references and
+	 * compact strings, like {@code MdlxModel#getRetainedSizeEstimate()}.
+	 */
+	public long getBytesSaved() {
+		return this.bytesSaved.sum();
+	}
+
+	public void clear() {
+		this.values.invalidateAll();
+	}
+
+	private static long align(final long size) {
+		return (size + 7) & ~7L;
+	}
+
+	private static final class FloatArrayKey {
+		private final float[] array;
+		private final int hash;
+
+		private FloatArrayKey(final float[] array) {
+			this.array = array;
+			this.hash = Arrays.hashCode(array);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			return (obj instanceof FloatArrayKey) && (((FloatArrayKey) obj).hash == this.hash)
+					&& Arrays.equals(((FloatArrayKey) obj).array, this.array);
+		}
+	}
+
+	private static final class LongArrayKey {
+		private final long[] array;
+		private final int hash;
+
+		private LongArrayKey(final long[] array) {
+			this.array = array;
+			this.hash = Arrays.hashCode(array);
+		}
+
+		@Override
+		public int hashCode() {
+			return this.hash;
+		}
+
+		@Override
+		public boolean equals(final Object obj) {
+			return (obj instanceof LongArrayKey) && (((LongArrayKey) obj).hash == this.hash)
+					&& Arrays.equals(((LongArrayKey) obj).array, this.array);
+		}
+	}
+}
@@ -3,6 +3,9 @@ package app.retera.util;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
 import java.nio.charset.Charset;
 
 import com.google.common.io.LittleEndianDataInputStream;
@@ -23,10 +26,28 @@ public class ParseUtils {
 		return (short) (stream.readByte() & (short) 0xFF);
 	}
 
+	/**
+	 * Arrays at least this long are converted in bulk, through a little endian
+	 * {@link ByteBuffer} view, rather than one value at a time.
+	 */
+	private static final int BULK_FLOATS = 16;
+	private static final int BULK_CHUNK_FLOATS = 2048;
+
 	public static void readFloatArray(final LittleEndianDataInputStream stream, final float[] array)
 			throws IOException {
-		for (int i = 0; i < array.length; i++) {
-			array[i] = stream.readFloat();
+		if (array.length < BULK_FLOATS) {
+			for (int i = 0; i < array.length; i++) {
+				array[i] = stream.readFloat();
+			}
+			return;
+		}
+		final byte[] chunk = new byte[Math.min(array.length, BULK_CHUNK_FLOATS) * 4];
+		final FloatBuffer floats = ByteBuffer.wrap(chunk).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+		for (int offset = 0; offset < array.length; offset += BULK_CHUNK_FLOATS) {
+			final int count = Math.min(array.length - offset, BULK_CHUNK_FLOATS);
+			stream.readFully(chunk, 0, count * 4);
+			floats.clear();
+			floats.get(array, offset, count);
 		}
 	}
 
@@ -75,6 +96,13 @@ public class ParseUtils {
 		return array;
 	}
 
+	public static void readUInt16Array(final LittleEndianDataInputStream stream, final char[] array)
+			throws IOException {
+		for (int i = 0; i < array.length; i++) {
+			array[i] = stream.readChar();
+		}
+	}
+
 	public static void readUInt8Array(final LittleEndianDataInputStream stream, final short[] array)
 			throws IOException {
 		for (int i = 0; i < array.length; i++) {
@@ -89,6 +117,15 @@ public class ParseUtils {
 		return array;
 	}
 
+	/**
+	 * Reads unsigned 8-bit values into a byte[] holding their raw bits. Widen with
+	 * {@link Byte#toUnsignedInt(byte)}.
+	 */
+	public static void readUInt8Array(final LittleEndianDataInputStream stream, final byte[] array)
+			throws IOException {
+		stream.readFully(array);
+	}
+
 	public static War3ID readWar3ID(final LittleEndianDataInputStream stream) throws IOException {
 //		final int value = stream.readInt();
 //		return new War3ID(((value & 0xFF000000) >>> 24) | ((value & 0x00FF0000) >>> 8) | ((value & 0x0000FF00) << 8)
@@ -105,8 +142,19 @@ public class ParseUtils {
 
 	public static void writeFloatArray(final LittleEndianDataOutputStream stream, final float[] array)
 			throws IOException {
-		for (float v : array) {
-			stream.writeFloat(v);
+		if (array.length < BULK_FLOATS) {
+			for (float v : array) {
+				stream.writeFloat(v);
+			}
+			return;
+		}
+		final byte[] chunk = new byte[Math.min(array.length, BULK_CHUNK_FLOATS) * 4];
+		final FloatBuffer floats = ByteBuffer.wrap(chunk).order(ByteOrder.LITTLE_ENDIAN).asFloatBuffer();
+		for (int offset = 0; offset < array.length; offset += BULK_CHUNK_FLOATS) {
+			final int count = Math.min(array.length - offset, BULK_CHUNK_FLOATS);
+			floats.clear();
+			floats.put(array, offset, count);
+			stream.write(chunk, 0, count * 4);
 		}
 	}
 
@@ -129,6 +177,13 @@ public class ParseUtils {
 		}
 	}
 
+	public static void writeUInt32Array(final LittleEndianDataOutputStream stream, final int[] array)
+			throws IOException {
+		for (int value : array) {
+			stream.writeInt(value);
+		}
+	}
+
 	public static void writeInt32Array(final LittleEndianDataOutputStream stream, final int[] array)
 			throws IOException {
 		for (int j : array) {
@@ -143,6 +198,13 @@ public class ParseUtils {
 		}
 	}
 
+	public static void writeUInt16Array(final LittleEndianDataOutputStream stream, final char[] array)
+			throws IOException {
+		for (char value : array) {
+			stream.writeChar(value);
+		}
+	}
+
 	public static void writeUInt8Array(final LittleEndianDataOutputStream stream, final short[] array)
 			throws IOException {
 		for (short value : array) {
@@ -150,6 +212,24 @@ public class ParseUtils {
 		}
 	}
 
+	public static void writeUInt8Array(final LittleEndianDataOutputStream stream, final byte[] array)
+			throws IOException {
+		stream.write(array);
+	}
+
+	/**
+	 * Reads a null padded string field of a fixed length, into a new array so
+	 * that any number of threads can parse at once.
+	 */
+	public static String readString(final LittleEndianDataInputStream stream, final int length) throws IOException {
+		final byte[] bytes = new byte[length];
+		stream.readFully(bytes);
+		int i;
+		for (i = 0; (i < length) && (bytes[i] != 0); i++) {
+		}
+		return new String(bytes, 0, i, ParseUtils.UTF8);
+	}
+
 	public static String readString(final LittleEndianDataInputStream stream, final byte[] recycleByteArray)
 			throws IOException {
 		stream.read(recycleByteArray);
@@ -0,0 +1,275 @@
+package app.retera.util;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * A streaming implementation of the 64 bit xxHash (XXH64), fed primitives
+ * and primitive arrays directly, without going through a byte stream.
+ *
+ * Values are hashed as their little endian bytes, so the result matches
+ * XXH64 of the same bytes from any other implementation, and does not depend
+ * on how the input was split between calls. Floats are hashed by
+ * {@link Float#floatToIntBits(float)}, so every NaN hashes the same.
+ *
+ * Not thread safe.
+ */
+public final class XxHash64 {
+	private static final long PRIME1 = 0x9E3779B185EBCA87L;
+	private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+	private static final long PRIME3 = 0x165667B19E3779F9L;
+	private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+	private static final long PRIME5 = 0x27D4EB2F165667C5L;
+	private static final int STRIPE = 32;
+	private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class,
+			ByteOrder.LITTLE_ENDIAN);
+	private static final VarHandle INTS = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+	private final long seed;
+	private final byte[] buffer = new byte[STRIPE];
+	private int buffered;
+	private long length;
+	private long v1;
+	private long v2;
+	private long v3;
+	private long v4;
+
+	public XxHash64() {
+		this(0);
+	}
+
+	public XxHash64(final long seed) {
+		this.seed = seed;
+		reset();
+	}
+
+	/**
+	 * Forgets everything hashed so far.
+	 */
+	public XxHash64 reset() {
+		this.v1 = this.seed + PRIME1 + PRIME2;
+		this.v2 = this.seed + PRIME2;
+		this.v3 = this.seed;
+		this.v4 = this.seed - PRIME1;
+		this.buffered = 0;
+		this.length = 0;
+		return this;
+	}
+
+	public XxHash64 putByte(final byte value) {
+		this.buffer[this.buffered++] = value;
+		if (this.buffered == STRIPE) {
+			flush();
+		}
+		return this;
+	}
+
+	public XxHash64 putChar(final char value) {
+		return put(value, 2);
+	}
+
+	public XxHash64 putInt(final int value) {
+		if ((this.buffered + 4) <= STRIPE) {
+			INTS.set(this.buffer, this.buffered, value);
+			this.buffered += 4;
+			if (this.buffered == STRIPE) {
+				flush();
+			}
+			return this;
+		}
+		return put(value, 4);
+	}
+
+	public XxHash64 putLong(final long value) {
+		if ((this.buffered + 8) <= STRIPE) {
+			LONGS.set(this.buffer, this.buffered, value);
+			this.buffered += 8;
+			if (this.buffered == STRIPE) {
+				flush();
+			}
+			return this;
+		}
+		return put(value, 8);
+	}
+
+	public XxHash64 putFloat(final float value) {
+		return putInt(Float.floatToIntBits(value));
+	}
+
+	public XxHash64 putBoolean(final boolean value) {
+		return putByte(value ? (byte) 1 : (byte) 0);
+	}
+
+	/**
+	 * Hashes the length and the UTF-16 characters of a string, so that
+	 * consecutive strings cannot run into each other.
+	 */
+	public XxHash64 putString(final CharSequence value) {
+		putInt(value.length());
+		for (int i = 0; i < value.length(); i++) {
+			putChar(value.charAt(i));
+		}
+		return this;
+	}
+
+	public XxHash64 putBytes(final byte[] values) {
+		int i = 0;
+		while ((i < values.length) && (this.buffered != 0)) {
+			putByte(values[i++]);
+		}
+		for (; (i + STRIPE) <= values.length; i += STRIPE) {
+			stripe((long) LONGS.get(values, i), (long) LONGS.get(values, i + 8), (long) LONGS.get(values, i + 16),
+					(long) LONGS.get(values, i + 24));
+		}
+		while (i < values.length) {
+			putByte(values[i++]);
+		}
+		return this;
+	}
+
+	public XxHash64 putChars(final char[] values) {
+		int i = 0;
+		while ((i < values.length) && (this.buffered != 0)) {
+			putChar(values[i++]);
+		}
+		for (; (i + 16) <= values.length; i += 16) {
+			stripe(chars(values, i), chars(values, i + 4), chars(values, i + 8), chars(values, i + 12));
+		}
+		while (i < values.length) {
+			putChar(values[i++]);
+		}
+		return this;
+	}
+
+	public XxHash64 putInts(final int[] values) {
+		int i = 0;
+		while ((i < values.length) && (this.buffered != 0)) {
+			putInt(values[i++]);
+		}
+		for (; (i + 8) <= values.length; i += 8) {
+			stripe(ints(values[i], values[i + 1]), ints(values[i + 2], values[i + 3]),
+					ints(values[i + 4], values[i + 5]), ints(values[i + 6], values[i + 7]));
+		}
+		while (i < values.length) {
+			putInt(values[i++]);
+		}
+		return this;
+	}
+
+	public XxHash64 putFloats(final float[] values) {
+		int i = 0;
+		while ((i < values.length) && (this.buffered != 0)) {
+			putFloat(values[i++]);
+		}
+		for (; (i + 8) <= values.length; i += 8) {
+			stripe(floats(values[i], values[i + 1]), floats(values[i + 2], values[i + 3]),
+					floats(values[i + 4], values[i + 5]), floats(values[i + 6], values[i + 7]));
+		}
+		while (i < values.length) {
+			putFloat(values[i++]);
+		}
+		return this;
+	}
+
+	public XxHash64 putLongs(final long[] values) {
+		int i = 0;
+		while ((i < values.length) && (this.buffered != 0)) {
+			putLong(values[i++]);
+		}
+		for (; (i + 4) <= values.length; i += 4) {
+			stripe(values[i], values[i + 1], values[i + 2], values[i + 3]);
+		}
+		while (i < values.length) {
+			putLong(values[i++]);
+		}
+		return this;
+	}
+
+	/**
+	 * The hash of everything put so far. More values can be put afterwards.
+	 */
+	public long hash() {
+		long hash;
+		if (this.length >= STRIPE) {
+			hash = Long.rotateLeft(this.v1, 1) + Long.rotateLeft(this.v2, 7) + Long.rotateLeft(this.v3, 12)
+					+ Long.rotateLeft(this.v4, 18);
+			hash = merge(hash, this.v1);
+			hash = merge(hash, this.v2);
+			hash = merge(hash, this.v3);
+			hash = merge(hash, this.v4);
+		}
+		else {
+			hash = this.seed + PRIME5;
+		}
+		hash += this.length + this.buffered;
+
+		int i = 0;
+		for (; (i + 8) <= this.buffered; i += 8) {
+			hash ^= round(0, (long) LONGS.get(this.buffer, i));
+			hash = (Long.rotateLeft(hash, 27) * PRIME1) + PRIME4;
+		}
+		if ((i + 4) <= this.buffered) {
+			hash ^= (Integer.toUnsignedLong((int) INTS.get(this.buffer, i))) * PRIME1;
+			hash = (Long.rotateLeft(hash, 23) * PRIME2) + PRIME3;
+			i += 4;
+		}
+		for (; i < this.buffered; i++) {
+			hash ^= (this.buffer[i] & 0xFFL) * PRIME5;
+			hash = Long.rotateLeft(hash, 11) * PRIME1;
+		}
+
+		hash ^= hash >>> 33;
+		hash *= PRIME2;
+		hash ^= hash >>> 29;
+		hash *= PRIME3;
+		hash ^= hash >>> 32;
+		return hash;
+	}
+
+	/**
+	 * Puts the low bytes of a value one at a time, for values that do not fit
+	 * in what is left of the buffer.
+	 */
+	private XxHash64 put(final long value, final int bytes) {
+		for (int i = 0; i < bytes; i++) {
+			putByte((byte) (value >>> (i * 8)));
+		}
+		return this;
+	}
+
+	private void flush() {
+		this.buffered = 0;
+		stripe((long) LONGS.get(this.buffer, 0), (long) LONGS.get(this.buffer, 8),
+				(long) LONGS.get(this.buffer, 16), (long) LONGS.get(this.buffer, 24));
+	}
+
+	private void stripe(final long lane1, final long lane2, final long lane3, final long lane4) {
+		this.v1 = round(this.v1, lane1);
+		this.v2 = round(this.v2, lane2);
+		this.v3 = round(this.v3, lane3);
+		this.v4 = round(this.v4, lane4);
+		this.length += STRIPE;
+	}
+
+	private static long chars(final char[] values, final int offset) {
+		return values[offset] | ((long) values[offset + 1] << 16) | ((long) values[offset + 2] << 32)
+				| ((long) values[offset + 3] << 48);
+	}
+
+	private static long ints(final int low, final int high) {
+		return Integer.toUnsignedLong(low) | ((long) high << 32);
+	}
+
+	private static long floats(final float low, final float high) {
+		return ints(Float.floatToIntBits(low), Float.floatToIntBits(high));
+	}
+
+	private static long round(final long accumulator, final long lane) {
+		return Long.rotateLeft(accumulator + (lane * PRIME2), 31) * PRIME1;
+	}
+
+	private static long merge(final long hash, final long accumulator) {
+		return ((hash ^ round(0, accumulator)) * PRIME1) + PRIME4;
+	}
+}
@@ -0,0 +1,57 @@
+package app.retera.parsers.mdlx;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class FrozenMdlxModelTest {
+    @Test
+    void snapshotsIgnoreLaterChanges() {
+        final MdlxModel model = TestModels.footman();
+        final FrozenMdlxModel frozen = model.freeze();
+
+        model.setName("Changed");
+        model.getGeosets().get(0).getVertices()[0] = 1000;
+        model.getSequences().clear();
+
+        assertEquals("Footman", frozen.getName());
+        assertEquals(2, frozen.getSequences().size());
+        assertEquals(TestModels.footman().getGeosets().get(0).getVertices()[0],
+                frozen.getGeosets().get(0).getVertices()[0]);
+        assertNotSame(model.getGeosets().get(0), frozen.getGeosets().get(0));
+    }
+
+    @Test
+    void listsCannotBeChanged() {
+        final FrozenMdlxModel frozen = TestModels.footman().freeze();
+
+        assertThrows(UnsupportedOperationException.class, () -> frozen.getSequences().clear());
+        assertThrows(UnsupportedOperationException.class, () -> frozen.getPivotPoints().add(new float[3]));
+        assertThrows(UnsupportedOperationException.class, () -> frozen.getBones().set(0, new Bone()));
+    }
+
+    @Test
+    void thawedModelsShareOnlyArrays() {
+        final FrozenMdlxModel frozen = TestModels.footman().freeze();
+        final MdlxModel thawed = frozen.thaw();
+
+        assertArrayEquals(TestModels.footmanMdx(), TestModels.toMdx(thawed));
+        assertNotSame(frozen.getGeosets().get(0), thawed.getGeosets().get(0));
+        assertSame(frozen.getGeosets().get(0).getVertices(), thawed.getGeosets().get(0).getVertices());
+        assertNotSame(frozen.getBones().get(0), thawed.getBones().get(0));
+
+        thawed.getGeosets().get(0).setMaterialId(7);
+        thawed.getBones().get(0).setName("Changed");
+        thawed.getSequences().get(0).getInterval()[1] = 5;
+        thawed.getSequences().remove(1);
+        thawed.getExtent().getMax()[0] = 1000;
+        frozen.getExtent().getMax()[0] = 1000;
+
+        assertEquals(2, frozen.getSequences().size());
+        assertArrayEquals(TestModels.footmanMdx(), TestModels.toMdx(frozen.thaw()));
+    }
+}
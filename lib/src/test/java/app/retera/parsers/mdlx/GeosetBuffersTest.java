@@ -0,0 +1,93 @@
+package app.retera.parsers.mdlx;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeosetBuffersTest {
+    @Test
+    void sectionsRoundTrip() {
+        final Geoset geoset = TestModels.footman().getGeosets().get(0);
+        // A heap buffer with some room in front, to check the block is sliced out of it.
+        final ByteBuffer[] allocated = new ByteBuffer[1];
+        final GeosetBuffers buffers = GeosetBuffers.of(geoset, size -> {
+            allocated[0] = ByteBuffer.allocate(size + 8).position(8);
+            return allocated[0];
+        });
+
+        assertEquals(geoset.getVertices().length / 3, buffers.getVertexCount());
+        assertArrayEquals(geoset.getVertices(), floats(buffers.getVertices()));
+        assertArrayEquals(geoset.getNormals(), floats(buffers.getNormals()));
+        assertEquals(geoset.getUvSets().length, buffers.getUvSetCount());
+        for (int i = 0; i < buffers.getUvSetCount(); i++) {
+            assertArrayEquals(geoset.getUvSets()[i], floats(buffers.getUvSet(i)));
+        }
+        final char[] faces = new char[buffers.getFaceCount()];
+        for (int i = 0; i < faces.length; i++) {
+            faces[i] = (char) buffers.getFaces().get(i);
+        }
+        assertArrayEquals(geoset.getCompactFaces(), faces);
+        final byte[] vertexGroups = new byte[buffers.getVertexGroups().remaining()];
+        buffers.getVertexGroups().get(vertexGroups);
+        assertArrayEquals(geoset.getCompactVertexGroups(), vertexGroups);
+        final int[] matrixGroups = new int[buffers.getMatrixGroups().remaining()];
+        buffers.getMatrixGroups().get(matrixGroups);
+        assertArrayEquals(geoset.getCompactMatrixGroups(), matrixGroups);
+        final int[] matrixIndices = new int[buffers.getMatrixIndices().remaining()];
+        buffers.getMatrixIndices().get(matrixIndices);
+        assertArrayEquals(geoset.getCompactMatrixIndices(), matrixIndices);
+
+        for (final int offset : new int[] { buffers.getNormalsOffset(), buffers.getUvSetOffset(0),
+                buffers.getFacesOffset(), buffers.getVertexGroupsOffset(), buffers.getMatrixGroupsOffset(),
+                buffers.getMatrixIndicesOffset() }) {
+            assertEquals(0, offset % 16);
+        }
+        // Writes through the views land in the allocated buffer.
+        buffers.getVertices().put(0, 1000);
+        assertEquals(1000, allocated[0].order(ByteOrder.nativeOrder()).getFloat(8), 0);
+    }
+
+    @Test
+    void directBlocksAreAligned() {
+        final GeosetBuffers buffers = GeosetBuffers.of(TestModels.footman().getGeosets().get(0));
+        final ByteBuffer block = buffers.getBuffer();
+
+        assertTrue(block.isDirect());
+        for (final int offset : new int[] { 0, buffers.getNormalsOffset(), buffers.getUvSetOffset(0),
+                buffers.getFacesOffset(), buffers.getVertexGroupsOffset(), buffers.getMatrixGroupsOffset(),
+                buffers.getMatrixIndicesOffset() }) {
+            assertEquals(0, block.alignmentOffset(offset, 16));
+        }
+    }
+
+    @Test
+    void missingSectionsAreEmpty() {
+        final Geoset geoset = new Geoset();
+        geoset.setVertices(new float[] { 1, 2, 3 });
+
+        final GeosetBuffers buffers = GeosetBuffers.of(geoset);
+
+        assertEquals(1, buffers.getVertexCount());
+        assertArrayEquals(new float[] { 1, 2, 3 }, floats(buffers.getVertices()));
+        assertEquals(0, buffers.getNormals().remaining());
+        assertEquals(0, buffers.getUvSetCount());
+        assertEquals(0, buffers.getFaceCount());
+        assertEquals(0, buffers.getVertexGroups().remaining());
+        assertEquals(0, buffers.getMatrixGroups().remaining());
+        assertEquals(0, buffers.getMatrixIndices().remaining());
+        assertTrue(buffers.getBuffer().isDirect());
+        assertEquals(0, GeosetBuffers.of(new Geoset()).getBuffer().capacity());
+    }
+
+    private static float[] floats(final FloatBuffer buffer) {
+        final float[] values = new float[buffer.remaining()];
+        buffer.get(values);
+        return values;
+    }
+}
@@ -0,0 +1,228 @@
+package app.retera.parsers.mdlx;
+
+import app.retera.parsers.mdlx.timeline.FloatArrayTimeline;
+import app.retera.parsers.mdlx.timeline.Timeline;
+import app.retera.util.War3ID;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class MdlxCopyTest {
+    @Test
+    void copiesSaveTheSameBytes() {
+        final MdlxModel model = TestModels.footman();
+
+        assertArrayEquals(TestModels.footmanMdx(), TestModels.toMdx(model.copy(false)));
+        assertArrayEquals(TestModels.footmanMdx(), TestModels.toMdx(model.copy(true)));
+    }
+
+    @Test
+    void deepCopiesAreIndependent() {
+        final MdlxModel model = TestModels.footman();
+        final MdlxModel copy = model.copy(false);
+
+        copy.getGeosets().get(0).getVertices()[0] = 1000;
+        copy.getPivotPoints().get(1)[2] = 1000;
+        copy.getBones().get(0).getTimelines().get(0).getFrames()[1] = 1000;
+        ((float[]) copy.getBones().get(0).getTimelines().get(0).getValues()[1])[2] = 1000;
+        copy.getSequences().get(0).getInterval()[1] = 1000;
+        copy.getMaterials().get(0).getLayers().clear();
+
+        assertArrayEquals(TestModels.footmanMdx(), TestModels.toMdx(model));
+    }
+
+    @Test
+    void sharedCopiesShareOnlyReplaceableArrays() {
+        final MdlxModel model = TestModels.footman();
+        final MdlxModel copy = model.copy(true);
+
+        assertSame(model.getGeosets().get(0).getVertices(), copy.getGeosets().get(0).getVertices());
+        assertSame(model.getGeosets().get(0).getUvSets()[0], copy.getGeosets().get(0).getUvSets()[0]);
+        // Passes replace single UV sets, which must not reach the other block.
+        assertNotSame(model.getGeosets().get(0).getUvSets(), copy.getGeosets().get(0).getUvSets());
+        assertSame(model.getPivotPoints().get(1), copy.getPivotPoints().get(1));
+        assertSame(model.getBones().get(0).getTimelines().get(0).getFrames(),
+                copy.getBones().get(0).getTimelines().get(0).getFrames());
+        assertNotSame(model.getBones().get(0), copy.getBones().get(0));
+        assertNotSame(model.getSequences().get(0).getInterval(), copy.getSequences().get(0).getInterval());
+    }
+
+    @Test
+    void everyFieldIsCopied() throws Exception {
+        final Random random = new Random(3);
+        final MdlxBlock[] blocks = { new Attachment(), new Bone(), new Camera(), new CollisionShape(),
+                new EventObject(), new Geoset(), new GeosetAnimation(), new Helper(), new Layer(), new Light(),
+                new Material(), new ParticleEmitter(), new ParticleEmitter2(), new RibbonEmitter(), new Sequence(),
+                new Texture(), new TextureAnimation() };
+        for (final MdlxBlock block : blocks) {
+            fill(block, random);
+            for (final boolean shareArrays : new boolean[] { false, true }) {
+                final MdlxBlock copy = block.copy(shareArrays);
+                assertSame(block.getClass(), copy.getClass());
+                assertCopied(block, copy, shareArrays, block.getClass().getSimpleName());
+            }
+        }
+    }
+
+    /**
+     * Sets every field of an object to something other than its default.
+     */
+    private static void fill(final Object object, final Random random) throws Exception {
+        for (Class<?> type = object.getClass(); type != Object.class; type = type.getSuperclass()) {
+            for (final Field field : type.getDeclaredFields()) {
+                if (Modifier.isStatic(field.getModifiers())) {
+                    continue;
+                }
+                field.setAccessible(true);
+                final Class<?> fieldType = field.getType();
+                final Object value = field.get(object);
+                if (fieldType.isArray()) {
+                    final Object array = (value != null) ? value : Array.newInstance(fieldType.getComponentType(), 2);
+                    field.set(object, fillArray(array, random));
+                }
+                else if (List.class.isAssignableFrom(fieldType)) {
+                    // Timelines are the only lists with a wildcard element type.
+                    final Type element = ((ParameterizedType) field.getGenericType()).getActualTypeArguments()[0];
+                    @SuppressWarnings("unchecked")
+                    final List<Object> list = (List<Object>) value;
+                    list.add((element instanceof Class<?>) ? fillNew((Class<?>) element, random) : timeline(random));
+                }
+                else if (fieldType == Extent.class) {
+                    fill(value, random);
+                }
+                else if (!Modifier.isFinal(field.getModifiers())) {
+                    field.set(object, random(fieldType, random));
+                }
+            }
+        }
+    }
+
+    private static Object fillNew(final Class<?> type, final Random random) throws Exception {
+        final Object object = type.getDeclaredConstructor().newInstance();
+        fill(object, random);
+        return object;
+    }
+
+    private static Object fillArray(final Object array, final Random random) throws Exception {
+        final Class<?> component = array.getClass().getComponentType();
+        for (int i = 0; i < Array.getLength(array); i++) {
+            if (component.isArray()) {
+                final Object element = Array.get(array, i);
+                final Object row = (element != null) ? element : Array.newInstance(component.getComponentType(), 3);
+                Array.set(array, i, fillArray(row, random));
+            }
+            else if (component == Extent.class) {
+                Array.set(array, i, fillNew(Extent.class, random));
+            }
+            else {
+                Array.set(array, i, random(component, random));
+            }
+        }
+        return array;
+    }
+
+    private static Object random(final Class<?> type, final Random random) {
+        if (type.isEnum()) {
+            final Object[] constants = type.getEnumConstants();
+            return constants[constants.length - 1];
+        }
+        if (type == String.class) {
+            return "value" + random.nextInt(1000);
+        }
+        if ((type == int.class) || (type == Integer.class)) {
+            return 1 + random.nextInt(1000);
+        }
+        if ((type == long.class) || (type == Long.class)) {
+            return 1 + (long) random.nextInt(1000);
+        }
+        if ((type == float.class) || (type == Float.class)) {
+            return 1 + random.nextFloat();
+        }
+        if ((type == short.class) || (type == Short.class)) {
+            return (short) (1 + random.nextInt(100));
+        }
+        if ((type == byte.class) || (type == Byte.class)) {
+            return (byte) (1 + random.nextInt(100));
+        }
+        if ((type == char.class) || (type == Character.class)) {
+            return (char) (1 + random.nextInt(100));
+        }
+        if ((type == boolean.class) || (type == Boolean.class)) {
+            return true;
+        }
+        throw new AssertionError("No value for " + type);
+    }
+
+    private static Timeline<?> timeline(final Random random) {
+        final FloatArrayTimeline timeline = new FloatArrayTimeline(3, War3ID.fromString("KGTR"));
+        timeline.setInterpolationType(InterpolationType.HERMITE);
+        timeline.setGlobalSequenceId(random.nextInt(10));
+        timeline.setKeyframes(new long[] { 0, 100 }, values(random), values(random), values(random));
+        return timeline;
+    }
+
+    private static float[][] values(final Random random) {
+        return new float[][] { { random.nextFloat(), 1, 2 }, { random.nextFloat(), 3, 4 } };
+    }
+
+    /**
+     * Compares two objects field by field, down to array contents, and checks
+     * that only the arrays a shared copy may share are the same.
+     */
+    private static void assertCopied(final Object expected, final Object actual, final boolean shareArrays,
+            final String path) throws Exception {
+        if (expected == null) {
+            assertNull(actual, path);
+            return;
+        }
+        final Class<?> type = expected.getClass();
+        if (type.isArray()) {
+            assertEquals(Array.getLength(expected), Array.getLength(actual), path);
+            if (!shareArrays) {
+                assertNotSame(expected, actual, path);
+            }
+            for (int i = 0; i < Array.getLength(expected); i++) {
+                assertCopied(Array.get(expected, i), Array.get(actual, i), shareArrays, path + "[" + i + "]");
+            }
+        }
+        else if (expected instanceof List<?>) {
+            assertNotSame(expected, actual, path);
+            assertEquals(((List<?>) expected).size(), ((List<?>) actual).size(), path);
+            for (int i = 0; i < ((List<?>) expected).size(); i++) {
+                assertCopied(((List<?>) expected).get(i), ((List<?>) actual).get(i), shareArrays, path + "." + i);
+            }
+        }
+        else if (type.getName().startsWith("app.retera.parsers.")) {
+            if (!type.isEnum()) {
+                assertNotSame(expected, actual, path);
+            }
+            assertSame(type, actual.getClass(), path);
+            for (Class<?> t = type; t != Object.class; t = t.getSuperclass()) {
+                for (final Field field : t.getDeclaredFields()) {
+                    if (!Modifier.isStatic(field.getModifiers()) && !type.isEnum()) {
+                        field.setAccessible(true);
+                        // Final arrays are filled in place, so they can never be shared.
+                        final boolean fixed = Modifier.isFinal(field.getModifiers()) && field.getType().isArray();
+                        assertCopied(field.get(expected), field.get(actual), shareArrays && !fixed,
+                                path + "." + field.getName());
+                    }
+                }
+            }
+        }
+        else {
+            assertEquals(expected, actual, path);
+        }
+    }
+}
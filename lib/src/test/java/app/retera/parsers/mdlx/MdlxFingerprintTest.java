@@ -0,0 +1,87 @@
+package app.retera.parsers.mdlx;
+
+import app.retera.util.XxHash64;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class MdlxFingerprintTest {
+    @Test
+    void xxHash64MatchesTheReference() {
+        assertEquals(0xEF46DB3751D8E999L, new XxHash64().hash());
+        assertEquals(0x44BC2CF5AD770999L, hashBytes("abc"));
+        assertEquals(0xFBCEA83C8A378BF1L, hashBytes("Nobody inspects the spammish repetition"));
+    }
+
+    @Test
+    void xxHash64IgnoresHowTheInputIsSplit() {
+        final float[] values = new float[45];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i * 0.5f;
+        }
+        final XxHash64 whole = new XxHash64(7).putByte((byte) 1).putFloats(values);
+        final XxHash64 pieces = new XxHash64(7).putByte((byte) 1);
+        for (final float value : values) {
+            pieces.putInt(Float.floatToIntBits(value));
+        }
+        assertEquals(whole.hash(), pieces.hash());
+    }
+
+    @Test
+    void mdlAndMdxHaveTheSameFingerprint() {
+        final MdlxFingerprint mdl = MdlxFingerprint.of(TestModels.footman());
+        final MdlxFingerprint mdx = MdlxFingerprint.of(TestModels.fromMdx(TestModels.footmanMdx()));
+
+        assertEquals(mdl, mdx);
+        assertEquals(mdl.getHash(), mdx.getHash());
+    }
+
+    @Test
+    void onlyChangedChunksChangeTheirHash() {
+        final MdlxModel model = TestModels.footman();
+        final MdlxFingerprint before = MdlxFingerprint.of(model);
+        final long geosetHash = MdlxFingerprint.hash(model.getGeosets().get(0));
+
+        model.getGeosets().get(0).getVertices()[0] += 1;
+        final MdlxFingerprint after = MdlxFingerprint.of(model);
+
+        assertNotEquals(before.getHash(), after.getHash());
+        assertNotEquals(geosetHash, MdlxFingerprint.hash(model.getGeosets().get(0)));
+        final Map<String, Long> unchanged = new HashMap<>(before.getChunkHashes());
+        unchanged.remove("GEOS");
+        final Map<String, Long> rest = new HashMap<>(after.getChunkHashes());
+        rest.remove("GEOS");
+        assertEquals(unchanged, rest);
+        assertNotEquals(before.getChunkHashes().get("GEOS"), after.getChunkHashes().get("GEOS"));
+    }
+
+    @Test
+    void keyframesAreHashed() {
+        final MdlxModel model = TestModels.footman();
+        final long before = MdlxFingerprint.hash(model.getBones().get(0));
+
+        ((float[]) model.getBones().get(0).getTimelines().get(0).getValues()[1])[2] = 6;
+
+        assertNotEquals(before, MdlxFingerprint.hash(model.getBones().get(0)));
+    }
+
+    @Test
+    void missingGeosetArraysDifferFromEmptyOnes() {
+        final Geoset missing = new Geoset();
+        final Geoset empty = new Geoset();
+        empty.setSequenceExtents(new Extent[0]);
+        empty.setUvSets(new float[0][]);
+
+        assertEquals(MdlxFingerprint.hash(missing), MdlxFingerprint.hash(new Geoset()));
+        assertNotEquals(MdlxFingerprint.hash(missing), MdlxFingerprint.hash(empty));
+    }
+
+    private static long hashBytes(final String value) {
+        return new XxHash64().putBytes(value.getBytes(StandardCharsets.UTF_8)).hash();
+    }
+}
@@ -17,4 +17,21 @@ class MdlxTest {
         MdlxModel model = new MdlxModel();
         assertEquals(model.getVersion(), 800);
     }
+
+    @Test void geosetUnsignedValuesSurviveMdxRoundTrip() {
+        MdlxModel model = TestModels.footman();
+        Geoset geoset = model.getGeosets().get(0);
+        geoset.setFaces(new int[] {0, 1, 65535, 2, 3, 40000});
+        geoset.setVertexGroups(new short[] {0, 1, 255, 200});
+        geoset.setMatrixGroups(new long[] {1, 1});
+        geoset.setMatrixIndices(new long[] {0, 4000000000L});
+
+        Geoset copy = TestModels.fromMdx(TestModels.toMdx(model)).getGeosets().get(0);
+        assertArrayEquals(new char[] {0, 1, 65535, 2, 3, 40000}, copy.getCompactFaces());
+        assertArrayEquals(new byte[] {0, 1, (byte) 255, (byte) 200}, copy.getCompactVertexGroups());
+        assertArrayEquals(new int[] {0, (int) 4000000000L}, copy.getCompactMatrixIndices());
+        assertEquals(255, copy.getVertexGroup(2));
+        assertEquals(65535, copy.getFace(2));
+        assertEquals(4000000000L, copy.getMatrixIndex(1));
+    }
 }
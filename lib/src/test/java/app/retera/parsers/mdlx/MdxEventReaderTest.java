@@ -0,0 +1,128 @@
+package app.retera.parsers.mdlx;
+
+import app.retera.parsers.mdlx.timeline.Timeline;
+import app.retera.util.War3ID;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.IntBuffer;
+import java.nio.ShortBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MdxEventReaderTest {
+    @Test
+    void eventsMatchTheLoadedModel() throws Exception {
+        final MdlxModel model = TestModels.footman();
+        final List<String> sequences = new ArrayList<>();
+        final List<String> textures = new ArrayList<>();
+        final List<float[]> vertices = new ArrayList<>();
+        final List<char[]> faces = new ArrayList<>();
+        final int[] timelines = new int[1];
+
+        new MdxEventReader(new MdxEventHandler() {
+            @Override
+            public void onSequence(final int index, final Sequence sequence) {
+                sequences.add(sequence.getName());
+            }
+
+            @Override
+            public void onTexture(final int index, final Texture texture) {
+                textures.add(texture.getPath());
+            }
+
+            @Override
+            public void onTimeline(final War3ID tag, final int index, final Timeline<?> timeline) {
+                timelines[0]++;
+            }
+
+            @Override
+            public void onGeosetVertices(final int index, final FloatBuffer buffer) {
+                final float[] copy = new float[buffer.remaining()];
+                buffer.get(copy);
+                vertices.add(copy);
+            }
+
+            @Override
+            public void onGeosetFaces(final int index, final IntBuffer faceTypeGroups, final IntBuffer faceGroups,
+                    final ShortBuffer buffer) {
+                final char[] copy = new char[buffer.remaining()];
+                for (int i = 0; i < copy.length; i++) {
+                    copy[i] = (char) buffer.get(i);
+                }
+                faces.add(copy);
+            }
+        }).read(new ByteArrayInputStream(TestModels.toMdx(model)));
+
+        assertEquals(List.of("Stand", "Walk"), sequences);
+        assertEquals(model.getTextures().size(), textures.size());
+        assertEquals(model.getGeosets().size(), vertices.size());
+        assertArrayEquals(model.getGeosets().get(0).getVertices(), vertices.get(0));
+        assertArrayEquals(model.getGeosets().get(0).getCompactFaces(), faces.get(0));
+        assertTrue(timelines[0] > 0);
+    }
+
+    @Test
+    void skippedChunksAreNotDecoded() throws Exception {
+        final List<String> chunks = new ArrayList<>();
+        final int[] objects = new int[1];
+
+        new MdxEventReader(new MdxEventHandler() {
+            @Override
+            public boolean onChunkStart(final War3ID tag, final long size) {
+                chunks.add(tag.toString());
+                return tag.toString().equals("SEQS");
+            }
+
+            @Override
+            public void onObject(final War3ID tag, final int index, final MdlxBlock object) {
+                objects[0]++;
+            }
+        }).read(new ByteArrayInputStream(TestModels.footmanMdx()));
+
+        assertTrue(chunks.contains("BONE"));
+        assertTrue(chunks.contains("CLID"));
+        assertEquals(0, objects[0]);
+    }
+
+    @Test
+    void shortReadsKeepTheStreamAligned() throws Exception {
+        final List<String> names = new ArrayList<>();
+        final List<String> sequences = new ArrayList<>();
+        // Hands out at most 7 bytes per read and never says more are ready, like a socket might.
+        final FilterInputStream trickle = new FilterInputStream(new ByteArrayInputStream(TestModels.footmanMdx())) {
+            @Override
+            public int read(final byte[] b, final int off, final int len) throws IOException {
+                return super.read(b, off, Math.min(len, 7));
+            }
+
+            @Override
+            public int available() {
+                return 0;
+            }
+        };
+
+        new MdxEventReader(new MdxEventHandler() {
+            @Override
+            public void onModel(final String name, final String animationFile, final Extent extent,
+                    final long blendTime) {
+                names.add(name);
+            }
+
+            @Override
+            public void onSequence(final int index, final Sequence sequence) {
+                sequences.add(sequence.getName());
+            }
+        }).read(trickle);
+
+        assertEquals(List.of("Footman"), names);
+        assertEquals(List.of("Stand", "Walk"), sequences);
+    }
+}
@@ -0,0 +1,90 @@
+package app.retera.parsers.mdlx;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class MdxRewriterTest {
+    @Test
+    void nothingToChangeCopiesTheFile() throws Exception {
+        final byte[] mdx = TestModels.footmanMdx();
+
+        assertArrayEquals(mdx, rewrite(new MdxRewriter(), mdx));
+    }
+
+    @Test
+    void onlyEditedFieldsChange() throws Exception {
+        final byte[] mdx = TestModels.footmanMdx();
+        final MdxRewriter rewriter = new MdxRewriter()
+                .setTexturePathMapper(path -> path.toLowerCase(Locale.ROOT))
+                .setSequenceNameMapper(name -> name + " Alternate")
+                .setExtentEditor(extent -> extent.setBoundsRadius(42));
+
+        final MdlxModel original = TestModels.fromMdx(mdx);
+        final MdlxModel rewritten = TestModels.fromMdx(rewrite(rewriter, mdx));
+
+        assertEquals("textures\\footman.blp", rewritten.getTextures().get(0).getPath());
+        assertEquals("Walk Alternate", rewritten.getSequences().get(1).getName());
+        assertEquals(42, rewritten.getExtent().getBoundsRadius());
+        assertArrayEquals(original.getSequences().get(1).getInterval(), rewritten.getSequences().get(1).getInterval());
+        assertArrayEquals(TestModels.toMdx(withoutEdits(rewritten, original)), mdx);
+    }
+
+    @Test
+    void filesAreCopiedThroughChannels(@TempDir final Path directory) throws Exception {
+        final Path source = directory.resolve("footman.mdx");
+        final Path target = directory.resolve("footman-renamed.mdx");
+        Files.write(source, TestModels.footmanMdx());
+
+        new MdxRewriter().setSequenceNameMapper(name -> name.toUpperCase(Locale.ROOT)).rewrite(source, target);
+
+        assertEquals(Files.size(source), Files.size(target));
+        assertEquals("STAND", TestModels.fromMdx(Files.readAllBytes(target)).getSequences().get(0).getName());
+    }
+
+    @Test
+    void oversizedPathsAreRejected() throws Exception {
+        final MdxRewriter rewriter = new MdxRewriter().setTexturePathMapper(path -> "x".repeat(261));
+
+        assertThrows(IllegalArgumentException.class, () -> rewrite(rewriter, TestModels.footmanMdx()));
+        // A full field would have no terminating zero.
+        rewriter.setTexturePathMapper(path -> "x".repeat(260));
+        assertThrows(IllegalArgumentException.class, () -> rewrite(rewriter, TestModels.footmanMdx()));
+        rewriter.setSequenceNameMapper(name -> "x".repeat(80)).setTexturePathMapper(null);
+        assertThrows(IllegalArgumentException.class, () -> rewrite(rewriter, TestModels.footmanMdx()));
+        rewriter.setSequenceNameMapper(name -> "x".repeat(79)).setTexturePathMapper(path -> "x".repeat(259));
+        final MdlxModel rewritten = TestModels.fromMdx(rewrite(rewriter, TestModels.footmanMdx()));
+        assertEquals("x".repeat(259), rewritten.getTextures().get(0).getPath());
+        assertEquals("x".repeat(79), rewritten.getSequences().get(0).getName());
+    }
+
+    private static byte[] rewrite(final MdxRewriter rewriter, final byte[] mdx) throws Exception {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        rewriter.rewrite(Channels.newChannel(new ByteArrayInputStream(mdx)), Channels.newChannel(out));
+        return out.toByteArray();
+    }
+
+    /**
+     * Puts the edited fields back, so the rest of the model can be compared.
+     */
+    private static MdlxModel withoutEdits(final MdlxModel rewritten, final MdlxModel original) {
+        for (int i = 0; i < original.getTextures().size(); i++) {
+            rewritten.getTextures().get(i).setPath(original.getTextures().get(i).getPath());
+        }
+        for (int i = 0; i < original.getSequences().size(); i++) {
+            rewritten.getSequences().get(i).setName(original.getSequences().get(i).getName());
+        }
+        rewritten.getExtent().setBoundsRadius(original.getExtent().getBoundsRadius());
+        return rewritten;
+    }
+}
@@ -0,0 +1,48 @@
+package app.retera.parsers.mdlx;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RetainedSizeEstimatorTest {
+    @Test
+    void footmanBreakdown() {
+        final Map<String, Long> expected = new LinkedHashMap<>();
+        expected.put("MODL", 744L);
+        expected.put("SEQS", 456L);
+        // One slot in a list, and the boxed Long.
+        expected.put("GLBS", 24L + 24);
+        expected.put("MTLS", 336L);
+        expected.put("TEXS", 176L);
+        expected.put("GEOS", 744L);
+        expected.put("GEOA", 280L);
+        expected.put("BONE", 1024L);
+        expected.put("HELP", 128L);
+        expected.put("ATCH", 352L);
+        // Four slots in a list, and four float[3].
+        expected.put("PIVT", 32L + (4 * 32));
+        expected.put("EVTS", 168L);
+        expected.put("CLID", 464L);
+
+        final RetainedSizeEstimate estimate = TestModels.footman().getRetainedSizeEstimate();
+
+        assertEquals(expected, estimate.getChunkSizes());
+        assertEquals(5080, estimate.getTotal());
+        assertEquals(estimate.getChunkSizes(),
+                TestModels.fromMdx(TestModels.footmanMdx()).getRetainedSizeEstimate().getChunkSizes());
+    }
+
+    @Test
+    void arraysAreCountedByLength() {
+        final MdlxModel model = TestModels.footman();
+        final long before = model.getRetainedSizeEstimate().getChunkSize("GEOS");
+        final Geoset geoset = model.getGeosets().get(0);
+
+        geoset.setVertices(new float[geoset.getVertices().length + 30]);
+
+        assertEquals(before + 120, model.getRetainedSizeEstimate().getChunkSize("GEOS"));
+    }
+}
@@ -0,0 +1,235 @@
+package app.retera.parsers.mdlx;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * A small but complete model shared by the tests: sequences, a global
+ * sequence, textures, an animated layer, a skinned geoset and a node hierarchy
+ * with translation, rotation and scaling tracks.
+ */
+public final class TestModels {
+    public static final String FOOTMAN_MDL = """
+            // test fixture
+            Version {
+                FormatVersion 800,
+            }
+            Model "Footman" {
+                NumGeosets 1,
+                BlendTime 150,
+                MinimumExtent { -10, -10, 0 },
+                MaximumExtent { 10, 10, 20 },
+                BoundsRadius 15,
+            }
+            Sequences 2 {
+                Anim "Stand" {
+                    Interval { 0, 1000 },
+                    MinimumExtent { -10, -10, 0 },
+                    MaximumExtent { 10, 10, 20 },
+                    BoundsRadius 15,
+                }
+                Anim "Walk" {
+                    Interval { 1100, 2000 },
+                    NonLooping,
+                    MoveSpeed 270,
+                }
+            }
+            GlobalSequences 1 {
+                Duration 500,
+            }
+            Textures 2 {
+                Bitmap {
+                    Image "Textures\\Footman.blp",
+                }
+                Bitmap {
+                    Image "",
+                    ReplaceableId 1,
+                }
+            }
+            Materials 1 {
+                Material {
+                    Layer {
+                        FilterMode None,
+                        static TextureID 0,
+                        Alpha 2 {
+                            Linear,
+                            0: 1,
+                            1000: 0.5,
+                        }
+                    }
+                }
+            }
+            Geoset {
+                Vertices 4 {
+                    { 0, 0, 0 },
+                    { 1, 0, 0 },
+                    { 1, 1, 0 },
+                    { 0, 1, 0 },
+                }
+                Normals 4 {
+                    { 0, 0, 1 },
+                    { 0, 0, 1 },
+                    { 0, 0, 1 },
+                    { 0, 0, 1 },
+                }
+                TVertices 4 {
+                    { 0, 0 },
+                    { 1, 0 },
+                    { 1, 1 },
+                    { 0, 1 },
+                }
+                VertexGroup {
+                    0,
+                    0,
+                    1,
+                    1,
+                }
+                Faces 1 6 {
+                    Triangles {
+                        { 0, 1, 2, 0, 2, 3 },
+                    }
+                }
+                Groups 2 2 {
+                    Matrices { 0 },
+                    Matrices { 1 },
+                }
+                MinimumExtent { 0, 0, 0 },
+                MaximumExtent { 1, 1, 0 },
+                BoundsRadius 1,
+                Anim {
+                    MinimumExtent { 0, 0, 0 },
+                    MaximumExtent { 1, 1, 0 },
+                }
+                Anim {
+                    BoundsRadius 2,
+                }
+                MaterialID 0,
+                SelectionGroup 0,
+            }
+            GeosetAnim {
+                Alpha 2 {
+                    DontInterp,
+                    GlobalSeqId 0,
+                    0: 1,
+                    250: 0,
+                }
+                GeosetId 0,
+            }
+            Bone "Root" {
+                ObjectId 0,
+                GeosetId 0,
+                GeosetAnimId None,
+                Translation 3 {
+                    Linear,
+                    0: { 0, 0, 0 },
+                    500: { 0, 0, 5 },
+                    1000: { 0, 0, 10 },
+                }
+                Rotation 2 {
+                    Hermite,
+                    0: { 0, 0, 0, 1 },
+                        InTan { 0, 0, 0, 1 },
+                        OutTan { 0, 0, 0, 1 },
+                    1000: { 0, 0, 0.707107, 0.707107 },
+                        InTan { 0, 0, 0.707107, 0.707107 },
+                        OutTan { 0, 0, 0.707107, 0.707107 },
+                }
+            }
+            Bone "Child" {
+                ObjectId 1,
+                Parent 0,
+                GeosetId Multiple,
+                GeosetAnimId None,
+                DontInherit { Rotation },
+                Scaling 2 {
+                    Linear,
+                    1100: { 1, 1, 1 },
+                    2000: { 2, 2, 2 },
+                }
+            }
+            Helper "Helper01" {
+                ObjectId 2,
+                Parent 1,
+            }
+            Attachment "Origin Ref" {
+                ObjectId 3,
+                Parent 0,
+                AttachmentID 0,
+                Visibility 2 {
+                    DontInterp,
+                    0: 1,
+                    1100: 0,
+                }
+            }
+            PivotPoints 4 {
+                { 0, 0, 0 },
+                { 0, 0, 10 },
+                { 0, 0, 15 },
+                { 0, 0, 0 },
+            }
+            EventObject "SNDxFOOT" {
+                ObjectId 4,
+                EventTrack 2 {
+                    100,
+                    1200,
+                }
+            }
+            CollisionShape "Collision Sphere01" {
+                ObjectId 5,
+                Sphere,
+                Vertices 1 {
+                    { 0, 0, 10 },
+                }
+                BoundsRadius 12,
+            }
+            CollisionShape "Collision Box01" {
+                ObjectId 6,
+                Box,
+                Vertices 2 {
+                    { -5, -5, 0 },
+                    { 5, 5, 20 },
+                }
+            }
+            """;
+
+    private TestModels() {
+    }
+
+    public static MdlxModel footman() {
+        try {
+            final MdlxModel model = new MdlxModel();
+            model.loadMdl(new ByteArrayInputStream(FOOTMAN_MDL.getBytes(StandardCharsets.UTF_8)));
+            return model;
+        }
+        catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static byte[] footmanMdx() {
+        return toMdx(footman());
+    }
+
+    public static byte[] toMdx(final MdlxModel model) {
+        try {
+            final ByteArrayOutputStream stream = new ByteArrayOutputStream();
+            model.saveMdx(stream);
+            return stream.toByteArray();
+        }
+        catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public static MdlxModel fromMdx(final byte[] mdx) {
+        try {
+            return new MdlxModel(new ByteArrayInputStream(mdx));
+        }
+        catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package app.retera.parsers.mdlx.animation;
+
+import app.retera.parsers.mdlx.TestModels;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class AnimationBakerTest {
+    private static final float EPSILON = 0.0001f;
+
+    @Test
+    void everySequenceIsBaked() {
+        final List<BakedClip> clips = new AnimationBaker(100).bake(TestModels.footman());
+
+        assertEquals(2, clips.size());
+        assertEquals("Walk", clips.get(1).getName());
+        assertEquals(11, clips.get(0).getFrameCount());
+        assertEquals(10, clips.get(1).getFrameCount());
+        assertEquals(7, clips.get(0).getNodeCount());
+        assertEquals(clips.get(0).getByteSize() + clips.get(1).getByteSize(), AnimationBaker.getByteSize(clips));
+    }
+
+    @Test
+    void samplesMatchTheTimelines() {
+        final BakedClip stand = new AnimationBaker(100).bake(TestModels.footman()).get(0);
+        final float[] translation = new float[3];
+        final float[] rotation = new float[4];
+        final float[] scale = new float[3];
+
+        stand.sample(250, stand.getNode(0), translation, rotation, scale);
+        assertArrayEquals(new float[] { 0, 0, 2.5f }, translation, EPSILON);
+        assertArrayEquals(new float[] { 1, 1, 1 }, scale, EPSILON);
+
+        stand.sample(1000, stand.getNode(0), translation, rotation, scale);
+        assertArrayEquals(new float[] { 0, 0, 0.707107f, 0.707107f }, rotation, EPSILON);
+    }
+
+    @Test
+    void keysOfOtherSequencesAreIgnored() {
+        final List<BakedClip> clips = new AnimationBaker(100).bake(TestModels.footman());
+        final float[] translations = new float[7 * 3];
+        final float[] rotations = new float[7 * 4];
+        final float[] scales = new float[7 * 3];
+
+        clips.get(0).sample(500, translations, rotations, scales);
+        assertEquals(1, scales[3], EPSILON);
+
+        clips.get(1).sample(450, translations, rotations, scales);
+        assertEquals(1.5f, scales[3], EPSILON);
+        assertEquals(0, translations[2], EPSILON);
+    }
+}
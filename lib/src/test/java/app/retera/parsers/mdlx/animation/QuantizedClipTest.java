@@ -0,0 +1,62 @@
+package app.retera.parsers.mdlx.animation;
+
+import app.retera.parsers.mdlx.TestModels;
+import app.retera.parsers.mdlx.timeline.Interpolator;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuantizedClipTest {
+    @Test
+    void errorsAreMeasuredAndSmall() {
+        for (final BakedClip clip : new AnimationBaker(10).bake(TestModels.footman())) {
+            final QuantizedClip quantized = QuantizedClip.of(clip);
+
+            // Root translation spans 10 units.
+            assertTrue(quantized.getMaxTranslationError() <= (10f / 65535 / 2) + 1e-6f);
+            assertTrue(quantized.getMaxRotationError() < 0.0005f);
+            assertTrue(quantized.getMaxScaleError() <= 0.001f);
+            assertTrue(quantized.getByteSize() < (clip.getByteSize() / 2));
+        }
+    }
+
+    @Test
+    void samplesMatchTheBakedClip() {
+        final List<BakedClip> clips = new AnimationBaker(10).bake(TestModels.footman());
+        for (final BakedClip clip : clips) {
+            final QuantizedClip quantized = QuantizedClip.of(clip);
+            final int nodes = clip.getNodeCount();
+            final float[][] baked = { new float[nodes * 3], new float[nodes * 4], new float[nodes * 3] };
+            final float[][] decoded = { new float[nodes * 3], new float[nodes * 4], new float[nodes * 3] };
+
+            for (long time = 0; time <= clip.getDuration(); time += 7) {
+                clip.sample(time, baked[0], baked[1], baked[2]);
+                quantized.sample(time, decoded[0], decoded[1], decoded[2]);
+
+                assertArrayEquals(baked[0], decoded[0], 0.001f);
+                assertArrayEquals(baked[2], decoded[2], 0.001f);
+                for (int node = 0; node < nodes; node++) {
+                    final float[] a = { baked[1][node * 4], baked[1][(node * 4) + 1], baked[1][(node * 4) + 2],
+                            baked[1][(node * 4) + 3] };
+                    final float[] b = { decoded[1][node * 4], decoded[1][(node * 4) + 1], decoded[1][(node * 4) + 2],
+                            decoded[1][(node * 4) + 3] };
+                    assertTrue(Interpolator.angle(a, b) < 0.001f);
+                }
+            }
+        }
+    }
+
+    @Test
+    void halfFloatsRoundTrip() {
+        for (final float value : new float[] { 0, 1, -2, 0.5f, 65504, 1e-7f, Float.POSITIVE_INFINITY }) {
+            final float tolerance = Math.max(Math.abs(value) / 1024, 0x1p-25f);
+            assertEquals(value, QuantizedClip.fromHalf(QuantizedClip.toHalf(value)), tolerance);
+        }
+        assertEquals(1.0009766f, QuantizedClip.fromHalf(QuantizedClip.toHalf(1.0009f)));
+        assertTrue(Float.isNaN(QuantizedClip.fromHalf(QuantizedClip.toHalf(Float.NaN))));
+    }
+}
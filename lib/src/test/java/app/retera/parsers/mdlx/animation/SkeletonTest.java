@@ -0,0 +1,70 @@
+package app.retera.parsers.mdlx.animation;
+
+import app.retera.parsers.mdlx.TestModels;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SkeletonTest {
+    private static final float EPSILON = 0.0001f;
+
+    @Test
+    void nodesFollowTheGenericObjects() {
+        final Skeleton skeleton = new Skeleton(TestModels.footman());
+
+        assertEquals(7, skeleton.getNodeCount());
+        assertArrayEquals(new int[] { 0, 1, 2, 3, 4, 5, 6 }, skeleton.getObjectIds());
+        assertEquals(-1, skeleton.getParent(0));
+        assertEquals(0, skeleton.getParent(1));
+        assertEquals(1, skeleton.getParent(2));
+        assertEquals(-1, skeleton.getNode(7));
+    }
+
+    @Test
+    void childrenMoveWithTheirParents() {
+        final Skeleton skeleton = new Skeleton(TestModels.footman());
+        final BakedClip stand = new AnimationBaker(100).bake(TestModels.footman()).get(0);
+        final float[] translations = new float[7 * 3];
+        final float[] rotations = new float[7 * 4];
+        final float[] scales = new float[7 * 3];
+        final float[] matrices = new float[7 * 16];
+
+        stand.sample(1000, translations, rotations, scales);
+        skeleton.worldMatrices(translations, rotations, scales, matrices);
+
+        // The root is raised by 10 and turned a quarter about z, the child is at rest.
+        assertArrayEquals(new float[] { 0, 1, 20 }, transform(matrices, 0, 1, 0, 10), EPSILON);
+        assertArrayEquals(new float[] { 0, 1, 20 }, transform(matrices, 1, 1, 0, 10), EPSILON);
+        assertArrayEquals(new float[] { 1, 0, 0 }, transform(matrices, 4, 1, 0, 0), EPSILON);
+    }
+
+    @Test
+    void scalingIsAboutThePivot() {
+        final Skeleton skeleton = new Skeleton(TestModels.footman());
+        final BakedClip walk = new AnimationBaker(100).bake(TestModels.footman()).get(1);
+        final float[] translations = new float[7 * 3];
+        final float[] rotations = new float[7 * 4];
+        final float[] scales = new float[7 * 3];
+        final float[] matrices = new float[7 * 16];
+
+        walk.sample(900, translations, rotations, scales);
+        skeleton.worldMatrices(translations, rotations, scales, matrices);
+
+        // The child doubles in size about its pivot at (0, 0, 10).
+        assertArrayEquals(new float[] { 0, 0, 10 }, transform(matrices, 1, 0, 0, 10), EPSILON);
+        assertArrayEquals(new float[] { 2, 0, 12 }, transform(matrices, 1, 1, 0, 11), EPSILON);
+        assertArrayEquals(new float[] { 2, 0, 12 }, transform(matrices, 2, 1, 0, 11), EPSILON);
+    }
+
+    private static float[] transform(final float[] matrices, final int node, final float x, final float y,
+            final float z) {
+        final int m = node * 16;
+        final float[] out = new float[3];
+        for (int row = 0; row < 3; row++) {
+            out[row] = (matrices[m + row] * x) + (matrices[m + 4 + row] * y) + (matrices[m + 8 + row] * z)
+                    + matrices[m + 12 + row];
+        }
+        return out;
+    }
+}
@@ -0,0 +1,176 @@
+package app.retera.parsers.mdlx.cache;
+
+import app.retera.parsers.mdlx.MdlxModel;
+import app.retera.parsers.mdlx.TestModels;
+import app.retera.util.InternPool;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModelCacheTest {
+    @Test
+    void sameContentIsParsedOnce() throws Exception {
+        final ModelCache cache = new ModelCache(64 * 1024 * 1024);
+        final MdlxModel first = cache.get(TestModels.footmanMdx());
+        final MdlxModel second = cache.get(TestModels.footmanMdx());
+
+        assertSame(first, second);
+        assertEquals("Footman", first.getName());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    void mdlAndMdxAreBothAccepted() throws Exception {
+        final ModelCache cache = new ModelCache(64 * 1024 * 1024);
+        final MdlxModel fromMdl = cache.get(TestModels.FOOTMAN_MDL.getBytes(StandardCharsets.UTF_8));
+        final MdlxModel fromMdx = cache.get(TestModels.footmanMdx());
+
+        assertEquals(fromMdl.getGeosets().size(), fromMdx.getGeosets().size());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void parsedModelsShareInternedStrings() throws Exception {
+        final InternPool pool = new InternPool();
+        final ModelCache cache = new ModelCache(64 * 1024 * 1024, model -> 1, pool);
+        final MdlxModel fromMdl = cache.get(TestModels.FOOTMAN_MDL.getBytes(StandardCharsets.UTF_8));
+        final MdlxModel fromMdx = cache.get(TestModels.footmanMdx());
+
+        assertSame(fromMdl.getSequences().get(0).getName(), fromMdx.getSequences().get(0).getName());
+        assertSame(fromMdl.getTextures().get(0).getPath(), fromMdx.getTextures().get(0).getPath());
+        assertSame(fromMdl.getBones().get(0).getName(), fromMdx.getBones().get(0).getName());
+        assertNotSame(fromMdl.getPivotPoints().get(0), fromMdx.getPivotPoints().get(0));
+        assertTrue(pool.getBytesSaved() > 0);
+    }
+
+    @Test
+    void sharedArraysKeepTheContent() throws Exception {
+        final InternPool pool = new InternPool(1024, true);
+        final MdlxModel first = new MdlxModel();
+        first.loadMdx(new ByteArrayInputStream(TestModels.footmanMdx()), pool);
+        final MdlxModel second = new MdlxModel();
+        second.loadMdl(new ByteArrayInputStream(TestModels.FOOTMAN_MDL.getBytes(StandardCharsets.UTF_8)), pool);
+
+        // The first and last pivots are both at the origin.
+        assertSame(first.getPivotPoints().get(0), first.getPivotPoints().get(3));
+        assertSame(first.getPivotPoints().get(1), second.getPivotPoints().get(1));
+        assertSame(first.getBones().get(0).getTimelines().get(0).getFrames(),
+                second.getBones().get(0).getTimelines().get(0).getFrames());
+        assertArrayEquals(TestModels.footmanMdx(), TestModels.toMdx(first));
+        assertArrayEquals(TestModels.footmanMdx(), TestModels.toMdx(second));
+        final long saved = pool.getBytesSaved();
+        assertTrue(saved > 0);
+
+        // Interning a model again saves nothing more.
+        second.intern(pool);
+        assertEquals(saved, pool.getBytesSaved());
+    }
+
+    @Test
+    void concurrentLoadsAreDeduplicated() throws Exception {
+        final ModelCache cache = new ModelCache(64 * 1024 * 1024);
+        final byte[] data = TestModels.footmanMdx();
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<MdlxModel>> futures = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                futures.add(executor.submit(() -> cache.get(data)));
+            }
+            final MdlxModel expected = futures.get(0).get();
+            for (final Future<MdlxModel> future : futures) {
+                assertSame(expected, future.get());
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+        assertEquals(1, cache.getLoadCount());
+    }
+
+    @Test
+    void differentModelsParseConcurrently() throws Exception {
+        final ModelCache cache = new ModelCache(64 * 1024 * 1024);
+        final List<byte[]> files = new ArrayList<>();
+        for (int i = 0; i < 64; i++) {
+            final MdlxModel model = TestModels.footman();
+            model.setName("Footman" + i);
+            model.getTextures().get(0).setPath("Textures\\Footman" + i + ".blp");
+            model.getBones().get(0).setName("Root" + i);
+            files.add(TestModels.toMdx(model));
+        }
+        final ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            final List<Future<MdlxModel>> futures = new ArrayList<>();
+            for (final byte[] file : files) {
+                futures.add(executor.submit(() -> cache.get(file)));
+            }
+            for (int i = 0; i < files.size(); i++) {
+                assertArrayEquals(files.get(i), TestModels.toMdx(futures.get(i).get()));
+            }
+        }
+        finally {
+            executor.shutdown();
+        }
+        assertEquals(64, cache.getLoadCount());
+    }
+
+    @Test
+    void evictsWhenOverBudget() throws Exception {
+        final ModelCache cache = new ModelCache(1);
+        cache.get(TestModels.footmanMdx());
+        cache.get(TestModels.FOOTMAN_MDL.getBytes(StandardCharsets.UTF_8));
+
+        assertTrue(cache.getEvictionCount() > 0);
+    }
+
+    @Test
+    void evictedFilesAreForgotten() throws Exception {
+        final Path directory = Files.createTempDirectory("models");
+        try {
+            final Path mdx = Files.write(directory.resolve("Footman.mdx"), TestModels.footmanMdx());
+            final Path mdl = Files.write(directory.resolve("Footman.mdl"),
+                    TestModels.FOOTMAN_MDL.getBytes(StandardCharsets.UTF_8));
+            final ModelCache cache = new ModelCache(64 * 1024 * 1024);
+            cache.get(mdx);
+            cache.get(mdl);
+            assertEquals(2, cache.getFileStampCount());
+            cache.invalidateAll();
+            assertEquals(0, cache.getFileStampCount());
+
+            // Room for one model, so the first one is evicted by the second.
+            final ModelCache single = new ModelCache(1, model -> 1);
+            single.get(mdx);
+            assertEquals(1, single.getFileStampCount());
+            single.get(mdl);
+            assertEquals(1, single.size());
+            assertEquals(1, single.getFileStampCount());
+
+            // Too small to keep anything, so nothing is remembered either.
+            final ModelCache tiny = new ModelCache(1);
+            tiny.get(mdx);
+            tiny.get(mdl);
+            assertEquals(0, tiny.size());
+            assertEquals(0, tiny.getFileStampCount());
+        }
+        finally {
+            Files.delete(directory.resolve("Footman.mdx"));
+            Files.delete(directory.resolve("Footman.mdl"));
+            Files.delete(directory);
+        }
+    }
+}
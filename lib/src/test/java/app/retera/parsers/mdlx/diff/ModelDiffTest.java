@@ -0,0 +1,79 @@
+package app.retera.parsers.mdlx.diff;
+
+import app.retera.parsers.mdlx.Bone;
+import app.retera.parsers.mdlx.MdlxModel;
+import app.retera.parsers.mdlx.TestModels;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ModelDiffTest {
+    @Test
+    void equalModelsHaveNoChanges() {
+        final MdlxModel model = TestModels.footman();
+
+        assertTrue(ModelDiff.of(model, model.copy(true)).isEmpty());
+        assertTrue(ModelDiff.of(model, model.copy(false)).isEmpty());
+        assertTrue(ModelDiff.of(model, TestModels.fromMdx(TestModels.footmanMdx())).isEmpty());
+    }
+
+    @Test
+    void changesAreReportedByPath() {
+        final MdlxModel before = TestModels.footman();
+        final MdlxModel after = before.copy(false);
+        after.setName("Changed");
+        after.getGeosets().get(0).getVertices()[4] = 1000;
+        after.getSequences().get(1).getInterval()[1] = 5000;
+        after.getBones().get(0).getTimelines().get(0).getFrames()[1] = 600;
+        after.getBones().get(1).setParentId(-1);
+        after.getAttachments().get(0).setPath("Other.mdl");
+        after.getHelpers().clear();
+        final Bone bone = new Bone();
+        bone.setName("Extra");
+        bone.setObjectId(7);
+        after.getBones().add(bone);
+
+        assertEquals(List.of("~ MODL.name Footman -> Changed",
+                "~ SEQS[Walk].interval 1 of 2 values differ, first at 1",
+                "~ GEOS[0].vertices 1 of " + before.getGeosets().get(0).getVertices().length
+                        + " values differ, first at 4",
+                "~ BONE[0].KGTR 1 of 3 keys differ, first at frame 600",
+                "~ BONE[1].parentId 0 -> -1",
+                "- HELP[2] Helper01",
+                "~ ATCH[3] properties",
+                "+ BONE[7] Extra"), lines(ModelDiff.of(before, after)));
+    }
+
+    @Test
+    void renamedSequencesAndRemovedTimelinesAreAddedAndRemoved() {
+        final MdlxModel before = TestModels.footman();
+        final MdlxModel after = before.copy(true);
+        after.getSequences().get(0).setName("Stand Ready");
+        after.getBones().get(1).getTimelines().clear();
+
+        assertEquals(List.of("- SEQS[Stand]", "+ SEQS[Stand Ready]", "- BONE[1].KGSC 2 keys"),
+                lines(ModelDiff.of(before, after)));
+        assertEquals(List.of("- SEQS[Stand Ready]", "+ SEQS[Stand]", "+ BONE[1].KGSC 2 keys"),
+                lines(ModelDiff.of(after, before)));
+    }
+
+    @Test
+    void missingGeosetArraysCompareAsEmpty() {
+        final MdlxModel before = TestModels.footman();
+        final MdlxModel after = before.copy(true);
+        after.getGeosets().get(0).setUvSets(null);
+        after.getGeosets().get(0).setSequenceExtents(null);
+
+        assertEquals(List.of("- GEOS[0].sequenceExtents[0]", "- GEOS[0].sequenceExtents[1]", "- GEOS[0].uvSets[0]"),
+                lines(ModelDiff.of(before, after)));
+        assertTrue(ModelDiff.of(after, after.copy(true)).isEmpty());
+    }
+
+    private static List<String> lines(final ModelDiff diff) {
+        return diff.getChanges().stream().map(ModelChange::toString).collect(Collectors.toList());
+    }
+}
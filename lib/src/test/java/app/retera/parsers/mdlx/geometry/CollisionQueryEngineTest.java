@@ -0,0 +1,257 @@
+package app.retera.parsers.mdlx.geometry;
+
+import app.retera.parsers.mdlx.MdlxModel;
+import app.retera.parsers.mdlx.TestModels;
+import app.retera.parsers.mdlx.animation.AnimationBaker;
+import app.retera.parsers.mdlx.animation.BakedClip;
+import app.retera.parsers.mdlx.animation.Skeleton;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CollisionQueryEngineTest {
+    private static final float EPSILON = 0.001f;
+
+    @Test
+    void raysHitTheClosestShape() {
+        final CollisionQueryEngine engine = footmen(2);
+        final float[] origins = { 0, 0, 100, 1004, 4, 100, 1004.9f, 4.9f, 100, 500, 0, 100, 0, 0, 100 };
+        final float[] directions = { 0, 0, -1, 0, 0, -1, 0, 0, -1, 0, 0, -1, 0, 0, 1 };
+        final int[] shapes = new int[5];
+        final float[] distances = new float[5];
+
+        engine.raycast(origins, directions, 5, Float.POSITIVE_INFINITY, shapes, distances);
+
+        // The sphere reaches 2 higher than the box above its center, but not at its corners.
+        assertEquals(0, shapes[0]);
+        assertEquals(78, distances[0], EPSILON);
+        assertEquals(2, shapes[1]);
+        assertEquals(1, engine.getInstance(shapes[1]));
+        assertEquals(100 - 10 - (float) Math.sqrt(144 - 32), distances[1], EPSILON);
+        assertEquals(3, shapes[2]);
+        assertEquals(1, engine.getModelShape(shapes[2]));
+        assertEquals(80, distances[2], EPSILON);
+        assertEquals(-1, shapes[3]);
+        assertEquals(Float.POSITIVE_INFINITY, distances[3]);
+        assertEquals(-1, shapes[4]);
+    }
+
+    @Test
+    void raysStopAtTheMaximumDistance() {
+        final CollisionQueryEngine engine = footmen(1);
+        final int[] shapes = new int[1];
+        final float[] distances = new float[1];
+
+        engine.raycast(new float[] { 0, 0, 100 }, new float[] { 0, 0, -2 }, 1, 40, shapes, distances);
+        assertEquals(0, shapes[0]);
+        assertEquals(39, distances[0], EPSILON);
+
+        engine.raycast(new float[] { 0, 0, 100 }, new float[] { 0, 0, -2 }, 1, 38, shapes, distances);
+        assertEquals(-1, shapes[0]);
+
+        engine.raycast(new float[] { 0, 0, 5 }, new float[] { 1, 0, 0 }, 1, 10, shapes, distances);
+        assertEquals(0, distances[0]);
+    }
+
+    @Test
+    void unlimitedRaysMissEmptyEngines() {
+        final MdlxModel model = TestModels.footman();
+        final CollisionQueryEngine engine = new CollisionQueryEngine();
+        final int[] shapes = new int[1];
+        final float[] distances = new float[1];
+        final Runnable cast = () -> engine.raycast(new float[] { 0, 0, 0 }, new float[] { 1, 1, 1 }, 1,
+                Float.POSITIVE_INFINITY, shapes, distances);
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), cast::run);
+        assertEquals(-1, shapes[0]);
+        // Added, but never posed.
+        engine.addInstance(CollisionModel.of(model, new Skeleton(model)));
+        assertTimeoutPreemptively(Duration.ofSeconds(5), cast::run);
+        assertEquals(-1, shapes[0]);
+        engine.clear();
+        assertTimeoutPreemptively(Duration.ofSeconds(5), cast::run);
+        assertEquals(-1, shapes[0]);
+    }
+
+    @Test
+    void raysOnlyWalkTheOccupiedCells() {
+        final CollisionQueryEngine engine = footmen(1);
+        final MdlxModel model = TestModels.footman();
+        // Far above, and large enough to be tested by every ray instead of sitting in the grid.
+        final float[] instanceMatrix = { 1e12f, 0, 0, 0, 0, 1e12f, 0, 0, 0, 0, 1e12f, 0, 0, 0, 1e14f, 1 };
+        engine.setPose(engine.addInstance(CollisionModel.of(model, new Skeleton(model))), instanceMatrix, null);
+        final int[] shapes = new int[2];
+        final float[] distances = new float[2];
+
+        assertTimeoutPreemptively(Duration.ofSeconds(5), () -> engine.raycast(
+                new float[] { 100, 0, 5, -1e9f, 0, 5 }, new float[] { 1, 0, 0, 1, 0, 0 }, 2,
+                Float.POSITIVE_INFINITY, shapes, distances));
+        assertEquals(-1, shapes[0]);
+        assertEquals(0, engine.getInstance(shapes[1]));
+        assertEquals(1e9f - 12, distances[1], 100);
+    }
+
+    @Test
+    void raysHitCylinders() {
+        final MdlxModel model = load(TestModels.FOOTMAN_MDL.replaceFirst("Sphere,\\s*Vertices 1 \\{\\s*\\{ 0, 0, 10 },",
+                "Cylinder, Vertices 2 { { 0, 0, 0 }, { 0, 0, 20 },"));
+        final CollisionQueryEngine engine = new CollisionQueryEngine();
+        final float[] instanceMatrix = { 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, 1000, 0, 0, 1 };
+        engine.setPose(engine.addInstance(CollisionModel.of(model, new Skeleton(model))), instanceMatrix, null);
+        final float[] origins = { 900, 0, 5, 1008, 0, 100, 900, 0, 25 };
+        final float[] directions = { 1, 0, 0, 0, 0, -1, 1, 0, 0 };
+        final int[] shapes = new int[3];
+        final float[] distances = new float[3];
+
+        for (final float maxDistance : new float[] { Float.POSITIVE_INFINITY, 1000 }) {
+            engine.raycast(origins, directions, 3, maxDistance, shapes, distances);
+            // The side, in front of the box, then the top cap, beside it, then above both.
+            assertEquals(0, shapes[0]);
+            assertEquals(88, distances[0], EPSILON);
+            assertEquals(0, shapes[1]);
+            assertEquals(80, distances[1], EPSILON);
+            assertEquals(-1, shapes[2]);
+        }
+    }
+
+    @Test
+    void pointsAndSpheresFindEveryShape() {
+        final CollisionQueryEngine engine = footmen(2);
+        final List<int[]> hits = new ArrayList<>();
+
+        engine.queryPoints(new float[] { 0, 0, 1, 1000, 0, 25, 1004.9f, 4.9f, 19.9f }, 3,
+                (query, shape) -> hits.add(new int[] { query, shape }));
+        assertEquals(3, hits.size());
+        assertArrayEquals(new int[] { 0, 0 }, hits.get(0));
+        assertArrayEquals(new int[] { 0, 1 }, hits.get(1));
+        assertArrayEquals(new int[] { 2, 3 }, hits.get(2));
+
+        hits.clear();
+        engine.querySpheres(new float[] { 1000, 0, 25, 1000, 0, 25, 500, 0, 10 }, new float[] { 2, 4, 400 }, 3,
+                (query, shape) -> hits.add(new int[] { query, shape }));
+        assertEquals(1, hits.size());
+        assertArrayEquals(new int[] { 1, 2 }, hits.get(0));
+    }
+
+    @Test
+    void shapesFollowTheirNodesAndInstances() {
+        final MdlxModel model = load(TestModels.FOOTMAN_MDL.replace("ObjectId 6,", "ObjectId 6,\nParent 0,"));
+        final Skeleton skeleton = new Skeleton(model);
+        final BakedClip stand = new AnimationBaker(100).bake(model).get(0);
+        final int nodes = skeleton.getNodeCount();
+        final float[] translations = new float[nodes * 3];
+        final float[] rotations = new float[nodes * 4];
+        final float[] scales = new float[nodes * 3];
+        final float[] matrices = new float[nodes * 16];
+        stand.sample(1000, translations, rotations, scales);
+        skeleton.worldMatrices(translations, rotations, scales, matrices);
+
+        final CollisionQueryEngine engine = new CollisionQueryEngine();
+        final CollisionModel collisionModel = CollisionModel.of(model, skeleton);
+        assertEquals(0, skeleton.getParent(collisionModel.getNode(1)));
+        // Twice the size, at (-300, 0, 0).
+        final float[] instanceMatrix = { 2, 0, 0, 0, 0, 2, 0, 0, 0, 0, 2, 0, -300, 0, 0, 1 };
+        engine.setPose(engine.addInstance(collisionModel), instanceMatrix, matrices);
+
+        final int[] shapes = new int[2];
+        final float[] distances = new float[2];
+        engine.raycast(new float[] { -300, 15, 100, -291, 9, 100 }, new float[] { 0, 0, -1, 0, 0, -1 }, 2,
+                Float.POSITIVE_INFINITY, shapes, distances);
+        assertEquals(0, shapes[0]);
+        assertEquals(100 - 20 - (float) Math.sqrt((24 * 24) - (15 * 15)), distances[0], EPSILON);
+        // The box is raised by 10 with the root, then doubled, so it is above the sphere.
+        assertEquals(1, shapes[1]);
+        assertEquals(100 - 60, distances[1], EPSILON);
+    }
+
+    @Test
+    void theGridAgreesWithASingleCell() {
+        final Random random = new Random(7);
+        final MdlxModel model = TestModels.footman();
+        final CollisionModel collisionModel = CollisionModel.of(model, new Skeleton(model));
+        final CollisionQueryEngine grid = new CollisionQueryEngine(16);
+        final CollisionQueryEngine single = new CollisionQueryEngine(1e9f);
+        for (int i = 0; i < 400; i++) {
+            final float angle = random.nextFloat() * 6.28f;
+            final float cos = (float) Math.cos(angle);
+            final float sin = (float) Math.sin(angle);
+            final float[] instanceMatrix = { cos, sin, 0, 0, -sin, cos, 0, 0, 0, 0, 1, 0, random.nextFloat() * 1000,
+                    random.nextFloat() * 1000, random.nextFloat() * 10, 1 };
+            grid.setPose(grid.addInstance(collisionModel), instanceMatrix, null);
+            single.setPose(single.addInstance(collisionModel), instanceMatrix, null);
+        }
+
+        final int count = 2000;
+        final float[] origins = new float[count * 3];
+        final float[] directions = new float[count * 3];
+        final float[] radii = new float[count];
+        for (int i = 0; i < count; i++) {
+            origins[i * 3] = (random.nextFloat() * 1200) - 100;
+            origins[(i * 3) + 1] = (random.nextFloat() * 1200) - 100;
+            origins[(i * 3) + 2] = random.nextFloat() * 40;
+            directions[i * 3] = random.nextFloat() - 0.5f;
+            directions[(i * 3) + 1] = random.nextFloat() - 0.5f;
+            directions[(i * 3) + 2] = (random.nextFloat() - 0.5f) * 0.05f;
+            radii[i] = random.nextFloat() * 30;
+        }
+        final int[] gridShapes = new int[count];
+        final float[] gridDistances = new float[count];
+        final int[] singleShapes = new int[count];
+        final float[] singleDistances = new float[count];
+        grid.raycast(origins, directions, count, 3000, gridShapes, gridDistances);
+        single.raycast(origins, directions, count, 3000, singleShapes, singleDistances);
+        int hits = 0;
+        for (int i = 0; i < count; i++) {
+            assertEquals(singleDistances[i], gridDistances[i], EPSILON);
+            if (singleShapes[i] >= 0) {
+                hits++;
+            }
+        }
+        assertTrue(hits > 100, "hits " + hits);
+
+        final List<Long> gridHits = new ArrayList<>();
+        final List<Long> singleHits = new ArrayList<>();
+        grid.querySpheres(origins, radii, count, (query, shape) -> gridHits.add(((long) query << 32) | shape));
+        single.querySpheres(origins, radii, count, (query, shape) -> singleHits.add(((long) query << 32) | shape));
+        gridHits.sort(null);
+        singleHits.sort(null);
+        assertEquals(singleHits, gridHits);
+        assertTrue(gridHits.size() > 100, "hits " + gridHits.size());
+    }
+
+    /**
+     * Footmen in their bind pose, 1000 apart along x.
+     */
+    private static CollisionQueryEngine footmen(final int count) {
+        final MdlxModel model = TestModels.footman();
+        final CollisionModel collisionModel = CollisionModel.of(model, new Skeleton(model));
+        final CollisionQueryEngine engine = new CollisionQueryEngine();
+        for (int i = 0; i < count; i++) {
+            final float[] instanceMatrix = { 1, 0, 0, 0, 0, 1, 0, 0, 0, 0, 1, 0, i * 1000, 0, 0, 1 };
+            engine.setPose(engine.addInstance(collisionModel), instanceMatrix, null);
+        }
+        return engine;
+    }
+
+    private static MdlxModel load(final String mdl) {
+        try {
+            final MdlxModel model = new MdlxModel();
+            model.loadMdl(new ByteArrayInputStream(mdl.getBytes(StandardCharsets.UTF_8)));
+            return model;
+        }
+        catch (final IOException e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package app.retera.parsers.mdlx.geometry;
+
+import app.retera.parsers.mdlx.Geoset;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Builds flat grids of triangles for the geometry tests.
+ */
+final class GeometryTestUtils {
+    private GeometryTestUtils() {
+    }
+
+    /**
+     * A size by size grid of quads in the xy plane, with normals along z, UVs
+     * from 0 to 1, the left half of the vertices in group 0 and the rest in group
+     * 1. Triangles are shuffled with the given seed.
+     */
+    static Geoset grid(final int size, final long seed) {
+        final int side = size + 1;
+        final float[] vertices = new float[side * side * 3];
+        final float[] normals = new float[side * side * 3];
+        final float[] uvs = new float[side * side * 2];
+        final byte[] groups = new byte[side * side];
+        for (int y = 0; y < side; y++) {
+            for (int x = 0; x < side; x++) {
+                final int vertex = (y * side) + x;
+                vertices[vertex * 3] = x;
+                vertices[(vertex * 3) + 1] = y;
+                normals[(vertex * 3) + 2] = 1;
+                uvs[vertex * 2] = (float) x / size;
+                uvs[(vertex * 2) + 1] = (float) y / size;
+                groups[vertex] = (byte) ((x < (side / 2)) ? 0 : 1);
+            }
+        }
+
+        final List<int[]> triangles = new ArrayList<>();
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                final int a = (y * side) + x;
+                triangles.add(new int[] { a, a + 1, a + side + 1 });
+                triangles.add(new int[] { a, a + side + 1, a + side });
+            }
+        }
+        if (seed != 0) {
+            Collections.shuffle(triangles, new Random(seed));
+        }
+        final char[] faces = new char[triangles.size() * 3];
+        for (int i = 0; i < triangles.size(); i++) {
+            for (int corner = 0; corner < 3; corner++) {
+                faces[(i * 3) + corner] = (char) triangles.get(i)[corner];
+            }
+        }
+
+        final Geoset geoset = new Geoset();
+        geoset.setVertices(vertices);
+        geoset.setNormals(normals);
+        geoset.setUvSets(new float[][] { uvs });
+        geoset.setCompactFaceTypeGroups(new int[] { 4 });
+        geoset.setCompactFaceGroups(new int[] { faces.length });
+        geoset.setCompactFaces(faces);
+        geoset.setCompactVertexGroups(groups);
+        geoset.setCompactMatrixGroups(new int[] { 1, 1 });
+        geoset.setCompactMatrixIndices(new int[] { 0, 1 });
+        return geoset;
+    }
+
+    /**
+     * The triangles of the geoset as sorted lists of vertex positions, which do
+     * not depend on the order of vertices or triangles.
+     */
+    static List<String> triangleKeys(final Geoset geoset) {
+        final float[] vertices = geoset.getVertices();
+        final char[] faces = geoset.getCompactFaces();
+        final List<String> keys = new ArrayList<>();
+        for (int i = 0; i < faces.length; i += 3) {
+            final List<String> corners = new ArrayList<>();
+            for (int corner = 0; corner < 3; corner++) {
+                final int vertex = faces[i + corner];
+                corners.add(vertices[vertex * 3] + "," + vertices[(vertex * 3) + 1] + "," + vertices[(vertex * 3) + 2]);
+            }
+            Collections.sort(corners);
+            keys.add(String.join(" ", corners));
+        }
+        Collections.sort(keys);
+        return keys;
+    }
+}
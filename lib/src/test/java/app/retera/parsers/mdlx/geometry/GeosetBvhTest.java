@@ -0,0 +1,172 @@
+package app.retera.parsers.mdlx.geometry;
+
+import app.retera.parsers.mdlx.Geoset;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeosetBvhTest {
+    @Test
+    void raysHitTheClosestTriangle() {
+        final Geoset geoset = bumpyGrid(24, 1);
+        final GeosetBvh bvh = GeosetBvh.build(geoset);
+        assertEquals(24 * 24 * 2, bvh.getTriangleCount());
+        assertTrue(bvh.getNodeCount() > 1);
+
+        final Random random = new Random(2);
+        final GeosetBvh.Hit hit = new GeosetBvh.Hit();
+        int hits = 0;
+        for (int i = 0; i < 500; i++) {
+            final float[] origin = { random.nextFloat() * 30 - 3, random.nextFloat() * 30 - 3, 5 };
+            final float[] direction = { random.nextFloat() - 0.5f, random.nextFloat() - 0.5f, -1 };
+            final float expected = bruteForce(geoset, origin, direction);
+            if (bvh.raycast(origin, direction, Float.POSITIVE_INFINITY, hit)) {
+                hits++;
+                assertEquals(expected, hit.getDistance(), 1e-4f);
+                assertEquals(expected, distance(geoset, hit.getTriangle(), origin, direction), 1e-4f);
+            }
+            else {
+                assertEquals(Float.POSITIVE_INFINITY, expected);
+            }
+        }
+        assertTrue(hits > 250, "hits " + hits);
+    }
+
+    @Test
+    void raysStopAtTheMaximumDistance() {
+        final GeosetBvh bvh = GeosetBvh.build(GeometryTestUtils.grid(4, 0));
+        final GeosetBvh.Hit hit = new GeosetBvh.Hit();
+        final float[] down = { 0, 0, -1 };
+
+        assertTrue(bvh.raycast(new float[] { 1.25f, 2.5f, 3 }, down, 10, hit));
+        assertEquals(3, hit.getDistance());
+        assertFalse(bvh.raycast(new float[] { 1.25f, 2.5f, 3 }, down, 2, hit));
+        assertFalse(bvh.raycast(new float[] { 1.25f, 2.5f, -3 }, down, 10, hit));
+        assertFalse(bvh.raycast(new float[] { 6, 2.5f, 3 }, down, 10, hit));
+    }
+
+    @Test
+    void spheresFindTouchingTriangles() {
+        final Geoset geoset = bumpyGrid(16, 3);
+        final GeosetBvh bvh = GeosetBvh.build(geoset);
+        final Random random = new Random(4);
+        for (int i = 0; i < 100; i++) {
+            final float[] center = { random.nextFloat() * 16, random.nextFloat() * 16, random.nextFloat() * 2 - 1 };
+            final float radius = random.nextFloat() * 3;
+            final List<Integer> found = new ArrayList<>();
+            bvh.querySphere(center, radius, found::add);
+            Collections.sort(found);
+            assertEquals(bruteForce(geoset, center, radius), found);
+        }
+    }
+
+    @Test
+    void refitFollowsMovedVertices() {
+        final Geoset geoset = bumpyGrid(12, 5);
+        final GeosetBvh bvh = GeosetBvh.build(geoset);
+        final float[] moved = geoset.getVertices().clone();
+        for (int i = 0; i < moved.length; i += 3) {
+            moved[i] *= 2;
+            moved[i + 2] += 10;
+        }
+
+        bvh.refit(moved);
+
+        final float[] bounds = new float[6];
+        bvh.getBounds(bounds);
+        assertEquals(24, bounds[3]);
+        geoset.setVertices(moved);
+        final GeosetBvh.Hit hit = new GeosetBvh.Hit();
+        final Random random = new Random(6);
+        for (int i = 0; i < 200; i++) {
+            final float[] origin = { random.nextFloat() * 24, random.nextFloat() * 12, 20 };
+            final float[] direction = { 0, 0, -1 };
+            assertTrue(bvh.raycast(origin, direction, Float.POSITIVE_INFINITY, hit));
+            assertEquals(bruteForce(geoset, origin, direction), hit.getDistance(), 1e-4f);
+        }
+    }
+
+    @Test
+    void emptyGeosetsHaveNoHits() {
+        final Geoset geoset = new Geoset();
+        final GeosetBvh bvh = GeosetBvh.build(geoset);
+
+        assertEquals(0, bvh.getTriangleCount());
+        assertFalse(bvh.raycast(new float[3], new float[] { 0, 0, 1 }, 1, new GeosetBvh.Hit()));
+        bvh.querySphere(new float[3], 1, triangle -> {
+            throw new AssertionError();
+        });
+    }
+
+    private static Geoset bumpyGrid(final int size, final long seed) {
+        final Geoset geoset = GeometryTestUtils.grid(size, seed);
+        final float[] vertices = geoset.getVertices();
+        final Random random = new Random(seed);
+        for (int i = 2; i < vertices.length; i += 3) {
+            vertices[i] = random.nextFloat() - 0.5f;
+        }
+        return geoset;
+    }
+
+    private static float bruteForce(final Geoset geoset, final float[] origin, final float[] direction) {
+        float closest = Float.POSITIVE_INFINITY;
+        for (int triangle = 0; triangle < (geoset.getCompactFaces().length / 3); triangle++) {
+            closest = Math.min(closest, distance(geoset, triangle, origin, direction));
+        }
+        return closest;
+    }
+
+    private static List<Integer> bruteForce(final Geoset geoset, final float[] center, final float radius) {
+        final List<Integer> triangles = new ArrayList<>();
+        final float[] vertices = geoset.getVertices();
+        final char[] faces = geoset.getCompactFaces();
+        final float[] closest = new float[3];
+        for (int triangle = 0; triangle < (faces.length / 3); triangle++) {
+            GeosetBvh.closestPoint(vertices, faces[triangle * 3] * 3, faces[(triangle * 3) + 1] * 3,
+                    faces[(triangle * 3) + 2] * 3, center[0], center[1], center[2], closest);
+            final float x = closest[0] - center[0];
+            final float y = closest[1] - center[1];
+            final float z = closest[2] - center[2];
+            if (((x * x) + (y * y) + (z * z)) <= (radius * radius)) {
+                triangles.add(triangle);
+            }
+        }
+        return triangles;
+    }
+
+    /**
+     * The distance to one triangle in double precision, or infinity.
+     */
+    private static float distance(final Geoset geoset, final int triangle, final float[] origin,
+            final float[] direction) {
+        final float[] v = geoset.getVertices();
+        final char[] faces = geoset.getCompactFaces();
+        final int a = faces[triangle * 3] * 3;
+        final int b = faces[(triangle * 3) + 1] * 3;
+        final int c = faces[(triangle * 3) + 2] * 3;
+        final double[] e1 = { v[b] - v[a], v[b + 1] - v[a + 1], v[b + 2] - v[a + 2] };
+        final double[] e2 = { v[c] - v[a], v[c + 1] - v[a + 1], v[c + 2] - v[a + 2] };
+        final double[] p = cross(direction[0], direction[1], direction[2], e2);
+        final double determinant = (e1[0] * p[0]) + (e1[1] * p[1]) + (e1[2] * p[2]);
+        final double[] t = { origin[0] - v[a], origin[1] - v[a + 1], origin[2] - v[a + 2] };
+        final double u = ((t[0] * p[0]) + (t[1] * p[1]) + (t[2] * p[2])) / determinant;
+        final double[] q = cross(t[0], t[1], t[2], e1);
+        final double w = ((direction[0] * q[0]) + (direction[1] * q[1]) + (direction[2] * q[2])) / determinant;
+        final double distance = ((e2[0] * q[0]) + (e2[1] * q[1]) + (e2[2] * q[2])) / determinant;
+        if ((u < 0) || (w < 0) || ((u + w) > 1) || (distance < 0)) {
+            return Float.POSITIVE_INFINITY;
+        }
+        return (float) distance;
+    }
+
+    private static double[] cross(final double x, final double y, final double z, final double[] b) {
+        return new double[] { (y * b[2]) - (z * b[1]), (z * b[0]) - (x * b[2]), (x * b[1]) - (y * b[0]) };
+    }
+}
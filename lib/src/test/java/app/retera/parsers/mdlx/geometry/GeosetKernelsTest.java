@@ -0,0 +1,93 @@
+package app.retera.parsers.mdlx.geometry;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class GeosetKernelsTest {
+    private final GeosetKernels scalar = new ScalarGeosetKernels();
+
+    @Test
+    void scalarKernels() {
+        final float[] vertices = { 1, 2, 3, -1, 5, 0, 0, 0, -4 };
+        final float[] min = new float[3];
+        final float[] max = new float[3];
+
+        this.scalar.extent(vertices, 3, min, max);
+        assertArrayEquals(new float[] { -1, 0, -4 }, min);
+        assertArrayEquals(new float[] { 1, 5, 3 }, max);
+        assertEquals((float) Math.sqrt(26), this.scalar.boundsRadius(vertices, 3, new float[] { 0, 0, 0 }), 0.0001f);
+
+        final float[] normals = { 0, 0, 2, 3, 0, 4, 0, 0, 0 };
+        this.scalar.normalize(normals, 3);
+        assertArrayEquals(new float[] { 0, 0, 1, 0.6f, 0, 0.8f, 0, 0, 0 }, normals, 0.0001f);
+
+        // Group 1 translates by (10, 0, 0).
+        final float[] matrices = new float[32];
+        for (int i = 0; i < 2; i++) {
+            matrices[i * 16] = matrices[(i * 16) + 5] = matrices[(i * 16) + 10] = matrices[(i * 16) + 15] = 1;
+        }
+        matrices[16 + 12] = 10;
+        final float[] out = new float[9];
+        this.scalar.skin(vertices, new byte[] { 0, 1, 1 }, matrices, out, 3);
+        assertArrayEquals(new float[] { 1, 2, 3, 9, 5, 0, 10, 0, -4 }, out);
+        this.scalar.skinNormals(vertices, new byte[] { 0, 1, 1 }, matrices, out, 3);
+        assertArrayEquals(vertices, out);
+    }
+
+    @Test
+    void vectorKernelsMatchTheScalarOnes() {
+        final GeosetKernels vector = GeosetKernels.vector();
+        assumeTrue(vector != null, "the vector kernels were not built with -Pvector");
+        final Random random = new Random(7);
+
+        for (int count = 0; count < 100; count += 7) {
+            final float[] vertices = randomFloats(random, count * 3);
+            final byte[] groups = new byte[count];
+            for (int i = 0; i < count; i++) {
+                groups[i] = (byte) random.nextInt(4);
+            }
+            final float[] matrices = randomFloats(random, 4 * 16);
+
+            final float[] min = new float[3];
+            final float[] max = new float[3];
+            final float[] vectorMin = new float[3];
+            final float[] vectorMax = new float[3];
+            this.scalar.extent(vertices, count, min, max);
+            vector.extent(vertices, count, vectorMin, vectorMax);
+            assertArrayEquals(min, vectorMin);
+            assertArrayEquals(max, vectorMax);
+
+            final float[] center = { 1, 2, 3 };
+            assertEquals(this.scalar.boundsRadius(vertices, count, center), vector.boundsRadius(vertices, count, center),
+                    0.0001f);
+
+            final float[] normals = vertices.clone();
+            final float[] vectorNormals = vertices.clone();
+            this.scalar.normalize(normals, count);
+            vector.normalize(vectorNormals, count);
+            assertArrayEquals(normals, vectorNormals, 0.0001f);
+
+            final float[] skinned = new float[count * 3];
+            final float[] vectorSkinned = new float[count * 3];
+            this.scalar.skin(vertices, groups, matrices, skinned, count);
+            vector.skin(vertices, groups, matrices, vectorSkinned, count);
+            assertArrayEquals(skinned, vectorSkinned, 0.001f);
+            this.scalar.skinNormals(vertices, groups, matrices, skinned, count);
+            vector.skinNormals(vertices, groups, matrices, vectorSkinned, count);
+            assertArrayEquals(skinned, vectorSkinned, 0.001f);
+        }
+    }
+
+    private static float[] randomFloats(final Random random, final int length) {
+        final float[] floats = new float[length];
+        for (int i = 0; i < length; i++) {
+            floats[i] = (random.nextFloat() * 20) - 10;
+        }
+        return floats;
+    }
+}
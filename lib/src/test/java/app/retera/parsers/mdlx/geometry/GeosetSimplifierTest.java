@@ -0,0 +1,161 @@
+package app.retera.parsers.mdlx.geometry;
+
+import app.retera.parsers.mdlx.Geoset;
+import app.retera.parsers.mdlx.MdlxModel;
+import app.retera.parsers.mdlx.TestModels;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GeosetSimplifierTest {
+    @Test
+    void flatGridsReachTheTargetWithoutFolding() {
+        final Geoset grid = GeometryTestUtils.grid(20, 5);
+        final char[] faces = grid.getCompactFaces().clone();
+
+        final Geoset simplified = new GeosetSimplifier(0.25f).simplify(grid);
+
+        assertArrayEquals(faces, grid.getCompactFaces());
+        final int triangles = simplified.getCompactFaces().length / 3;
+        assertTrue(triangles <= 200, "triangles " + triangles);
+        assertArrayEquals(new int[] { triangles * 3 }, simplified.getCompactFaceGroups());
+        // Nothing folded over, so the triangles still exactly cover the grid.
+        assertEquals(400, area(simplified), 0.01);
+    }
+
+    @Test
+    void skinningBoundariesStay() {
+        final Geoset simplified = new GeosetSimplifier(0.1f).simplify(GeometryTestUtils.grid(20, 5));
+
+        final float[] vertices = simplified.getVertices();
+        final byte[] groups = simplified.getCompactVertexGroups();
+        int boundary = 0;
+        for (int vertex = 0; vertex < groups.length; vertex++) {
+            assertEquals((vertices[vertex * 3] < 10) ? 0 : 1, groups[vertex]);
+            if ((vertices[vertex * 3] == 9) || (vertices[vertex * 3] == 10)) {
+                boundary++;
+            }
+        }
+        assertEquals(42, boundary);
+        assertEquals(groups.length * 2, simplified.getUvSets()[0].length);
+        assertEquals(groups.length * 3, simplified.getNormals().length);
+    }
+
+    @Test
+    void seamsCollapseTogether() {
+        final Geoset seamed = seamedGrid(20, 5);
+        final int original = seamed.getVertices().length / 3;
+
+        final Geoset simplified = new GeosetSimplifier(0.1f).simplify(seamed);
+
+        final int triangles = simplified.getFaceCount() / 3;
+        assertTrue(triangles <= 80, "triangles " + triangles);
+        assertEquals(400, area(simplified), 0.01);
+        // The copies on the right of the seam have u 1 and are only used right of it.
+        final float[] vertices = simplified.getVertices();
+        final float[] uvs = simplified.getUvSets()[0];
+        final char[] faces = simplified.getCompactFaces();
+        int seam = 0;
+        for (int i = 0; i < faces.length; i += 3) {
+            boolean left = false;
+            boolean right = false;
+            for (int corner = 0; corner < 3; corner++) {
+                final int vertex = faces[i + corner];
+                left |= (vertices[vertex * 3] < 5) || ((vertices[vertex * 3] == 5) && (uvs[vertex * 2] != 1));
+                right |= (vertices[vertex * 3] > 5) || ((vertices[vertex * 3] == 5) && (uvs[vertex * 2] == 1));
+            }
+            assertTrue(left != right);
+        }
+        for (int vertex = 0; vertex < (vertices.length / 3); vertex++) {
+            if (vertices[vertex * 3] == 5) {
+                seam++;
+            }
+        }
+        assertTrue((seam % 2) == 0 && (seam < 42), "seam vertices " + seam + " of " + original);
+    }
+
+    @Test
+    void maximumErrorStopsCollapses() {
+        final Geoset grid = GeometryTestUtils.grid(10, 0);
+        final Random random = new Random(9);
+        final float[] vertices = grid.getVertices();
+        for (int i = 2; i < vertices.length; i += 3) {
+            vertices[i] = random.nextFloat();
+        }
+
+        assertEquals(200, new GeosetSimplifier(0, 0.001f).simplify(grid).getCompactFaces().length / 3);
+        assertTrue(new GeosetSimplifier(0.5f).simplify(grid).getCompactFaces().length <= 300);
+    }
+
+    @Test
+    void modelsAreCopied() {
+        final MdlxModel model = TestModels.footman();
+        final byte[] before = TestModels.toMdx(model);
+
+        final MdlxModel simplified = new GeosetSimplifier(0.5f).simplify(model);
+
+        assertArrayEquals(before, TestModels.toMdx(model));
+        assertEquals(model.getGeosets().size(), simplified.getGeosets().size());
+        assertEquals(model.getGeosets().get(0).getMaterialId(), simplified.getGeosets().get(0).getMaterialId());
+    }
+
+    /**
+     * A grid in one vertex group, cut along x = 5 by giving the triangles right
+     * of it their own copies of the vertices there, with u 1.
+     */
+    private static Geoset seamedGrid(final int size, final long seed) {
+        final Geoset grid = GeometryTestUtils.grid(size, seed);
+        final int side = size + 1;
+        final int vertexCount = side * side;
+        final float[] vertices = Arrays.copyOf(grid.getVertices(), (vertexCount + side) * 3);
+        final float[] normals = Arrays.copyOf(grid.getNormals(), (vertexCount + side) * 3);
+        final float[] uvs = Arrays.copyOf(grid.getUvSets()[0], (vertexCount + side) * 2);
+        for (int y = 0; y < side; y++) {
+            final int copy = vertexCount + y;
+            System.arraycopy(vertices, ((y * side) + 5) * 3, vertices, copy * 3, 3);
+            normals[(copy * 3) + 2] = 1;
+            uvs[copy * 2] = 1;
+            uvs[(copy * 2) + 1] = (float) y / size;
+        }
+        final char[] faces = grid.getCompactFaces().clone();
+        for (int i = 0; i < faces.length; i += 3) {
+            boolean right = false;
+            for (int corner = 0; corner < 3; corner++) {
+                right |= (faces[i + corner] % side) > 5;
+            }
+            for (int corner = 0; right && (corner < 3); corner++) {
+                if ((faces[i + corner] % side) == 5) {
+                    faces[i + corner] = (char) (vertexCount + (faces[i + corner] / side));
+                }
+            }
+        }
+        grid.setVertices(vertices);
+        grid.setNormals(normals);
+        grid.setUvSets(new float[][] { uvs });
+        grid.setCompactFaces(faces);
+        grid.setCompactVertexGroups(new byte[vertexCount + side]);
+        grid.setCompactMatrixGroups(new int[] { 1 });
+        grid.setCompactMatrixIndices(new int[] { 0 });
+        return grid;
+    }
+
+    private static double area(final Geoset geoset) {
+        final float[] vertices = geoset.getVertices();
+        final char[] faces = geoset.getCompactFaces();
+        double area = 0;
+        for (int i = 0; i < faces.length; i += 3) {
+            final int a = faces[i] * 3;
+            final int b = faces[i + 1] * 3;
+            final int c = faces[i + 2] * 3;
+            final double cross = ((vertices[b] - vertices[a]) * (vertices[c + 1] - vertices[a + 1]))
+                    - ((vertices[b + 1] - vertices[a + 1]) * (vertices[c] - vertices[a]));
+            area += Math.abs(cross) / 2;
+        }
+        return area;
+    }
+}
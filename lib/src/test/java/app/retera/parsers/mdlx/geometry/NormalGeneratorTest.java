@@ -0,0 +1,143 @@
+package app.retera.parsers.mdlx.geometry;
+
+import app.retera.parsers.mdlx.Geoset;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class NormalGeneratorTest {
+    private static final float[] CUBE_VERTICES = {
+            -1, -1, -1, 1, -1, -1, -1, 1, -1, 1, 1, -1,
+            -1, -1, 1, 1, -1, 1, -1, 1, 1, 1, 1, 1 };
+    private static final char[] CUBE_FACES = {
+            0, 2, 3, 0, 3, 1,
+            4, 5, 7, 4, 7, 6,
+            0, 1, 5, 0, 5, 4,
+            2, 6, 7, 2, 7, 3,
+            0, 4, 6, 0, 6, 2,
+            1, 3, 7, 1, 7, 5 };
+
+    @Test
+    void angleWeightedCornersPointAlongTheDiagonal() {
+        final Geoset cube = cube(false);
+
+        assertEquals(0, new NormalGenerator().generate(cube));
+
+        assertDiagonal(cube);
+    }
+
+    @Test
+    void copiesOfAPositionShareTheirNormal() {
+        final Geoset cube = cube(true);
+
+        assertEquals(0, new NormalGenerator().generate(cube));
+
+        assertEquals(36 * 3, cube.getNormals().length);
+        assertDiagonal(cube);
+    }
+
+    @Test
+    void areaWeightingFollowsTheTriangles() {
+        final Geoset cube = cube(false);
+
+        new NormalGenerator(NormalGenerator.Weighting.AREA, (float) Math.PI).generate(cube);
+
+        // Vertex 1 has both triangles of the +x side but one of -y and one of -z.
+        final float[] normals = cube.getNormals();
+        assertEquals((float) (2 / Math.sqrt(6)), normals[3], 1e-6f);
+        assertEquals((float) (-1 / Math.sqrt(6)), normals[4], 1e-6f);
+        assertEquals((float) (-1 / Math.sqrt(6)), normals[5], 1e-6f);
+    }
+
+    @Test
+    void creasesSplitVertices() {
+        final Geoset cube = cube(false);
+
+        assertEquals(16, new NormalGenerator(NormalGenerator.Weighting.ANGLE, (float) Math.toRadians(30))
+                .generate(cube));
+
+        final float[] vertices = cube.getVertices();
+        final float[] normals = cube.getNormals();
+        final char[] faces = cube.getCompactFaces();
+        assertEquals(24 * 3, vertices.length);
+        assertEquals(24, cube.getCompactVertexGroups().length);
+        for (int i = 0; i < faces.length; i += 3) {
+            final int a = faces[i] * 3;
+            final int b = faces[i + 1] * 3;
+            final int c = faces[i + 2] * 3;
+            final float[] normal = new float[3];
+            for (int axis = 0; axis < 3; axis++) {
+                normal[axis] = Math.abs(vertices[a + axis] + vertices[b + axis] + vertices[c + axis]) == 3
+                        ? Math.signum(vertices[a + axis])
+                        : 0;
+            }
+            for (final int vertex : new int[] { a, b, c }) {
+                for (int axis = 0; axis < 3; axis++) {
+                    assertEquals(normal[axis], normals[vertex + axis], 1e-6f);
+                }
+            }
+        }
+    }
+
+    @Test
+    void flatGridsFaceUp() {
+        final Geoset grid = GeometryTestUtils.grid(8, 4);
+        grid.setNormals(new float[grid.getVertices().length]);
+
+        new NormalGenerator(NormalGenerator.Weighting.ANGLE, (float) Math.toRadians(10)).generate(grid);
+
+        final float[] normals = grid.getNormals();
+        assertEquals(81 * 3, normals.length);
+        for (int i = 0; i < normals.length; i += 3) {
+            assertEquals(0, normals[i], 1e-6f);
+            assertEquals(0, normals[i + 1], 1e-6f);
+            assertEquals(1, normals[i + 2], 1e-6f);
+        }
+    }
+
+    @Test
+    void anglesAreCloseToAtan2() {
+        for (int i = 0; i <= 1000; i++) {
+            final double angle = (Math.PI * i) / 1000;
+            final float cross = (float) (Math.sin(angle) * 3);
+            final float dot = (float) (Math.cos(angle) * 3);
+            assertEquals(Math.atan2(cross, dot), NormalGenerator.angle(cross, dot), 2e-5);
+        }
+        assertEquals(0, NormalGenerator.angle(0, 0));
+    }
+
+    private static void assertDiagonal(final Geoset cube) {
+        final float[] vertices = cube.getVertices();
+        final float[] normals = cube.getNormals();
+        final float component = (float) (1 / Math.sqrt(3));
+        for (int i = 0; i < vertices.length; i++) {
+            assertEquals(vertices[i] * component, normals[i], 1e-6f);
+        }
+    }
+
+    /**
+     * A cube of side 2 around the origin, optionally with its own vertices for
+     * every triangle.
+     */
+    private static Geoset cube(final boolean split) {
+        float[] vertices = CUBE_VERTICES.clone();
+        char[] faces = CUBE_FACES.clone();
+        if (split) {
+            vertices = new float[faces.length * 3];
+            for (int i = 0; i < faces.length; i++) {
+                System.arraycopy(CUBE_VERTICES, faces[i] * 3, vertices, i * 3, 3);
+                faces[i] = (char) i;
+            }
+        }
+        final int vertexCount = vertices.length / 3;
+        final Geoset geoset = new Geoset();
+        geoset.setVertices(vertices);
+        geoset.setNormals(new float[vertexCount * 3]);
+        geoset.setUvSets(new float[][] { new float[vertexCount * 2] });
+        geoset.setCompactVertexGroups(new byte[vertexCount]);
+        geoset.setCompactFaceTypeGroups(new int[] { 4 });
+        geoset.setCompactFaceGroups(new int[] { faces.length });
+        geoset.setCompactFaces(faces);
+        return geoset;
+    }
+}
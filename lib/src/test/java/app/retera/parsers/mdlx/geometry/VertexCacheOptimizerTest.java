@@ -0,0 +1,56 @@
+package app.retera.parsers.mdlx.geometry;
+
+import app.retera.parsers.mdlx.Geoset;
+import app.retera.parsers.mdlx.TestModels;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VertexCacheOptimizerTest {
+    @Test
+    void shuffledGridsGetFewerCacheMisses() {
+        final Geoset geoset = GeometryTestUtils.grid(30, 1);
+        final List<String> before = GeometryTestUtils.triangleKeys(geoset);
+
+        final VertexCacheOptimizer.Result result = new VertexCacheOptimizer().optimize(geoset);
+
+        assertEquals(1800, result.getTriangleCount());
+        assertTrue(result.getAcmrBefore() > 2.5f, result.toString());
+        assertTrue(result.getAcmrAfter() < 1.0f, result.toString());
+        assertEquals(result.getAcmrAfter(), VertexCacheOptimizer.acmr(geoset));
+        assertEquals(before, GeometryTestUtils.triangleKeys(geoset));
+    }
+
+    @Test
+    void vertexDataStaysTogether() {
+        final Geoset geoset = GeometryTestUtils.grid(8, 2);
+
+        new VertexCacheOptimizer().optimize(geoset);
+
+        final float[] vertices = geoset.getVertices();
+        final float[] uvs = geoset.getUvSets()[0];
+        final byte[] groups = geoset.getCompactVertexGroups();
+        for (int vertex = 0; vertex < groups.length; vertex++) {
+            assertEquals(vertices[vertex * 3] / 8, uvs[vertex * 2]);
+            assertEquals((vertices[vertex * 3] < 4) ? 0 : 1, groups[vertex]);
+        }
+        // Vertices are numbered in order of first use.
+        final char[] faces = geoset.getCompactFaces();
+        int highest = -1;
+        for (final char vertex : faces) {
+            assertTrue(vertex <= (highest + 1));
+            highest = Math.max(highest, vertex);
+        }
+    }
+
+    @Test
+    void wholeModels() {
+        final List<VertexCacheOptimizer.Result> results = new VertexCacheOptimizer().optimize(TestModels.footman());
+
+        assertEquals(1, results.size());
+        assertEquals(2, results.get(0).getTriangleCount());
+    }
+}
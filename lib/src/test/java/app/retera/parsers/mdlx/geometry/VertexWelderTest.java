@@ -0,0 +1,85 @@
+package app.retera.parsers.mdlx.geometry;
+
+import app.retera.parsers.mdlx.Geoset;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VertexWelderTest {
+    @Test
+    void splitGridsAreWeldedBack() {
+        final Geoset geoset = split(GeometryTestUtils.grid(10, 3), 0.00004f, 2);
+        final List<String> triangles = GeometryTestUtils.triangleKeys(GeometryTestUtils.grid(10, 3));
+
+        final int removed = new VertexWelder().weld(geoset);
+
+        assertEquals((600 - 121), removed);
+        assertEquals(121 * 3, geoset.getVertices().length);
+        assertEquals(121, geoset.getCompactVertexGroups().length);
+        assertEquals(121 * 2, geoset.getUvSets()[0].length);
+        assertEquals(triangles.size(), GeometryTestUtils.triangleKeys(geoset).size());
+    }
+
+    @Test
+    void sharedCopiesLeaveTheOriginal() {
+        final Geoset original = split(GeometryTestUtils.grid(10, 3), 0.00004f, 2);
+
+        new VertexWelder().weld(original.copy(true));
+
+        assertEquals(600 * 3, original.getVertices().length);
+        assertEquals(600 * 2, original.getUvSets()[0].length);
+    }
+
+    @Test
+    void verticesOutsideTheToleranceStay() {
+        final Geoset geoset = split(GeometryTestUtils.grid(4, 0), 0.001f, 96);
+
+        assertEquals(0, new VertexWelder().weld(geoset));
+        assertEquals(96, geoset.getVertices().length / 3);
+    }
+
+    @Test
+    void differentAttributesStay() {
+        final Geoset geoset = split(GeometryTestUtils.grid(1, 0), 0, 1);
+        // The two triangles share two corners, give one of them another vertex group.
+        geoset.getCompactVertexGroups()[3] = 5;
+
+        assertEquals(1, new VertexWelder(0, 0, 0).weld(geoset));
+    }
+
+    /**
+     * Gives every triangle corner its own vertex, moving corner i by
+     * (i % period) * nudge.
+     */
+    private static Geoset split(final Geoset geoset, final float nudge, final int period) {
+        final char[] faces = geoset.getCompactFaces();
+        final float[] vertices = geoset.getVertices();
+        final float[] normals = geoset.getNormals();
+        final float[] uvs = geoset.getUvSets()[0];
+        final byte[] groups = geoset.getCompactVertexGroups();
+        final float[] splitVertices = new float[faces.length * 3];
+        final float[] splitNormals = new float[faces.length * 3];
+        final float[] splitUvs = new float[faces.length * 2];
+        final byte[] splitGroups = new byte[faces.length];
+        final char[] splitFaces = new char[faces.length];
+        for (int i = 0; i < faces.length; i++) {
+            final int vertex = faces[i];
+            for (int axis = 0; axis < 3; axis++) {
+                splitVertices[(i * 3) + axis] = vertices[(vertex * 3) + axis] + ((i % period) * nudge);
+                splitNormals[(i * 3) + axis] = normals[(vertex * 3) + axis];
+            }
+            splitUvs[i * 2] = uvs[vertex * 2];
+            splitUvs[(i * 2) + 1] = uvs[(vertex * 2) + 1];
+            splitGroups[i] = groups[vertex];
+            splitFaces[i] = (char) i;
+        }
+        geoset.setVertices(splitVertices);
+        geoset.setNormals(splitNormals);
+        geoset.setUvSets(new float[][] { splitUvs });
+        geoset.setCompactVertexGroups(splitGroups);
+        geoset.setCompactFaces(splitFaces);
+        return geoset;
+    }
+}
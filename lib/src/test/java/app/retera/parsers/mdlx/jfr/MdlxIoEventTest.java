@@ -0,0 +1,100 @@
+package app.retera.parsers.mdlx.jfr;
+
+import app.retera.parsers.mdlx.MdlxModel;
+import app.retera.parsers.mdlx.TestModels;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MdlxIoEventTest {
+    @Test
+    void chunksAreCountedAsTheyAreWrittenAndRead() throws IOException {
+        final MdlxModel model = TestModels.footman();
+        final byte[][] written = new byte[2][];
+
+        final List<RecordedEvent> events = record(() -> {
+            written[0] = TestModels.toMdx(model);
+            TestModels.fromMdx(written[0]);
+            final ByteArrayOutputStream mdl = new ByteArrayOutputStream();
+            model.saveMdl(mdl);
+            written[1] = mdl.toByteArray();
+            new MdlxModel().loadMdl(new ByteArrayInputStream(written[1]));
+        });
+
+        assertEquals(List.of("ModelSave", "ModelLoad", "ModelSave", "ModelLoad"), names(events));
+        // VERS, MODL, SEQS, GLBS, MTLS, TEXS, GEOS, GEOA, BONE, HELP, ATCH, PIVT, EVTS, CLID.
+        assertEvent(events.get(0), "MDX", written[0].length, 14);
+        assertEvent(events.get(1), "MDX", written[0].length, 14);
+        // Version, Model, Sequences, GlobalSequences, Textures, Materials and PivotPoints,
+        // then every geoset, geoset animation and node is its own block in MDL.
+        final int blocks = 7 + model.getGeosets().size() + model.getGeosetAnimations().size()
+                + model.getBones().size() + model.getHelpers().size() + model.getAttachments().size()
+                + model.getEventObjects().size() + model.getCollisionShapes().size();
+        assertEvent(events.get(2), "MDL", written[1].length, blocks);
+        assertEvent(events.get(3), "MDL", written[1].length, blocks);
+    }
+
+    @Test
+    void failedLoadsAreRecorded() throws IOException {
+        final List<RecordedEvent> events = record(() -> assertThrows(IllegalStateException.class,
+                () -> new MdlxModel().loadMdx(new ByteArrayInputStream(new byte[8]))));
+
+        assertEquals(List.of("ModelLoad"), names(events));
+        assertTrue(events.get(0).getBoolean("failed"));
+        assertEquals(0, events.get(0).getInt("chunkCount"));
+        assertEquals(4, events.get(0).getLong("byteSize"));
+    }
+
+    private static void assertEvent(final RecordedEvent event, final String format, final long byteSize,
+            final int chunkCount) {
+        assertEquals(format, event.getString("format"));
+        assertEquals(byteSize, event.getLong("byteSize"));
+        assertEquals(chunkCount, event.getInt("chunkCount"));
+        assertFalse(event.getBoolean("failed"));
+        assertEquals("Footman", event.getString("modelName"));
+    }
+
+    private static List<String> names(final List<RecordedEvent> events) {
+        return events.stream()
+                .map(event -> event.getEventType().getName().substring("app.retera.parsers.mdlx.".length()))
+                .collect(Collectors.toList());
+    }
+
+    private static List<RecordedEvent> record(final IoAction action) throws IOException {
+        final Path file = Files.createTempFile("mdlx", ".jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable(MdlxLoadEvent.class).withThreshold(Duration.ZERO);
+            recording.enable(MdlxSaveEvent.class).withThreshold(Duration.ZERO);
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(file);
+            final List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            events.sort(Comparator.comparing(RecordedEvent::getStartTime));
+            return events;
+        }
+        finally {
+            Files.delete(file);
+        }
+    }
+
+    private interface IoAction {
+        void run() throws IOException;
+    }
+}
@@ -0,0 +1,123 @@
+package app.retera.parsers.mdlx.mdl;
+
+import app.retera.parsers.mdlx.MdlPullParser;
+import app.retera.parsers.mdlx.MdlPullParser.Event;
+import app.retera.parsers.mdlx.TestModels;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MdlPullParserTest {
+    @Test
+    void blocksAttributesAndVectors() {
+        MdlPullParser parser = new MdlPullParser(new StringReader(
+                "Anim \"Stand\" {\n\tInterval { 0, 1000 },\n\tNonLooping,\n\tMoveSpeed 270,\n}\n"));
+
+        assertEquals(Event.BLOCK_START, parser.next());
+        assertEquals("Anim", parser.getName());
+        assertEquals("Stand", parser.getString());
+        assertEquals(1, parser.getDepth());
+
+        assertEquals(Event.ATTRIBUTE, parser.next());
+        assertEquals("Interval", parser.getName());
+        assertEquals(2, parser.getValueCount());
+        assertEquals(1000, parser.getInt(1));
+
+        assertEquals(Event.ATTRIBUTE, parser.next());
+        assertEquals("NonLooping", parser.getName());
+        assertEquals(0, parser.getValueCount());
+
+        assertEquals(Event.ATTRIBUTE, parser.next());
+        assertEquals(270f, parser.getFloat(0));
+
+        assertEquals(Event.BLOCK_END, parser.next());
+        assertEquals(0, parser.getDepth());
+        assertNull(parser.next());
+    }
+
+    @Test
+    void staticAttributesAndKeyframes() {
+        MdlPullParser parser = new MdlPullParser(new StringReader(
+                "Layer {\n\tstatic TextureID 0,\n\tAlpha 1 {\n\t\tLinear,\n\t\t250: 0.5,\n\t}\n}\n"));
+
+        parser.next();
+        assertEquals(Event.ATTRIBUTE, parser.next());
+        assertTrue(parser.isStatic());
+        assertEquals("TextureID", parser.getName());
+
+        assertEquals(Event.BLOCK_START, parser.next());
+        assertEquals(1, parser.getArgumentCount());
+        assertEquals(1, parser.getArgument(0));
+        assertEquals(0, parser.getValueCount());
+        assertEquals("Linear", (parser.next() == Event.ATTRIBUTE) ? parser.getName() : null);
+        assertEquals(Event.ATTRIBUTE, parser.next());
+        assertEquals("250", parser.getName());
+        assertEquals(0.5f, parser.getFloat(0));
+    }
+
+    @Test
+    void countsStayOutOfVectors() {
+        MdlPullParser parser = new MdlPullParser(new StringReader(
+                "EventTrack 2 { 100, 200 },\nVertices 4 {\n\t{ 1, 2, 3 },\n}\nMoveSpeed 270,\n"));
+
+        assertEquals(Event.ATTRIBUTE, parser.next());
+        assertEquals("EventTrack", parser.getName());
+        assertEquals(1, parser.getArgumentCount());
+        assertEquals(2, parser.getArgument(0));
+        assertEquals(2, parser.getValueCount());
+        assertEquals(100, parser.getInt(0));
+        assertEquals(200, parser.getInt(1));
+
+        assertEquals(Event.BLOCK_START, parser.next());
+        assertEquals(4, parser.getArgument(0));
+        assertEquals(Event.ATTRIBUTE, parser.next());
+        assertEquals(0, parser.getArgumentCount());
+        assertEquals(3, parser.getValueCount());
+        assertEquals(Event.BLOCK_END, parser.next());
+
+        // No brace, so the number is a value.
+        assertEquals(Event.ATTRIBUTE, parser.next());
+        assertEquals(0, parser.getArgumentCount());
+        assertEquals(270, parser.getInt(0));
+    }
+
+    @Test
+    void signsAndPointsAloneAreNotNumbers() {
+        MdlPullParser parser = new MdlPullParser(new StringReader("Comment -,\nComment .,\nOffset -.5,\n"));
+
+        assertEquals(Event.ATTRIBUTE, parser.next());
+        assertEquals("-", parser.getString());
+        assertEquals(0, parser.getValueCount());
+        assertEquals(Event.ATTRIBUTE, parser.next());
+        assertEquals(".", parser.getString());
+        assertEquals(0, parser.getValueCount());
+        assertEquals(Event.ATTRIBUTE, parser.next());
+        assertEquals(-0.5f, parser.getFloat(0));
+    }
+
+    @Test
+    void wholeModelIsBalanced() {
+        MdlPullParser parser = new MdlPullParser(new StringReader(TestModels.FOOTMAN_MDL));
+        int blocks = 0;
+        int unnamedVectors = 0;
+        Event event;
+        while ((event = parser.next()) != null) {
+            if (event == Event.BLOCK_START) {
+                blocks++;
+            }
+            else if ((event == Event.ATTRIBUTE) && (parser.getName() == null)) {
+                unnamedVectors++;
+            }
+            assertTrue(parser.getDepth() >= 0);
+        }
+
+        assertEquals(0, parser.getDepth());
+        assertTrue(blocks > 20);
+        // 4 vertices, 4 normals, 4 UVs, 1 face list, 4 pivots and 3 collision vertices.
+        assertEquals(20, unnamedVectors);
+    }
+}
@@ -4,9 +4,11 @@ import app.retera.parsers.mdlx.MdlTokenInputStream;
 import app.retera.parsers.mdlx.MdlxModel;
 import org.junit.jupiter.api.Test;
 
+import java.io.BufferedReader;
 import java.io.StringReader;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 public class MdlTokenInputStreamTest {
     @Test
@@ -32,4 +34,30 @@ public class MdlTokenInputStreamTest {
         assertEquals("Test", stream.read());
         assertEquals("}", stream.read());
     }
+
+    @Test
+    void peekDoesNotConsume() {
+        MdlTokenInputStream stream = new MdlTokenInputStream(new StringReader("GlobalSeqId 0, 100: 1"));
+        assertEquals("GlobalSeqId", stream.peek());
+        assertEquals("GlobalSeqId", stream.peek());
+        assertEquals("GlobalSeqId", stream.read());
+        assertEquals("0", stream.peek());
+        assertEquals(0, stream.readInt());
+        assertEquals("100", stream.read());
+        assertEquals("1", stream.peek());
+        assertEquals("1", stream.read());
+        assertNull(stream.peek());
+        assertNull(stream.read());
+    }
+
+    @Test
+    void peekPastLongComment() {
+        String comment = "// " + "x".repeat(4000) + "\n";
+        MdlTokenInputStream stream = new MdlTokenInputStream(
+                new BufferedReader(new StringReader("Linear, " + comment + "GlobalSeqId 3"), 16));
+        assertEquals("Linear", stream.read());
+        assertEquals("GlobalSeqId", stream.peek());
+        assertEquals("GlobalSeqId", stream.read());
+        assertEquals(3, stream.readInt());
+    }
 }
@@ -0,0 +1,93 @@
+package app.retera.parsers.mdlx.timeline;
+
+import app.retera.parsers.mdlx.AnimationMap;
+import app.retera.parsers.mdlx.InterpolationType;
+import app.retera.parsers.mdlx.MdlxModel;
+import app.retera.parsers.mdlx.TestModels;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeyframeReducerTest {
+    @Test
+    void collinearKeysAreRemoved() {
+        final Timeline<float[]> timeline = translation(InterpolationType.LINEAR, new long[] { 0, 100, 200, 300 },
+                new float[][] { { 0, 0, 0 }, { 1, 2, 0 }, { 2, 4, 0 }, { 3, 6, 0 } });
+
+        final long saved = new KeyframeReducer().reduce(timeline, new long[] { 0, 300 });
+
+        assertArrayEquals(new long[] { 0, 300 }, timeline.getFrames());
+        assertEquals(2 * (4 + 12), saved);
+    }
+
+    @Test
+    void keysOutsideTheToleranceStay() {
+        final Timeline<float[]> timeline = translation(InterpolationType.LINEAR, new long[] { 0, 100, 200 },
+                new float[][] { { 0, 0, 0 }, { 1, 0, 0 }, { 2, 0.01f, 0 } });
+
+        assertEquals(0, new KeyframeReducer(0.001f, 0).reduce(timeline, new long[] { 0, 200 }));
+        assertEquals(3, timeline.getFrames().length);
+        assertEquals(16, new KeyframeReducer(0.01f, 0).reduce(timeline, new long[] { 0, 200 }));
+    }
+
+    @Test
+    void sequenceBoundariesAreKept() {
+        final long[] frames = { 0, 500, 1000, 1100, 1500, 2000 };
+        final float[][] values = new float[frames.length][];
+        for (int i = 0; i < frames.length; i++) {
+            values[i] = new float[] { frames[i], 0, 0 };
+        }
+        final Timeline<float[]> timeline = translation(InterpolationType.LINEAR, frames, values);
+
+        new KeyframeReducer().reduce(timeline, new long[] { 0, 1000, 1100, 2000 });
+
+        assertArrayEquals(new long[] { 0, 1000, 1100, 2000 }, timeline.getFrames());
+    }
+
+    @Test
+    void steppedKeysOnlyMergeRepeats() {
+        final Timeline<float[]> timeline = translation(InterpolationType.DONT_INTERP, new long[] { 0, 100, 200, 300 },
+                new float[][] { { 1, 0, 0 }, { 1, 0, 0 }, { 2, 0, 0 }, { 2, 0, 0 } });
+
+        new KeyframeReducer().reduce(timeline, new long[] { 0, 300 });
+
+        assertArrayEquals(new long[] { 0, 200, 300 }, timeline.getFrames());
+    }
+
+    @Test
+    void rotationsUseTheAngleTolerance() {
+        final float half = (float) Math.sqrt(0.5);
+        final float eighth = (float) Math.sin(Math.PI / 8);
+        final Timeline<float[]> timeline = new FloatArrayTimeline(4, AnimationMap.KGRT.getWar3id());
+        // 0, 45 and 90 degrees around z, which slerp reproduces but a linear blend does not.
+        timeline.setInterpolationType(InterpolationType.LINEAR);
+        timeline.setKeyframes(new long[] { 0, 100, 200 },
+                new float[][] { { 0, 0, 0, 1 }, { 0, 0, eighth, (float) Math.cos(Math.PI / 8) }, { 0, 0, half, half } },
+                null, null);
+
+        new KeyframeReducer(0, (float) Math.toRadians(0.01)).reduce(timeline, new long[] { 0, 200 });
+
+        assertArrayEquals(new long[] { 0, 200 }, timeline.getFrames());
+    }
+
+    @Test
+    void wholeModelsStayWritable() {
+        final MdlxModel model = TestModels.footman();
+        final long before = TestModels.toMdx(model).length;
+
+        final long saved = new KeyframeReducer().reduce(model);
+
+        assertTrue(saved >= 0);
+        assertEquals(before - saved, TestModels.toMdx(model).length);
+    }
+
+    private static Timeline<float[]> translation(final InterpolationType type, final long[] frames,
+            final float[][] values) {
+        final Timeline<float[]> timeline = new FloatArrayTimeline(3, AnimationMap.KGTR.getWar3id());
+        timeline.setInterpolationType(type);
+        timeline.setKeyframes(frames, values, null, null);
+        return timeline;
+    }
+}
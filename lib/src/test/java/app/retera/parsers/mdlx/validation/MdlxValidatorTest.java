@@ -0,0 +1,91 @@
+package app.retera.parsers.mdlx.validation;
+
+import app.retera.parsers.mdlx.Geoset;
+import app.retera.parsers.mdlx.MdlxModel;
+import app.retera.parsers.mdlx.TestModels;
+import app.retera.parsers.mdlx.timeline.Timeline;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MdlxValidatorTest {
+    private static final String PIVOTS = "WARNING PIVT: 4 pivot points for 7 nodes";
+
+    @Test
+    void validModelsHaveNoErrors() {
+        assertEquals(List.of(PIVOTS), lines(new MdlxValidator().validate(TestModels.footman())));
+        assertEquals(List.of(PIVOTS),
+                lines(new MdlxValidator().validate(TestModels.fromMdx(TestModels.footmanMdx()))));
+    }
+
+    @Test
+    void brokenReferencesAreReported() {
+        final MdlxModel model = TestModels.footman();
+        model.getMaterials().get(0).getLayers().get(0).setTextureId(5);
+        final Geoset geoset = model.getGeosets().get(0);
+        geoset.setMaterialId(3);
+        final int[] matrixIndices = geoset.getCompactMatrixIndices().clone();
+        matrixIndices[0] = 99;
+        geoset.setMatrixIndices(toLongs(matrixIndices));
+        model.getGeosetAnimations().get(0).setGeosetId(2);
+        model.getBones().get(0).setParentId(2);
+        final Timeline<?> translation = model.getBones().get(0).getTimelines().get(0);
+        translation.setGlobalSequenceId(4);
+        translation.getFrames()[2] = 100;
+
+        assertEquals(List.of("ERROR MTLS[0].LAYS[0].textureId: refers to texture 5 of 2",
+                "ERROR GEOS[0].materialId: refers to material 3 of 1",
+                "ERROR GEOS[0].matrixIndices: index 0 refers to node 99 of 7",
+                "ERROR GEOA[0].geosetId: refers to geoset 2 of 1",
+                "ERROR BONE[0].KGTR.globalSequenceId: refers to global sequence 4 of 1",
+                "ERROR BONE[0].KGTR: key 2 at frame 100 comes after frame 500",
+                PIVOTS, "ERROR BONE[0].parentId: is part of a parent cycle"), lines(new MdlxValidator().validate(model)));
+    }
+
+    @Test
+    void emptyGeosetsAreReported() {
+        final MdlxModel model = TestModels.footman();
+        model.getGeosets().add(new Geoset());
+        final Geoset geoset = new Geoset();
+        geoset.setVertices(new float[3]);
+        model.getGeosets().add(geoset);
+
+        assertEquals(List.of("ERROR GEOS[1].vertices: are not a whole number of positions",
+                "WARNING GEOS[2].sequenceExtents: 0 extents for 2 sequences", PIVOTS),
+                lines(new MdlxValidator().validate(model)));
+    }
+
+    @Test
+    void failingFastStopsAtTheFirstErrors() {
+        final MdlxModel model = TestModels.footman();
+        for (final Timeline<?> timeline : model.getBones().get(0).getTimelines()) {
+            timeline.setGlobalSequenceId(9);
+        }
+        model.getSequences().get(0).getInterval()[0] = 5000;
+
+        final List<MdlxDiagnostic> all = new MdlxValidator().validate(model);
+        final List<MdlxDiagnostic> first = new MdlxValidator(true).validate(model);
+
+        assertEquals(List.of("ERROR SEQS[Stand].interval: ends at 1000 before it starts at 5000",
+                "ERROR BONE[0].KGTR.globalSequenceId: refers to global sequence 9 of 1",
+                "ERROR BONE[0].KGRT.globalSequenceId: refers to global sequence 9 of 1", PIVOTS), lines(all));
+        assertTrue(!first.isEmpty() && (first.size() < all.size()), () -> lines(first).toString());
+        assertEquals(MdlxDiagnostic.Severity.ERROR, first.get(0).getSeverity());
+    }
+
+    private static long[] toLongs(final int[] values) {
+        final long[] longs = new long[values.length];
+        for (int i = 0; i < values.length; i++) {
+            longs[i] = values[i];
+        }
+        return longs;
+    }
+
+    private static List<String> lines(final List<MdlxDiagnostic> diagnostics) {
+        return diagnostics.stream().map(MdlxDiagnostic::toString).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,203 @@
+package app.retera.parsers.mdlx.geometry;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The kernels on the Vector API, at the preferred vector width of the CPU (16
+ * floats with AVX-512).
+ *
+ * Extents run over the packed floats directly: with three accumulators of one
+ * vector each, every lane always sees the same component. The per vertex
+ * kernels gather x, y and z into separate vectors, work on whole vertices and
+ * scatter the results back. Whatever does not fill a vector is left to the
+ * scalar loops.
+ *
+ * Only loaded by {@link GeosetKernels#get()} once it knows the module is
+ * present.
+ */
+final class VectorGeosetKernels extends GeosetKernels {
+	private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+	private static final int LANES = SPECIES.length();
+	/**
+	 * Offsets of the x component of each vertex in one vector of vertices.
+	 */
+	private static final int[] STRIDE = new int[LANES];
+
+	static {
+		for (int i = 0; i < LANES; i++) {
+			STRIDE[i] = i * 3;
+		}
+	}
+
+	private final ScalarGeosetKernels scalar = new ScalarGeosetKernels();
+
+	@Override
+	public boolean isVectorized() {
+		return true;
+	}
+
+	@Override
+	public void extent(final float[] vertices, final int count, final float[] min, final float[] max) {
+		if (count < LANES) {
+			this.scalar.extent(vertices, count, min, max);
+			return;
+		}
+		final FloatVector positiveInfinity = FloatVector.broadcast(SPECIES, Float.POSITIVE_INFINITY);
+		final FloatVector negativeInfinity = FloatVector.broadcast(SPECIES, Float.NEGATIVE_INFINITY);
+		FloatVector min0 = positiveInfinity;
+		FloatVector min1 = positiveInfinity;
+		FloatVector min2 = positiveInfinity;
+		FloatVector max0 = negativeInfinity;
+		FloatVector max1 = negativeInfinity;
+		FloatVector max2 = negativeInfinity;
+
+		final int blocks = count / LANES;
+		final int end = blocks * LANES * 3;
+		for (int i = 0; i < end; i += LANES * 3) {
+			final FloatVector a = FloatVector.fromArray(SPECIES, vertices, i);
+			final FloatVector b = FloatVector.fromArray(SPECIES, vertices, i + LANES);
+			final FloatVector c = FloatVector.fromArray(SPECIES, vertices, i + (LANES * 2));
+			min0 = min0.min(a);
+			min1 = min1.min(b);
+			min2 = min2.min(c);
+			max0 = max0.max(a);
+			max1 = max1.max(b);
+			max2 = max2.max(c);
+		}
+
+		// Lane j of accumulator k holds component (k * LANES + j) % 3.
+		final float[][] mins = { min0.toArray(), min1.toArray(), min2.toArray() };
+		final float[][] maxes = { max0.toArray(), max1.toArray(), max2.toArray() };
+		for (int i = 0; i < 3; i++) {
+			min[i] = Float.POSITIVE_INFINITY;
+			max[i] = Float.NEGATIVE_INFINITY;
+		}
+		for (int k = 0; k < 3; k++) {
+			for (int j = 0; j < LANES; j++) {
+				final int component = ((k * LANES) + j) % 3;
+				min[component] = Math.min(min[component], mins[k][j]);
+				max[component] = Math.max(max[component], maxes[k][j]);
+			}
+		}
+		for (int i = end, length = count * 3; i < length; i++) {
+			min[i % 3] = Math.min(min[i % 3], vertices[i]);
+			max[i % 3] = Math.max(max[i % 3], vertices[i]);
+		}
+	}
+
+	@Override
+	public float boundsRadius(final float[] vertices, final int count, final float[] center) {
+		final FloatVector cx = FloatVector.broadcast(SPECIES, center[0]);
+		final FloatVector cy = FloatVector.broadcast(SPECIES, center[1]);
+		final FloatVector cz = FloatVector.broadcast(SPECIES, center[2]);
+		FloatVector max = FloatVector.zero(SPECIES);
+
+		final int end = (count / LANES) * LANES;
+		for (int vertex = 0; vertex < end; vertex += LANES) {
+			final int i = vertex * 3;
+			final FloatVector dx = FloatVector.fromArray(SPECIES, vertices, i, STRIDE, 0).sub(cx);
+			final FloatVector dy = FloatVector.fromArray(SPECIES, vertices, i + 1, STRIDE, 0).sub(cy);
+			final FloatVector dz = FloatVector.fromArray(SPECIES, vertices, i + 2, STRIDE, 0).sub(cz);
+			max = max.max(dx.fma(dx, dy.fma(dy, dz.mul(dz))));
+		}
+
+		float result = max.reduceLanes(VectorOperators.MAX);
+		for (int vertex = end; vertex < count; vertex++) {
+			final int i = vertex * 3;
+			final float dx = vertices[i] - center[0];
+			final float dy = vertices[i + 1] - center[1];
+			final float dz = vertices[i + 2] - center[2];
+			result = Math.max(result, (dx * dx) + (dy * dy) + (dz * dz));
+		}
+		return (float) Math.sqrt(result);
+	}
+
+	@Override
+	public void normalize(final float[] normals, final int count) {
+		final int end = (count / LANES) * LANES;
+		for (int vertex = 0; vertex < end; vertex += LANES) {
+			final int i = vertex * 3;
+			final FloatVector x = FloatVector.fromArray(SPECIES, normals, i, STRIDE, 0);
+			final FloatVector y = FloatVector.fromArray(SPECIES, normals, i + 1, STRIDE, 0);
+			final FloatVector z = FloatVector.fromArray(SPECIES, normals, i + 2, STRIDE, 0);
+			final FloatVector length = x.fma(x, y.fma(y, z.mul(z)));
+			final VectorMask<Float> nonZero = length.compare(VectorOperators.GT, 0);
+			final FloatVector inverse = FloatVector.broadcast(SPECIES, 1).div(length.sqrt())
+					.blend(1, nonZero.not());
+			x.mul(inverse).intoArray(normals, i, STRIDE, 0);
+			y.mul(inverse).intoArray(normals, i + 1, STRIDE, 0);
+			z.mul(inverse).intoArray(normals, i + 2, STRIDE, 0);
+		}
+		for (int i = end * 3, last = count * 3; i < last; i += 3) {
+			final float x = normals[i];
+			final float y = normals[i + 1];
+			final float z = normals[i + 2];
+			final float length = (x * x) + (y * y) + (z * z);
+			if (length > 0) {
+				final float inverse = (float) (1 / Math.sqrt(length));
+				normals[i] = x * inverse;
+				normals[i + 1] = y * inverse;
+				normals[i + 2] = z * inverse;
+			}
+		}
+	}
+
+	@Override
+	public void skin(final float[] vertices, final byte[] vertexGroups, final float[] groupMatrices,
+			final float[] out, final int count) {
+		this.transform(vertices, vertexGroups, groupMatrices, out, count, true);
+	}
+
+	@Override
+	public void skinNormals(final float[] normals, final byte[] vertexGroups, final float[] groupMatrices,
+			final float[] out, final int count) {
+		this.transform(normals, vertexGroups, groupMatrices, out, count, false);
+	}
+
+	private void transform(final float[] in, final byte[] vertexGroups, final float[] groupMatrices,
+			final float[] out, final int count, final boolean translate) {
+		final int[] matrices = new int[LANES];
+		final int end = (count / LANES) * LANES;
+		for (int vertex = 0; vertex < end; vertex += LANES) {
+			for (int lane = 0; lane < LANES; lane++) {
+				matrices[lane] = (vertexGroups[vertex + lane] & 0xFF) * 16;
+			}
+			final int i = vertex * 3;
+			final FloatVector x = FloatVector.fromArray(SPECIES, in, i, STRIDE, 0);
+			final FloatVector y = FloatVector.fromArray(SPECIES, in, i + 1, STRIDE, 0);
+			final FloatVector z = FloatVector.fromArray(SPECIES, in, i + 2, STRIDE, 0);
+			for (int row = 0; row < 3; row++) {
+				FloatVector result = column(groupMatrices, row, matrices).mul(x);
+				result = column(groupMatrices, row + 4, matrices).fma(y, result);
+				result = column(groupMatrices, row + 8, matrices).fma(z, result);
+				if (translate) {
+					result = result.add(column(groupMatrices, row + 12, matrices));
+				}
+				result.intoArray(out, i + row, STRIDE, 0);
+			}
+		}
+
+		for (int vertex = end; vertex < count; vertex++) {
+			final int i = vertex * 3;
+			final int m = (vertexGroups[vertex] & 0xFF) * 16;
+			final float w = translate ? 1 : 0;
+			final float x = in[i];
+			final float y = in[i + 1];
+			final float z = in[i + 2];
+			for (int row = 0; row < 3; row++) {
+				out[i + row] = (groupMatrices[m + row] * x) + (groupMatrices[m + row + 4] * y)
+						+ (groupMatrices[m + row + 8] * z) + (groupMatrices[m + row + 12] * w);
+			}
+		}
+	}
+
+	/**
+	 * Gathers one matrix element for every lane.
+	 */
+	private static FloatVector column(final float[] groupMatrices, final int element, final int[] matrices) {
+		return FloatVector.fromArray(SPECIES, groupMatrices, element, matrices, 0);
+	}
+}